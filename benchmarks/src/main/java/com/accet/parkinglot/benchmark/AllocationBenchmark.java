@@ -0,0 +1,79 @@
+package com.accet.parkinglot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.ParkingLotFloor;
+import com.accet.parkinglot.model.ParkingSpot;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.ParkingLotService;
+
+/**
+ * Single-gate cost of spot search, allocation and release as the lot grows and fills up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AllocationBenchmark {
+
+    @Param({"500", "10000", "100000"})
+    public int spots;
+
+    @Param({"0", "50", "95"})
+    public int occupancy;
+
+    private ParkingLotService service;
+    private ParkingLotFloor topFloor;
+    private Vehicle[] vehicles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = LotFixture.service(spots, occupancy);
+        // Gates on the lowest floor search upwards through the occupied floors
+        topFloor = LotFixture.floors(spots).get(LotFixture.floorCount(spots) - 1);
+        vehicles = new Vehicle[1024];
+        for (int i = 0; i < vehicles.length; i++) {
+            vehicles[i] = new Vehicle(LotFixture.registration(1, i), VehicleType.CAR);
+        }
+    }
+
+    @Benchmark
+    public ParkingSpot findNearestAvailableSpot() {
+        return service.findNearestAvailableSpot(0, VehicleType.CAR);
+    }
+
+    @Benchmark
+    public boolean floorAllocateAndRelease() {
+        ParkingSpot spot = topFloor.allocateAvailableSpot(VehicleType.CAR);
+        return spot != null && topFloor.releaseSpot(spot);
+    }
+
+    @Benchmark
+    public Booking bookAndRelease() {
+        Vehicle vehicle = vehicles[next++ & (vehicles.length - 1)];
+        Booking booking = service.bookNearestSpot(vehicle, 0);
+        if (booking != null) {
+            service.releaseSpot(booking.getBookingId(), PaymentMethod.CARD);
+        }
+        return booking;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.accet.parkinglot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.ParkingLotService;
+
+/**
+ * Several gates booking and releasing against one shared lot. Each benchmark thread is one gate; gates are
+ * spread over the floors, so with enough floors they mostly hit different spot pools.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContendedGateBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Lot {
+        @Param({"500", "10000", "100000"})
+        public int spots;
+
+        @Param({"0", "50", "95"})
+        public int occupancy;
+
+        ParkingLotService service;
+        int floorCount;
+        final AtomicInteger gates = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            service = LotFixture.service(spots, occupancy);
+            floorCount = LotFixture.floorCount(spots);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Gate {
+        int floor;
+        Vehicle[] vehicles;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Lot lot) {
+            int gate = lot.gates.getAndIncrement();
+            floor = gate % lot.floorCount;
+            vehicles = new Vehicle[256];
+            for (int i = 0; i < vehicles.length; i++) {
+                vehicles[i] = new Vehicle(LotFixture.registration(gate % 90 + 2, i), VehicleType.CAR);
+            }
+        }
+    }
+
+    private static Booking bookAndRelease(Lot lot, Gate gate) {
+        Vehicle vehicle = gate.vehicles[gate.next++ & (gate.vehicles.length - 1)];
+        Booking booking = lot.service.bookNearestSpot(vehicle, gate.floor);
+        if (booking != null) {
+            lot.service.releaseSpot(booking.getBookingId(), PaymentMethod.UPI);
+        }
+        return booking;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Booking oneGate(Lot lot, Gate gate) {
+        return bookAndRelease(lot, gate);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Booking fourGates(Lot lot, Gate gate) {
+        return bookAndRelease(lot, gate);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Booking sixteenGates(Lot lot, Gate gate) {
+        return bookAndRelease(lot, gate);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.accet.parkinglot.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.accet.parkinglot.model.SubscriptionTier;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.FareCalculator;
+import com.accet.parkinglot.service.TariffTable;
+
+/**
+ * Cost of computing the fee at exit, for walk-ins and subscribers, with the flat default tariff and with a
+ * rate card full of bands, weekend rates and daily caps. Both should cost the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FareBenchmark {
+
+    @Param({"1", "5", "30", "200"})
+    public int hours;
+
+    @Param({"flat", "banded"})
+    public String tariff;
+
+    private FareCalculator fareCalculator;
+    private final VehicleType[] types = VehicleType.values();
+    private final LocalDateTime startTime = LocalDateTime.of(2024, 3, 8, 17, 20);
+    private LocalDateTime endTime;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fareCalculator = new FareCalculator("flat".equals(tariff) ? TariffTable.fromResource(TariffTable.DEFAULT_TARIFF) : bandedTariff());
+        endTime = startTime.plusHours(hours).plusMinutes(7);
+    }
+
+    private static TariffTable bandedTariff() {
+        Properties card = new Properties();
+        for (VehicleType type : VehicleType.values()) {
+            card.setProperty("rate." + type, "30");
+            card.setProperty("weekendRate." + type, "40");
+            card.setProperty("band." + type + ".0-7", "10");
+            card.setProperty("band." + type + ".8-11", "45");
+            card.setProperty("band." + type + ".17-20", "45.50");
+            card.setProperty("weekendBand." + type + ".0-8", "15");
+            card.setProperty("dailyCap." + type, "400");
+        }
+        card.setProperty("graceMinutes", "10");
+        card.setProperty("billingUnitMinutes", "15");
+        card.setProperty("tierDiscountPercent.BASIC", "10");
+        card.setProperty("tierDiscountPercent.PREMIUM", "25");
+        return TariffTable.of(card);
+    }
+
+    @Benchmark
+    public int walkIn() {
+        return fareCalculator.calculateFee(types[next++ % types.length], startTime, endTime, SubscriptionTier.NONE);
+    }
+
+    @Benchmark
+    public int subscriber() {
+        return fareCalculator.calculateFee(VehicleType.CAR, startTime, endTime, SubscriptionTier.PREMIUM);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,353 @@
+package com.accet.parkinglot.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.accet.parkinglot.api.GateApiServer;
+import com.accet.parkinglot.gate.BackpressurePolicy;
+import com.accet.parkinglot.gate.GatePipeline;
+import com.accet.parkinglot.metrics.LatencyHistogram;
+import com.accet.parkinglot.model.Gate;
+import com.accet.parkinglot.service.ParkingLotInitializer;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+
+/**
+ * Closed-loop load test of the gate HTTP API: every simulated terminal holds one keep-alive connection, parks a
+ * car, sometimes looks it up and checks availability, drives it out and starts over, with one request in flight
+ * at a time, until the test ends. Reports the throughput and latency quantiles per endpoint.
+ * <p>
+ * The terminals share one selector thread speaking just enough HTTP/1.1 for the API, so the client costs little
+ * next to the server and thousands of terminals fit in one process. Not a JMH benchmark, since it measures a
+ * server under concurrent load rather than a method:
+ * <pre>
+ * java [-Dterminals=2000] [-Dseconds=20] [-Durl=http://127.0.0.1:8080] [-Dlayout=/layouts/campus-100k.layout]
+ *      -cp benchmarks/target/benchmarks.jar com.accet.parkinglot.benchmark.GateApiLoadTest
+ * </pre>
+ * Without {@code -Durl} the lot and API server are started in this JVM; with it, the target must serve the
+ * same layout, so the gate IDs match.
+ */
+public final class GateApiLoadTest {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    // A terminal looks its booking up and checks availability on one round in this many
+    private static final int LOOKUP_EVERY = 10;
+    private static final long DRAIN_NANOS = 10_000_000_000L;
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private enum Endpoint {
+        ENTRY, LOOKUP, AVAILABILITY, EXIT
+    }
+
+    private final InetSocketAddress address;
+    private final String host;
+    private final List<String> entryGates = new ArrayList<>();
+    private final List<String> exitGates = new ArrayList<>();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Endpoint.values().length];
+    private final long[] errors = new long[Endpoint.values().length];
+    private long lostTerminals;
+    private long reconnects;
+
+    private GateApiLoadTest(URI baseUri, List<Gate> gates) {
+        this.address = new InetSocketAddress(baseUri.getHost(), baseUri.getPort() < 0 ? 80 : baseUri.getPort());
+        this.host = baseUri.getHost() + ":" + address.getPort();
+        for (Gate gate : gates) {
+            (gate.getType() == Gate.GateType.ENTRY ? entryGates : exitGates).add(gate.getGateId());
+        }
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies[endpoint.ordinal()] = new LatencyHistogram();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int terminals = Integer.getInteger("terminals", 2000);
+        int seconds = Integer.getInteger("seconds", 20);
+        String url = System.getProperty("url");
+        ParkingLotInitializer layout = ParkingLotInitializer.fromResource(System.getProperty("layout", "/layouts/campus-100k.layout"));
+
+        GateApiServer server = null;
+        GatePipeline pipeline = null;
+        if (url == null) {
+            SubscriptionManager subscriptionManager = new SubscriptionManager();
+            ParkingLotService service = new ParkingLotService(subscriptionManager);
+            service.addParkingFloors(layout.getParkingFloors());
+            pipeline = new GatePipeline(service, layout.getGates(), 4096, BackpressurePolicy.BLOCK);
+            server = new GateApiServer(service, subscriptionManager, pipeline);
+            server.start(new InetSocketAddress("127.0.0.1", 0), GateApiServer.DEFAULT_THREADS);
+            url = "http://127.0.0.1:" + server.getPort();
+        }
+        System.out.println("Driving " + url + " with " + terminals + " terminals for " + seconds + " s...");
+
+        GateApiLoadTest test = new GateApiLoadTest(URI.create(url), layout.getGates());
+        long elapsed = test.run(terminals, seconds * 1_000_000_000L);
+        test.report(elapsed);
+
+        if (server != null) {
+            server.close();
+            pipeline.close();
+        }
+    }
+
+    // Runs the terminals until the deadline, then lets the requests in flight finish; returns the time taken
+    private long run(int terminalCount, long durationNanos) throws IOException {
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < terminalCount; i++) {
+                new Terminal(i).connect(selector);
+            }
+            long started = System.nanoTime();
+            long deadline = started + durationNanos;
+            int open = terminalCount;
+            while (open > 0 && System.nanoTime() < deadline + DRAIN_NANOS) {
+                selector.select(100);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Terminal terminal = (Terminal) key.attachment();
+                    try {
+                        if (key.isConnectable()) {
+                            terminal.channel.finishConnect();
+                            terminal.connected();
+                        } else if (key.isWritable()) {
+                            terminal.flush();
+                        } else if (key.isReadable() && terminal.read(deadline)) {
+                            open--;
+                            continue;
+                        }
+                        key.interestOps(terminal.interest());
+                    } catch (IOException e) {
+                        key.cancel();
+                        terminal.channel.close();
+                        if (terminal.request == null || !terminal.reconnect(selector)) {
+                            lostTerminals++;
+                            open--;
+                        }
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - started;
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            return elapsed;
+        }
+    }
+
+    /**
+     * One gate terminal: its connection, where it is in its round and the response being read.
+     */
+    private final class Terminal {
+        private final int number;
+        private final String registration;
+        private final String entryGate;
+        private final String exitGate;
+        private SocketChannel channel;
+        private ByteBuffer request;
+        private ByteBuffer response = ByteBuffer.allocate(4096);
+        private Endpoint endpoint;
+        private String bookingId;
+        private int round;
+        private long sentNanos;
+        // Set from a reconnect until the next answer
+        private boolean reconnecting;
+
+        Terminal(int number) {
+            this.number = number;
+            this.registration = LotFixture.registration(number / 1_000_000, number % 1_000_000);
+            this.entryGate = entryGates.get(number % entryGates.size());
+            this.exitGate = exitGates.get(number % exitGates.size());
+        }
+
+        void connect(Selector selector) throws IOException {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.connect(address);
+            channel.register(selector, SelectionKey.OP_CONNECT, this);
+        }
+
+        void connected() throws IOException {
+            if (request == null) {
+                startRound();
+            } else {
+                // The server dropped the connection with this request unanswered; send it again
+                request.rewind();
+                flush();
+            }
+        }
+
+        // Replaces a connection the server closed, as HTTP clients do; gives up if the last replacement got no answer
+        boolean reconnect(Selector selector) {
+            if (reconnecting) {
+                return false;
+            }
+            reconnecting = true;
+            reconnects++;
+            response.clear();
+            try {
+                connect(selector);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        void startRound() throws IOException {
+            send(Endpoint.ENTRY, "POST", "/api/entries",
+                    "{\"gate\":\"" + entryGate + "\",\"registration\":\"" + registration + "\",\"type\":\"CAR\"}");
+        }
+
+        private void send(Endpoint next, String method, String path, String json) throws IOException {
+            StringBuilder text = new StringBuilder(256).append(method).append(' ').append(path).append(" HTTP/1.1\r\nHost: ").append(host).append("\r\n");
+            if (json != null) {
+                text.append("Content-Type: application/json\r\nContent-Length: ").append(json.length()).append("\r\n\r\n").append(json);
+            } else {
+                text.append("\r\n");
+            }
+            endpoint = next;
+            request = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.US_ASCII));
+            sentNanos = System.nanoTime();
+            flush();
+        }
+
+        void flush() throws IOException {
+            channel.write(request);
+        }
+
+        int interest() {
+            return request != null && request.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        }
+
+        // Reads what has arrived; returns true once the terminal has finished its last round
+        boolean read(long deadline) throws IOException {
+            if (channel.read(response) < 0) {
+                throw new IOException("Server closed the connection");
+            }
+            int headerEnd = indexOf(response, HEADER_END);
+            if (headerEnd < 0) {
+                if (!response.hasRemaining()) {
+                    response = ByteBuffer.allocate(response.capacity() * 2).put(response.flip());
+                }
+                return false;
+            }
+            String headers = new String(response.array(), 0, headerEnd, StandardCharsets.US_ASCII);
+            int length = contentLength(headers);
+            int total = headerEnd + HEADER_END.length + length;
+            if (response.position() < total) {
+                if (response.capacity() < total) {
+                    response = ByteBuffer.allocate(total).put(response.flip());
+                }
+                return false;
+            }
+            latencies[endpoint.ordinal()].record(System.nanoTime() - sentNanos);
+            reconnecting = false;
+            int status = Integer.parseInt(headers.substring(9, 12));
+            String body = new String(response.array(), headerEnd + HEADER_END.length, length, StandardCharsets.UTF_8);
+            response.clear();
+            if (status / 100 != 2) {
+                errors[endpoint.ordinal()]++;
+            }
+            return advance(status / 100 == 2 ? body : null, deadline);
+        }
+
+        // Sends the next request of the round, or starts a new round; returns true if the test is over for it
+        private boolean advance(String body, long deadline) throws IOException {
+            switch (endpoint) {
+                case ENTRY -> {
+                    bookingId = body != null ? field(body, "bookingId") : null;
+                    if (bookingId != null) {
+                        if (round % LOOKUP_EVERY == number % LOOKUP_EVERY) {
+                            send(Endpoint.LOOKUP, "GET", "/api/bookings/" + bookingId, null);
+                        } else {
+                            sendExit();
+                        }
+                        return false;
+                    }
+                }
+                case LOOKUP -> {
+                    send(Endpoint.AVAILABILITY, "GET", "/api/availability", null);
+                    return false;
+                }
+                case AVAILABILITY -> {
+                    sendExit();
+                    return false;
+                }
+                case EXIT -> {
+                }
+            }
+            round++;
+            if (System.nanoTime() >= deadline) {
+                channel.close();
+                return true;
+            }
+            startRound();
+            return false;
+        }
+
+        private void sendExit() throws IOException {
+            send(Endpoint.EXIT, "POST", "/api/exits",
+                    "{\"gate\":\"" + exitGate + "\",\"bookingId\":\"" + bookingId + "\",\"paymentMethod\":\"UPI\"}");
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern) {
+        byte[] bytes = buffer.array();
+        for (int i = 0; i + pattern.length <= buffer.position(); i++) {
+            int j = 0;
+            while (j < pattern.length && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int contentLength(String headers) {
+        for (String line : headers.split("\r\n")) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                return Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        return 0;
+    }
+
+    // Reads a string field from a flat response; enough for the booking ID
+    private static String field(String json, String name) {
+        String key = "\"" + name + "\":\"";
+        int start = json.indexOf(key);
+        if (start < 0) {
+            return null;
+        }
+        start += key.length();
+        return json.substring(start, json.indexOf('"', start));
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        System.out.printf("%-13s %10s %8s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms");
+        for (Endpoint endpoint : Endpoint.values()) {
+            LatencyHistogram histogram = latencies[endpoint.ordinal()];
+            long count = histogram.getCount();
+            total += count;
+            System.out.printf("%-13s %10d %8d %9.0f", endpoint, count, errors[endpoint.ordinal()], count / seconds);
+            for (double quantile : QUANTILES) {
+                System.out.printf(" %9.2f", histogram.getValueAtQuantile(quantile) / 1e6);
+            }
+            System.out.println();
+        }
+        System.out.printf("Total %d requests in %.1f s: %.0f req/s, %d reconnects%s%n", total, seconds, total / seconds, reconnects,
+                lostTerminals > 0 ? ", " + lostTerminals + " terminals lost their connection" : "");
+    }
+}
\ No newline at end of file
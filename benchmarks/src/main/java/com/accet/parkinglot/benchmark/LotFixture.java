@@ -0,0 +1,61 @@
+package com.accet.parkinglot.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.accet.parkinglot.model.ParkingLotFloor;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+
+/**
+ * Builds benchmark lots of a given size and occupancy.
+ */
+final class LotFixture {
+    // Floors hold up to this many CAR spots, so larger lots also have more floors to search
+    static final int SPOTS_PER_FLOOR = 2000;
+
+    private LotFixture() {
+    }
+
+    static int floorCount(int spots) {
+        return Math.max(1, (spots + SPOTS_PER_FLOOR - 1) / SPOTS_PER_FLOOR);
+    }
+
+    static Map<Integer, ParkingLotFloor> floors(int spots) {
+        Map<Integer, ParkingLotFloor> floors = new HashMap<>();
+        int floorCount = floorCount(spots);
+        int remaining = spots;
+        for (int f = 0; f < floorCount; f++) {
+            ParkingLotFloor floor = new ParkingLotFloor(f, "Floor " + f);
+            int count = Math.min(SPOTS_PER_FLOOR, remaining);
+            floor.addSpotRange(VehicleType.CAR, "F" + f + "-CAR-", 1, count);
+            remaining -= count;
+            floors.put(f, floor);
+        }
+        return floors;
+    }
+
+    /**
+     * Creates a service whose lot is filled to the given percentage, starting from the lowest floor.
+     */
+    static ParkingLotService service(int spots, int occupancyPercent) {
+        ParkingLotService service = new ParkingLotService(new SubscriptionManager());
+        service.addParkingFloors(floors(spots));
+        int toOccupy = (int) ((long) spots * occupancyPercent / 100);
+        for (int i = 0; i < toOccupy; i++) {
+            service.bookNearestSpot(new Vehicle(registration(99, i), VehicleType.CAR), 0);
+        }
+        return service;
+    }
+
+    /**
+     * Unique registration number for a (series, number) pair; series 0..99, number 0..999999.
+     */
+    static String registration(int series, int number) {
+        char first = (char) ('A' + number / 10000 / 26 % 26);
+        char second = (char) ('A' + number / 10000 % 26);
+        return String.format("TN %02d %c%c %04d", series, first, second, number % 10000);
+    }
+}
\ No newline at end of file
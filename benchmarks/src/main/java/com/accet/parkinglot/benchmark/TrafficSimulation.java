@@ -0,0 +1,83 @@
+package com.accet.parkinglot.benchmark;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.accet.parkinglot.model.Gate;
+import com.accet.parkinglot.model.ParkingLotFloor;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.ParkingLotInitializer;
+import com.accet.parkinglot.service.TariffTable;
+import com.accet.parkinglot.simulation.Distribution;
+import com.accet.parkinglot.simulation.SimulationReport;
+import com.accet.parkinglot.simulation.TrafficSimulator;
+import com.accet.parkinglot.simulation.TrafficStream;
+
+/**
+ * Runs the {@link TrafficSimulator} on a layout and prints its report. Traffic is spread evenly over the entry
+ * gates and over vehicle types in proportion to the spots the layout has for them, follows a weekday commuter
+ * profile, and stays for a log-normal time:
+ * <pre>
+ * java [-DvehiclesPerDay=1000000] [-Ddays=1] [-Dseed=42] [-DmedianStayMinutes=90] [-DstaySigma=1.0]
+ *      [-DsampleMinutes=60] [-Dlayout=/layouts/campus-100k.layout] [-Dtariff=path/to/tariff.properties]
+ *      -cp benchmarks/target/benchmarks.jar com.accet.parkinglot.benchmark.TrafficSimulation
+ * </pre>
+ * Runs with the same settings and seed print the same figures, so a change to allocation or the tariff can be
+ * judged by running both versions.
+ */
+public final class TrafficSimulation {
+    // Relative arrivals for hours 0 to 23: quiet nights, a morning and an evening peak
+    private static final double[] COMMUTER_PROFILE = {
+            0.2, 0.1, 0.1, 0.1, 0.2, 0.5, 1.2, 2.2, 2.8, 2.0, 1.3, 1.2,
+            1.4, 1.3, 1.2, 1.3, 1.6, 2.2, 2.4, 1.6, 1.0, 0.7, 0.5, 0.3};
+
+    private TrafficSimulation() {
+    }
+
+    public static void main(String[] args) {
+        long vehiclesPerDay = Long.getLong("vehiclesPerDay", 1_000_000);
+        int days = Integer.getInteger("days", 1);
+        long seed = Long.getLong("seed", 42);
+        double medianStayMinutes = Double.parseDouble(System.getProperty("medianStayMinutes", "90"));
+        double staySigma = Double.parseDouble(System.getProperty("staySigma", "1.0"));
+        int sampleMinutes = Integer.getInteger("sampleMinutes", 60);
+        ParkingLotInitializer layout = ParkingLotInitializer.fromResource(System.getProperty("layout", "/layouts/campus-100k.layout"));
+        String tariff = System.getProperty("tariff");
+        TariffTable tariffTable = tariff != null ? TariffTable.load(Path.of(tariff)) : TariffTable.fromResource(TariffTable.DEFAULT_TARIFF);
+
+        TrafficSimulator simulator = new TrafficSimulator(layout.getParkingFloors(), layout.getGates(), tariffTable, seed);
+        simulator.setHourlyProfile(COMMUTER_PROFILE);
+        simulator.setSampleInterval(Duration.ofMinutes(sampleMinutes));
+
+        List<String> entryGates = new ArrayList<>();
+        for (Gate gate : layout.getGates()) {
+            if (gate.getType() == Gate.GateType.ENTRY) {
+                entryGates.add(gate.getGateId());
+            }
+        }
+        long totalSpots = 0;
+        for (ParkingLotFloor floor : layout.getParkingFloors().values()) {
+            totalSpots += floor.getTotalSpotCount();
+        }
+        Distribution stay = Distribution.logNormal(medianStayMinutes, staySigma);
+        for (VehicleType type : VehicleType.values()) {
+            long spots = 0;
+            for (ParkingLotFloor floor : layout.getParkingFloors().values()) {
+                spots += floor.getTotalSpotCount(type);
+            }
+            if (spots == 0) {
+                continue;
+            }
+            double perGatePerHour = vehiclesPerDay / 24.0 * spots / totalSpots / entryGates.size();
+            for (String gateId : entryGates) {
+                simulator.addTraffic(new TrafficStream(gateId, type, perGatePerHour, stay));
+            }
+        }
+
+        SimulationReport report = simulator.run(LocalDate.of(2025, 1, 6).atStartOfDay(), Duration.ofDays(days));
+        report.print(System.out);
+    }
+}
\ No newline at end of file
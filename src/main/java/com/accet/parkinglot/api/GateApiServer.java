@@ -0,0 +1,313 @@
+package com.accet.parkinglot.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.accet.parkinglot.exception.GateOverloadedException;
+import com.accet.parkinglot.exception.InvalidBookingException;
+import com.accet.parkinglot.exception.ParkingSpotNotAvailableException;
+import com.accet.parkinglot.exception.UnsupportedVehicleTypeException;
+import com.accet.parkinglot.gate.GatePipeline;
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.Payment;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Subscription;
+import com.accet.parkinglot.model.SubscriptionTier;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.BatchItemResult;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP/JSON API for gate terminals and kiosks:
+ * <pre>
+ * POST /api/entries        {"gate":"E1","registration":"TN 01 AA 0001","type":"CAR"}   201 booking
+ * POST /api/exits          {"gate":"X1","bookingId":"...","paymentMethod":"UPI"}        200 completed booking
+ * GET  /api/bookings/{id}                                                             200 booking
+ * GET  /api/availability                                                              200 free spots by type
+ * POST /api/subscriptions  {"registration":"...","type":"CAR","tier":"PREMIUM"}        201 subscription
+ * </pre>
+ * Errors come back as {@code {"error": "..."}} with 400 for a bad request, 404 for an unknown booking, 409 when
+ * the lot refuses the request (full, already parked, already subscribed) and 503 when the gate is overloaded.
+ * <p>
+ * Entries and exits are handed to the {@link GatePipeline}, where each gate's worker batches them, and the
+ * response is sent when the gate completes the request. No handler thread waits for a gate meanwhile, so a
+ * small pool serves thousands of requests in flight; the server's own dispatcher multiplexes the connections.
+ */
+public class GateApiServer implements AutoCloseable {
+    public static final int DEFAULT_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final int MAX_BODY_BYTES = 4096;
+    private static final int BACKLOG = 4096;
+
+    // Read once, by whichever JDK HTTP server starts first
+    static {
+        // Headers and body are written separately; without TCP_NODELAY the body waits for the client's delayed ACK
+        setDefault("sun.net.httpserver.nodelay", "true");
+        // Terminals keep their connection open between cars; the default of 200 would close all others after every reply
+        setDefault("sun.net.httpserver.maxIdleConnections", "10000");
+    }
+
+    private final ParkingLotService parkingLotService;
+    private final SubscriptionManager subscriptionManager;
+    private final GatePipeline gatePipeline;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public GateApiServer(ParkingLotService parkingLotService, SubscriptionManager subscriptionManager, GatePipeline gatePipeline) {
+        this.parkingLotService = parkingLotService;
+        this.subscriptionManager = subscriptionManager;
+        this.gatePipeline = gatePipeline;
+    }
+
+    /**
+     * Starts serving on the given address. Port 0 picks a free port; see {@link #getPort()}.
+     * @param threads Handler threads; they parse requests and write responses but never wait for a gate.
+     */
+    public synchronized void start(InetSocketAddress address, int threads) {
+        if (server != null) {
+            throw new IllegalStateException("Gate API server already started");
+        }
+        try {
+            server = HttpServer.create(address, BACKLOG);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not listen on gate API address " + address, e);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gate-api-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+    }
+
+    public synchronized int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            switch (path) {
+                case "/api/entries" -> {
+                    if (requireMethod(exchange, method, "POST")) {
+                        enter(exchange, readBody(exchange));
+                    }
+                }
+                case "/api/exits" -> {
+                    if (requireMethod(exchange, method, "POST")) {
+                        exit(exchange, readBody(exchange));
+                    }
+                }
+                case "/api/availability" -> {
+                    if (requireMethod(exchange, method, "GET")) {
+                        availability(exchange);
+                    }
+                }
+                case "/api/subscriptions" -> {
+                    if (requireMethod(exchange, method, "POST")) {
+                        subscribe(exchange, readBody(exchange));
+                    }
+                }
+                default -> {
+                    if (path.startsWith("/api/bookings/")) {
+                        if (requireMethod(exchange, method, "GET")) {
+                            lookUpBooking(exchange, path.substring("/api/bookings/".length()));
+                        }
+                    } else {
+                        respondError(exchange, 404, "No such resource: " + path);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            respondFailure(exchange, e);
+        }
+    }
+
+    private void enter(HttpExchange exchange, Map<String, String> request) {
+        String gateId = require(request, "gate");
+        VehicleType type = parseEnum(VehicleType.class, require(request, "type"), "vehicle type");
+        Vehicle vehicle = new Vehicle(require(request, "registration").trim().toUpperCase(Locale.ROOT), type);
+        reply(exchange, gatePipeline.enter(gateId, vehicle), 201);
+    }
+
+    private void exit(HttpExchange exchange, Map<String, String> request) {
+        String gateId = require(request, "gate");
+        String bookingId = require(request, "bookingId").trim();
+        PaymentMethod paymentMethod = parseEnum(PaymentMethod.class, require(request, "paymentMethod"), "payment method");
+        reply(exchange, gatePipeline.exit(gateId, bookingId, paymentMethod), 200);
+    }
+
+    // Sends the gate's result once it is ready, from a handler thread rather than the gate's worker
+    private void reply(HttpExchange exchange, CompletableFuture<BatchItemResult> result, int successStatus) {
+        result.whenCompleteAsync((item, failure) -> {
+            if (failure != null) {
+                respondFailure(exchange, failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+            } else if (item.isRejected()) {
+                respondError(exchange, 409, item.getReason());
+            } else {
+                respond(exchange, successStatus, bookingJson(item.getBooking()));
+            }
+        }, executor);
+    }
+
+    private void lookUpBooking(HttpExchange exchange, String bookingId) {
+        Booking booking = parkingLotService.findBooking(bookingId);
+        if (booking == null) {
+            respondError(exchange, 404, "Invalid booking ID: " + bookingId);
+        } else {
+            respond(exchange, 200, bookingJson(booking));
+        }
+    }
+
+    private void availability(HttpExchange exchange) {
+        Json.Writer json = new Json.Writer().beginObject("available");
+        for (VehicleType type : VehicleType.values()) {
+            json.field(type.name(), parkingLotService.getAvailableSpotCount(type));
+        }
+        respond(exchange, 200, json.endObject().end());
+    }
+
+    private void subscribe(HttpExchange exchange, Map<String, String> request) {
+        String registration = require(request, "registration").trim().toUpperCase(Locale.ROOT);
+        VehicleType type = parseEnum(VehicleType.class, require(request, "type"), "vehicle type");
+        SubscriptionTier tier = parseEnum(SubscriptionTier.class, require(request, "tier"), "subscription tier");
+        if (!subscriptionManager.subscribe(registration, type, tier)) {
+            respondError(exchange, 409, registration + " already has an active subscription");
+            return;
+        }
+        Subscription subscription = subscriptionManager.getActiveSubscription(registration);
+        respond(exchange, 201, new Json.Writer()
+                .field("registration", subscription.getRegistrationNumber())
+                .field("type", subscription.getVehicleType().name())
+                .field("tier", subscription.getTier().name())
+                .field("validFrom", subscription.getValidFrom().toString())
+                .field("validUntil", subscription.getValidUntil().toString())
+                .end());
+    }
+
+    private static String bookingJson(Booking booking) {
+        Json.Writer json = new Json.Writer()
+                .field("bookingId", booking.getBookingId())
+                .field("registration", booking.getVehicle().getRegistrationNumber())
+                .field("type", booking.getVehicle().getType().name())
+                .field("spotId", booking.getSpot().getSpotId())
+                .field("floor", booking.getSpot().getFloorNumber())
+                .field("startTime", booking.getStartTime().toString());
+        Payment payment = booking.getPayment();
+        if (booking.getEndTime() != null && payment != null) {
+            json.field("endTime", booking.getEndTime().toString())
+                    .beginObject("payment")
+                    .field("paymentId", payment.getPaymentId())
+                    .field("method", payment.getPaymentMethod().name())
+                    .field("parkingFee", payment.getAmount())
+                    .field("chargingFee", payment.getChargingAmount())
+                    .field("total", payment.getTotalAmount())
+                    .endObject();
+        }
+        return json.end();
+    }
+
+    // Sends 405 and returns false if the request does not use the expected method
+    private static boolean requireMethod(HttpExchange exchange, String method, String expected) {
+        if (expected.equals(method)) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", expected);
+        respondError(exchange, 405, "Use " + expected);
+        return false;
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body is larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read request body", e);
+        }
+    }
+
+    private static String require(Map<String, String> request, String field) {
+        String value = request.get(field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing field '" + field + "'");
+        }
+        return value;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String description) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + description + " '" + value + "'");
+        }
+    }
+
+    private static void respondFailure(HttpExchange exchange, Throwable failure) {
+        if (failure instanceof GateOverloadedException) {
+            respondError(exchange, 503, failure.getMessage());
+        } else if (failure instanceof InvalidBookingException) {
+            respondError(exchange, 404, failure.getMessage());
+        } else if (failure instanceof ParkingSpotNotAvailableException) {
+            respondError(exchange, 409, failure.getMessage());
+        } else if (failure instanceof IllegalArgumentException || failure instanceof UnsupportedVehicleTypeException) {
+            respondError(exchange, 400, failure.getMessage());
+        } else {
+            System.err.println("Warning: Gate API request " + exchange.getRequestURI() + " failed: " + failure);
+            respondError(exchange, 500, "Internal error");
+        }
+    }
+
+    private static void respondError(HttpExchange exchange, int status, String message) {
+        respond(exchange, status, new Json.Writer().field("error", message).end());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // The client went away; nothing left to tell it
+        }
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+}
\ No newline at end of file
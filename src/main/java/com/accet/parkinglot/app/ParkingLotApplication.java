@@ -1,29 +1,77 @@
 package com.accet.parkinglot.app;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.accet.parkinglot.api.GateApiServer;
+import com.accet.parkinglot.event.ConsoleEventConsumer;
+import com.accet.parkinglot.event.EventLog;
+import com.accet.parkinglot.event.JsonLinesEventConsumer;
+import com.accet.parkinglot.gate.BackpressurePolicy;
+import com.accet.parkinglot.gate.GatePipeline;
+import com.accet.parkinglot.gate.GateProtocolServer;
+import com.accet.parkinglot.metrics.MetricsServer;
 import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.ChargingSession;
 import com.accet.parkinglot.model.Gate;
 import com.accet.parkinglot.model.ParkingLotFloor;
-import com.accet.parkinglot.model.ParkingSpot;
+import com.accet.parkinglot.model.Payment;
 import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Reservation;
+import com.accet.parkinglot.model.Subscription;
+import com.accet.parkinglot.model.SubscriptionTier;
 import com.accet.parkinglot.model.Vehicle;
 import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.persistence.BookingArchive;
+import com.accet.parkinglot.persistence.LotStatePersistence;
+import com.accet.parkinglot.replication.ReplicationPrimary;
+import com.accet.parkinglot.replication.ReplicationStandby;
+import com.accet.parkinglot.service.BatchItemResult;
+import com.accet.parkinglot.service.BookingRegistry;
+import com.accet.parkinglot.service.ChargerMeterSimulator;
+import com.accet.parkinglot.service.ChargingMeter;
+import com.accet.parkinglot.service.ChargingScheduler;
 import com.accet.parkinglot.service.ChargingService;
+import com.accet.parkinglot.service.ChargingSlotManager;
 import com.accet.parkinglot.service.ParkingLotInitializer;
 import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.RevenueAggregator;
 import com.accet.parkinglot.service.SubscriptionManager;
+import com.accet.parkinglot.service.TariffTable;
+import com.accet.parkinglot.util.SnowflakeIdGenerator;
 
 public class ParkingLotApplication {
 
     private static ParkingLotService parkingLotService;
     private static SubscriptionManager subscriptionManager;
     private static ChargingService chargingService;
+    private static ChargingScheduler chargingScheduler;
     private static List<Gate> gates;
+    private static GatePipeline gatePipeline;
+    private static RevenueAggregator revenueAggregator;
+    private static ReplicationPrimary replicationPrimary;
     private static Map<Integer, ParkingLotFloor> parkingFloors;
     private static Scanner scanner;
+    // Completed bookings and the lot state journal are kept here; override with -Dparkinglot.dataDir=<path>
+    private static final Path DATA_DIR = Paths.get(System.getProperty("parkinglot.dataDir", "data"));
+    // Held for the life of the process, so no second process writes to the same data directory
+    private static FileLock dataDirLock;
 
     public static void main(String[] args) {
         try (Scanner mainScanner = new Scanner(System.in)) {
@@ -33,21 +81,184 @@ public class ParkingLotApplication {
     }
 
     private void initializeSystem() {
+        // With -Dparkinglot.replication.standbyOf=<host:port> this process mirrors a running primary and serves
+        // gates only once that primary fails
+        String standbyOf = System.getProperty("parkinglot.replication.standbyOf");
+        if (standbyOf != null && System.getProperty("parkinglot.dataDir") == null) {
+            // Taking over would otherwise write over the journal and snapshot of a primary using the default directory
+            throw new IllegalStateException("A standby needs a data directory of its own; set -Dparkinglot.dataDir=<path>.");
+        }
+        lockDataDir();
         subscriptionManager = new SubscriptionManager();
-        parkingLotService = new ParkingLotService(subscriptionManager);
-        chargingService = new ChargingService();
-        // ChargingSlotManager chargingSlotManager = new ChargingSlotManager(); // Not directly used in main flow yet
-
-        ParkingLotInitializer initializer = new ParkingLotInitializer();
+        BookingArchive bookingArchive = BookingArchive.open(DATA_DIR.resolve("archive"));
+        // Lots or processes sharing one history need distinct node numbers; set with -Dparkinglot.nodeId
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(Integer.getInteger("parkinglot.nodeId", 0));
+        String tariff = System.getProperty("parkinglot.tariff"); // Tariff file path, or the bundled default
+        TariffTable tariffTable = tariff != null ? TariffTable.load(Paths.get(tariff)) : TariffTable.fromResource(TariffTable.DEFAULT_TARIFF);
+        parkingLotService = new ParkingLotService(subscriptionManager, new BookingRegistry(bookingArchive), idGenerator, tariffTable);
+        String chargingRates = System.getProperty("parkinglot.chargingRates"); // Charging rates file path, or the bundled default
+        // Walk-ins leave a reservation's spot free this long before it starts (-Dparkinglot.reservationHoldMinutes)
+        parkingLotService.setReservationHold(Duration.ofMinutes(Integer.getInteger("parkinglot.reservationHoldMinutes",
+                (int) ParkingLotService.DEFAULT_RESERVATION_HOLD.toMinutes())));
+        chargingService = chargingRates != null ? ChargingService.load(Paths.get(chargingRates)) : ChargingService.fromResource(ChargingService.DEFAULT_RATES);
+
+        String layout = System.getProperty("parkinglot.layout"); // Layout file path, or the bundled default
+        ParkingLotInitializer initializer = layout != null ? new ParkingLotInitializer(Paths.get(layout)) : new ParkingLotInitializer();
         parkingFloors = initializer.getParkingFloors();
         gates = initializer.getGates();
         parkingLotService.addParkingFloors(parkingFloors);
 
+        LotStatePersistence persistence;
+        if (standbyOf != null) {
+            persistence = runAsStandby(standbyOf);
+        } else {
+            // Restore occupancy, active bookings and subscriptions from the last run before any gate is served
+            persistence = LotStatePersistence.open(DATA_DIR.resolve("state"), parkingLotService, subscriptionManager);
+        }
+        persistence.scheduleSnapshots(Duration.ofMinutes(5));
+        // Ship every mutation to a hot standby connecting on 127.0.0.1:<port>; enable with -Dparkinglot.replication.port
+        Integer replicationPort = Integer.getInteger("parkinglot.replication.port");
+        if (replicationPort != null) {
+            replicationPrimary = new ReplicationPrimary(parkingLotService, subscriptionManager);
+            parkingLotService.addListener(replicationPrimary);
+            subscriptionManager.addListener(replicationPrimary);
+            replicationPrimary.start(replicationPort);
+            System.out.println("Accepting a replication standby on 127.0.0.1:" + replicationPrimary.getPort());
+        }
+        // Ended subscriptions are dropped once a minute, including any that ended while the lot was down
+        subscriptionManager.scheduleExpiry(Duration.ofMinutes(1));
+
+        // Structured event log written off the gate path; choose sinks with -Dparkinglot.eventLog=jsonl,console or none
+        EventLog eventLog = new EventLog(64 * 1024);
+        for (String sink : System.getProperty("parkinglot.eventLog", "jsonl").split(",")) {
+            switch (sink.trim()) {
+                case "jsonl" -> eventLog.addConsumer(new JsonLinesEventConsumer(DATA_DIR.resolve("events").resolve("events.jsonl")));
+                case "console" -> eventLog.addConsumer(new ConsoleEventConsumer());
+                case "none", "" -> { }
+                default -> System.err.println("Warning: Unknown event log sink '" + sink + "' ignored.");
+            }
+        }
+        parkingLotService.addListener(eventLog);
+        subscriptionManager.addListener(eventLog);
+
+        // EV charging shares the site's power budget (-Dparkinglot.chargingBudgetKw) and stops when the vehicle leaves
+        int chargingBudgetKw = Integer.getInteger("parkinglot.chargingBudgetKw", 150);
+        chargingScheduler = new ChargingScheduler(new ChargingSlotManager(), chargingBudgetKw * 1000);
+        parkingLotService.addListener(chargingScheduler);
+        // Chargers' meter readings are priced as they arrive and the energy is billed with the parking fee at exit
+        ChargingMeter chargingMeter = new ChargingMeter(chargingService, 64 * 1024);
+        parkingLotService.setChargingMeter(chargingMeter);
+        ChargerMeterSimulator meterSimulator = new ChargerMeterSimulator(chargingScheduler, chargingMeter);
+        meterSimulator.start(Duration.ofSeconds(1));
+
+        // Revenue and utilization totals for the admin report, kept up to date on every exit. They are carried over
+        // from the last checkpoint plus what was archived after it, and checkpointed again now and at shutdown.
+        Path revenueCheckpoint = DATA_DIR.resolve("revenue.bin");
+        revenueAggregator = new RevenueAggregator(parkingLotService);
+        revenueAggregator.restore(revenueCheckpoint, parkingLotService);
+        revenueAggregator.checkpoint(revenueCheckpoint, parkingLotService);
+        parkingLotService.addListener(revenueAggregator);
+
+        // Entries and exits run on per-gate workers; tune with -Dparkinglot.gateQueueCapacity and -Dparkinglot.backpressure
+        int gateQueueCapacity = Integer.getInteger("parkinglot.gateQueueCapacity", 256);
+        BackpressurePolicy backpressure = BackpressurePolicy.valueOf(System.getProperty("parkinglot.backpressure", "BLOCK").toUpperCase());
+        gatePipeline = new GatePipeline(parkingLotService, gates, gateQueueCapacity, backpressure);
+
+        // HTTP/JSON API for gate terminals and kiosks; -Dparkinglot.apiHost, -Dparkinglot.apiThreads, and
+        // -Dparkinglot.apiPort=-1 to turn it off
+        GateApiServer gateApiServer = new GateApiServer(parkingLotService, subscriptionManager, gatePipeline);
+        int apiPort = Integer.getInteger("parkinglot.apiPort", 8080);
+        if (apiPort >= 0) {
+            String apiHost = System.getProperty("parkinglot.apiHost", "127.0.0.1");
+            try {
+                gateApiServer.start(new InetSocketAddress(apiHost, apiPort), Integer.getInteger("parkinglot.apiThreads", GateApiServer.DEFAULT_THREADS));
+                System.out.println("Gate API available at http://" + apiHost + ":" + gateApiServer.getPort() + "/api/");
+            } catch (UncheckedIOException e) {
+                System.err.println("Warning: " + e.getMessage() + " (" + e.getCause().getMessage() + "); gate API disabled.");
+            }
+        }
+
+        // Binary gate protocol for gate controllers; off unless -Dparkinglot.gateProtocolPort is set
+        GateProtocolServer gateProtocolServer = new GateProtocolServer(gatePipeline);
+        int gateProtocolPort = Integer.getInteger("parkinglot.gateProtocolPort", -1);
+        if (gateProtocolPort >= 0) {
+            String gateProtocolHost = System.getProperty("parkinglot.gateProtocolHost", "127.0.0.1");
+            try {
+                gateProtocolServer.start(new InetSocketAddress(gateProtocolHost, gateProtocolPort));
+                System.out.println("Gate protocol available on " + gateProtocolHost + ":" + gateProtocolServer.getPort());
+            } catch (UncheckedIOException e) {
+                System.err.println("Warning: " + e.getMessage() + " (" + e.getCause().getMessage() + "); gate protocol disabled.");
+            }
+        }
+
+        // Prometheus scrape endpoint on 127.0.0.1; set -Dparkinglot.metricsPort=-1 to turn it off
+        MetricsServer metricsServer = new MetricsServer(parkingLotService, subscriptionManager, chargingScheduler, gatePipeline, eventLog);
+        int metricsPort = Integer.getInteger("parkinglot.metricsPort", 9404);
+        if (metricsPort >= 0) {
+            try {
+                metricsServer.start(metricsPort);
+                System.out.println("Metrics available at http://127.0.0.1:" + metricsServer.getPort() + "/metrics");
+            } catch (UncheckedIOException e) {
+                System.err.println("Warning: " + e.getMessage() + " (" + e.getCause().getMessage() + "); metrics disabled.");
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            gateApiServer.close();
+            gateProtocolServer.close();
+            metricsServer.close();
+            gatePipeline.close();
+            meterSimulator.close();
+            chargingMeter.close();
+            if (replicationPrimary != null) {
+                replicationPrimary.close();
+            }
+            persistence.snapshot();
+            persistence.close();
+            revenueAggregator.checkpoint(revenueCheckpoint, parkingLotService);
+            bookingArchive.close();
+            eventLog.close();
+        }));
+
         System.out.println("--- Parking Lot System Initialized ---");
         System.out.println("Total parking spots created: " + parkingLotService.getTotalSpotsInitialized());
+        System.out.println("Recovered " + persistence.getRecoveredBookings() + " parked vehicles (" + persistence.getReplayedRecords() + " journal records replayed in " + persistence.getRecoveryMillis() + " ms).");
         System.out.println("Parking lot is ready for operations.");
         System.out.println("--------------------------------------\n");
     }
+
+    // Fails fast if another process already uses the data directory, as both would append to the same archive files
+    private static void lockDataDir() {
+        try {
+            Files.createDirectories(DATA_DIR);
+            FileChannel channel = FileChannel.open(DATA_DIR.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            dataDirLock = channel.tryLock();
+            if (dataDirLock == null) {
+                channel.close();
+                throw new IllegalStateException("Data directory " + DATA_DIR.toAbsolutePath() + " is in use by another process; "
+                        + "give this one its own with -Dparkinglot.dataDir=<path>.");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not lock data directory " + DATA_DIR, e);
+        }
+    }
+
+    // Applies the primary's mutations until it fails, then takes over its state as this process's own
+    private static LotStatePersistence runAsStandby(String primary) {
+        int separator = primary.lastIndexOf(':');
+        String host = separator > 0 ? primary.substring(0, separator) : "127.0.0.1";
+        int port = Integer.parseInt(primary.substring(separator + 1));
+        // Silence from the primary for this long counts as failure (-Dparkinglot.replication.failoverMillis)
+        Duration failoverTimeout = Duration.ofMillis(Long.getLong("parkinglot.replication.failoverMillis",
+                ReplicationStandby.DEFAULT_FAILOVER_TIMEOUT.toMillis()));
+        ReplicationStandby standby = new ReplicationStandby(parkingLotService, subscriptionManager);
+        standby.start(host, port, failoverTimeout);
+        System.out.println("Standing by for the primary at " + host + ":" + port + "; gates open if it fails.");
+        String reason = standby.awaitPromotion();
+        System.out.println("Promoted to primary (" + reason + ") after applying " + standby.getAppliedRecords()
+                + " mutations up to sequence " + standby.getAppliedSequence() + ".");
+        return LotStatePersistence.takeOver(DATA_DIR.resolve("state"), parkingLotService, subscriptionManager);
+    }
+
     private void run(Scanner scanner) {
         ParkingLotApplication.scanner = scanner;
         initializeSystem();
@@ -77,21 +288,71 @@ public class ParkingLotApplication {
             System.out.println("2. Show Parking History");
             System.out.println("3. Show Subscriber Details");
             System.out.println("4. Show Available Spots");
-            System.out.println("5. Back to Main Menu");
+            System.out.println("5. Locate Parked Vehicle");
+            System.out.println("6. Show Revenue and Occupancy Report");
+            System.out.println("7. Show Upcoming Reservations");
+            System.out.println("8. Show Replication Status");
+            System.out.println("9. Back to Main Menu");
             System.out.print("Enter your choice: ");
             String choice = scanner.nextLine().trim();
 
             switch (choice) {
                 case "1" -> parkingLotService.showAllParkedVehicles();
-                case "2" -> parkingLotService.showParkingHistory();
+                case "2" -> showParkingHistory();
                 case "3" -> subscriptionManager.showSubscriptionDetails();
                 case "4" -> parkingLotService.showAvailableSpots();
-                case "5" -> { return; } // Go back to main menu
+                case "5" -> locateParkedVehicle();
+                case "6" -> revenueAggregator.showRevenueReport();
+                case "7" -> parkingLotService.showReservations();
+                case "8" -> showReplicationStatus();
+                case "9" -> { return; } // Go back to main menu
                 default -> System.out.println("Invalid choice. Please try again.");
             }
         }
     }
 
+    private static void showReplicationStatus() {
+        if (replicationPrimary == null) {
+            System.out.println("Replication is off. Start with -Dparkinglot.replication.port=<port> to accept a standby.");
+            return;
+        }
+        if (!replicationPrimary.isStandbyConnected()) {
+            System.out.println("No standby connected (port " + replicationPrimary.getPort() + ", " + replicationPrimary.getDisconnects() + " disconnects so far).");
+            return;
+        }
+        System.out.printf("Standby connected: acknowledged sequence %d of %d, %d mutations behind, lag %.3f ms (max %.3f ms).%n",
+                replicationPrimary.getAckedSequence(), replicationPrimary.getLastSequence(), replicationPrimary.getLagRecords(),
+                replicationPrimary.getLagNanos() / 1e6, replicationPrimary.getMaxLagNanos() / 1e6);
+    }
+
+    private static void showParkingHistory() {
+        System.out.print("Enter date range as 'YYYY-MM-DD YYYY-MM-DD' (or press Enter for full history): ");
+        String range = scanner.nextLine().trim();
+        if (range.isEmpty()) {
+            parkingLotService.showParkingHistory();
+            return;
+        }
+        String[] dates = range.split("\\s+");
+        try {
+            LocalDate from = LocalDate.parse(dates[0]);
+            LocalDate to = dates.length > 1 ? LocalDate.parse(dates[1]) : from;
+            parkingLotService.showParkingHistory(from, to);
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date. Expected format: YYYY-MM-DD.");
+        }
+    }
+
+    private static void locateParkedVehicle() {
+        System.out.print("Enter vehicle registration number (e.g., TN 01 AA 0001): ");
+        String regNumber = scanner.nextLine().trim().toUpperCase();
+        Booking booking = parkingLotService.findParkedVehicle(regNumber);
+        if (booking == null) {
+            System.out.println("Vehicle " + regNumber + " is not currently parked.");
+        } else {
+            System.out.println("Vehicle " + regNumber + " is parked at " + booking.getSpot().getSpotId() + " on " + parkingFloors.get(booking.getSpot().getFloorNumber()).getFloorName() + " since " + booking.getStartTime() + " (Booking ID: " + booking.getBookingId() + ")");
+        }
+    }
+
     private static void handleCustomerRole() {
         System.out.println("\n--- Customer Menu ---");
         System.out.print("Are you a subscriber? (yes/no): ");
@@ -126,7 +387,7 @@ public class ParkingLotApplication {
             return;
         }
 
-        Gate selectedGate = selectEntryGate();
+        Gate selectedGate = selectGate(Gate.GateType.ENTRY);
         if (selectedGate == null) {
             System.out.println("Gate selection cancelled or invalid.");
             return;
@@ -134,18 +395,18 @@ public class ParkingLotApplication {
 
         try {
             System.out.println("Searching for nearest available spot from " + parkingFloors.get(selectedGate.getFloorNumber()).getFloorName() + " for your " + vehicle.getType() + "...");
-            ParkingSpot nearestSpot = parkingLotService.findNearestAvailableSpot(selectedGate.getFloorNumber(), vehicle.getType());
+            BatchItemResult result = awaitGate(gatePipeline.enter(selectedGate.getGateId(), vehicle));
+            Booking booking = result.getBooking();
 
-            if (nearestSpot != null) {
-                Booking booking = parkingLotService.bookSpot(vehicle, nearestSpot);
+            if (booking != null) {
                 System.out.println("SUCCESS! Parked your " + vehicle.getType() + " at spot: " + booking.getSpot().getSpotId() + " on " + parkingFloors.get(booking.getSpot().getFloorNumber()).getFloorName());
                 System.out.println("Your booking ID is: " + booking.getBookingId());
 
                 if (vehicle.getType() == VehicleType.ELECTRIC_BIKE || vehicle.getType() == VehicleType.ELECTRIC_CAR) {
-                    askForCharging(vehicle.getType());
+                    askForCharging(booking);
                 }
             } else {
-                System.out.println("Sorry, no available spots found for your " + vehicle.getType() + " at this time.");
+                System.out.println("Sorry, your " + vehicle.getType() + " could not be parked: " + result.getReason());
             }
         } catch (RuntimeException e) {
             System.err.println("Parking failed: " + e.getMessage());
@@ -159,7 +420,9 @@ public class ParkingLotApplication {
             System.out.println("2. View Available Spots");
             System.out.println("3. New Subscription");
             System.out.println("4. Exit Vehicle");
-            System.out.println("5. Back to Main Menu");
+            System.out.println("5. Reserve a Spot in Advance");
+            System.out.println("6. Cancel a Reservation");
+            System.out.println("7. Back to Main Menu");
             System.out.print("Enter your choice: ");
             String choice = scanner.nextLine().trim();
 
@@ -168,7 +431,9 @@ public class ParkingLotApplication {
                 case "2" -> parkingLotService.showAvailableSpots();
                 case "3" -> handleNewSubscription();
                 case "4" -> exitVehicle();
-                case "5" -> { return; }
+                case "5" -> reserveSpot();
+                case "6" -> cancelReservation();
+                case "7" -> { return; }
                 default -> System.out.println("Invalid choice. Please try again.");
             }
         }
@@ -191,7 +456,7 @@ public class ParkingLotApplication {
         }
         Vehicle vehicle = new Vehicle(regNumber, vehicleType);
 
-        Gate selectedGate = selectEntryGate();
+        Gate selectedGate = selectGate(Gate.GateType.ENTRY);
         if (selectedGate == null) {
             System.out.println("Gate selection cancelled or invalid.");
             return;
@@ -199,19 +464,19 @@ public class ParkingLotApplication {
 
         try {
             System.out.println("Searching for nearest available spot from " + parkingFloors.get(selectedGate.getFloorNumber()).getFloorName() + " for " + vehicle.getType() + "...");
-            ParkingSpot nearestSpot = parkingLotService.findNearestAvailableSpot(selectedGate.getFloorNumber(), vehicle.getType());
+            BatchItemResult result = awaitGate(gatePipeline.enter(selectedGate.getGateId(), vehicle));
+            Booking booking = result.getBooking();
 
-            if (nearestSpot != null) {
-                Booking booking = parkingLotService.bookSpot(vehicle, nearestSpot);
+            if (booking != null) {
                 System.out.println("Successfully booked: " + booking.getSpot().getSpotId() + " for " + booking.getVehicle().getRegistrationNumber());
                 System.out.println("Your booking ID is: " + booking.getBookingId());
 
                 if (vehicle.getType() == VehicleType.ELECTRIC_BIKE || vehicle.getType() == VehicleType.ELECTRIC_CAR) {
-                    askForCharging(vehicle.getType());
+                    askForCharging(booking);
                 }
 
             } else {
-                System.out.println("Sorry, no available spots found for " + vehicle.getType() + " at this time.");
+                System.out.println("Sorry, " + vehicle.getType() + " could not be booked: " + result.getReason());
             }
         } catch (RuntimeException e) {
             System.err.println("Booking failed: " + e.getMessage());
@@ -233,7 +498,61 @@ public class ParkingLotApplication {
         if (vehicleType == null) {
             return;
         }
-        subscriptionManager.subscribe(regNumber, vehicleType);
+        SubscriptionTier tier = selectSubscriptionTier();
+        if (tier == null) {
+            return;
+        }
+        if (subscriptionManager.subscribe(regNumber, vehicleType, tier)) {
+            Subscription subscription = subscriptionManager.getActiveSubscription(regNumber);
+            System.out.println("Vehicle " + regNumber + " (" + vehicleType + ") has been subscribed to the " + tier + " plan (₹"
+                    + tier.getMonthlyPrice() + "), valid until " + subscription.getValidUntil() + ".");
+        } else {
+            System.out.println("Vehicle " + regNumber + " is already subscribed.");
+        }
+    }
+
+    private static void reserveSpot() {
+        VehicleType vehicleType = selectVehicleType();
+        if (vehicleType == null) {
+            return;
+        }
+        System.out.print("Enter vehicle registration number (e.g., TN 01 AA 0001): ");
+        String regNumber = scanner.nextLine().trim().toUpperCase();
+        if (!Vehicle.isValidRegistrationNumber(regNumber)) {
+            System.out.println("Invalid format. Expected: 'CC NN CC NNNN' (e.g., 'TN 01 AA 0001').");
+            return;
+        }
+        System.out.print("Enter floor number: ");
+        int floorNumber;
+        try {
+            floorNumber = Integer.parseInt(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid input. Please enter a number.");
+            return;
+        }
+        System.out.print("Enter the window as 'YYYY-MM-DDTHH:MM YYYY-MM-DDTHH:MM' (e.g., 2025-01-15T09:00 2025-01-15T18:00): ");
+        String[] window = scanner.nextLine().trim().split("\\s+");
+        try {
+            LocalDateTime from = LocalDateTime.parse(window[0]);
+            LocalDateTime until = LocalDateTime.parse(window.length > 1 ? window[1] : "");
+            Reservation reservation = parkingLotService.reserve(new Vehicle(regNumber, vehicleType), floorNumber, from, until);
+            System.out.println("Reserved a " + vehicleType + " spot on floor " + floorNumber + " from " + from + " to " + until + ".");
+            System.out.println("Your reservation ID is: " + reservation.getReservationId() + ". Enter through any entry gate when you arrive.");
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date and time. Expected format: YYYY-MM-DDTHH:MM.");
+        } catch (RuntimeException e) {
+            System.err.println("Reservation failed: " + e.getMessage());
+        }
+    }
+
+    private static void cancelReservation() {
+        System.out.print("Enter your Reservation ID to cancel: ");
+        Reservation reservation = parkingLotService.cancelReservation(scanner.nextLine().trim());
+        if (reservation == null) {
+            System.out.println("No upcoming reservation with that ID.");
+        } else {
+            System.out.println("Reservation " + reservation.getReservationId() + " cancelled.");
+        }
     }
 
     private static void exitVehicle() {
@@ -246,13 +565,42 @@ public class ParkingLotApplication {
             return;
         }
 
+        Gate exitGate = selectGate(Gate.GateType.EXIT);
+        if (exitGate == null) {
+            System.out.println("Gate selection cancelled or invalid.");
+            return;
+        }
+
         try {
-            parkingLotService.releaseSpot(bookingId, paymentMethod);
+            BatchItemResult result = awaitGate(gatePipeline.exit(exitGate.getGateId(), bookingId, paymentMethod));
+            if (result.isRejected()) {
+                System.err.println("Error exiting vehicle: " + result.getReason());
+                return;
+            }
+            Booking booking = result.getBooking();
+            long durationHours = Math.max(1, (Duration.between(booking.getStartTime(), booking.getEndTime()).toMinutes() + 59) / 60);
+            System.out.println("Vehicle " + booking.getVehicle().getRegistrationNumber() + " released from " + booking.getSpot().getSpotId());
+            Payment payment = booking.getPayment();
+            if (payment.getChargingAmount() > 0) {
+                System.out.println("Parking duration: " + durationHours + " hours. Parking Fee: ₹" + payment.getAmount()
+                        + ", EV Charging: ₹" + payment.getChargingAmount() + ", Total: ₹" + payment.getTotalAmount() + " (Paid by: " + paymentMethod + ")");
+            } else {
+                System.out.println("Parking duration: " + durationHours + " hours. Total Fee: ₹" + payment.getAmount() + " (Paid by: " + paymentMethod + ")");
+            }
         } catch (RuntimeException e) {
             System.err.println("Error exiting vehicle: " + e.getMessage());
         }
     }
 
+    // Waits for the gate to process an event, unwrapping the failure if it was refused or failed
+    private static BatchItemResult awaitGate(CompletableFuture<BatchItemResult> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
     private static PaymentMethod selectPaymentMethod() {
         while (true) {
             System.out.println("\nSelect Payment Method:");
@@ -277,49 +625,46 @@ public class ParkingLotApplication {
         }
     }
 
-    private static void askForCharging(VehicleType vehicleType) {
+    private static void askForCharging(Booking booking) {
+        VehicleType vehicleType = booking.getVehicle().getType();
         System.out.print("Do you need charging for your " + vehicleType + "? (yes/no): ");
         String chargingChoice = scanner.nextLine().trim().toLowerCase();
 
         if ("yes".equals(chargingChoice)) {
-            double kwh = -1;
-            while (kwh < 0) {
-                System.out.print("Enter units of charge needed in kWh (e.g., 5.5): ");
-                try {
-                    kwh = Double.parseDouble(scanner.nextLine());
-                    if (kwh < 0) {
-                        System.out.println("Units cannot be negative. Please enter a positive value.");
-                    }
-                } catch (NumberFormatException e) {
-                    System.out.println("Invalid input. Please enter a numerical value for kWh.");
-                }
+            System.out.println("Charging is metered and billed with your parking fee at exit, at ₹"
+                    + chargingService.getPaisePerKwh(vehicleType, LocalDateTime.now().getHour()) / 100.0 + " per kWh at the current hour.");
+            SubscriptionTier tier = subscriptionManager.getTier(booking.getVehicle().getRegistrationKey(), booking.getStartTime());
+            ChargingSession session = chargingScheduler.requestCharging(booking, tier);
+            if (session.getState() == ChargingSession.State.CHARGING) {
+                System.out.printf("Charging started at %.1f kW.%n", session.getAllocatedWatts() / 1000.0);
+            } else {
+                System.out.println("All chargers are busy; you are in line with " + chargingScheduler.getWaitingCount(vehicleType)
+                        + " waiting " + vehicleType + "(s). Charging starts automatically when one frees up.");
             }
-            int chargingCost = (int) Math.ceil(chargingService.calculateChargingCost(vehicleType, kwh));
-            System.out.println("Charging cost for " + kwh + " kWh is: ₹" + chargingCost);
-            System.out.println("Please pay the charging amount separately.");
         } else {
             System.out.println("No charging requested.");
         }
     }
 
-    private static Gate selectEntryGate() {
-        System.out.println("\nAvailable Entry Gates:");
-        List<Gate> entryGates = gates.stream()
-                                    .filter(g -> g.getType() == Gate.GateType.ENTRY)
+    private static Gate selectGate(Gate.GateType gateType) {
+        String label = gateType == Gate.GateType.ENTRY ? "Entry" : "Exit";
+        System.out.println("\nAvailable " + label + " Gates:");
+        List<Gate> matchingGates = gates.stream()
+                                    .filter(g -> g.getType() == gateType)
                                     .toList();
-        for (int i = 0; i < entryGates.size(); i++) {
-            System.out.println((i + 1) + ". " + entryGates.get(i).getGateId() + " (" + entryGates.get(i).getLocationDescription() + ")");
+        for (int i = 0; i < matchingGates.size(); i++) {
+            System.out.println((i + 1) + ". " + matchingGates.get(i).getGateId() + " (" + matchingGates.get(i).getLocationDescription() + ")");
         }
 
         while (true) {
-            System.out.print("Enter the number of your preferred Entry Gate (or '0' to cancel): ");
+            System.out.print("Enter the number of your preferred " + label + " Gate (or '0' to cancel): ");
             try {
                 int gateChoice = Integer.parseInt(scanner.nextLine());
                 if (gateChoice == 0) {
                     return null;
                 }
-                if (gateChoice > 0 && gateChoice <= entryGates.size()) {
-                    return entryGates.get(gateChoice - 1);
+                if (gateChoice > 0 && gateChoice <= matchingGates.size()) {
+                    return matchingGates.get(gateChoice - 1);
                 } else {
                     System.out.println("Invalid gate number. Please try again.");
                 }
@@ -329,6 +674,21 @@ public class ParkingLotApplication {
         }
     }
 
+    private static SubscriptionTier selectSubscriptionTier() {
+        while (true) {
+            System.out.println("\nSelect Plan:");
+            System.out.println("1. Basic (₹" + SubscriptionTier.BASIC.getMonthlyPrice() + "/month)");
+            System.out.println("2. Premium (₹" + SubscriptionTier.PREMIUM.getMonthlyPrice() + "/month)");
+            System.out.print("Enter plan number (or '0' to cancel): ");
+            switch (scanner.nextLine().trim()) {
+                case "0" -> { return null; }
+                case "1" -> { return SubscriptionTier.BASIC; }
+                case "2" -> { return SubscriptionTier.PREMIUM; }
+                default -> System.out.println("Invalid plan number. Please try again.");
+            }
+        }
+    }
+
     private static VehicleType selectVehicleType() {
         while (true) {
             System.out.println("\nSelect Vehicle Type:");
@@ -0,0 +1,63 @@
+package com.accet.parkinglot.cluster;
+
+import com.accet.parkinglot.service.ParkingLotService;
+
+/**
+ * One of the company's parking lots: where it is, the ID node its bookings and payments are numbered under,
+ * and the service holding its floors and bookings. A lot's state lives only in its own service.
+ */
+public class Lot {
+    private final String lotId;
+    private final String name;
+    private final double latitude;
+    private final double longitude;
+    private final int node;
+    private final ParkingLotService service;
+
+    Lot(String lotId, String name, double latitude, double longitude, int node, ParkingLotService service) {
+        this.lotId = lotId;
+        this.name = name;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.node = node;
+        this.service = service;
+    }
+
+    public String getLotId() {
+        return lotId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * The node of the lot's ID generator, which every booking ID issued by the lot carries.
+     */
+    public int getNode() {
+        return node;
+    }
+
+    public ParkingLotService getService() {
+        return service;
+    }
+
+    /**
+     * Great-circle distance in kilometres from a point to the lot.
+     */
+    public double distanceKm(double fromLatitude, double fromLongitude) {
+        double dLat = Math.toRadians(latitude - fromLatitude);
+        double dLon = Math.toRadians(longitude - fromLongitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(fromLatitude)) * Math.cos(Math.toRadians(latitude)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * 6371.0 * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.accet.parkinglot.cluster;
+
+/**
+ * A lot with free spots of the requested vehicle type, and how far it is from where the driver is.
+ */
+public class LotAvailability {
+    private final Lot lot;
+    private final double distanceKm;
+    private final int availableSpots;
+
+    LotAvailability(Lot lot, double distanceKm, int availableSpots) {
+        this.lot = lot;
+        this.distanceKm = distanceKm;
+        this.availableSpots = availableSpots;
+    }
+
+    public Lot getLot() {
+        return lot;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public int getAvailableSpots() {
+        return availableSpots;
+    }
+}
\ No newline at end of file
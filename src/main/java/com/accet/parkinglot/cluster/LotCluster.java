@@ -0,0 +1,310 @@
+package com.accet.parkinglot.cluster;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.accet.parkinglot.exception.InvalidBookingException;
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.ParkingLotFloor;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.BookingRegistry;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+import com.accet.parkinglot.service.TariffTable;
+import com.accet.parkinglot.util.CompactIds;
+import com.accet.parkinglot.util.ConsistentHashRing;
+import com.accet.parkinglot.util.SnowflakeIdGenerator;
+
+/**
+ * Many lots served by independent shards in one process.
+ * <p>
+ * Lots are assigned to shards by consistent hashing of the lot ID, so adding or removing a shard moves only the
+ * lots on the arcs it gains or loses. Each lot keeps its own {@link ParkingLotService}; moving a lot hands that
+ * service to the new shard, nothing is copied. Calls for one lot are routed to its shard, and calls that name
+ * only a booking are routed by the booking ID itself: every lot issues IDs under its own Snowflake node, so
+ * the node bits of an ID identify the lot. Queries over all lots are fanned out to every shard in parallel.
+ * Subscriptions are company-wide and shared by all lots.
+ */
+public class LotCluster implements AutoCloseable {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final SubscriptionManager subscriptionManager;
+    private final TariffTable tariffTable;
+    // Guarded by lock, together with shards
+    private final ConsistentHashRing<LotShard> ring;
+    private final Map<String, LotShard> shards = new LinkedHashMap<>();
+    // Lot ID by Snowflake node
+    private final AtomicReferenceArray<String> lotIdsByNode = new AtomicReferenceArray<>(SnowflakeIdGenerator.MAX_NODE + 1);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public LotCluster(SubscriptionManager subscriptionManager) {
+        this(subscriptionManager, TariffTable.fromResource(TariffTable.DEFAULT_TARIFF), DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param tariffTable Rates charged at every lot.
+     * @param virtualNodes Points per shard on the hash ring; more points spread lots more evenly.
+     */
+    public LotCluster(SubscriptionManager subscriptionManager, TariffTable tariffTable, int virtualNodes) {
+        this.subscriptionManager = subscriptionManager;
+        this.tariffTable = tariffTable;
+        this.ring = new ConsistentHashRing<>(virtualNodes);
+    }
+
+    /**
+     * Starts a shard and moves to it the lots whose IDs now hash to it.
+     */
+    public LotShard addShard(String name) {
+        lock.writeLock().lock();
+        try {
+            if (shards.containsKey(name)) {
+                throw new IllegalArgumentException("Shard already exists: " + name);
+            }
+            LotShard shard = new LotShard(name);
+            ring.add(name, shard);
+            shards.put(name, shard);
+            rebalance();
+            return shard;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves a shard's lots to the shards that now own them and stops it.
+     * @throws IllegalStateException if it is the last shard and still has lots.
+     */
+    public void removeShard(String name) {
+        lock.writeLock().lock();
+        try {
+            LotShard shard = shards.get(name);
+            if (shard == null) {
+                return;
+            }
+            if (shards.size() == 1 && !shard.getLots().isEmpty()) {
+                throw new IllegalStateException("Cannot remove the last shard while it has lots");
+            }
+            ring.remove(name);
+            shards.remove(name);
+            for (Lot lot : shard.getLots()) {
+                shard.removeLot(lot.getLotId());
+                ring.get(lot.getLotId()).addLot(lot);
+            }
+            shard.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Moves every lot that no longer hashes to the shard holding it
+    private void rebalance() {
+        for (LotShard shard : shards.values()) {
+            for (Lot lot : shard.getLots()) {
+                LotShard owner = ring.get(lot.getLotId());
+                if (owner != shard) {
+                    shard.removeLot(lot.getLotId());
+                    owner.addLot(lot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a lot with the given floors on the shard its ID hashes to. The lot gets the lowest free ID node.
+     * @throws IllegalArgumentException if a lot with this ID exists.
+     * @throws IllegalStateException if there are no shards, or every ID node is taken.
+     */
+    public Lot addLot(String lotId, String name, double latitude, double longitude, Map<Integer, ParkingLotFloor> floors) {
+        lock.writeLock().lock();
+        try {
+            LotShard shard = ring.get(lotId);
+            if (shard == null) {
+                throw new IllegalStateException("Add a shard before adding lots");
+            }
+            if (shard.getLot(lotId) != null) {
+                throw new IllegalArgumentException("Lot already exists: " + lotId);
+            }
+            int node = 0;
+            while (node <= SnowflakeIdGenerator.MAX_NODE && lotIdsByNode.get(node) != null) {
+                node++;
+            }
+            if (node > SnowflakeIdGenerator.MAX_NODE) {
+                throw new IllegalStateException("No free ID node for lot " + lotId);
+            }
+            ParkingLotService service = new ParkingLotService(subscriptionManager, new BookingRegistry(), new SnowflakeIdGenerator(node), tariffTable);
+            service.addParkingFloors(floors);
+            Lot lot = new Lot(lotId, name, latitude, longitude, node, service);
+            lotIdsByNode.set(node, lotId);
+            shard.addLot(lot);
+            return lot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a lot by ID, or null if the cluster has no such lot.
+     */
+    public Lot getLot(String lotId) {
+        lock.readLock().lock();
+        try {
+            LotShard shard = ring.get(lotId);
+            return shard != null ? shard.getLot(lotId) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the shard currently serving a lot, or null if the cluster has no such lot.
+     */
+    public LotShard getShardOf(String lotId) {
+        lock.readLock().lock();
+        try {
+            LotShard shard = ring.get(lotId);
+            return shard != null && shard.getLot(lotId) != null ? shard : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the lot that issued a booking, or null if no lot of the cluster did.
+     */
+    public Lot getLotOfBooking(String bookingId) {
+        long id = CompactIds.parse(bookingId);
+        String lotId = id >= 0 ? lotIdsByNode.get(SnowflakeIdGenerator.nodeOf(id)) : null;
+        return lotId != null ? getLot(lotId) : null;
+    }
+
+    public List<LotShard> getShards() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(shards.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Books the nearest spot for the vehicle in a lot, as {@link ParkingLotService#bookNearestSpot}.
+     * @return The new booking, or null if the lot is full for the vehicle's type.
+     * @throws InvalidBookingException if there is no such lot, or the vehicle is already parked there.
+     */
+    public Booking book(String lotId, Vehicle vehicle, int gateFloorNumber) {
+        return requireLot(lotId).getService().bookNearestSpot(vehicle, gateFloorNumber);
+    }
+
+    /**
+     * Releases a booking in whichever lot issued it.
+     * @throws InvalidBookingException if no lot issued the booking, or it is not active.
+     */
+    public Booking release(String bookingId, PaymentMethod paymentMethod) {
+        Lot lot = getLotOfBooking(bookingId);
+        if (lot == null) {
+            throw new InvalidBookingException("Invalid booking ID: " + bookingId);
+        }
+        return lot.getService().releaseSpot(bookingId, paymentMethod);
+    }
+
+    /**
+     * Looks up a booking in the lot that issued it, or returns null if there is none.
+     */
+    public Booking findBooking(String bookingId) {
+        Lot lot = getLotOfBooking(bookingId);
+        return lot != null ? lot.getService().findBooking(bookingId) : null;
+    }
+
+    /**
+     * Finds where a vehicle is parked, asking every shard in parallel.
+     * @return The vehicle's active booking, or null if it is not parked in any lot.
+     */
+    public Booking findParkedVehicle(String registrationNumber) {
+        List<CompletableFuture<Booking>> answers = new ArrayList<>();
+        for (LotShard shard : getShards()) {
+            answers.add(shard.findParkedVehicle(registrationNumber));
+        }
+        for (CompletableFuture<Booking> answer : answers) {
+            Booking booking = answer.join();
+            if (booking != null) {
+                return booking;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the lot nearest to a point that has a free spot of the type. Every shard finds its own nearest lot
+     * in parallel and the nearest of those wins.
+     * @return The lot and its distance, or null if no lot has a free spot of the type.
+     */
+    public LotAvailability findNearestLotWithSpace(double latitude, double longitude, VehicleType type) {
+        return findNearestLotWithSpace(latitude, longitude, type, Set.of());
+    }
+
+    private LotAvailability findNearestLotWithSpace(double latitude, double longitude, VehicleType type, Set<String> excluded) {
+        List<CompletableFuture<LotAvailability>> answers = new ArrayList<>();
+        for (LotShard shard : getShards()) {
+            answers.add(shard.findNearestWithSpace(latitude, longitude, type, excluded));
+        }
+        LotAvailability nearest = null;
+        for (CompletableFuture<LotAvailability> answer : answers) {
+            LotAvailability candidate = answer.join();
+            if (candidate != null && (nearest == null || candidate.getDistanceKm() < nearest.getDistanceKm())) {
+                nearest = candidate;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Books the vehicle into the nearest lot with a free spot of its type, at the lot's lowest floor. If that lot
+     * fills up before the booking lands, the next nearest is tried.
+     * @return The new booking, or null if every lot is full for the vehicle's type.
+     */
+    public Booking bookAtNearestLot(Vehicle vehicle, double latitude, double longitude) {
+        Set<String> tried = new HashSet<>();
+        LotAvailability nearest;
+        while ((nearest = findNearestLotWithSpace(latitude, longitude, vehicle.getType(), tried)) != null) {
+            ParkingLotService service = nearest.getLot().getService();
+            int lowestFloor = service.getParkingFloors().keySet().stream().mapToInt(Integer::intValue).min().orElse(0);
+            Booking booking = service.bookNearestSpot(vehicle, lowestFloor);
+            if (booking != null) {
+                return booking;
+            }
+            tried.add(nearest.getLot().getLotId());
+        }
+        return null;
+    }
+
+    private Lot requireLot(String lotId) {
+        Lot lot = getLot(lotId);
+        if (lot == null) {
+            throw new InvalidBookingException("Unknown lot: " + lotId);
+        }
+        return lot;
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            for (LotShard shard : shards.values()) {
+                shard.close();
+            }
+            shards.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
\ No newline at end of file
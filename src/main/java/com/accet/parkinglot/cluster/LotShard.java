@@ -0,0 +1,98 @@
+package com.accet.parkinglot.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.VehicleType;
+
+/**
+ * A partition of the company's lots, as assigned by the {@link LotCluster}'s hash ring. Calls for a single lot
+ * go straight to that lot's service on the caller's thread; queries over every lot of the shard run on the
+ * shard's own worker, so the cluster can ask all shards at once.
+ */
+public class LotShard implements AutoCloseable {
+    private final String name;
+    private final Map<String, Lot> lots = new ConcurrentHashMap<>();
+    private final ExecutorService worker;
+
+    LotShard(String name) {
+        this.name = name;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lot-shard-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the shard's lot with this ID, or null if the lot is not on this shard.
+     */
+    public Lot getLot(String lotId) {
+        return lots.get(lotId);
+    }
+
+    public List<Lot> getLots() {
+        return new ArrayList<>(lots.values());
+    }
+
+    void addLot(Lot lot) {
+        lots.put(lot.getLotId(), lot);
+    }
+
+    Lot removeLot(String lotId) {
+        return lots.remove(lotId);
+    }
+
+    /**
+     * Finds, on the worker, the shard's nearest lot that has a free spot of the type, skipping the excluded lots.
+     * Completes with null if no lot of the shard has one.
+     */
+    CompletableFuture<LotAvailability> findNearestWithSpace(double latitude, double longitude, VehicleType type, Set<String> excluded) {
+        return CompletableFuture.supplyAsync(() -> {
+            LotAvailability nearest = null;
+            for (Lot lot : lots.values()) {
+                int available = lot.getService().getAvailableSpotCount(type);
+                if (available == 0 || excluded.contains(lot.getLotId())) {
+                    continue;
+                }
+                double distance = lot.distanceKm(latitude, longitude);
+                if (nearest == null || distance < nearest.getDistanceKm()) {
+                    nearest = new LotAvailability(lot, distance, available);
+                }
+            }
+            return nearest;
+        }, worker);
+    }
+
+    /**
+     * Looks, on the worker, for the active booking of a vehicle in any lot of the shard.
+     * Completes with null if the vehicle is not parked in one.
+     */
+    CompletableFuture<Booking> findParkedVehicle(String registrationNumber) {
+        return CompletableFuture.supplyAsync(() -> {
+            for (Lot lot : lots.values()) {
+                Booking booking = lot.getService().findParkedVehicle(registrationNumber);
+                if (booking != null) {
+                    return booking;
+                }
+            }
+            return null;
+        }, worker);
+    }
+
+    @Override
+    public void close() {
+        worker.shutdownNow();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.accet.parkinglot.event;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import com.accet.parkinglot.util.CompactIds;
+
+/**
+ * Prints events as human-readable lines, e.g. {@code 2024-03-08T09:15:02.311 BOOKING_CREATED 0A8SVFZDC0005 TN 01 AA 0005 CAR GF-CAR-6}.
+ */
+public class ConsoleEventConsumer implements EventConsumer {
+    private final PrintStream out;
+    private final StringBuilder line = new StringBuilder(128);
+
+    public ConsoleEventConsumer() {
+        this(System.out);
+    }
+
+    public ConsoleEventConsumer(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void onEvent(LotEvent event) {
+        line.setLength(0);
+        line.append(LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getTimestampMillis()), ZoneId.systemDefault())).append(' ').append(event.getType());
+        if (event.getBookingId() >= 0) {
+            line.append(' ').append(CompactIds.format(event.getBookingId()));
+        }
+        if (event.getRegistrationNumber() != null) {
+            line.append(' ').append(event.getRegistrationNumber());
+        }
+        if (event.getVehicleType() != null) {
+            line.append(' ').append(event.getVehicleType());
+        }
+        if (event.getSpotId() != null) {
+            line.append(' ').append(event.getSpotId());
+        }
+        if (event.getDurationMinutes() >= 0) {
+            line.append(' ').append(event.getDurationMinutes()).append(" min");
+        }
+        if (event.getAmount() >= 0) {
+            line.append(" Rs.").append(event.getAmount()).append(" (").append(event.getPaymentMethod()).append(')');
+        }
+        out.println(line);
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+}
\ No newline at end of file
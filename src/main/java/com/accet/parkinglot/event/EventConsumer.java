@@ -0,0 +1,22 @@
+package com.accet.parkinglot.event;
+
+/**
+ * Receives the events of an {@link EventLog}, in order, on the log's writer thread.
+ */
+public interface EventConsumer extends AutoCloseable {
+
+    /**
+     * Handles one event. The event object is reused afterwards; do not keep a reference to it.
+     */
+    void onEvent(LotEvent event);
+
+    /**
+     * Called after each run of events, so buffered output can be written out in batches.
+     */
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+    }
+}
\ No newline at end of file
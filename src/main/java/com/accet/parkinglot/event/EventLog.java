@@ -0,0 +1,213 @@
+package com.accet.parkinglot.event;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.Payment;
+import com.accet.parkinglot.model.Subscription;
+import com.accet.parkinglot.service.ParkingLotListener;
+
+/**
+ * Structured log of lot events, kept off the gates' path: a gate only claims a slot in a pre-allocated ring buffer
+ * and copies a few fields into it, and a background writer thread hands the events to the consumers
+ * (console, JSON lines, ...) in order.
+ * <p>
+ * Slots are claimed with a CAS and marked published with a volatile write, so producers never lock or allocate.
+ * If the writer falls a whole ring behind, new events are dropped and counted rather than slowing the gates down.
+ * Closing sets a flag in the same word slots are claimed from, so every event is either claimed before the close,
+ * and written, or dropped and counted.
+ */
+public class EventLog implements ParkingLotListener, AutoCloseable {
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LotEvent[] ring;
+    private final int mask;
+    // Sequence number each slot was last published with; the writer reads a slot once it carries the expected one
+    private final AtomicLongArray published;
+    // Next sequence to claim; the sign bit is set once the log is closed, after which nothing more is claimed
+    private final AtomicLong nextClaim = new AtomicLong();
+    // Last sequence the writer has handed to the consumers; slots up to here may be reused
+    private volatile long consumed = -1;
+    private final LongAdder dropped = new LongAdder();
+    private final List<EventConsumer> consumers = new CopyOnWriteArrayList<>();
+    private final Thread writer;
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two.
+     */
+    public EventLog(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new LotEvent[size];
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            ring[i] = new LotEvent();
+            published.set(i, -1);
+        }
+        this.writer = new Thread(this::drain, "event-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void addConsumer(EventConsumer consumer) {
+        consumers.add(consumer);
+    }
+
+    /**
+     * Returns the number of events dropped because the writer could not keep up.
+     */
+    public long getDroppedEvents() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void onSpotBooked(Booking booking) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        LotEvent event = ring[(int) sequence & mask];
+        event.reset(LotEventType.BOOKING_CREATED, System.currentTimeMillis());
+        fillBooking(event, booking);
+        published.set((int) sequence & mask, sequence);
+    }
+
+    @Override
+    public void onSpotReleased(Booking booking) {
+        long durationMinutes = Duration.between(booking.getStartTime(), booking.getEndTime()).toMinutes();
+        long sequence = claim();
+        if (sequence >= 0) {
+            LotEvent event = ring[(int) sequence & mask];
+            event.reset(LotEventType.SPOT_RELEASED, System.currentTimeMillis());
+            fillBooking(event, booking);
+            event.durationMinutes = durationMinutes;
+            published.set((int) sequence & mask, sequence);
+        }
+        Payment payment = booking.getPayment();
+        if (payment == null) {
+            return;
+        }
+        sequence = claim();
+        if (sequence >= 0) {
+            LotEvent event = ring[(int) sequence & mask];
+            event.reset(LotEventType.FEE_COMPUTED, System.currentTimeMillis());
+            event.bookingId = booking.getId();
+            event.registrationKey = booking.getVehicle().getRegistrationKey();
+            event.vehicleType = booking.getVehicle().getType();
+            event.durationMinutes = durationMinutes;
+            event.amount = payment.getTotalAmount();
+            event.paymentMethod = payment.getPaymentMethod();
+            published.set((int) sequence & mask, sequence);
+        }
+    }
+
+    @Override
+    public void onSubscribed(Subscription subscription) {
+        publishSubscription(LotEventType.SUBSCRIPTION_ADDED, subscription);
+    }
+
+    @Override
+    public void onSubscriptionExpired(Subscription subscription) {
+        publishSubscription(LotEventType.SUBSCRIPTION_EXPIRED, subscription);
+    }
+
+    private void publishSubscription(LotEventType type, Subscription subscription) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        LotEvent event = ring[(int) sequence & mask];
+        event.reset(type, System.currentTimeMillis());
+        event.registrationKey = subscription.getRegistrationKey();
+        event.vehicleType = subscription.getVehicleType();
+        published.set((int) sequence & mask, sequence);
+    }
+
+    private static void fillBooking(LotEvent event, Booking booking) {
+        event.bookingId = booking.getId();
+        event.registrationKey = booking.getVehicle().getRegistrationKey();
+        event.vehicleType = booking.getVehicle().getType();
+        event.spotId = booking.getSpot().getSpotId();
+        event.floorNumber = booking.getSpot().getFloorNumber();
+    }
+
+    // Claims the next slot, or returns -1 (and counts a drop) if the ring is full or the log is closed
+    private long claim() {
+        long sequence;
+        do {
+            sequence = nextClaim.get();
+            if (sequence < 0 || sequence - consumed > ring.length) {
+                dropped.increment();
+                return -1;
+            }
+        } while (!nextClaim.compareAndSet(sequence, sequence + 1));
+        return sequence;
+    }
+
+    private void drain() {
+        long next = 0;
+        long idleParkNanos = 1_000;
+        while (true) {
+            long end = nextClaim.get();
+            if (end < 0 && next == (end & Long.MAX_VALUE)) {
+                break; // Closed, and every event claimed before that has been written
+            }
+            long available = next;
+            while (published.get((int) available & mask) == available) {
+                available++;
+            }
+            if (available == next) {
+                LockSupport.parkNanos(idleParkNanos);
+                idleParkNanos = Math.min(MAX_IDLE_PARK_NANOS, idleParkNanos * 2);
+                continue;
+            }
+            idleParkNanos = 1_000;
+            for (long sequence = next; sequence < available; sequence++) {
+                dispatch(ring[(int) sequence & mask]);
+            }
+            for (EventConsumer consumer : consumers) {
+                try {
+                    consumer.flush();
+                } catch (RuntimeException e) {
+                    System.err.println("Warning: Event consumer failed to flush: " + e.getMessage());
+                }
+            }
+            consumed = available - 1;
+            next = available;
+        }
+    }
+
+    private void dispatch(LotEvent event) {
+        for (EventConsumer consumer : consumers) {
+            try {
+                consumer.onEvent(event);
+            } catch (RuntimeException e) {
+                System.err.println("Warning: Event consumer failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops accepting events, writes out everything already logged and closes the consumers.
+     */
+    @Override
+    public void close() {
+        nextClaim.getAndUpdate(sequence -> sequence | Long.MIN_VALUE);
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (EventConsumer consumer : consumers) {
+            consumer.close();
+        }
+    }
+}
\ No newline at end of file
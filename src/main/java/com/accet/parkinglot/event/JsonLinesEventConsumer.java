@@ -0,0 +1,100 @@
+package com.accet.parkinglot.event;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.accet.parkinglot.util.CompactIds;
+
+/**
+ * Appends events to a file as JSON lines, one object per event, for shipping to log pipelines.
+ * Output is buffered and written once per run of events.
+ */
+public class JsonLinesEventConsumer implements EventConsumer {
+    private final Path file;
+    private final BufferedWriter writer;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public JsonLinesEventConsumer(Path file) {
+        this.file = file;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open event log " + file, e);
+        }
+    }
+
+    @Override
+    public void onEvent(LotEvent event) {
+        line.setLength(0);
+        line.append("{\"ts\":").append(event.getTimestampMillis());
+        line.append(",\"type\":\"").append(event.getType()).append('"');
+        if (event.getBookingId() >= 0) {
+            line.append(",\"bookingId\":\"").append(CompactIds.format(event.getBookingId())).append('"');
+        }
+        if (event.getRegistrationNumber() != null) {
+            // Registration numbers are validated to letters, digits and spaces, so they need no escaping
+            line.append(",\"registration\":\"").append(event.getRegistrationNumber()).append('"');
+        }
+        if (event.getVehicleType() != null) {
+            line.append(",\"vehicleType\":\"").append(event.getVehicleType()).append('"');
+        }
+        if (event.getSpotId() != null) {
+            line.append(",\"spot\":\"");
+            appendEscaped(event.getSpotId());
+            line.append("\",\"floor\":").append(event.getFloorNumber());
+        }
+        if (event.getDurationMinutes() >= 0) {
+            line.append(",\"durationMinutes\":").append(event.getDurationMinutes());
+        }
+        if (event.getAmount() >= 0) {
+            line.append(",\"amount\":").append(event.getAmount());
+            line.append(",\"paymentMethod\":\"").append(event.getPaymentMethod()).append('"');
+        }
+        line.append("}\n");
+        try {
+            writer.append(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write event log " + file, e);
+        }
+    }
+
+    // Spot IDs come from layout files, so escape quotes, backslashes and control characters
+    private void appendEscaped(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write event log " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close event log " + file, e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.accet.parkinglot.event;
+
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.util.RegistrationKeys;
+
+/**
+ * One entry of the event log. Instances are slots of the log's ring buffer and are reused once every consumer
+ * has seen them, so consumers must copy out anything they want to keep. Fields that do not apply to the event
+ * type are null, or -1 for numbers.
+ */
+public final class LotEvent {
+    LotEventType type;
+    long timestampMillis;
+    long bookingId;
+    long registrationKey;
+    VehicleType vehicleType;
+    String spotId;
+    int floorNumber;
+    long durationMinutes;
+    int amount;
+    PaymentMethod paymentMethod;
+
+    LotEvent() {
+    }
+
+    void reset(LotEventType type, long timestampMillis) {
+        this.type = type;
+        this.timestampMillis = timestampMillis;
+        this.bookingId = -1;
+        this.registrationKey = -1;
+        this.vehicleType = null;
+        this.spotId = null;
+        this.floorNumber = -1;
+        this.durationMinutes = -1;
+        this.amount = -1;
+        this.paymentMethod = null;
+    }
+
+    public LotEventType getType() {
+        return type;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getBookingId() {
+        return bookingId;
+    }
+
+    /**
+     * The vehicle's registration number, formatted from the packed key the slot holds.
+     */
+    public String getRegistrationNumber() {
+        return registrationKey < 0 ? null : RegistrationKeys.format(registrationKey);
+    }
+
+    public long getRegistrationKey() {
+        return registrationKey;
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public String getSpotId() {
+        return spotId;
+    }
+
+    public int getFloorNumber() {
+        return floorNumber;
+    }
+
+    public long getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    /**
+     * The fee in rupees, for FEE_COMPUTED.
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.accet.parkinglot.event;
+
+public enum LotEventType {
+    BOOKING_CREATED,
+    SPOT_RELEASED,
+    FEE_COMPUTED,
+    SUBSCRIPTION_ADDED,
+    SUBSCRIPTION_EXPIRED
+}
\ No newline at end of file
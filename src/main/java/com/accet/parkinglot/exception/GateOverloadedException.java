@@ -0,0 +1,7 @@
+package com.accet.parkinglot.exception;
+
+public class GateOverloadedException extends RuntimeException {
+    public GateOverloadedException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.accet.parkinglot.gate;
+
+/**
+ * What a gate does with a new event when its queue is full.
+ */
+public enum BackpressurePolicy {
+    /** The publisher waits until the gate has room. */
+    BLOCK,
+    /** The new event is refused; its result fails with GateOverloadedException. */
+    REJECT,
+    /** The oldest queued event is dropped to make room; its result fails with GateOverloadedException. */
+    SHED
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.accet.parkinglot.gate;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.service.BatchItemResult;
+
+/**
+ * A vehicle entering or leaving through a gate, together with the result the gate will deliver for it.
+ */
+public class GateEvent {
+
+    public enum Kind {
+        ENTRY, EXIT
+    }
+
+    private final Kind kind;
+    private final Vehicle vehicle;
+    private final String bookingId;
+    private final PaymentMethod paymentMethod;
+    private final CompletableFuture<BatchItemResult> result = new CompletableFuture<>();
+
+    private GateEvent(Kind kind, Vehicle vehicle, String bookingId, PaymentMethod paymentMethod) {
+        this.kind = kind;
+        this.vehicle = vehicle;
+        this.bookingId = bookingId;
+        this.paymentMethod = paymentMethod;
+    }
+
+    public static GateEvent entry(Vehicle vehicle) {
+        return new GateEvent(Kind.ENTRY, vehicle, null, null);
+    }
+
+    public static GateEvent exit(String bookingId, PaymentMethod paymentMethod) {
+        return new GateEvent(Kind.EXIT, null, bookingId, paymentMethod);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The arriving vehicle, or null for an exit.
+     */
+    public Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    /**
+     * The booking being closed, or null for an entry.
+     */
+    public String getBookingId() {
+        return bookingId;
+    }
+
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    /**
+     * Completes once the gate has processed the event, or exceptionally if it was rejected or shed.
+     */
+    public CompletableFuture<BatchItemResult> getResult() {
+        return result;
+    }
+
+}
\ No newline at end of file
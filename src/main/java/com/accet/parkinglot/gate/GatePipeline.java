@@ -0,0 +1,272 @@
+package com.accet.parkinglot.gate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.accet.parkinglot.exception.GateOverloadedException;
+import com.accet.parkinglot.model.Gate;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.service.BatchItemResult;
+import com.accet.parkinglot.service.ParkingLotService;
+
+/**
+ * Processes gate traffic asynchronously: every gate has a bounded queue and its own worker thread, so a slow gate
+ * never holds up the others and events of one gate are processed in the order they were published.
+ * <p>
+ * A worker takes whatever has queued up at its gate and hands consecutive entries (and consecutive exits paid the
+ * same way) to the service as one batch, so bursts cost one search and one journal sync per run instead of per car.
+ * When a queue is full, the {@link BackpressurePolicy} decides whether the publisher waits, the new event is
+ * refused, or the oldest queued event is dropped.
+ */
+public class GatePipeline implements AutoCloseable {
+    private static final int MAX_BATCH = 64;
+    // Queued by close() behind the last real event of every gate
+    private static final GateEvent STOP = GateEvent.exit(null, null);
+
+    private final ParkingLotService parkingLotService;
+    private final BackpressurePolicy policy;
+    private final Map<String, GateLane> lanes;
+    private volatile boolean closed;
+
+    public GatePipeline(ParkingLotService parkingLotService, List<Gate> gates, int queueCapacity, BackpressurePolicy policy) {
+        this.parkingLotService = parkingLotService;
+        this.policy = policy;
+        this.lanes = new HashMap<>();
+        for (Gate gate : gates) {
+            GateLane lane = new GateLane(gate, queueCapacity);
+            lanes.put(gate.getGateId(), lane);
+            lane.worker.start();
+        }
+    }
+
+    /**
+     * Queues a vehicle arriving at an entry gate. The result holds the booking, or the reason it was rejected.
+     */
+    public CompletableFuture<BatchItemResult> enter(String gateId, Vehicle vehicle) {
+        return publish(gateId, GateEvent.entry(vehicle));
+    }
+
+    /**
+     * Queues a vehicle leaving through an exit gate. The result holds the completed booking, or the reason it was rejected.
+     */
+    public CompletableFuture<BatchItemResult> exit(String gateId, String bookingId, PaymentMethod paymentMethod) {
+        return publish(gateId, GateEvent.exit(bookingId, paymentMethod));
+    }
+
+    /**
+     * Queues an event at a gate, applying the backpressure policy if the gate's queue is full.
+     * @return The event's result.
+     * @throws IllegalArgumentException if the gate does not exist or does not handle this kind of event.
+     */
+    public CompletableFuture<BatchItemResult> publish(String gateId, GateEvent event) {
+        GateLane lane = lanes.get(gateId);
+        if (lane == null) {
+            throw new IllegalArgumentException("Unknown gate: " + gateId);
+        }
+        Gate.GateType expected = event.getKind() == GateEvent.Kind.ENTRY ? Gate.GateType.ENTRY : Gate.GateType.EXIT;
+        if (lane.gate.getType() != expected) {
+            throw new IllegalArgumentException("Gate " + gateId + " is an " + lane.gate.getType() + " gate");
+        }
+        if (closed) {
+            fail(event, "Gate " + gateId + " is closed");
+            return event.getResult();
+        }
+        lane.enqueue(event);
+        // Closed since the check above and the worker already gone: it will not see this event, so fail it here
+        if (lane.stopped) {
+            lane.failQueued();
+        }
+        return event.getResult();
+    }
+
+    /**
+     * Returns the number of events waiting at a gate.
+     */
+    public int getQueuedEvents(String gateId) {
+        return lanes.get(gateId).queue.size();
+    }
+
+    /**
+     * Returns the number of events a gate has refused or shed because its queue was full.
+     */
+    public long getDroppedEvents(String gateId) {
+        return lanes.get(gateId).dropped.get();
+    }
+
+    /**
+     * Returns the IDs of the gates this pipeline serves.
+     */
+    public Set<String> getGateIds() {
+        return Collections.unmodifiableSet(lanes.keySet());
+    }
+
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Stops accepting events, lets every gate finish what is already queued and waits for the workers to exit.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (GateLane lane : lanes.values()) {
+            try {
+                lane.queue.put(STOP);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        for (GateLane lane : lanes.values()) {
+            try {
+                lane.worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void fail(GateEvent event, String reason) {
+        event.getResult().completeExceptionally(new GateOverloadedException(reason));
+    }
+
+    private class GateLane {
+        final Gate gate;
+        final BlockingQueue<GateEvent> queue;
+        final Thread worker;
+        final AtomicLong dropped = new AtomicLong();
+        // Set once the worker takes no more events
+        volatile boolean stopped;
+
+        GateLane(Gate gate, int queueCapacity) {
+            this.gate = gate;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            // Platform threads; gates are few and long-lived, so a thread each is cheap
+            this.worker = new Thread(this::run, "gate-" + gate.getGateId());
+            this.worker.setDaemon(true);
+        }
+
+        void enqueue(GateEvent event) {
+            switch (policy) {
+                case BLOCK -> {
+                    try {
+                        queue.put(event);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        fail(event, "Interrupted while waiting for gate " + gate.getGateId());
+                    }
+                }
+                case REJECT -> {
+                    if (!queue.offer(event)) {
+                        dropped.incrementAndGet();
+                        fail(event, "Gate " + gate.getGateId() + " is busy, please retry");
+                    }
+                }
+                case SHED -> {
+                    while (!queue.offer(event)) {
+                        GateEvent oldest = queue.poll();
+                        if (oldest != null && oldest != STOP) {
+                            dropped.incrementAndGet();
+                            fail(oldest, "Shed by gate " + gate.getGateId() + " under load");
+                        } else if (oldest == STOP) {
+                            queue.offer(STOP);
+                            fail(event, "Gate " + gate.getGateId() + " is closed");
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void run() {
+            List<GateEvent> events = new ArrayList<>(MAX_BATCH);
+            while (true) {
+                try {
+                    events.add(queue.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                queue.drainTo(events, MAX_BATCH - 1);
+                int stop = events.indexOf(STOP);
+                if (stop >= 0) {
+                    process(events.subList(0, stop));
+                    failClosed(events.subList(stop + 1, events.size()));
+                    break;
+                }
+                process(events);
+                events.clear();
+            }
+            // Anything published while closing is not processed; a publisher that enqueues after this drain sees
+            // stopped and fails its event itself
+            stopped = true;
+            failQueued();
+        }
+
+        void failQueued() {
+            List<GateEvent> late = new ArrayList<>();
+            queue.drainTo(late);
+            failClosed(late);
+        }
+
+        private void failClosed(List<GateEvent> events) {
+            for (GateEvent event : events) {
+                if (event != STOP) {
+                    fail(event, "Gate " + gate.getGateId() + " is closed");
+                }
+            }
+        }
+
+        // Processes the events in order, as runs of the same kind (and payment method, for exits)
+        private void process(List<GateEvent> events) {
+            int start = 0;
+            while (start < events.size()) {
+                GateEvent first = events.get(start);
+                int end = start + 1;
+                while (end < events.size() && events.get(end).getKind() == first.getKind()
+                        && events.get(end).getPaymentMethod() == first.getPaymentMethod()) {
+                    end++;
+                }
+                processRun(events.subList(start, end));
+                start = end;
+            }
+        }
+
+        private void processRun(List<GateEvent> run) {
+            try {
+                List<BatchItemResult> results;
+                if (run.get(0).getKind() == GateEvent.Kind.ENTRY) {
+                    List<Vehicle> vehicles = new ArrayList<>(run.size());
+                    for (GateEvent event : run) {
+                        vehicles.add(event.getVehicle());
+                    }
+                    results = parkingLotService.bookSpots(vehicles, gate.getFloorNumber());
+                } else {
+                    List<String> bookingIds = new ArrayList<>(run.size());
+                    for (GateEvent event : run) {
+                        bookingIds.add(event.getBookingId());
+                    }
+                    results = parkingLotService.releaseSpots(bookingIds, run.get(0).getPaymentMethod());
+                }
+                for (int i = 0; i < run.size(); i++) {
+                    run.get(i).getResult().complete(results.get(i));
+                }
+            } catch (RuntimeException e) {
+                // An unexpected failure must not kill the gate; fail this run and carry on
+                for (GateEvent event : run) {
+                    event.getResult().completeExceptionally(e);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.accet.parkinglot.gate;
+
+import java.nio.ByteBuffer;
+
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.VehicleType;
+
+/**
+ * Binary framing spoken by gate controllers to the {@link GateProtocolServer}. All integers are big-endian.
+ * <pre>
+ * request   u16 length | u8 type | u32 correlation | payload
+ * response  u16 length | u8 type | 0x80 | u32 correlation | u8 status | payload
+ *
+ * ENTRY      gate | u64 registration key | u8 vehicle type     ok: u64 booking ID | i32 floor | spot
+ * EXIT       gate | u64 booking ID | u8 payment method        ok: u64 booking ID | i32 parking fee | i32 charging fee
+ * HEARTBEAT  (empty)                                          ok: u64 server time in epoch millis
+ * </pre>
+ * The length counts the bytes after the length field itself. Gate and spot IDs are a u8 byte count followed by
+ * ASCII; registration keys are {@link com.accet.parkinglot.util.RegistrationKeys} keys, vehicle types and payment
+ * methods are enum ordinals. A response that is not OK carries a reason instead: a u8 byte count and UTF-8 text.
+ * <p>
+ * Requests may be pipelined. Responses echo the correlation number of their request and can come back in a
+ * different order, since entries and exits at different gates complete independently.
+ */
+public final class GateProtocol {
+    public static final byte ENTRY = 1;
+    public static final byte EXIT = 2;
+    public static final byte HEARTBEAT = 3;
+    // Set on the type of every response
+    public static final int RESPONSE = 0x80;
+
+    public static final byte OK = 0;
+    // The lot refused the request: full, already parked, unknown booking
+    public static final byte REJECTED = 1;
+    // Malformed frame, unknown gate or a gate of the wrong kind
+    public static final byte BAD_REQUEST = 2;
+    // The gate's queue is full or the gate is closed; retry later
+    public static final byte OVERLOADED = 3;
+    public static final byte FAILED = 4;
+
+    /**
+     * Bytes of the length, type and correlation fields.
+     */
+    public static final int HEADER_BYTES = 7;
+    /**
+     * Largest frame accepted, length field included; longer frames close the connection.
+     */
+    public static final int MAX_FRAME_BYTES = 1024;
+
+    private GateProtocol() {
+    }
+
+    /**
+     * Appends an entry request to a buffer in write mode.
+     */
+    public static void putEntry(ByteBuffer out, int correlation, String gateId, long registrationKey, VehicleType type) {
+        int start = beginFrame(out, ENTRY, correlation);
+        putAscii(out, gateId);
+        out.putLong(registrationKey);
+        out.put((byte) type.ordinal());
+        endFrame(out, start);
+    }
+
+    /**
+     * Appends an exit request to a buffer in write mode.
+     */
+    public static void putExit(ByteBuffer out, int correlation, String gateId, long bookingId, PaymentMethod paymentMethod) {
+        int start = beginFrame(out, EXIT, correlation);
+        putAscii(out, gateId);
+        out.putLong(bookingId);
+        out.put((byte) paymentMethod.ordinal());
+        endFrame(out, start);
+    }
+
+    /**
+     * Appends a heartbeat request to a buffer in write mode.
+     */
+    public static void putHeartbeat(ByteBuffer out, int correlation) {
+        endFrame(out, beginFrame(out, HEARTBEAT, correlation));
+    }
+
+    // Writes the type and correlation behind a placeholder length and returns where the frame starts
+    static int beginFrame(ByteBuffer out, int type, int correlation) {
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put((byte) type);
+        out.putInt(correlation);
+        return start;
+    }
+
+    static void endFrame(ByteBuffer out, int start) {
+        out.putShort(start, (short) (out.position() - start - 2));
+    }
+
+    // IDs are plain ASCII; anything past 255 characters is cut off
+    static void putAscii(ByteBuffer out, String text) {
+        int length = Math.min(text.length(), 255);
+        out.put((byte) length);
+        for (int i = 0; i < length; i++) {
+            out.put((byte) text.charAt(i));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,515 @@
+package com.accet.parkinglot.gate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.accet.parkinglot.exception.GateOverloadedException;
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.Payment;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.BatchItemResult;
+import com.accet.parkinglot.util.BufferPool;
+import com.accet.parkinglot.util.CompactIds;
+import com.accet.parkinglot.util.RegistrationKeys;
+
+/**
+ * Serves the {@link GateProtocol} to gate controllers from a single selector thread.
+ * <p>
+ * Every connection reads into and writes from a pair of pooled direct buffers. Frames are decoded in place, gate
+ * IDs are matched against a table of their bytes, and entries and exits are handed to the {@link GatePipeline},
+ * so the selector never waits for the lot. Gate workers queue their results back to the selector, which encodes
+ * the responses straight into the connection's write buffer; one wakeup covers every result queued meanwhile.
+ * <p>
+ * A connection may have up to {@link #MAX_IN_FLIGHT} requests unanswered. Beyond that the server stops reading
+ * from it, and TCP flow control pushes back on the controller. Under the BLOCK backpressure policy a full gate
+ * queue also holds up the selector, and with it every connection, until the gate catches up.
+ */
+public class GateProtocolServer implements AutoCloseable {
+    public static final int MAX_IN_FLIGHT = 1024;
+    private static final int BUFFER_BYTES = 16 * 1024;
+    private static final int MAX_IDLE_BUFFERS = 512;
+    // Upper bound of an encoded response: header, status and a 255-byte spot ID or reason
+    private static final int MAX_RESPONSE_BYTES = GateProtocol.HEADER_BYTES + 1 + 8 + 4 + 1 + 255;
+    private static final int BACKLOG = 4096;
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+    private static final PaymentMethod[] PAYMENT_METHODS = PaymentMethod.values();
+
+    private final GatePipeline gatePipeline;
+    private final String[] gateIds;
+    private final byte[][] gateIdBytes;
+    // Used by the selector thread only
+    private final BufferPool buffers = new BufferPool(BUFFER_BYTES, MAX_IDLE_BUFFERS);
+    private final List<Connection> dirty = new ArrayList<>();
+    // Results handed from the gate workers to the selector thread
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong protocolErrors = new AtomicLong();
+    private Selector selector;
+    private ServerSocketChannel listening;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public GateProtocolServer(GatePipeline gatePipeline) {
+        this.gatePipeline = gatePipeline;
+        this.gateIds = gatePipeline.getGateIds().toArray(new String[0]);
+        this.gateIdBytes = new byte[gateIds.length][];
+        for (int i = 0; i < gateIds.length; i++) {
+            gateIdBytes[i] = gateIds[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Starts serving on the given address. Port 0 picks a free port; see {@link #getPort()}.
+     */
+    public synchronized void start(InetSocketAddress address) {
+        if (selectorThread != null) {
+            throw new IllegalStateException("Gate protocol server already started");
+        }
+        try {
+            selector = Selector.open();
+            listening = ServerSocketChannel.open();
+            listening.bind(address, BACKLOG);
+            listening.configureBlocking(false);
+            listening.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not listen on gate protocol address " + address, e);
+        }
+        running = true;
+        selectorThread = new Thread(this::run, "gate-protocol");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    public synchronized int getPort() {
+        return listening.socket().getLocalPort();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * Returns the number of request frames received so far.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of connections closed for sending a frame that could not be delimited.
+     */
+    public long getProtocolErrors() {
+        return protocolErrors.get();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                System.err.println("Warning: Gate protocol selector failed: " + e.getMessage());
+                break;
+            }
+            wakeupPending.set(false);
+            // Results first, so connections that were paused can take more requests below
+            Reply reply;
+            while ((reply = replies.poll()) != null) {
+                deliver(reply);
+            }
+            Set<SelectionKey> selected = selector.selectedKeys();
+            for (SelectionKey key : selected) {
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Connection connection = (Connection) key.attachment();
+                if (key.isWritable()) {
+                    markDirty(connection);
+                }
+                if (key.isValid() && key.isReadable()) {
+                    read(connection);
+                }
+            }
+            selected.clear();
+            // Connections can be added while flushing, when a paused one resumes and answers buffered heartbeats
+            for (int i = 0; i < dirty.size(); i++) {
+                Connection connection = dirty.get(i);
+                connection.dirty = false;
+                if (!connection.closed) {
+                    flush(connection);
+                }
+            }
+            dirty.clear();
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection) {
+                close(connection);
+            }
+        }
+        try {
+            listening.close();
+            selector.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = listening.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(channel, buffers.acquire(), buffers.acquire());
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                openConnections.incrementAndGet();
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Warning: Gate protocol accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void read(Connection connection) {
+        int read;
+        try {
+            read = connection.channel.read(connection.in);
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        if (read < 0) {
+            // The controller is done sending; answer what it has sent, then close
+            connection.inputClosed = true;
+            connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+            markDirty(connection);
+        }
+        processFrames(connection);
+    }
+
+    // Dispatches every complete frame in the read buffer, stopping early if the connection reaches its in-flight limit
+    private void processFrames(Connection connection) {
+        ByteBuffer in = connection.in.flip();
+        while (connection.unanswered < MAX_IN_FLIGHT && in.remaining() >= 2) {
+            int length = in.getShort(in.position()) & 0xFFFF;
+            if (length < GateProtocol.HEADER_BYTES - 2 || length + 2 > GateProtocol.MAX_FRAME_BYTES) {
+                // No way to find the next frame; give up on the connection
+                protocolErrors.incrementAndGet();
+                close(connection);
+                return;
+            }
+            if (in.remaining() < length + 2) {
+                break;
+            }
+            int frameEnd = in.position() + 2 + length;
+            int limit = in.limit();
+            in.position(in.position() + 2).limit(frameEnd);
+            dispatch(connection, in);
+            in.limit(limit).position(frameEnd);
+        }
+        in.compact();
+        setReading(connection, connection.unanswered < MAX_IN_FLIGHT);
+    }
+
+    // Decodes one frame, whose bytes lie between the buffer's position and limit
+    private void dispatch(Connection connection, ByteBuffer in) {
+        int type = in.get() & 0xFF;
+        int correlation = in.getInt();
+        requests.incrementAndGet();
+        connection.unanswered++;
+        try {
+            switch (type) {
+                case GateProtocol.ENTRY -> {
+                    int gate = readGate(in);
+                    long registrationKey = in.getLong();
+                    int vehicleType = in.get() & 0xFF;
+                    if (gate < 0) {
+                        answer(connection, type, correlation, GateProtocol.BAD_REQUEST, "Unknown gate");
+                    } else if (vehicleType >= VEHICLE_TYPES.length) {
+                        answer(connection, type, correlation, GateProtocol.BAD_REQUEST, "Unknown vehicle type " + vehicleType);
+                    } else {
+                        Vehicle vehicle = vehicle(registrationKey, VEHICLE_TYPES[vehicleType]);
+                        gatePipeline.enter(gateIds[gate], vehicle)
+                                .whenComplete((result, failure) -> complete(connection, type, correlation, result, failure));
+                    }
+                }
+                case GateProtocol.EXIT -> {
+                    int gate = readGate(in);
+                    long bookingId = in.getLong();
+                    int paymentMethod = in.get() & 0xFF;
+                    if (gate < 0) {
+                        answer(connection, type, correlation, GateProtocol.BAD_REQUEST, "Unknown gate");
+                    } else if (paymentMethod >= PAYMENT_METHODS.length) {
+                        answer(connection, type, correlation, GateProtocol.BAD_REQUEST, "Unknown payment method " + paymentMethod);
+                    } else {
+                        gatePipeline.exit(gateIds[gate], CompactIds.format(bookingId), PAYMENT_METHODS[paymentMethod])
+                                .whenComplete((result, failure) -> complete(connection, type, correlation, result, failure));
+                    }
+                }
+                case GateProtocol.HEARTBEAT -> answer(connection, type, correlation, GateProtocol.OK, null);
+                default -> answer(connection, type, correlation, GateProtocol.BAD_REQUEST, "Unknown frame type " + type);
+            }
+        } catch (BufferUnderflowException e) {
+            answer(connection, type, correlation, GateProtocol.BAD_REQUEST, "Truncated frame");
+        } catch (IllegalArgumentException e) {
+            // Invalid registration, or a gate of the wrong kind
+            answer(connection, type, correlation, GateProtocol.BAD_REQUEST, e.getMessage());
+        }
+        // Bytes past the known fields are ignored, so newer controllers can append fields
+    }
+
+    // Returns the index of the gate named at the buffer's position, or -1 if there is no such gate
+    private int readGate(ByteBuffer in) {
+        int length = in.get() & 0xFF;
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        int start = in.position();
+        in.position(start + length);
+        for (int i = 0; i < gateIdBytes.length; i++) {
+            if (gateIdBytes[i].length == length && matches(in, start, gateIdBytes[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer in, int start, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (in.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Vehicle vehicle(long registrationKey, VehicleType type) {
+        Vehicle vehicle = new Vehicle(RegistrationKeys.format(registrationKey), type);
+        // Keys with out-of-range fields format to something else, or to text that does not parse at all
+        if (vehicle.getRegistrationKey() != registrationKey) {
+            throw new IllegalArgumentException("Invalid registration key " + registrationKey);
+        }
+        return vehicle;
+    }
+
+    // Runs on a gate worker, or on the selector thread if the gate failed the request straight away
+    private void complete(Connection connection, int type, int correlation, BatchItemResult result, Throwable failure) {
+        Reply reply;
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            byte status = cause instanceof GateOverloadedException ? GateProtocol.OVERLOADED : GateProtocol.FAILED;
+            String reason = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+            reply = new Reply(connection, type, correlation, status, null, reason);
+        } else if (result.isRejected()) {
+            reply = new Reply(connection, type, correlation, GateProtocol.REJECTED, null, result.getReason());
+        } else {
+            reply = new Reply(connection, type, correlation, GateProtocol.OK, result.getBooking(), null);
+        }
+        replies.add(reply);
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    private void answer(Connection connection, int type, int correlation, byte status, String reason) {
+        deliver(new Reply(connection, type, correlation, status, null, reason));
+    }
+
+    private void deliver(Reply reply) {
+        Connection connection = reply.connection();
+        if (connection.closed) {
+            return;
+        }
+        // Keep responses in completion order once one has had to wait
+        if (!connection.backlog.isEmpty() || !encode(connection.out, reply)) {
+            connection.backlog.add(reply);
+        } else {
+            connection.unanswered--;
+        }
+        markDirty(connection);
+    }
+
+    private void markDirty(Connection connection) {
+        if (!connection.dirty) {
+            connection.dirty = true;
+            dirty.add(connection);
+        }
+    }
+
+    private void flush(Connection connection) {
+        ByteBuffer out = connection.out;
+        while (true) {
+            while (!connection.backlog.isEmpty() && encode(out, connection.backlog.peek())) {
+                connection.backlog.poll();
+                connection.unanswered--;
+            }
+            int written;
+            try {
+                written = connection.channel.write(out.flip());
+            } catch (IOException e) {
+                close(connection);
+                return;
+            }
+            out.compact();
+            if (out.position() == 0 && connection.backlog.isEmpty()) {
+                setWriting(connection, false);
+                break;
+            }
+            if (written == 0) {
+                // The socket is full; carry on when the controller has read some
+                setWriting(connection, true);
+                break;
+            }
+        }
+        if (!connection.reading && connection.unanswered < MAX_IN_FLIGHT) {
+            // Room again; the read buffer may already hold the next requests
+            processFrames(connection);
+        }
+        if (connection.inputClosed && !connection.closed && connection.unanswered == 0 && out.position() == 0) {
+            close(connection);
+        }
+    }
+
+    // Writes a response into a buffer in write mode, or returns false if it might not fit
+    private static boolean encode(ByteBuffer out, Reply reply) {
+        if (out.remaining() < MAX_RESPONSE_BYTES) {
+            return false;
+        }
+        int start = GateProtocol.beginFrame(out, reply.type() | GateProtocol.RESPONSE, reply.correlation());
+        out.put(reply.status());
+        if (reply.status() != GateProtocol.OK) {
+            putReason(out, reply.reason() != null ? reply.reason() : "");
+        } else if (reply.type() == GateProtocol.ENTRY) {
+            Booking booking = reply.booking();
+            out.putLong(booking.getId());
+            out.putInt(booking.getSpot().getFloorNumber());
+            GateProtocol.putAscii(out, booking.getSpot().getSpotId());
+        } else if (reply.type() == GateProtocol.EXIT) {
+            Booking booking = reply.booking();
+            Payment payment = booking.getPayment();
+            out.putLong(booking.getId());
+            out.putInt(payment != null ? payment.getAmount() : 0);
+            out.putInt(payment != null ? payment.getChargingAmount() : 0);
+        } else {
+            out.putLong(System.currentTimeMillis());
+        }
+        GateProtocol.endFrame(out, start);
+        return true;
+    }
+
+    // UTF-8, cut at a character boundary to fit the one-byte length
+    private static void putReason(ByteBuffer out, String reason) {
+        byte[] bytes = reason.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        if (length > 255) {
+            length = 255;
+            while ((bytes[length] & 0xC0) == 0x80) {
+                length--;
+            }
+        }
+        out.put((byte) length);
+        out.put(bytes, 0, length);
+    }
+
+    private void setReading(Connection connection, boolean reading) {
+        if (connection.closed || connection.inputClosed || connection.reading == reading) {
+            return;
+        }
+        connection.reading = reading;
+        int ops = connection.key.interestOps();
+        connection.key.interestOps(reading ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ);
+    }
+
+    private void setWriting(Connection connection, boolean writing) {
+        int ops = connection.key.interestOps();
+        connection.key.interestOps(writing ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE);
+    }
+
+    private void close(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        // Results still on their way for this connection are dropped in deliver()
+        buffers.release(connection.in);
+        buffers.release(connection.out);
+        connection.backlog.clear();
+        openConnections.decrementAndGet();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones; requests already handed to the gates still complete.
+     */
+    @Override
+    public synchronized void close() {
+        if (selectorThread == null || !running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Reply(Connection connection, int type, int correlation, byte status, Booking booking, String reason) {
+    }
+
+    // Touched by the selector thread only
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in;
+        // In write mode: holds encoded responses the socket has not taken yet
+        final ByteBuffer out;
+        // Responses that did not fit in out
+        final ArrayDeque<Reply> backlog = new ArrayDeque<>();
+        SelectionKey key;
+        // Requests dispatched whose response is not in out yet
+        int unanswered;
+        boolean reading = true;
+        boolean inputClosed;
+        boolean dirty;
+        boolean closed;
+
+        Connection(SocketChannel channel, ByteBuffer in, ByteBuffer out) {
+            this.channel = channel;
+            this.in = in;
+            this.out = out;
+        }
+    }
+}
\ No newline at end of file
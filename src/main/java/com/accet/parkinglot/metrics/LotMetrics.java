@@ -0,0 +1,67 @@
+package com.accet.parkinglot.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcome of every service operation. Recording costs one histogram increment and two adders,
+ * with no locks, so it can stay on in production.
+ */
+public class LotMetrics {
+
+    public enum Operation {
+        FIND_NEAREST("find_nearest"),
+        BOOK("book"),
+        BOOK_BATCH("book_batch"),
+        RELEASE("release"),
+        RELEASE_BATCH("release_batch");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final LatencyHistogram[] latencies;
+    private final LongAdder[] rejections;
+
+    public LotMetrics() {
+        int operations = Operation.values().length;
+        latencies = new LatencyHistogram[operations];
+        rejections = new LongAdder[operations];
+        for (int i = 0; i < operations; i++) {
+            latencies[i] = new LatencyHistogram();
+            rejections[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records an operation that started at startedNanos (from System.nanoTime) and has just finished.
+     * @param succeeded false if it was rejected or failed, e.g. lot full or unknown booking.
+     */
+    public void record(Operation operation, long startedNanos, boolean succeeded) {
+        latencies[operation.ordinal()].record(System.nanoTime() - startedNanos);
+        if (!succeeded) {
+            rejections[operation.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Counts items of a batch operation that were rejected.
+     */
+    public void recordRejections(Operation operation, int count) {
+        rejections[operation.ordinal()].add(count);
+    }
+
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public long getRejections(Operation operation) {
+        return rejections[operation.ordinal()].sum();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.accet.parkinglot.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.accet.parkinglot.event.EventLog;
+import com.accet.parkinglot.gate.GatePipeline;
+import com.accet.parkinglot.metrics.LotMetrics.Operation;
+import com.accet.parkinglot.model.ParkingLotFloor;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.ChargingScheduler;
+import com.accet.parkinglot.service.ChargingSlotManager;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the lot's metrics at {@code http://127.0.0.1:<port>/metrics} in the Prometheus text exposition format.
+ * <p>
+ * Nothing is computed ahead of time: every scrape reads the lock-free operation histograms and the live spot,
+ * charging slot, subscription, gate queue and event log counters, so an idle endpoint costs nothing.
+ * The charging scheduler, gate pipeline and event log are optional and may be null.
+ */
+public class MetricsServer implements AutoCloseable {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final ParkingLotService parkingLotService;
+    private final SubscriptionManager subscriptionManager;
+    private final ChargingScheduler chargingScheduler;
+    private final GatePipeline gatePipeline;
+    private final EventLog eventLog;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsServer(ParkingLotService parkingLotService, SubscriptionManager subscriptionManager,
+                         ChargingScheduler chargingScheduler, GatePipeline gatePipeline, EventLog eventLog) {
+        this.parkingLotService = parkingLotService;
+        this.subscriptionManager = subscriptionManager;
+        this.chargingScheduler = chargingScheduler;
+        this.gatePipeline = gatePipeline;
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * Starts serving on the loopback interface. Port 0 picks a free port; see {@link #getPort()}.
+     */
+    public synchronized void start(int port) {
+        if (server != null) {
+            throw new IllegalStateException("Metrics server already started");
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not listen on metrics port " + port, e);
+        }
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    public synchronized int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Renders the current value of every metric in the Prometheus text format.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8 * 1024);
+        LotMetrics metrics = parkingLotService.getMetrics();
+
+        header(out, "parkinglot_operation_latency_seconds", "summary", "Latency of parking lot service operations.");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = metrics.getLatency(operation);
+            String labels = "operation=\"" + operation.getLabel() + "\"";
+            for (double quantile : QUANTILES) {
+                sample(out, "parkinglot_operation_latency_seconds", labels + ",quantile=\"" + quantile + "\"",
+                        seconds(histogram.getValueAtQuantile(quantile)));
+            }
+            sample(out, "parkinglot_operation_latency_seconds_sum", labels, seconds(histogram.getTotalNanos()));
+            sample(out, "parkinglot_operation_latency_seconds_count", labels, Long.toString(histogram.getCount()));
+        }
+
+        header(out, "parkinglot_operation_rejections_total", "counter", "Operations or batch items that were rejected.");
+        for (Operation operation : Operation.values()) {
+            sample(out, "parkinglot_operation_rejections_total", "operation=\"" + operation.getLabel() + "\"",
+                    Long.toString(metrics.getRejections(operation)));
+        }
+
+        header(out, "parkinglot_spots_free", "gauge", "Available spots per floor and vehicle type.");
+        StringBuilder occupied = new StringBuilder();
+        for (ParkingLotFloor floor : parkingLotService.getParkingFloors().values()) {
+            for (VehicleType type : VehicleType.values()) {
+                int total = floor.getTotalSpotCount(type);
+                if (total == 0) {
+                    continue;
+                }
+                int free = floor.getAvailableSpotCount(type);
+                String labels = "floor=\"" + floor.getFloorNumber() + "\",vehicle_type=\"" + type + "\"";
+                sample(out, "parkinglot_spots_free", labels, Integer.toString(free));
+                sample(occupied, "parkinglot_spots_occupied", labels, Integer.toString(total - free));
+            }
+        }
+        header(out, "parkinglot_spots_occupied", "gauge", "Occupied spots per floor and vehicle type.");
+        out.append(occupied);
+
+        if (chargingScheduler != null) {
+            ChargingSlotManager chargingSlotManager = chargingScheduler.getSlots();
+            header(out, "parkinglot_charging_slots_free", "gauge", "Available charging slots per vehicle type.");
+            StringBuilder inUse = new StringBuilder();
+            for (VehicleType type : VehicleType.values()) {
+                int total = chargingSlotManager.getTotalSlotsCount(type);
+                if (total == 0) {
+                    continue;
+                }
+                int free = chargingSlotManager.getAvailableSlotsCount(type);
+                String labels = "vehicle_type=\"" + type + "\"";
+                sample(out, "parkinglot_charging_slots_free", labels, Integer.toString(free));
+                sample(inUse, "parkinglot_charging_slots_in_use", labels, Integer.toString(total - free));
+            }
+            header(out, "parkinglot_charging_slots_in_use", "gauge", "Charging slots in use per vehicle type.");
+            out.append(inUse);
+            header(out, "parkinglot_charging_waiting", "gauge", "EVs waiting for a charging slot or power, per vehicle type.");
+            for (VehicleType type : VehicleType.values()) {
+                if (chargingSlotManager.getTotalSlotsCount(type) > 0) {
+                    sample(out, "parkinglot_charging_waiting", "vehicle_type=\"" + type + "\"", Integer.toString(chargingScheduler.getWaitingCount(type)));
+                }
+            }
+            header(out, "parkinglot_charging_power_watts", "gauge", "Charging power allocated to active sessions, and the site budget.");
+            sample(out, "parkinglot_charging_power_watts", "kind=\"allocated\"", Integer.toString(chargingScheduler.getAllocatedWatts()));
+            sample(out, "parkinglot_charging_power_watts", "kind=\"budget\"", Integer.toString(chargingScheduler.getBudgetWatts()));
+        }
+
+        header(out, "parkinglot_subscriptions", "gauge", "Vehicles with an active subscription.");
+        sample(out, "parkinglot_subscriptions", null, Integer.toString(subscriptionManager.getSubscriberCount()));
+
+        if (gatePipeline != null) {
+            header(out, "parkinglot_gate_queue_depth", "gauge", "Events waiting at each gate.");
+            for (String gateId : gatePipeline.getGateIds()) {
+                sample(out, "parkinglot_gate_queue_depth", "gate=\"" + gateId + "\"", Integer.toString(gatePipeline.getQueuedEvents(gateId)));
+            }
+            header(out, "parkinglot_gate_dropped_events_total", "counter", "Events refused or shed because a gate queue was full.");
+            for (String gateId : gatePipeline.getGateIds()) {
+                sample(out, "parkinglot_gate_dropped_events_total", "gate=\"" + gateId + "\"", Long.toString(gatePipeline.getDroppedEvents(gateId)));
+            }
+        }
+
+        if (eventLog != null) {
+            header(out, "parkinglot_event_log_dropped_total", "counter", "Events dropped because the event log ring was full.");
+            sample(out, "parkinglot_event_log_dropped_total", null, Long.toString(eventLog.getDroppedEvents()));
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+}
\ No newline at end of file
@@ -2,23 +2,32 @@ package com.accet.parkinglot.model;
 
 import java.time.LocalDateTime;
 
+import com.accet.parkinglot.util.CompactIds;
+
 public class Booking {
-    private final String bookingId;
+    private final long id;
     private final Vehicle vehicle;
     private final ParkingSpot spot;
     private final LocalDateTime startTime;
     private LocalDateTime endTime;
     private Payment payment;
 
-    public Booking(String bookingId, Vehicle vehicle, ParkingSpot spot, LocalDateTime startTime) {
-        this.bookingId = bookingId;
+    public Booking(long id, Vehicle vehicle, ParkingSpot spot, LocalDateTime startTime) {
+        this.id = id;
         this.vehicle = vehicle;
         this.spot = spot;
         this.startTime = startTime;
     }
 
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * The booking ID as shown to customers, e.g. "0CJ4Z1T8M0000".
+     */
     public String getBookingId() {
-        return bookingId;
+        return CompactIds.format(id);
     }
 
     public Vehicle getVehicle() {
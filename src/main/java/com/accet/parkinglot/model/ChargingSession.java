@@ -0,0 +1,82 @@
+package com.accet.parkinglot.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * An EV's charging request for one booking. The scheduler owns the state and the allocated power;
+ * both may change at any time while the session is waiting or charging.
+ */
+public class ChargingSession {
+
+    public enum State {
+        WAITING,
+        CHARGING,
+        FINISHED
+    }
+
+    private final Booking booking;
+    private final SubscriptionTier tier;
+    private final LocalDateTime requestedAt;
+    private volatile State state;
+    private volatile int allocatedWatts;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    public ChargingSession(Booking booking, SubscriptionTier tier, LocalDateTime requestedAt) {
+        this.booking = booking;
+        this.tier = tier;
+        this.requestedAt = requestedAt;
+        this.state = State.WAITING;
+    }
+
+    public Booking getBooking() {
+        return booking;
+    }
+
+    public VehicleType getVehicleType() {
+        return booking.getVehicle().getType();
+    }
+
+    public SubscriptionTier getTier() {
+        return tier;
+    }
+
+    public LocalDateTime getRequestedAt() {
+        return requestedAt;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    /**
+     * The power currently granted to the charger, in watts; 0 unless charging.
+     */
+    public int getAllocatedWatts() {
+        return allocatedWatts;
+    }
+
+    public void setAllocatedWatts(int allocatedWatts) {
+        this.allocatedWatts = allocatedWatts;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.accet.parkinglot.model;
+
+/**
+ * One sample from a charger's energy meter: the total energy delivered to a booking's vehicle so far.
+ * Readings are cumulative, so a lost or duplicated reading never double-counts energy.
+ */
+public class MeterReading {
+    private final long bookingId;
+    // Local wall-clock time, as epoch millis read in UTC
+    private final long timestampMillis;
+    private final long milliwattHours;
+
+    public MeterReading(long bookingId, long timestampMillis, long milliwattHours) {
+        this.bookingId = bookingId;
+        this.timestampMillis = timestampMillis;
+        this.milliwattHours = milliwattHours;
+    }
+
+    public long getBookingId() {
+        return bookingId;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getMilliwattHours() {
+        return milliwattHours;
+    }
+}
\ No newline at end of file
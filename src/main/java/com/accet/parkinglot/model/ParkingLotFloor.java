@@ -1,26 +1,27 @@
 package com.accet.parkinglot.model;
 
+import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ParkingLotFloor {
     private final int floorNumber;
     private final String floorName;
-    // Map to store queues of available parking spots by vehicle type
-    private final Map<VehicleType, Queue<ParkingSpot>> spotsByVehicleType;
+    // Spots and their free-spot index by vehicle type, each pool with its own lock
+    private final Map<VehicleType, SpotPool> spotsByVehicleType;
     // Map to store all occupied spots by their Spot ID for quick lookup
     private final Map<String, ParkingSpot> occupiedSpots;
 
     public ParkingLotFloor(int floorNumber, String floorName) {
         this.floorNumber = floorNumber;
         this.floorName = floorName;
-        this.spotsByVehicleType = new HashMap<>();
-        this.occupiedSpots = new HashMap<>();
-        // Initialize queues for all vehicle types
+        this.spotsByVehicleType = new EnumMap<>(VehicleType.class);
+        this.occupiedSpots = new ConcurrentHashMap<>();
+        // Initialize pools for all vehicle types
         for (VehicleType type : VehicleType.values()) {
-            spotsByVehicleType.put(type, new LinkedList<>());
+            spotsByVehicleType.put(type, new SpotPool(type, floorNumber));
         }
     }
 
@@ -32,8 +33,26 @@ public class ParkingLotFloor {
         return floorName;
     }
 
-    public Map<VehicleType, Queue<ParkingSpot>> getSpotsByVehicleType() {
-        return spotsByVehicleType;
+    /**
+     * Returns the number of free spots for a vehicle type, read from the free-spot index without locking.
+     */
+    public int getAvailableSpotCount(VehicleType vehicleType) {
+        return spotsByVehicleType.get(vehicleType).availableCount();
+    }
+
+    /**
+     * Returns the number of spots for a vehicle type on this floor, free or occupied.
+     */
+    public int getTotalSpotCount(VehicleType vehicleType) {
+        return spotsByVehicleType.get(vehicleType).totalCount();
+    }
+
+    public int getTotalSpotCount() {
+        int total = 0;
+        for (SpotPool pool : spotsByVehicleType.values()) {
+            total += pool.totalCount();
+        }
+        return total;
     }
 
     /**
@@ -45,52 +64,113 @@ public class ParkingLotFloor {
             System.err.println("Warning: Attempted to add spot " + spot.getSpotId() + " to wrong floor. Spot floor: " + spot.getFloorNumber() + ", Current floor: " + this.floorNumber);
             return;
         }
-        spotsByVehicleType.get(spot.getType()).offer(spot);
+        spotsByVehicleType.get(spot.getType()).add(spot);
+    }
+
+    /**
+     * Adds the spots prefix + first .. prefix + last of one vehicle type, e.g. "F1-CAR-1" to "F1-CAR-2000".
+     * Only the range is stored; each ParkingSpot is created the first time it is handed out or looked up.
+     */
+    public void addSpotRange(VehicleType vehicleType, String prefix, int first, int last) {
+        if (last < first) {
+            throw new IllegalArgumentException("Empty spot range " + prefix + first + ".." + last);
+        }
+        spotsByVehicleType.get(vehicleType).addRange(prefix, first, last - first + 1);
     }
 
     /**
-     * Retrieves an available spot for a given vehicle type.
-     * The spot is NOT removed from the available queue yet.
+     * Retrieves the lowest-numbered available spot for a given vehicle type.
+     * The spot is NOT removed from the free-spot index yet.
      * @param vehicleType The type of vehicle.
      * @return An available ParkingSpot, or null if none is available.
      */
     public ParkingSpot getAvailableSpot(VehicleType vehicleType) {
-        Queue<ParkingSpot> availableSpots = spotsByVehicleType.get(vehicleType);
-        if (availableSpots != null && !availableSpots.isEmpty()) {
-            return availableSpots.peek(); // Just peek, don't remove yet
+        return spotsByVehicleType.get(vehicleType).peek(); // Just peek, don't remove yet
+    }
+
+    /**
+     * Looks up a spot of this floor by its ID.
+     * @return The ParkingSpot, or null if the floor has no such spot.
+     */
+    public ParkingSpot findSpot(VehicleType vehicleType, String spotId) {
+        return spotsByVehicleType.get(vehicleType).find(spotId);
+    }
+
+    /**
+     * Atomically takes the next available spot for a vehicle type and marks it occupied.
+     * Unlike getAvailableSpot followed by allocateSpot, no other gate can claim the spot in between.
+     * @param vehicleType The type of vehicle.
+     * @return The allocated ParkingSpot, or null if none is available.
+     */
+    public ParkingSpot allocateAvailableSpot(VehicleType vehicleType) {
+        return allocateAvailableSpot(vehicleType, 0);
+    }
+
+    /**
+     * Like allocateAvailableSpot, but only while more than keepFree spots of the type are free, e.g. to leave
+     * spots held for reservations alone. The check and the allocation are one atomic step.
+     */
+    public ParkingSpot allocateAvailableSpot(VehicleType vehicleType, int keepFree) {
+        ParkingSpot spot = spotsByVehicleType.get(vehicleType).poll(keepFree);
+        if (spot != null) {
+            occupiedSpots.put(spot.getSpotId(), spot);
+        }
+        return spot;
+    }
+
+    /**
+     * Atomically takes up to max of the next available spots for a vehicle type, for a batch of arrivals.
+     * @param allocated Receives the allocated spots, nearest first.
+     * @return The number of spots allocated, which is less than max if the floor ran out.
+     */
+    public int allocateAvailableSpots(VehicleType vehicleType, int max, List<ParkingSpot> allocated) {
+        return allocateAvailableSpots(vehicleType, max, 0, allocated);
+    }
+
+    /**
+     * Like allocateAvailableSpots, but leaves at least keepFree spots of the type free.
+     */
+    public int allocateAvailableSpots(VehicleType vehicleType, int max, int keepFree, List<ParkingSpot> allocated) {
+        int start = allocated.size();
+        int taken = spotsByVehicleType.get(vehicleType).pollMany(max, keepFree, allocated);
+        for (int i = start; i < allocated.size(); i++) {
+            ParkingSpot spot = allocated.get(i);
+            occupiedSpots.put(spot.getSpotId(), spot);
         }
-        return null;
+        return taken;
     }
 
     /**
-     * Marks a specific spot as occupied. Removes it from available queue and adds to occupied map.
+     * Marks a specific spot as occupied. Clears it in the free-spot index and adds to occupied map.
      * @param spot The ParkingSpot to allocate.
      * @return true if allocation was successful, false otherwise (e.g., spot not found or already occupied).
      */
     public boolean allocateSpot(ParkingSpot spot) {
-        Queue<ParkingSpot> availableSpots = spotsByVehicleType.get(spot.getType());
-        if (availableSpots != null && availableSpots.contains(spot) && !occupiedSpots.containsKey(spot.getSpotId())) {
-            availableSpots.remove(spot); // Remove from available queue
-            spot.setOccupied(true);
-            occupiedSpots.put(spot.getSpotId(), spot); // Add to occupied map
-            return true;
+        return allocateSpot(spot, 0);
+    }
+
+    /**
+     * Like allocateSpot, but fails if only keepFree spots of the spot's type are free.
+     */
+    public boolean allocateSpot(ParkingSpot spot, int keepFree) {
+        if (spot.getFloorNumber() != this.floorNumber || !spotsByVehicleType.get(spot.getType()).take(spot, keepFree)) {
+            return false;
         }
-        return false;
+        occupiedSpots.put(spot.getSpotId(), spot); // Add to occupied map
+        return true;
     }
 
     /**
-     * Marks a specific spot as free. Removes it from occupied map and adds back to available queue.
+     * Marks a specific spot as free. Removes it from occupied map and sets it again in the free-spot index.
      * @param spot The ParkingSpot to release.
      * @return true if release was successful, false otherwise (e.g., spot not found in occupied).
      */
     public boolean releaseSpot(ParkingSpot spot) {
-        if (occupiedSpots.containsKey(spot.getSpotId())) {
-            occupiedSpots.remove(spot.getSpotId()); // Remove from occupied map
-            spot.setOccupied(false);
-            spotsByVehicleType.get(spot.getType()).offer(spot); // Add back to available queue
-            return true;
+        ParkingSpot occupied = occupiedSpots.remove(spot.getSpotId()); // Remove from occupied map
+        if (occupied == null) {
+            return false;
         }
-        return false;
+        return spotsByVehicleType.get(occupied.getType()).giveBack(occupied); // Add back to available pool
     }
 
     // You could add a method to get occupied spots if needed for admin view
@@ -4,7 +4,8 @@ public class ParkingSpot {
     private final String spotId;
     private final VehicleType type;
     private final int floorNumber;
-    private boolean isOccupied;
+    private volatile boolean isOccupied; // Written under the owning floor's pool lock
+    private int ordinal = -1; // Position in the owning floor's free-spot index
 
     public ParkingSpot(String spotId, VehicleType type, int floorNumber) {
         this.spotId = spotId;
@@ -33,6 +34,14 @@ public class ParkingSpot {
         isOccupied = occupied;
     }
 
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    void setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
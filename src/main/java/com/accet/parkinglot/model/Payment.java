@@ -2,27 +2,51 @@ package com.accet.parkinglot.model;
 
 import java.time.LocalDateTime;
 
+import com.accet.parkinglot.util.CompactIds;
+
 public class Payment {
-    private final String paymentId;
+    private final long id;
+    // Parking fee; metered EV charging is billed on top of it
     private final int amount;
+    private final int chargingAmount;
     private final LocalDateTime timestamp;
     private final PaymentMethod paymentMethod;
 
-    public Payment(String paymentId, int amount, LocalDateTime timestamp, PaymentMethod paymentMethod) {
-        this.paymentId = paymentId;
+    public Payment(long id, int amount, LocalDateTime timestamp, PaymentMethod paymentMethod) {
+        this(id, amount, 0, timestamp, paymentMethod);
+    }
+
+    public Payment(long id, int amount, int chargingAmount, LocalDateTime timestamp, PaymentMethod paymentMethod) {
+        this.id = id;
         this.amount = amount;
+        this.chargingAmount = chargingAmount;
         this.timestamp = timestamp;
         this.paymentMethod = paymentMethod;
     }
 
+    public long getId() {
+        return id;
+    }
+
     public String getPaymentId() {
-        return paymentId;
+        return CompactIds.format(id);
     }
 
     public int getAmount() {
         return amount;
     }
 
+    public int getChargingAmount() {
+        return chargingAmount;
+    }
+
+    /**
+     * The parking fee plus the charging amount.
+     */
+    public int getTotalAmount() {
+        return amount + chargingAmount;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
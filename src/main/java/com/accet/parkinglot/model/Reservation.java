@@ -0,0 +1,71 @@
+package com.accet.parkinglot.model;
+
+import java.time.LocalDateTime;
+
+import com.accet.parkinglot.util.CompactIds;
+
+/**
+ * A spot of the vehicle's type held on one floor from (inclusive) until (exclusive), booked in advance.
+ * The spot itself is picked when the vehicle arrives.
+ */
+public class Reservation {
+    private final long id;
+    private final Vehicle vehicle;
+    private final int floorNumber;
+    private final LocalDateTime from;
+    private final LocalDateTime until;
+
+    public Reservation(long id, Vehicle vehicle, int floorNumber, LocalDateTime from, LocalDateTime until) {
+        if (!until.isAfter(from)) {
+            throw new IllegalArgumentException("Reservation must end after " + from);
+        }
+        this.id = id;
+        this.vehicle = vehicle;
+        this.floorNumber = floorNumber;
+        this.from = from;
+        this.until = until;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * The reservation ID as shown to customers, in the same form as booking IDs.
+     */
+    public String getReservationId() {
+        return CompactIds.format(id);
+    }
+
+    public Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicle.getType();
+    }
+
+    public int getFloorNumber() {
+        return floorNumber;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getUntil() {
+        return until;
+    }
+
+    @Override
+    public String toString() {
+        return "Reservation{" +
+               "reservationId='" + getReservationId() + '\'' +
+               ", registrationNumber='" + vehicle.getRegistrationNumber() + '\'' +
+               ", vehicleType=" + vehicle.getType() +
+               ", floorNumber=" + floorNumber +
+               ", from=" + from +
+               ", until=" + until +
+               '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,218 @@
+package com.accet.parkinglot.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The spots of one vehicle type on one floor, indexed by ordinal.
+ * A set bit in the free-spot index means the spot with that ordinal is available, so
+ * allocate and release are O(1) and the first free spot is found with nextSetBit.
+ * Spots added as a numbered range are only described by the range; their ParkingSpot objects are
+ * created the first time they are handed out or looked up.
+ * Every pool is guarded by its own monitor, so gates working on different
+ * floors or vehicle types never contend with each other.
+ */
+class SpotPool {
+    private final VehicleType type;
+    private final int floorNumber;
+    private final List<SpotRange> ranges = new ArrayList<>();
+    // Spots added one by one, looked up by ID
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private ParkingSpot[] spots = new ParkingSpot[16];
+    private int spotCount;
+    private final BitSet freeSpots = new BitSet();
+    // Read without the lock by availability checks
+    private volatile int availableCount;
+
+    /**
+     * Spots prefix + firstNumber .. prefix + (firstNumber + count - 1), holding ordinals startOrdinal onwards.
+     */
+    private record SpotRange(int startOrdinal, int count, String prefix, int firstNumber) {
+    }
+
+    SpotPool(VehicleType type, int floorNumber) {
+        this.type = type;
+        this.floorNumber = floorNumber;
+    }
+
+    synchronized void add(ParkingSpot spot) {
+        int ordinal = reserve(1);
+        spot.setOrdinal(ordinal);
+        spots[ordinal] = spot;
+        ordinalsById.put(spot.getSpotId(), ordinal);
+        freeSpots.set(ordinal);
+        availableCount++;
+    }
+
+    synchronized void addRange(String prefix, int firstNumber, int count) {
+        int startOrdinal = reserve(count);
+        ranges.add(new SpotRange(startOrdinal, count, prefix, firstNumber));
+        freeSpots.set(startOrdinal, startOrdinal + count);
+        availableCount += count;
+    }
+
+    synchronized ParkingSpot find(String spotId) {
+        Integer ordinal = ordinalsById.get(spotId);
+        if (ordinal != null) {
+            return spots[ordinal];
+        }
+        for (SpotRange range : ranges) {
+            if (spotId.startsWith(range.prefix())) {
+                int number = parseNumber(spotId, range.prefix().length());
+                if (number >= range.firstNumber() && number < range.firstNumber() + range.count()) {
+                    ParkingSpot spot = spotAt(range.startOrdinal() + number - range.firstNumber());
+                    return spot.getSpotId().equals(spotId) ? spot : null; // Rejects zero-padded variants
+                }
+            }
+        }
+        return null;
+    }
+
+    synchronized ParkingSpot peek() {
+        int ordinal = freeSpots.nextSetBit(0);
+        return ordinal < 0 ? null : spotAt(ordinal);
+    }
+
+    /**
+     * Takes the lowest-numbered available spot out of the pool and marks it occupied, as long as more than
+     * keepFree spots are available.
+     * @return The allocated spot, or null if the pool is empty or down to keepFree spots.
+     */
+    synchronized ParkingSpot poll(int keepFree) {
+        int ordinal = availableCount > keepFree ? freeSpots.nextSetBit(0) : -1;
+        if (ordinal < 0) {
+            return null;
+        }
+        ParkingSpot spot = spotAt(ordinal);
+        occupy(spot);
+        return spot;
+    }
+
+    /**
+     * Takes up to max of the lowest-numbered available spots under a single lock acquisition, leaving at least
+     * keepFree spots available.
+     * @return The number of spots added to allocated.
+     */
+    synchronized int pollMany(int max, int keepFree, List<ParkingSpot> allocated) {
+        int taken = 0;
+        int limit = Math.min(max, availableCount - keepFree);
+        int ordinal = freeSpots.nextSetBit(0);
+        while (taken < limit && ordinal >= 0) {
+            ParkingSpot spot = spotAt(ordinal);
+            occupy(spot);
+            allocated.add(spot);
+            taken++;
+            ordinal = freeSpots.nextSetBit(ordinal + 1);
+        }
+        return taken;
+    }
+
+    /**
+     * Takes a specific spot out of the pool and marks it occupied, as long as more than keepFree spots are available.
+     * @return true if the spot was taken, false if another gate got it first or the pool is down to keepFree spots.
+     */
+    synchronized boolean take(ParkingSpot spot, int keepFree) {
+        int ordinal = indexOf(spot);
+        if (ordinal < 0 || !freeSpots.get(ordinal) || availableCount <= keepFree) {
+            return false;
+        }
+        occupy(spots[ordinal]);
+        return true;
+    }
+
+    /**
+     * Marks a spot free and returns it to the pool.
+     * @return true if the spot was occupied, false if it was already free.
+     */
+    synchronized boolean giveBack(ParkingSpot spot) {
+        int ordinal = indexOf(spot);
+        if (ordinal < 0 || freeSpots.get(ordinal)) {
+            return false;
+        }
+        freeSpots.set(ordinal);
+        availableCount++;
+        spots[ordinal].setOccupied(false);
+        return true;
+    }
+
+    int availableCount() {
+        return availableCount;
+    }
+
+    synchronized int totalCount() {
+        return spotCount;
+    }
+
+    private void occupy(ParkingSpot spot) {
+        freeSpots.clear(spot.getOrdinal());
+        availableCount--;
+        spot.setOccupied(true);
+    }
+
+    // Claims count consecutive ordinals and returns the first
+    private int reserve(int count) {
+        int startOrdinal = spotCount;
+        if (spotCount + count > spots.length) {
+            spots = Arrays.copyOf(spots, Math.max(spots.length * 2, spotCount + count));
+        }
+        spotCount += count;
+        return startOrdinal;
+    }
+
+    // Returns the spot holding an ordinal, creating it from its range on first use
+    private ParkingSpot spotAt(int ordinal) {
+        ParkingSpot spot = spots[ordinal];
+        if (spot == null) {
+            SpotRange range = rangeOf(ordinal);
+            spot = new ParkingSpot(range.prefix() + (range.firstNumber() + ordinal - range.startOrdinal()), type, floorNumber);
+            spot.setOrdinal(ordinal);
+            spots[ordinal] = spot;
+        }
+        return spot;
+    }
+
+    private SpotRange rangeOf(int ordinal) {
+        int low = 0;
+        int high = ranges.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (ranges.get(mid).startOrdinal() <= ordinal) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return ranges.get(low);
+    }
+
+    // Ordinal of the spot in this pool, or -1 if the spot does not belong here
+    private int indexOf(ParkingSpot spot) {
+        int ordinal = spot.getOrdinal();
+        if (ordinal >= 0 && ordinal < spotCount && spots[ordinal] != null && spots[ordinal].equals(spot)) {
+            return ordinal;
+        }
+        // A copy of the spot that was not handed out by this pool; resolve it by ID
+        ParkingSpot known = find(spot.getSpotId());
+        return known != null ? known.getOrdinal() : -1;
+    }
+
+    // Parses the decimal spot number after the prefix, or returns -1 if it is not a plain number
+    private static int parseNumber(String spotId, int start) {
+        if (start >= spotId.length() || spotId.length() - start > 9) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = start; i < spotId.length(); i++) {
+            char c = spotId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
\ No newline at end of file
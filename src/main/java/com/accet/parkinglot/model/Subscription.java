@@ -0,0 +1,69 @@
+package com.accet.parkinglot.model;
+
+import java.time.LocalDateTime;
+
+import com.accet.parkinglot.util.RegistrationKeys;
+
+/**
+ * A vehicle's plan, valid from validFrom (inclusive) until validUntil (exclusive).
+ */
+public class Subscription {
+    private final long registrationKey;
+    private final VehicleType vehicleType;
+    private final SubscriptionTier tier;
+    private final LocalDateTime validFrom;
+    private final LocalDateTime validUntil;
+
+    public Subscription(long registrationKey, VehicleType vehicleType, SubscriptionTier tier, LocalDateTime validFrom, LocalDateTime validUntil) {
+        if (tier == SubscriptionTier.NONE) {
+            throw new IllegalArgumentException("A subscription needs a plan");
+        }
+        if (!validUntil.isAfter(validFrom)) {
+            throw new IllegalArgumentException("Subscription must end after " + validFrom);
+        }
+        this.registrationKey = registrationKey;
+        this.vehicleType = vehicleType;
+        this.tier = tier;
+        this.validFrom = validFrom;
+        this.validUntil = validUntil;
+    }
+
+    public long getRegistrationKey() {
+        return registrationKey;
+    }
+
+    public String getRegistrationNumber() {
+        return RegistrationKeys.format(registrationKey);
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public SubscriptionTier getTier() {
+        return tier;
+    }
+
+    public LocalDateTime getValidFrom() {
+        return validFrom;
+    }
+
+    public LocalDateTime getValidUntil() {
+        return validUntil;
+    }
+
+    public boolean isActiveAt(LocalDateTime time) {
+        return !time.isBefore(validFrom) && time.isBefore(validUntil);
+    }
+
+    @Override
+    public String toString() {
+        return "Subscription{" +
+               "registrationNumber='" + getRegistrationNumber() + '\'' +
+               ", vehicleType=" + vehicleType +
+               ", tier=" + tier +
+               ", validFrom=" + validFrom +
+               ", validUntil=" + validUntil +
+               '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.accet.parkinglot.model;
+
+public enum SubscriptionTier {
+    NONE(0),
+    BASIC(100),
+    PREMIUM(250);
+
+    private final int monthlyPrice;
+
+    SubscriptionTier(int monthlyPrice) {
+        this.monthlyPrice = monthlyPrice;
+    }
+
+    /**
+     * Price of one month of the plan, in rupees.
+     */
+    public int getMonthlyPrice() {
+        return monthlyPrice;
+    }
+}
\ No newline at end of file
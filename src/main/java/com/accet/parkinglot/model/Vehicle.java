@@ -1,45 +1,44 @@
 package com.accet.parkinglot.model;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import com.accet.parkinglot.util.RegistrationKeys;
 
 public class Vehicle {
-    private final String registrationNumber;
+    // Registration number "CC NN CC NNNN" (e.g., "TN 01 AA 0001") packed into a long
+    private final long registrationKey;
     private final VehicleType type;
 
-    // Regex for "CHARCHAR NUMNUM CHARCHAR NUMNUMNUMNUM" e.g., "TN 01 AA 0001"
-    private static final String REG_NUMBER_PATTERN = "^[A-Z]{2}\\s\\d{2}\\s[A-Z]{2}\\s\\d{4}$";
-    private static final Pattern REG_NUMBER_REGEX_PATTERN = Pattern.compile(REG_NUMBER_PATTERN);
-
     public Vehicle(String registrationNumber, VehicleType type) {
-        if (!isValidRegistrationNumber(registrationNumber)) {
+        long key = RegistrationKeys.pack(registrationNumber);
+        if (key < 0) {
             throw new IllegalArgumentException("Invalid vehicle registration number format. Expected: 'CC NN CC NNNN' (e.g., 'TN 01 AA 0001')");
         }
-        this.registrationNumber = registrationNumber;
+        this.registrationKey = key;
         this.type = type;
     }
 
     public String getRegistrationNumber() {
-        return registrationNumber;
+        return RegistrationKeys.format(registrationKey);
+    }
+
+    /**
+     * The registration number packed by {@link RegistrationKeys}; use it instead of the text for lookups.
+     */
+    public long getRegistrationKey() {
+        return registrationKey;
     }
 
     public VehicleType getType() {
         return type;
     }
 
-    // New static method for validation
     public static boolean isValidRegistrationNumber(String regNumber) {
-        if (regNumber == null) {
-            return false;
-        }
-        Matcher matcher = REG_NUMBER_REGEX_PATTERN.matcher(regNumber);
-        return matcher.matches();
+        return RegistrationKeys.pack(regNumber) >= 0;
     }
 
     @Override
     public String toString() {
         return "Vehicle{" +
-               "registrationNumber='" + registrationNumber + '\'' +
+               "registrationNumber='" + getRegistrationNumber() + '\'' +
                ", type=" + type +
                '}';
     }
@@ -0,0 +1,440 @@
+package com.accet.parkinglot.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.ParkingSpot;
+import com.accet.parkinglot.model.Payment;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+
+import static com.accet.parkinglot.persistence.BinaryCodec.fromEpochMillis;
+import static com.accet.parkinglot.persistence.BinaryCodec.getString;
+import static com.accet.parkinglot.persistence.BinaryCodec.putString;
+import static com.accet.parkinglot.persistence.BinaryCodec.sizeOf;
+import static com.accet.parkinglot.persistence.BinaryCodec.toEpochMillis;
+import static com.accet.parkinglot.persistence.BinaryCodec.utf8;
+
+/**
+ * Append-only, day-partitioned archive of completed bookings.
+ * <p>
+ * Each day (by booking end time) has its own file, written through a memory-mapped region that grows in
+ * fixed-size chunks. Records are length-prefixed; a zero length marks the end of the written data.
+ * Every {@value #INDEX_INTERVAL}th record of a day is entered in a sparse in-memory time index, so a date
+ * range is streamed by seeking close to its start instead of reading the whole day.
+ */
+public class BookingArchive implements AutoCloseable {
+    private static final int MAGIC = 0x504B4152; // "PKAR"
+    private static final short VERSION = 3;
+    // Version 2 records end at the payment method, without a charging amount. Records are length-prefixed, so
+    // version 3 records can be appended to a version 2 day and both are read back.
+    private static final short VERSION_V2 = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int INDEX_INTERVAL = 64;
+    private static final String FILE_PREFIX = "bookings-";
+    private static final String FILE_SUFFIX = ".seg";
+    // Bookings are archived in about the order they end, give or take this much
+    private static final long APPEND_SKEW_MILLIS = 1000;
+
+    private final Path directory;
+    private final Map<LocalDate, DayPartition> partitions = new HashMap<>();
+    // Partitions appended to since the last force
+    private final Set<DayPartition> unforced = new HashSet<>();
+
+    private BookingArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens (or creates) an archive in the given directory and rebuilds the time index of existing days.
+     */
+    public static BookingArchive open(Path directory) {
+        BookingArchive archive = new BookingArchive(directory);
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX)) {
+                        LocalDate day = LocalDate.parse(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                        archive.partitions.put(day, DayPartition.open(file));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open booking archive in " + directory, e);
+        }
+        return archive;
+    }
+
+    /**
+     * Appends a completed booking to the partition of the day it ended.
+     */
+    public synchronized void append(Booking booking) {
+        if (booking.getEndTime() == null) {
+            throw new IllegalArgumentException("Only completed bookings can be archived: " + booking.getBookingId());
+        }
+        LocalDate day = booking.getEndTime().toLocalDate();
+        DayPartition partition = partitions.get(day);
+        try {
+            if (partition == null) {
+                partition = DayPartition.open(directory.resolve(FILE_PREFIX + day + FILE_SUFFIX));
+                partitions.put(day, partition);
+            }
+            partition.append(encode(booking), toEpochMillis(booking.getEndTime()));
+            unforced.add(partition);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive booking " + booking.getBookingId(), e);
+        }
+    }
+
+    /**
+     * Streams, in archive order, every booking that ended within [from, to] to the consumer.
+     * Only the partitions of the days in range are read, starting near {@code from} via the sparse index.
+     */
+    public void scan(LocalDateTime from, LocalDateTime to, Consumer<Booking> consumer) {
+        long fromMillis = toEpochMillis(from);
+        long toMillis = toEpochMillis(to);
+        for (LocalDate day = from.toLocalDate(); !day.isAfter(to.toLocalDate()); day = day.plusDays(1)) {
+            ByteBuffer records;
+            synchronized (this) {
+                DayPartition partition = partitions.get(day);
+                if (partition == null) {
+                    continue;
+                }
+                records = partition.readView(fromMillis);
+            }
+            while (records.remaining() >= Integer.BYTES) {
+                int length = records.getInt();
+                if (length == 0) {
+                    break;
+                }
+                ByteBuffer record = records.slice().limit(length);
+                records.position(records.position() + length);
+                long endMillis = record.getLong(Long.BYTES);
+                if (endMillis >= fromMillis && endMillis <= toMillis) {
+                    consumer.accept(decode(record));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether a completed booking has been archived. Only the records appended from shortly before it ended
+     * are read.
+     */
+    public boolean contains(Booking booking) {
+        ByteBuffer records;
+        synchronized (this) {
+            DayPartition partition = partitions.get(booking.getEndTime().toLocalDate());
+            if (partition == null) {
+                return false;
+            }
+            records = partition.readView(toEpochMillis(booking.getEndTime()) - APPEND_SKEW_MILLIS);
+        }
+        while (records.remaining() >= Integer.BYTES) {
+            int length = records.getInt();
+            if (length == 0) {
+                break;
+            }
+            // The booking ID follows the start and end times
+            if (records.getLong(records.position() + 2 * Long.BYTES) == booking.getId()) {
+                return true;
+            }
+            records.position(records.position() + length);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the highest booking or payment ID archived on the latest day, or 0 if the archive is empty. A booking's
+     * payment is issued after it, so that is the highest ID of the archive unless the clock stepped back a day.
+     */
+    public long getHighestId() {
+        LocalDate latest;
+        synchronized (this) {
+            if (partitions.isEmpty()) {
+                return 0;
+            }
+            latest = partitions.keySet().stream().max(LocalDate::compareTo).get();
+        }
+        long[] highest = {0};
+        scan(latest.atStartOfDay(), latest.plusDays(1).atStartOfDay().minusNanos(1), booking -> {
+            Payment payment = booking.getPayment();
+            highest[0] = Math.max(highest[0], payment != null ? payment.getId() : booking.getId());
+        });
+        return highest[0];
+    }
+
+    /**
+     * Forces the bookings archived so far to disk. Appends are otherwise only guaranteed to be there after close.
+     */
+    public void force() {
+        List<DayPartition> appended;
+        List<MappedByteBuffer> regions = new ArrayList<>();
+        synchronized (this) {
+            appended = new ArrayList<>(unforced);
+            for (DayPartition partition : appended) {
+                regions.add(partition.mapped);
+            }
+            unforced.clear();
+        }
+        try {
+            for (int i = 0; i < appended.size(); i++) {
+                regions.get(i).force();
+                appended.get(i).channel.force(true); // The file may have grown
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not force booking archive", e);
+        }
+    }
+
+    /**
+     * Returns where the next record of each day will be written. Pass it to {@link #scanAppendedSince} later to read
+     * only the bookings archived after this call.
+     */
+    public synchronized Map<LocalDate, Integer> getAppendPositions() {
+        Map<LocalDate, Integer> positions = new HashMap<>();
+        for (Map.Entry<LocalDate, DayPartition> entry : partitions.entrySet()) {
+            positions.put(entry.getKey(), entry.getValue().writePosition);
+        }
+        return positions;
+    }
+
+    /**
+     * Streams the bookings archived since the positions were taken by {@link #getAppendPositions}, reading only
+     * those records, day by day.
+     * @return false, without streaming anything, if the positions do not fit this archive, i.e. a day ends before
+     * its position; the archive was then replaced or lost records since.
+     */
+    public boolean scanAppendedSince(Map<LocalDate, Integer> positions, Consumer<Booking> consumer) {
+        List<ByteBuffer> appended = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<LocalDate, Integer> entry : positions.entrySet()) {
+                DayPartition partition = partitions.get(entry.getKey());
+                if (partition == null || partition.writePosition < entry.getValue()) {
+                    return false;
+                }
+            }
+            for (Map.Entry<LocalDate, DayPartition> entry : partitions.entrySet()) {
+                Integer position = positions.get(entry.getKey());
+                appended.add(entry.getValue().readViewAt(position != null ? position : HEADER_SIZE));
+            }
+        }
+        for (ByteBuffer records : appended) {
+            while (records.remaining() >= Integer.BYTES) {
+                int length = records.getInt();
+                if (length == 0) {
+                    break;
+                }
+                ByteBuffer record = records.slice().limit(length);
+                records.position(records.position() + length);
+                consumer.accept(decode(record));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Streams every archived booking, oldest day first.
+     */
+    public void scanAll(Consumer<Booking> consumer) {
+        LocalDate first;
+        LocalDate last;
+        synchronized (this) {
+            if (partitions.isEmpty()) {
+                return;
+            }
+            first = partitions.keySet().stream().min(LocalDate::compareTo).get();
+            last = partitions.keySet().stream().max(LocalDate::compareTo).get();
+        }
+        scan(first.atStartOfDay(), last.plusDays(1).atStartOfDay().minusNanos(1), consumer);
+    }
+
+    @Override
+    public synchronized void close() {
+        for (DayPartition partition : partitions.values()) {
+            partition.close();
+        }
+        partitions.clear();
+        unforced.clear();
+    }
+
+    // Record layout: start, end (epoch millis), booking ID, registration, vehicle type, spot ID, floor, payment ID, amount, payment method,
+    // charging amount
+    private static ByteBuffer encode(Booking booking) {
+        Payment payment = booking.getPayment();
+        byte[] registration = utf8(booking.getVehicle().getRegistrationNumber());
+        byte[] spotId = utf8(booking.getSpot().getSpotId());
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Long.BYTES + sizeOf(registration) + sizeOf(spotId) + 2 + 3 * Integer.BYTES);
+        buffer.putLong(toEpochMillis(booking.getStartTime()));
+        buffer.putLong(toEpochMillis(booking.getEndTime()));
+        buffer.putLong(booking.getId());
+        putString(buffer, registration);
+        buffer.put((byte) booking.getVehicle().getType().ordinal());
+        putString(buffer, spotId);
+        buffer.putInt(booking.getSpot().getFloorNumber());
+        buffer.putLong(payment != null ? payment.getId() : 0);
+        buffer.putInt(payment != null ? payment.getAmount() : 0);
+        buffer.put(payment != null ? (byte) payment.getPaymentMethod().ordinal() : -1);
+        buffer.putInt(payment != null ? payment.getChargingAmount() : 0);
+        return buffer.flip();
+    }
+
+    private static Booking decode(ByteBuffer record) {
+        LocalDateTime startTime = fromEpochMillis(record.getLong());
+        LocalDateTime endTime = fromEpochMillis(record.getLong());
+        long bookingId = record.getLong();
+        String registration = getString(record);
+        VehicleType type = VehicleType.values()[record.get()];
+        String spotId = getString(record);
+        int floorNumber = record.getInt();
+        long paymentId = record.getLong();
+        int amount = record.getInt();
+        byte method = record.get();
+        // Version 2 records end at the payment method
+        int chargingAmount = record.remaining() >= Integer.BYTES ? record.getInt() : 0;
+
+        Booking booking = new Booking(bookingId, new Vehicle(registration, type), new ParkingSpot(spotId, type, floorNumber), startTime);
+        booking.setEndTime(endTime);
+        if (method >= 0) {
+            booking.setPayment(new Payment(paymentId, amount, chargingAmount, endTime, PaymentMethod.values()[method]));
+        }
+        return booking;
+    }
+
+    /**
+     * One day's file, its mapped region and its sparse time index.
+     */
+    private static final class DayPartition {
+        private final FileChannel channel;
+        private MappedByteBuffer mapped;
+        private int writePosition;
+        private int recordCount;
+        private long[] indexTimes = new long[16];
+        private int[] indexOffsets = new int[16];
+        private int indexSize;
+
+        private DayPartition(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        static DayPartition open(Path file) throws IOException {
+            boolean created = !Files.exists(file);
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            DayPartition partition = new DayPartition(channel);
+            long size = Math.max(channel.size(), CHUNK_SIZE);
+            partition.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (created) {
+                partition.mapped.putInt(0, MAGIC);
+                partition.mapped.putShort(Integer.BYTES, VERSION);
+            } else if (partition.mapped.getInt(0) != MAGIC) {
+                channel.close();
+                throw new IOException("Not a booking archive segment: " + file);
+            } else {
+                short version = partition.mapped.getShort(Integer.BYTES);
+                if (version != VERSION && version != VERSION_V2) {
+                    channel.close();
+                    throw new IOException("Unsupported booking archive version " + version + ": " + file);
+                }
+            }
+            partition.recover();
+            return partition;
+        }
+
+        // Walks the existing records once to find the end of data and rebuild the sparse index
+        private void recover() {
+            int position = HEADER_SIZE;
+            while (position + Integer.BYTES <= mapped.capacity()) {
+                int length = mapped.getInt(position);
+                if (length == 0) {
+                    break;
+                }
+                indexRecord(mapped.getLong(position + Integer.BYTES + Long.BYTES), position);
+                position += Integer.BYTES + length;
+            }
+            writePosition = position;
+        }
+
+        void append(ByteBuffer record, long endMillis) throws IOException {
+            int needed = Integer.BYTES + record.remaining() + Integer.BYTES; // Keep room for the zero end marker
+            if (writePosition + needed > mapped.capacity()) {
+                long newSize = ((long) writePosition + needed + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE;
+                mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+            }
+            int position = writePosition;
+            mapped.put(position + Integer.BYTES, record, 0, record.remaining());
+            // Publish the length last, so a reader never sees a partially written record
+            mapped.putInt(position, record.remaining());
+            writePosition = position + Integer.BYTES + record.remaining();
+            indexRecord(endMillis, position);
+        }
+
+        private void indexRecord(long endMillis, int position) {
+            if (recordCount++ % INDEX_INTERVAL == 0) {
+                if (indexSize == indexTimes.length) {
+                    indexTimes = Arrays.copyOf(indexTimes, indexSize * 2);
+                    indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+                }
+                indexTimes[indexSize] = endMillis;
+                indexOffsets[indexSize] = position;
+                indexSize++;
+            }
+        }
+
+        /**
+         * Returns a read-only view of the written records, starting at the last indexed record before fromMillis.
+         */
+        ByteBuffer readView(long fromMillis) {
+            int start = HEADER_SIZE;
+            int slot = Arrays.binarySearch(indexTimes, 0, indexSize, fromMillis);
+            if (slot < 0) {
+                slot = -slot - 2; // Last entry strictly before fromMillis
+            }
+            // Step back over entries with equal times so no record at fromMillis is skipped
+            while (slot > 0 && indexTimes[slot] >= fromMillis) {
+                slot--;
+            }
+            if (slot >= 0) {
+                start = indexOffsets[slot];
+            }
+            return mapped.asReadOnlyBuffer().limit(writePosition).position(start);
+        }
+
+        /**
+         * Returns a read-only view of the records written from a record boundary on.
+         */
+        ByteBuffer readViewAt(int position) {
+            return mapped.asReadOnlyBuffer().limit(writePosition).position(position);
+        }
+
+        void close() {
+            try {
+                mapped.force();
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
\ No newline at end of file
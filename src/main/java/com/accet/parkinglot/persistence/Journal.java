@@ -0,0 +1,269 @@
+package com.accet.parkinglot.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of state mutations, split into segments named after their first sequence number.
+ * <p>
+ * Frame layout: length, sequence, mutation type, payload, CRC32 of sequence/type/payload. Appends are copied into
+ * an in-memory buffer; {@link #sync(long)} makes them durable with group commit: one caller writes out the buffer
+ * and forces the file while the others wait, and every record appended before that force is covered by it,
+ * so concurrent gates share a single fsync.
+ */
+public class Journal implements AutoCloseable {
+    private static final String FILE_PREFIX = "journal-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final int FRAME_OVERHEAD = Integer.BYTES + Long.BYTES + 1 + Integer.BYTES;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Receives the records of a journal replay in sequence order.
+     */
+    public interface RecordHandler {
+        void accept(long sequence, byte type, ByteBuffer payload);
+    }
+
+    private final Path directory;
+    // Guards the buffer, the current segment and the sequence counter
+    private final Object writeLock = new Object();
+    // Held by the thread forcing the file; rotation takes it too so the segment never changes mid-force
+    private final Object syncLock = new Object();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private long segmentFirstSequence;
+    private long lastSequence;
+    private volatile long durableSequence;
+
+    private Journal(Path directory, long lastSequence) {
+        this.directory = directory;
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+    }
+
+    /**
+     * Opens the journal for appending in a fresh segment that continues after lastSequence.
+     */
+    public static Journal open(Path directory, long lastSequence) {
+        Journal journal = new Journal(directory, lastSequence);
+        try {
+            Files.createDirectories(directory);
+            journal.startSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal in " + directory, e);
+        }
+        return journal;
+    }
+
+    /**
+     * Replays every intact record with a sequence number above afterSequence, oldest segment first.
+     * A torn or corrupt frame ends its segment, since nothing after it was acknowledged as durable.
+     * @return The highest sequence number found, or afterSequence if there was nothing newer.
+     */
+    public static long replay(Path directory, long afterSequence, RecordHandler handler) {
+        long last = afterSequence;
+        CRC32 crc = new CRC32();
+        for (Path segment : listSegments(directory)) {
+            ByteBuffer frames;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                frames = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read journal segment " + segment, e);
+            }
+            while (frames.remaining() >= FRAME_OVERHEAD) {
+                int start = frames.position();
+                int length = frames.getInt();
+                if (length < FRAME_OVERHEAD - Integer.BYTES || length > frames.remaining()) {
+                    break;
+                }
+                ByteBuffer body = frames.slice().limit(length - Integer.BYTES);
+                int storedCrc = frames.getInt(start + length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != storedCrc) {
+                    break;
+                }
+                frames.position(start + Integer.BYTES + length);
+                long sequence = body.getLong();
+                byte type = body.get();
+                if (sequence > last) {
+                    handler.accept(sequence, type, body.slice());
+                    last = sequence;
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Appends a record. It is not durable until sync is called with the returned sequence number or a later one.
+     */
+    public long append(byte type, byte[] payload) {
+        int frameLength = FRAME_OVERHEAD + payload.length;
+        synchronized (writeLock) {
+            try {
+                if (writeBuffer.remaining() < frameLength) {
+                    flushBuffer();
+                }
+                long sequence = ++lastSequence;
+                if (frameLength > writeBuffer.capacity()) {
+                    ByteBuffer frame = ByteBuffer.allocate(frameLength);
+                    putFrame(frame, sequence, type, payload);
+                    frame.flip();
+                    while (frame.hasRemaining()) {
+                        channel.write(frame);
+                    }
+                } else {
+                    putFrame(writeBuffer, sequence, type, payload);
+                }
+                return sequence;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not append to journal", e);
+            }
+        }
+    }
+
+    /**
+     * Blocks until every record up to the given sequence number is on disk.
+     */
+    public void sync(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durableSequence >= sequence) {
+                return; // Covered by the force another thread just did
+            }
+            try {
+                long target;
+                synchronized (writeLock) {
+                    flushBuffer();
+                    target = lastSequence;
+                }
+                channel.force(false);
+                durableSequence = target;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not sync journal", e);
+            }
+        }
+    }
+
+    /**
+     * Makes the current segment durable and starts a new one.
+     * @return The last sequence number in the closed segment; later records go to the new segment.
+     */
+    public long rotate() {
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                try {
+                    flushBuffer();
+                    channel.force(false);
+                    channel.close();
+                    durableSequence = lastSequence;
+                    startSegment();
+                    return lastSequence;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not rotate journal", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes all segments older than the current one. Call only once their records are covered by a snapshot.
+     */
+    public void deleteOldSegments() {
+        long current;
+        synchronized (writeLock) {
+            current = segmentFirstSequence;
+        }
+        for (Path segment : listSegments(directory)) {
+            if (firstSequenceOf(segment) < current) {
+                try {
+                    Files.deleteIfExists(segment);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not delete journal segment " + segment, e);
+                }
+            }
+        }
+    }
+
+    public long getLastSequence() {
+        synchronized (writeLock) {
+            return lastSequence;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                try {
+                    flushBuffer();
+                    channel.force(false);
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not close journal", e);
+                }
+            }
+        }
+    }
+
+    private void startSegment() throws IOException {
+        segmentFirstSequence = lastSequence + 1;
+        Path file = directory.resolve(String.format("%s%020d%s", FILE_PREFIX, segmentFirstSequence, FILE_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void putFrame(ByteBuffer target, long sequence, byte type, byte[] payload) {
+        int start = target.position();
+        target.putInt(FRAME_OVERHEAD - Integer.BYTES + payload.length);
+        target.putLong(sequence);
+        target.put(type);
+        target.put(payload);
+        crc.reset();
+        crc.update(target.duplicate().flip().position(start + Integer.BYTES));
+        target.putInt((int) crc.getValue());
+    }
+
+    private void flushBuffer() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    private static List<Path> listSegments(Path directory) {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (var files = Files.list(directory)) {
+            files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+            }).forEach(segments::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list journal segments in " + directory, e);
+        }
+        // Zero-padded names sort in sequence order
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+}
\ No newline at end of file
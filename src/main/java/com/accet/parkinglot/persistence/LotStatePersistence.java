@@ -0,0 +1,336 @@
+package com.accet.parkinglot.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.Reservation;
+import com.accet.parkinglot.model.Subscription;
+import com.accet.parkinglot.service.ParkingLotListener;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+
+/**
+ * Makes the lot's live state (occupancy, active bookings, subscriptions, reservations) survive restarts.
+ * <p>
+ * Every mutation is written to the {@link Journal} and synced before the gate call returns; bookings and releases
+ * are written from the ordered hooks, so they are journaled in the order they took effect. Snapshots of the
+ * active bookings, subscriptions and pending reservations are taken periodically, after which older journal segments are dropped,
+ * so recovery loads one snapshot and replays only the journal tail. Completed bookings are not part of the
+ * snapshot; they live in the {@link BookingArchive}, which is forced before the journal records of their releases
+ * are dropped, and replayed releases the archive lost are archived again.
+ * <p>
+ * A snapshot is consistent with a journal position P: every record up to P is reflected in it, and later records
+ * may or may not be. Replay is idempotent, so re-applying those later records is harmless.
+ */
+public class LotStatePersistence implements ParkingLotListener, AutoCloseable {
+    private static final int SNAPSHOT_MAGIC = 0x504B534E; // "PKSN"
+    private static final short SNAPSHOT_VERSION = 4;
+    // Version 3 had no reservations
+    private static final short SNAPSHOT_VERSION_V3 = 3;
+    // Version 2 stored subscriptions as registration and vehicle type only
+    private static final short SNAPSHOT_VERSION_V2 = 2;
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    private final Path directory;
+    private final ParkingLotService parkingLotService;
+    private final SubscriptionManager subscriptionManager;
+    private Journal journal;
+    private ScheduledExecutorService snapshotScheduler;
+    private int recoveredBookings;
+    private long replayedRecords;
+    private long recoveryMillis;
+
+    private LotStatePersistence(Path directory, ParkingLotService parkingLotService, SubscriptionManager subscriptionManager) {
+        this.directory = directory;
+        this.parkingLotService = parkingLotService;
+        this.subscriptionManager = subscriptionManager;
+    }
+
+    /**
+     * Restores the state from the latest snapshot and the journal tail, then starts journaling new mutations.
+     * The services must already have their floors configured, and must not be serving gates yet.
+     */
+    public static LotStatePersistence open(Path directory, ParkingLotService parkingLotService, SubscriptionManager subscriptionManager) {
+        LotStatePersistence persistence = new LotStatePersistence(directory, parkingLotService, subscriptionManager);
+        persistence.recover();
+        parkingLotService.addListener(persistence);
+        subscriptionManager.addListener(persistence);
+        return persistence;
+    }
+
+    /**
+     * Starts persisting state that was built elsewhere, such as a promoted standby's copy of its primary's state,
+     * in place of whatever the directory held: the services' current state is written as a fresh snapshot that
+     * supersedes every older snapshot and journal record there.
+     */
+    public static LotStatePersistence takeOver(Path directory, ParkingLotService parkingLotService, SubscriptionManager subscriptionManager) {
+        LotStatePersistence persistence = new LotStatePersistence(directory, parkingLotService, subscriptionManager);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create state directory " + directory, e);
+        }
+        // Continue numbering after the records already there, so the snapshot's position covers all of them
+        long lastSequence = Journal.replay(directory, persistence.readSnapshotSequence(), (sequence, type, payload) -> { });
+        persistence.journal = Journal.open(directory, lastSequence);
+        persistence.snapshot();
+        persistence.recoveredBookings = parkingLotService.getActiveBookings().size();
+        parkingLotService.addListener(persistence);
+        subscriptionManager.addListener(persistence);
+        return persistence;
+    }
+
+    private void recover() {
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create state directory " + directory, e);
+        }
+        long snapshotSequence = loadSnapshot();
+        long[] replayed = {0};
+        long lastSequence = Journal.replay(directory, snapshotSequence, (sequence, type, payload) -> {
+            if (!MutationCodec.apply(type, payload, parkingLotService, subscriptionManager)) {
+                System.err.println("Warning: Journal record " + sequence + " conflicts with the recovered state; skipped.");
+            }
+            replayed[0]++;
+        });
+        journal = Journal.open(directory, lastSequence);
+        replayedRecords = replayed[0];
+        recoveredBookings = parkingLotService.getActiveBookings().size();
+        recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+
+    /**
+     * Takes a snapshot every interval on a background thread.
+     */
+    public synchronized void scheduleSnapshots(Duration interval) {
+        if (snapshotScheduler != null) {
+            return;
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lot-state-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (RuntimeException e) {
+                System.err.println("Warning: Snapshot failed: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a snapshot of the active bookings, subscriptions and reservations and drops the journal segments it covers.
+     */
+    public synchronized void snapshot() {
+        // A booking is journaled before it is active; rotating while none is in between keeps every booking journaled
+        // before the new segment in the snapshot
+        long[] rotated = new long[1];
+        List<Booking> activeBookings = parkingLotService.whileBookingsSettled(() -> {
+            rotated[0] = journal.rotate();
+            return parkingLotService.getActiveBookings();
+        });
+        long sequence = rotated[0];
+        List<Subscription> subscriptions = subscriptionManager.getAllSubscriptions();
+        List<Reservation> reservations = parkingLotService.getReservations();
+
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeShort(SNAPSHOT_VERSION);
+            out.writeLong(sequence);
+            out.writeInt(subscriptions.size());
+            out.writeInt(activeBookings.size());
+            out.writeInt(reservations.size());
+            for (Subscription subscription : subscriptions) {
+                byte[] payload = MutationCodec.encodeSubscribed(subscription);
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+            for (Booking booking : activeBookings) {
+                byte[] payload = MutationCodec.encodeBooked(booking);
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+            for (Reservation reservation : reservations) {
+                byte[] payload = MutationCodec.encodeReserved(reservation);
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot", e);
+        }
+        try {
+            Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not install snapshot", e);
+        }
+        // The dropped segments may hold the only durable record of releases; their bookings were archived before
+        // the releases were journaled
+        parkingLotService.forceHistory();
+        journal.deleteOldSegments();
+    }
+
+    // Returns the journal sequence the existing snapshot covers, without restoring it
+    private long readSnapshotSequence() {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Short.BYTES + Long.BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < header.capacity() || header.getInt() != SNAPSHOT_MAGIC) {
+                return 0;
+            }
+            header.getShort(); // Every version starts with the sequence
+            return header.getLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshot " + file, e);
+        }
+    }
+
+    // Restores the snapshot, if any, and returns the journal sequence it covers
+    private long loadSnapshot() {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer snapshot;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshot " + file, e);
+        }
+        if (snapshot.getInt() != SNAPSHOT_MAGIC) {
+            throw new IllegalStateException("Unrecognized snapshot format: " + file);
+        }
+        short version = snapshot.getShort();
+        if (version != SNAPSHOT_VERSION && version != SNAPSHOT_VERSION_V3 && version != SNAPSHOT_VERSION_V2) {
+            throw new IllegalStateException("Unsupported snapshot version " + version + ": " + file);
+        }
+        long sequence = snapshot.getLong();
+        int subscriptionCount = snapshot.getInt();
+        int bookingCount = snapshot.getInt();
+        int reservationCount = version == SNAPSHOT_VERSION ? snapshot.getInt() : 0;
+        for (int i = 0; i < subscriptionCount; i++) {
+            if (version == SNAPSHOT_VERSION_V2) {
+                subscriptionManager.restoreSubscription(MutationCodec.decodeSubscribedV1(snapshot));
+                continue;
+            }
+            int length = snapshot.getInt();
+            ByteBuffer payload = snapshot.slice().limit(length);
+            snapshot.position(snapshot.position() + length);
+            subscriptionManager.restoreSubscription(MutationCodec.decodeSubscribed(payload));
+        }
+        for (int i = 0; i < bookingCount; i++) {
+            int length = snapshot.getInt();
+            ByteBuffer payload = snapshot.slice().limit(length);
+            snapshot.position(snapshot.position() + length);
+            Booking booking = MutationCodec.decodeBooked(payload);
+            if (!parkingLotService.restoreBooking(booking)) {
+                System.err.println("Warning: Could not restore booking " + booking.getBookingId() + " at spot " + booking.getSpot().getSpotId());
+            }
+        }
+        for (int i = 0; i < reservationCount; i++) {
+            int length = snapshot.getInt();
+            ByteBuffer payload = snapshot.slice().limit(length);
+            snapshot.position(snapshot.position() + length);
+            parkingLotService.restoreReservation(MutationCodec.decodeReserved(payload));
+        }
+        return sequence;
+    }
+
+    // Bookings and releases are appended in the order they take effect, so replay never sees a spot or vehicle
+    // booked again before the release that freed it; the gate call still waits for the sync below
+    @Override
+    public void onBookingApplied(Booking booking) {
+        journal.append(MutationCodec.BOOKED, MutationCodec.encodeBooked(booking));
+    }
+
+    @Override
+    public void onReleaseApplied(Booking booking) {
+        journal.append(MutationCodec.RELEASED, MutationCodec.encodeReleased(booking));
+    }
+
+    @Override
+    public void onSpotBooked(Booking booking) {
+        journal.sync(journal.getLastSequence());
+    }
+
+    @Override
+    public void onSpotReleased(Booking booking) {
+        journal.sync(journal.getLastSequence());
+    }
+
+    // A batch was appended as records of its own and is made durable with one sync
+    @Override
+    public void onSpotsBooked(List<Booking> bookings) {
+        journal.sync(journal.getLastSequence());
+    }
+
+    @Override
+    public void onSpotsReleased(List<Booking> bookings) {
+        journal.sync(journal.getLastSequence());
+    }
+
+    @Override
+    public void onSubscribed(Subscription subscription) {
+        journal.sync(journal.append(MutationCodec.SUBSCRIBED, MutationCodec.encodeSubscribed(subscription)));
+    }
+
+    @Override
+    public void onReserved(Reservation reservation) {
+        journal.sync(journal.append(MutationCodec.RESERVED, MutationCodec.encodeReserved(reservation)));
+    }
+
+    @Override
+    public void onReservationClosed(Reservation reservation) {
+        journal.sync(journal.append(MutationCodec.RESERVATION_CLOSED, MutationCodec.encodeReservationClosed(reservation)));
+    }
+
+    public int getRecoveredBookings() {
+        return recoveredBookings;
+    }
+
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        parkingLotService.removeListener(this);
+        subscriptionManager.removeListener(this);
+        journal.close();
+    }
+}
\ No newline at end of file
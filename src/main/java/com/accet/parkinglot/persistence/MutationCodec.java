@@ -0,0 +1,172 @@
+package com.accet.parkinglot.persistence;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.ParkingSpot;
+import com.accet.parkinglot.model.Payment;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Reservation;
+import com.accet.parkinglot.model.Subscription;
+import com.accet.parkinglot.model.SubscriptionTier;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+import com.accet.parkinglot.util.RegistrationKeys;
+
+import static com.accet.parkinglot.persistence.BinaryCodec.fromEpochMillis;
+import static com.accet.parkinglot.persistence.BinaryCodec.getString;
+import static com.accet.parkinglot.persistence.BinaryCodec.putString;
+import static com.accet.parkinglot.persistence.BinaryCodec.sizeOf;
+import static com.accet.parkinglot.persistence.BinaryCodec.toEpochMillis;
+import static com.accet.parkinglot.persistence.BinaryCodec.utf8;
+
+/**
+ * Compact binary form of the lot's state mutations (book, release, subscribe, reserve), shared by the
+ * write-ahead journal, snapshots and anything else that ships mutations between processes.
+ */
+public final class MutationCodec {
+    public static final byte BOOKED = 1;
+    // Releases written before charging was billed at exit: no charging amount
+    public static final byte RELEASED_V1 = 2;
+    // Subscriptions written before plans existed: registration and vehicle type only
+    public static final byte SUBSCRIBED_V1 = 3;
+    public static final byte SUBSCRIBED = 4;
+    public static final byte RELEASED = 5;
+    public static final byte RESERVED = 6;
+    // A reservation checked in or cancelled
+    public static final byte RESERVATION_CLOSED = 7;
+
+    private MutationCodec() {
+    }
+
+    // Layout: booking ID, registration, vehicle type, spot ID, floor, start (epoch millis)
+    public static byte[] encodeBooked(Booking booking) {
+        byte[] registration = utf8(booking.getVehicle().getRegistrationNumber());
+        byte[] spotId = utf8(booking.getSpot().getSpotId());
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + sizeOf(registration) + 1 + sizeOf(spotId) + Integer.BYTES + Long.BYTES);
+        buffer.putLong(booking.getId());
+        putString(buffer, registration);
+        buffer.put((byte) booking.getVehicle().getType().ordinal());
+        putString(buffer, spotId);
+        buffer.putInt(booking.getSpot().getFloorNumber());
+        buffer.putLong(toEpochMillis(booking.getStartTime()));
+        return buffer.array();
+    }
+
+    // Layout: booking ID, end (epoch millis), payment ID, amount, payment method, charging amount
+    public static byte[] encodeReleased(Booking booking) {
+        Payment payment = booking.getPayment();
+        ByteBuffer buffer = ByteBuffer.allocate(3 * Long.BYTES + 2 * Integer.BYTES + 1);
+        buffer.putLong(booking.getId());
+        buffer.putLong(toEpochMillis(booking.getEndTime()));
+        buffer.putLong(payment.getId());
+        buffer.putInt(payment.getAmount());
+        buffer.put((byte) payment.getPaymentMethod().ordinal());
+        buffer.putInt(payment.getChargingAmount());
+        return buffer.array();
+    }
+
+    // Layout: packed registration, vehicle type, tier, valid from and until (epoch millis)
+    public static byte[] encodeSubscribed(Subscription subscription) {
+        ByteBuffer buffer = ByteBuffer.allocate(3 * Long.BYTES + 2);
+        buffer.putLong(subscription.getRegistrationKey());
+        buffer.put((byte) subscription.getVehicleType().ordinal());
+        buffer.put((byte) subscription.getTier().ordinal());
+        buffer.putLong(toEpochMillis(subscription.getValidFrom()));
+        buffer.putLong(toEpochMillis(subscription.getValidUntil()));
+        return buffer.array();
+    }
+
+    // Layout: reservation ID, packed registration, vehicle type, floor, from and until (epoch millis)
+    public static byte[] encodeReserved(Reservation reservation) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Long.BYTES + 1 + Integer.BYTES);
+        buffer.putLong(reservation.getId());
+        buffer.putLong(reservation.getVehicle().getRegistrationKey());
+        buffer.put((byte) reservation.getVehicleType().ordinal());
+        buffer.putInt(reservation.getFloorNumber());
+        buffer.putLong(toEpochMillis(reservation.getFrom()));
+        buffer.putLong(toEpochMillis(reservation.getUntil()));
+        return buffer.array();
+    }
+
+    public static Reservation decodeReserved(ByteBuffer payload) {
+        long reservationId = payload.getLong();
+        String registration = RegistrationKeys.format(payload.getLong());
+        VehicleType type = VehicleType.values()[payload.get()];
+        int floorNumber = payload.getInt();
+        LocalDateTime from = fromEpochMillis(payload.getLong());
+        LocalDateTime until = fromEpochMillis(payload.getLong());
+        return new Reservation(reservationId, new Vehicle(registration, type), floorNumber, from, until);
+    }
+
+    // Layout: reservation ID
+    public static byte[] encodeReservationClosed(Reservation reservation) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(reservation.getId()).array();
+    }
+
+    public static Subscription decodeSubscribed(ByteBuffer payload) {
+        long registrationKey = payload.getLong();
+        VehicleType type = VehicleType.values()[payload.get()];
+        SubscriptionTier tier = SubscriptionTier.values()[payload.get()];
+        LocalDateTime validFrom = fromEpochMillis(payload.getLong());
+        LocalDateTime validUntil = fromEpochMillis(payload.getLong());
+        return new Subscription(registrationKey, type, tier, validFrom, validUntil);
+    }
+
+    /**
+     * Decodes a subscription recorded before plans existed. Those subscribers were always billed as Premium,
+     * and had no end date, so they are carried over as Premium for one month from recovery.
+     */
+    static Subscription decodeSubscribedV1(ByteBuffer payload) {
+        long registrationKey = RegistrationKeys.pack(getString(payload));
+        VehicleType type = VehicleType.values()[payload.get()];
+        LocalDateTime now = LocalDateTime.now();
+        return new Subscription(registrationKey, type, SubscriptionTier.PREMIUM, now, now.plusMonths(1));
+    }
+
+    /**
+     * Decodes a BOOKED payload. The booking refers to a detached ParkingSpot carrying only the spot's identity.
+     */
+    public static Booking decodeBooked(ByteBuffer payload) {
+        long bookingId = payload.getLong();
+        String registration = getString(payload);
+        VehicleType type = VehicleType.values()[payload.get()];
+        String spotId = getString(payload);
+        int floorNumber = payload.getInt();
+        LocalDateTime startTime = fromEpochMillis(payload.getLong());
+        return new Booking(bookingId, new Vehicle(registration, type), new ParkingSpot(spotId, type, floorNumber), startTime);
+    }
+
+    /**
+     * Applies one encoded mutation through the services' restore paths, which neither charge nor notify listeners.
+     * Applying a mutation that is already reflected in the state is a no-op, and so is a release of a booking that
+     * is not active, e.g. one that ended before a snapshot was taken.
+     * @return false if the mutation conflicts with the state: a booking whose spot or vehicle is held by another
+     * booking. The state has then diverged from the one the mutation was recorded against.
+     */
+    public static boolean apply(byte type, ByteBuffer payload, ParkingLotService parkingLotService, SubscriptionManager subscriptionManager) {
+        switch (type) {
+            case BOOKED -> {
+                return parkingLotService.restoreBooking(decodeBooked(payload));
+            }
+            case RELEASED, RELEASED_V1 -> {
+                long bookingId = payload.getLong();
+                LocalDateTime endTime = fromEpochMillis(payload.getLong());
+                long paymentId = payload.getLong();
+                int amount = payload.getInt();
+                PaymentMethod method = PaymentMethod.values()[payload.get()];
+                int chargingAmount = type == RELEASED ? payload.getInt() : 0;
+                parkingLotService.restoreRelease(bookingId, endTime, new Payment(paymentId, amount, chargingAmount, endTime, method));
+            }
+            case SUBSCRIBED -> subscriptionManager.restoreSubscription(decodeSubscribed(payload));
+            case SUBSCRIBED_V1 -> subscriptionManager.restoreSubscription(decodeSubscribedV1(payload));
+            case RESERVED -> parkingLotService.restoreReservation(decodeReserved(payload));
+            case RESERVATION_CLOSED -> parkingLotService.restoreReservationClosed(payload.getLong());
+            default -> throw new IllegalArgumentException("Unknown mutation type: " + type);
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,364 @@
+package com.accet.parkinglot.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.Reservation;
+import com.accet.parkinglot.model.Subscription;
+import com.accet.parkinglot.persistence.MutationCodec;
+import com.accet.parkinglot.service.ParkingLotListener;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+
+/**
+ * Ships every mutation of the lot to a hot standby over a loopback socket.
+ * <p>
+ * A standby that connects first receives a snapshot of the active bookings, subscriptions and reservations,
+ * then the stream of mutations made since, encoded with {@link MutationCodec} exactly as they are journaled.
+ * The gate thread only encodes the mutation and queues it; a sender thread numbers the queued mutations and
+ * writes them out in batches, so gate threads share nothing but the queue.
+ * Shipping is asynchronous: the gate does not wait for the standby, so the mutations still in flight when the
+ * primary dies are lost to the standby, and {@link #getLagRecords()} and {@link #getLagNanos()} say how many
+ * and how old those are. A standby that falls behind by more than the queue holds is disconnected and has to
+ * connect again for a fresh snapshot. One standby is served at a time; a new connection replaces the old one.
+ */
+public class ReplicationPrimary implements ParkingLotListener, AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 64 * 1024;
+    private static final int BATCH_SIZE = 1024;
+    private static final long HEARTBEAT_MILLIS = 100;
+    // Queue times are kept for this many recent sequences to measure lag when they are acknowledged
+    private static final int LAG_WINDOW = 1 << 16;
+
+    private final ParkingLotService parkingLotService;
+    private final SubscriptionManager subscriptionManager;
+    private final int queueCapacity;
+    // Replaced under this
+    private volatile StandbyLink link;
+    // Last sequence of the standbys served before the current one; guarded by this
+    private long retiredSequence;
+    private volatile long ackedSequence;
+    private volatile long lagNanos;
+    private volatile long maxLagNanos;
+    private volatile long disconnects;
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    public ReplicationPrimary(ParkingLotService parkingLotService, SubscriptionManager subscriptionManager) {
+        this(parkingLotService, subscriptionManager, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param queueCapacity Mutations that may wait to be sent before a lagging standby is disconnected.
+     */
+    public ReplicationPrimary(ParkingLotService parkingLotService, SubscriptionManager subscriptionManager, int queueCapacity) {
+        this.parkingLotService = parkingLotService;
+        this.subscriptionManager = subscriptionManager;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Starts listening for a standby on the loopback interface. Port 0 picks a free port; see {@link #getPort()}.
+     * Register this object as a listener of both services before any gate is served.
+     */
+    public synchronized void start(int port) {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Replication already started");
+        }
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not listen on replication port " + port, e);
+        }
+        ServerSocket listening = serverSocket;
+        acceptor = new Thread(() -> {
+            while (!listening.isClosed()) {
+                try {
+                    attach(listening.accept());
+                } catch (IOException e) {
+                    if (!listening.isClosed()) {
+                        System.err.println("Warning: Replication accept failed: " + e.getMessage());
+                    }
+                }
+            }
+        }, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public synchronized int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void attach(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        // Mutations from here on are queued for the new standby, and the snapshot covers everything before. Bookings
+        // are shipped before they are active, so none may be in between: it would be neither queued nor in the snapshot.
+        StandbyLink standby = parkingLotService.whileBookingsSettled(() -> {
+            synchronized (this) {
+                if (link != null) {
+                    retire(link);
+                }
+                StandbyLink next = new StandbyLink(socket, retiredSequence, parkingLotService.getActiveBookings());
+                link = next;
+                return next;
+            }
+        });
+        standby.start();
+    }
+
+    private synchronized void detach(StandbyLink standby) {
+        if (link == standby) {
+            retire(standby);
+            link = null;
+            disconnects++;
+        }
+    }
+
+    private void retire(StandbyLink standby) {
+        standby.close();
+        retiredSequence = Math.max(retiredSequence, standby.lastSequence);
+    }
+
+    // Shipped from the ordered hooks, so the standby never sees a spot or vehicle booked again before it was released
+    @Override
+    public void onBookingApplied(Booking booking) {
+        if (link != null) {
+            ship(MutationCodec.BOOKED, MutationCodec.encodeBooked(booking));
+        }
+    }
+
+    @Override
+    public void onReleaseApplied(Booking booking) {
+        if (link != null) {
+            ship(MutationCodec.RELEASED, MutationCodec.encodeReleased(booking));
+        }
+    }
+
+    @Override
+    public void onSubscribed(Subscription subscription) {
+        if (link != null) {
+            ship(MutationCodec.SUBSCRIBED, MutationCodec.encodeSubscribed(subscription));
+        }
+    }
+
+    @Override
+    public void onReserved(Reservation reservation) {
+        if (link != null) {
+            ship(MutationCodec.RESERVED, MutationCodec.encodeReserved(reservation));
+        }
+    }
+
+    @Override
+    public void onReservationClosed(Reservation reservation) {
+        if (link != null) {
+            ship(MutationCodec.RESERVATION_CLOSED, MutationCodec.encodeReservationClosed(reservation));
+        }
+    }
+
+    // The queue orders the mutations: one that happened after another is queued, and so numbered, after it
+    private void ship(byte type, byte[] payload) {
+        StandbyLink standby = link;
+        if (standby == null) {
+            return; // Disconnected since the caller looked; the next standby starts from a snapshot
+        }
+        if (!standby.queue.offer(new Mutation(type, payload, System.nanoTime()))) {
+            System.err.println("Warning: Replication standby fell " + queueCapacity + " mutations behind; disconnecting it.");
+            detach(standby);
+        }
+    }
+
+    public boolean isStandbyConnected() {
+        return link != null;
+    }
+
+    /**
+     * Returns the number of shipped mutations the standby has not acknowledged yet.
+     */
+    public long getLagRecords() {
+        StandbyLink standby = link;
+        return standby != null ? standby.queue.size() + standby.lastSequence - Math.max(ackedSequence, standby.snapshotSequence) : 0;
+    }
+
+    /**
+     * Returns the time from shipping the most recently acknowledged mutation to the standby confirming it was applied.
+     */
+    public long getLagNanos() {
+        return lagNanos;
+    }
+
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    public long getAckedSequence() {
+        return ackedSequence;
+    }
+
+    /**
+     * Returns the sequence of the last mutation sent to a standby.
+     */
+    public synchronized long getLastSequence() {
+        StandbyLink standby = link;
+        return standby != null ? Math.max(retiredSequence, standby.lastSequence) : retiredSequence;
+    }
+
+    public long getDisconnects() {
+        return disconnects;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (serverSocket != null) {
+                try {
+                    serverSocket.close();
+                } catch (IOException e) {
+                    // Closing anyway
+                }
+            }
+            if (link != null) {
+                retire(link);
+                link = null;
+            }
+        }
+        parkingLotService.removeListener(this);
+        subscriptionManager.removeListener(this);
+    }
+
+    // A mutation waiting to be numbered and sent
+    private record Mutation(byte type, byte[] payload, long queuedNanos) {
+    }
+
+    /**
+     * One connected standby: a sender thread writing the snapshot and then the queue, and a reader for its acks.
+     */
+    private final class StandbyLink {
+        private final Socket socket;
+        private final long snapshotSequence;
+        private final List<Booking> snapshotBookings;
+        private final BlockingQueue<Mutation> queue = new ArrayBlockingQueue<>(queueCapacity);
+        // When each recent sequence was queued, by sequence modulo the window; written by the sender before it
+        // publishes the sequence in lastSequence
+        private final long[] queuedNanos = new long[LAG_WINDOW];
+        private volatile long lastSequence;
+        private volatile boolean closed;
+
+        StandbyLink(Socket socket, long snapshotSequence, List<Booking> snapshotBookings) {
+            this.socket = socket;
+            this.snapshotSequence = snapshotSequence;
+            this.snapshotBookings = snapshotBookings;
+            this.lastSequence = snapshotSequence;
+        }
+
+        void start() {
+            Thread sender = new Thread(this::send, "replication-sender");
+            sender.setDaemon(true);
+            sender.start();
+            Thread ackReader = new Thread(this::readAcks, "replication-acks");
+            ackReader.setDaemon(true);
+            ackReader.start();
+        }
+
+        private void send() {
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+                out.writeInt(ReplicationProtocol.MAGIC);
+                out.writeShort(ReplicationProtocol.VERSION);
+                for (Subscription subscription : subscriptionManager.getAllSubscriptions()) {
+                    ReplicationProtocol.writeFrame(out, snapshotSequence, MutationCodec.SUBSCRIBED, MutationCodec.encodeSubscribed(subscription));
+                }
+                // Taken when the queue was set up: a booking released since then has its release queued
+                for (Booking booking : snapshotBookings) {
+                    ReplicationProtocol.writeFrame(out, snapshotSequence, MutationCodec.BOOKED, MutationCodec.encodeBooked(booking));
+                }
+                for (Reservation reservation : parkingLotService.getReservations()) {
+                    ReplicationProtocol.writeFrame(out, snapshotSequence, MutationCodec.RESERVED, MutationCodec.encodeReserved(reservation));
+                }
+                ReplicationProtocol.writeFrame(out, snapshotSequence, ReplicationProtocol.SNAPSHOT_END);
+                out.flush();
+
+                List<Mutation> batch = new ArrayList<>(BATCH_SIZE);
+                while (!closed) {
+                    Mutation mutation = queue.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (mutation == null) {
+                        ReplicationProtocol.writeFrame(out, 0, ReplicationProtocol.HEARTBEAT);
+                    } else {
+                        batch.add(mutation);
+                        queue.drainTo(batch, BATCH_SIZE - 1);
+                        long sequence = lastSequence;
+                        for (Mutation next : batch) {
+                            sequence++;
+                            queuedNanos[(int) (sequence & (LAG_WINDOW - 1))] = next.queuedNanos();
+                            ReplicationProtocol.writeFrame(out, sequence, next.type(), next.payload());
+                        }
+                        lastSequence = sequence;
+                        batch.clear();
+                    }
+                    out.flush();
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Warning: Replication standby disconnected: " + e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+                detach(this);
+            }
+        }
+
+        private void readAcks() {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (!closed) {
+                    long sequence = in.readLong();
+                    if (sequence > snapshotSequence && link == this) {
+                        acknowledge(sequence);
+                    }
+                }
+            } catch (IOException e) {
+                // The sender notices the broken connection too and detaches
+            } finally {
+                close();
+            }
+        }
+
+        // Records how long the acknowledged mutation took from being queued to being applied on the standby
+        private void acknowledge(long sequence) {
+            ackedSequence = sequence;
+            if (lastSequence - sequence >= LAG_WINDOW) {
+                return; // Its queue time has been overwritten
+            }
+            long lag = System.nanoTime() - queuedNanos[(int) (sequence & (LAG_WINDOW - 1))];
+            lagNanos = lag;
+            if (lag > maxLagNanos) {
+                maxLagNanos = lag;
+            }
+        }
+
+        void close() {
+            closed = true;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+        }
+    }
+}
\ No newline at end of file
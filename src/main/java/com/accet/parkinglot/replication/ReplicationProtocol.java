@@ -0,0 +1,36 @@
+package com.accet.parkinglot.replication;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Wire format between a {@link ReplicationPrimary} and its {@link ReplicationStandby}.
+ * <p>
+ * The primary opens with a magic number and version, then sends frames of: length, sequence, type, payload.
+ * Types are the {@link com.accet.parkinglot.persistence.MutationCodec} mutation types plus the two below.
+ * A snapshot comes first, every frame of it carrying the sequence it is consistent with, and ends with
+ * SNAPSHOT_END; live mutations follow with increasing sequences. The standby answers with the sequence it has
+ * applied, as a bare long, whenever it has caught up with what it received.
+ */
+final class ReplicationProtocol {
+    static final int MAGIC = 0x504B5250; // "PKRP"
+    static final short VERSION = 1;
+    // Sent when the primary has had nothing to ship for a while, so the standby can tell quiet from dead
+    static final byte HEARTBEAT = 0x40;
+    static final byte SNAPSHOT_END = 0x41;
+    private static final byte[] EMPTY = new byte[0];
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeFrame(DataOutputStream out, long sequence, byte type, byte[] payload) throws IOException {
+        out.writeInt(Long.BYTES + 1 + payload.length);
+        out.writeLong(sequence);
+        out.writeByte(type);
+        out.write(payload);
+    }
+
+    static void writeFrame(DataOutputStream out, long sequence, byte type) throws IOException {
+        writeFrame(out, sequence, type, EMPTY);
+    }
+}
\ No newline at end of file
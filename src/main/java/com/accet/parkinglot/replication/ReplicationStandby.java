@@ -0,0 +1,260 @@
+package com.accet.parkinglot.replication;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.accet.parkinglot.persistence.MutationCodec;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+
+/**
+ * Keeps a copy of a primary's lot state up to date by applying the mutations a {@link ReplicationPrimary} ships.
+ * <p>
+ * Mutations are applied through the services' restore paths, as in journal recovery, so the standby's services
+ * must have the same floors as the primary's and must not be serving gates. Once the standby holds a complete
+ * copy, losing the primary (the connection breaks, or nothing, not even a heartbeat, arrives within the
+ * failover timeout) promotes it: it stops applying and {@link #awaitPromotion()} returns, after which the caller
+ * serves gates from the services. Nothing stops the old primary from serving on; make sure it is really down.
+ * <p>
+ * A mutation that conflicts with the copy, such as a booking of a spot the copy has taken, means the copy has
+ * diverged. The standby then discards it and reconnects for a fresh snapshot, and cannot be promoted until that
+ * snapshot is complete.
+ */
+public class ReplicationStandby implements AutoCloseable {
+    public static final Duration DEFAULT_FAILOVER_TIMEOUT = Duration.ofSeconds(2);
+    private static final long RECONNECT_MILLIS = 500;
+
+    private final ParkingLotService parkingLotService;
+    private final SubscriptionManager subscriptionManager;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile Socket socket;
+    private volatile boolean synced;
+    private volatile boolean closing;
+    private volatile String promotionReason;
+    private volatile long appliedSequence;
+    private volatile long appliedRecords;
+    private volatile long lastHeardNanos;
+    private volatile long resyncs;
+    private Thread receiver;
+
+    public ReplicationStandby(ParkingLotService parkingLotService, SubscriptionManager subscriptionManager) {
+        this.parkingLotService = parkingLotService;
+        this.subscriptionManager = subscriptionManager;
+    }
+
+    /**
+     * Connects to the primary, retrying until it is up, and starts applying its mutations on a background thread.
+     */
+    public synchronized void start(String host, int port, Duration failoverTimeout) {
+        if (receiver != null) {
+            throw new IllegalStateException("Standby already started");
+        }
+        receiver = new Thread(() -> receive(host, port, (int) failoverTimeout.toMillis()), "replication-standby");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    private void receive(String host, int port, int failoverMillis) {
+        try {
+            while (true) {
+                Socket connected = connect(host, port);
+                if (connected == null) {
+                    return;
+                }
+                long conflicting = replicate(connected, failoverMillis);
+                // The copy has diverged from the primary's state and cannot be trusted, nor promoted, until it is
+                // rebuilt: drop it and start over from a fresh snapshot
+                System.err.println("Warning: Replicated mutation " + conflicting + " conflicts with the standby's copy; resyncing.");
+                synced = false;
+                closeSocket();
+                parkingLotService.discardState();
+                resyncs++;
+            }
+        } catch (SocketTimeoutException e) {
+            stop("no word from the primary for " + failoverMillis + " ms");
+        } catch (EOFException e) {
+            stop(closing ? "closed" : "the primary closed the connection");
+        } catch (IOException e) {
+            stop(closing ? "closed" : "lost the primary: " + e.getMessage());
+        } catch (RuntimeException e) {
+            stop("could not apply a mutation: " + e);
+        }
+    }
+
+    // Applies the snapshot and then the stream until the connection breaks; returns the sequence of a mutation that
+    // conflicts with the copy, if one arrives
+    private long replicate(Socket connected, int failoverMillis) throws IOException {
+        connected.setSoTimeout(failoverMillis);
+        connected.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(connected.getInputStream(), 64 * 1024));
+        DataOutputStream out = new DataOutputStream(connected.getOutputStream());
+        if (in.readInt() != ReplicationProtocol.MAGIC) {
+            throw new IOException("Not a replication primary");
+        }
+        short version = in.readShort();
+        if (version != ReplicationProtocol.VERSION) {
+            throw new IOException("Unsupported replication version " + version);
+        }
+        long acknowledged = 0;
+        while (true) {
+            int length = in.readInt();
+            long sequence = in.readLong();
+            byte type = in.readByte();
+            byte[] payload = new byte[length - Long.BYTES - 1];
+            in.readFully(payload);
+            lastHeardNanos = System.nanoTime();
+            if (type == ReplicationProtocol.SNAPSHOT_END) {
+                synced = true;
+                appliedSequence = sequence;
+            } else if (type != ReplicationProtocol.HEARTBEAT) {
+                if (!MutationCodec.apply(type, ByteBuffer.wrap(payload), parkingLotService, subscriptionManager)) {
+                    return sequence;
+                }
+                appliedSequence = sequence;
+                appliedRecords++;
+            }
+            // Acknowledge once caught up with everything received, so a burst costs one ack
+            if (in.available() == 0 && appliedSequence != acknowledged) {
+                acknowledged = appliedSequence;
+                out.writeLong(acknowledged);
+                out.flush();
+            }
+        }
+    }
+
+    // Connects, waiting for the primary to come up; returns null if closed meanwhile
+    private Socket connect(String host, int port) throws IOException {
+        while (!closing && promotionReason == null) {
+            Socket attempt = new Socket();
+            socket = attempt;
+            try {
+                attempt.connect(new InetSocketAddress(host, port));
+                return attempt;
+            } catch (ConnectException e) {
+                attempt.close();
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        stop(promotionReason != null ? promotionReason : "closed");
+        return null;
+    }
+
+    private void stop(String reason) {
+        if (promotionReason == null) {
+            promotionReason = reason;
+        }
+        closeSocket();
+        stopped.countDown();
+    }
+
+    /**
+     * Promotes the standby now, without waiting for the primary to fail, e.g. for a planned switchover.
+     * Returns once no more mutations will be applied.
+     */
+    public void promote() {
+        if (promotionReason == null) {
+            promotionReason = "promoted by request";
+        }
+        closeSocket();
+        awaitStop();
+    }
+
+    /**
+     * Blocks until the standby is promoted, then returns the reason.
+     * @throws IllegalStateException if the primary was lost before the standby held a complete copy of its state.
+     */
+    public String awaitPromotion() {
+        awaitStop();
+        if (!synced) {
+            throw new IllegalStateException("Standby has no complete copy of the primary's state (" + promotionReason + ")");
+        }
+        return promotionReason;
+    }
+
+    private void awaitStop() {
+        Thread thread;
+        synchronized (this) {
+            thread = receiver;
+        }
+        if (thread == null) {
+            return;
+        }
+        try {
+            stopped.await();
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeSocket() {
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+        }
+    }
+
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public boolean isPromoted() {
+        return stopped.getCount() == 0 && synced && !closing;
+    }
+
+    /**
+     * Returns the primary's sequence number of the last mutation applied here.
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public long getAppliedRecords() {
+        return appliedRecords;
+    }
+
+    /**
+     * Returns how many times the copy diverged from the primary's state and was rebuilt from a fresh snapshot.
+     */
+    public long getResyncs() {
+        return resyncs;
+    }
+
+    /**
+     * Returns the time since anything, data or heartbeat, last arrived from the primary.
+     */
+    public long getMillisSinceLastHeard() {
+        long heard = lastHeardNanos;
+        return heard == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - heard);
+    }
+
+    /**
+     * Stops applying without promoting.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        closeSocket();
+        awaitStop();
+    }
+}
\ No newline at end of file
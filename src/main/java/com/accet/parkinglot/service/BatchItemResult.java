@@ -0,0 +1,74 @@
+package com.accet.parkinglot.service;
+
+import com.accet.parkinglot.model.Booking;
+
+/**
+ * Outcome of one item of a batch entry or exit. A rejected item carries the reason instead of a booking;
+ * it does not affect the other items of the batch.
+ */
+public class BatchItemResult {
+
+    public enum Status {
+        BOOKED,
+        RELEASED,
+        REJECTED
+    }
+
+    private final String key;
+    private final Status status;
+    private final Booking booking;
+    private final String reason;
+
+    private BatchItemResult(String key, Status status, Booking booking, String reason) {
+        this.key = key;
+        this.status = status;
+        this.booking = booking;
+        this.reason = reason;
+    }
+
+    static BatchItemResult booked(Booking booking) {
+        return new BatchItemResult(booking.getVehicle().getRegistrationNumber(), Status.BOOKED, booking, null);
+    }
+
+    static BatchItemResult released(Booking booking) {
+        return new BatchItemResult(booking.getBookingId(), Status.RELEASED, booking, null);
+    }
+
+    static BatchItemResult rejected(String key, String reason) {
+        return new BatchItemResult(key, Status.REJECTED, null, reason);
+    }
+
+    /**
+     * The registration number for an entry, or the booking ID for an exit.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isRejected() {
+        return status == Status.REJECTED;
+    }
+
+    /**
+     * The new or completed booking, or null if the item was rejected.
+     */
+    public Booking getBooking() {
+        return booking;
+    }
+
+    /**
+     * Why the item was rejected, or null if it was not.
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return key + ": " + (isRejected() ? "REJECTED (" + reason + ")" : status + " " + booking.getBookingId() + " at " + booking.getSpot().getSpotId());
+    }
+}
\ No newline at end of file
@@ -1,28 +1,283 @@
 package com.accet.parkinglot.service;
 
+import com.accet.parkinglot.exception.InvalidBookingException;
 import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.persistence.BookingArchive;
+import com.accet.parkinglot.util.LongObjectHashMap;
+import com.accet.parkinglot.util.RegistrationKeys;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+/**
+ * Thread-safe store of bookings. Active bookings are indexed by booking ID, packed registration number and spot ID,
+ * and are kept apart from completed ones, so "who is parked now" and "where is vehicle X" never walk the history.
+ * When an archive is configured, completed bookings are written to it and evicted from memory.
+ */
 public class BookingRegistry {
-    private final Map<String, Booking> bookingMap;
+    // The registration index has 1 << STRIPE_BITS stripes
+    private static final int STRIPE_BITS = 6;
+
+    private final Map<Long, Booking> activeBookings;
+    // Striped by registration key, each stripe guarded by its own monitor, so gates contend only on the same stripe
+    private final LongObjectHashMap<Booking>[] activeByRegistration;
+    private final Map<String, Booking> activeBySpot;
+    private final Map<Long, Booking> completedBookings;
+    private final BookingArchive archive;
 
     public BookingRegistry() {
-        this.bookingMap = new HashMap<>();
+        this(null);
+    }
+
+    public BookingRegistry(BookingArchive archive) {
+        this.archive = archive;
+        this.activeBookings = new ConcurrentHashMap<>();
+        this.activeByRegistration = newStripes();
+        for (int i = 0; i < activeByRegistration.length; i++) {
+            activeByRegistration[i] = new LongObjectHashMap<>();
+        }
+        this.activeBySpot = new ConcurrentHashMap<>();
+        this.completedBookings = new ConcurrentHashMap<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LongObjectHashMap<Booking>[] newStripes() {
+        return (LongObjectHashMap<Booking>[]) new LongObjectHashMap<?>[1 << STRIPE_BITS];
+    }
+
+    // Picked by the top bits of a Fibonacci hash, which the stripe's own table does not index by
+    private LongObjectHashMap<Booking> stripeOf(long registrationKey) {
+        return activeByRegistration[(int) ((registrationKey * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - STRIPE_BITS))];
     }
 
+    /**
+     * Registers a new active booking.
+     * @throws InvalidBookingException if the vehicle already holds an active booking.
+     */
     public void addBooking(Booking booking) {
-        bookingMap.put(booking.getBookingId(), booking);
+        claimBooking(booking);
+        activateBooking(booking);
+    }
+
+    /**
+     * First half of {@link #addBooking}: indexes the booking by registration number and spot, so the vehicle
+     * cannot be booked again, but does not make it active by ID yet, so it cannot be closed either.
+     * @throws InvalidBookingException if the vehicle already holds an active booking, or the ID is taken.
+     */
+    public void claimBooking(Booking booking) {
+        if (activeBookings.containsKey(booking.getId())) {
+            throw new InvalidBookingException("Booking ID " + booking.getBookingId() + " is already in use");
+        }
+        long registrationKey = booking.getVehicle().getRegistrationKey();
+        LongObjectHashMap<Booking> stripe = stripeOf(registrationKey);
+        Booking existing;
+        synchronized (stripe) {
+            existing = stripe.putIfAbsent(registrationKey, booking);
+        }
+        if (existing != null) {
+            throw new InvalidBookingException("Vehicle " + booking.getVehicle().getRegistrationNumber() + " is already parked at " + existing.getSpot().getSpotId() + " (Booking ID: " + existing.getBookingId() + ")");
+        }
+        activeBySpot.put(booking.getSpot().getSpotId(), booking);
+    }
+
+    /**
+     * Second half of {@link #addBooking}: makes a claimed booking active by ID.
+     * @throws IllegalStateException if another booking with the same ID became active since it was claimed.
+     */
+    public void activateBooking(Booking booking) {
+        Booking existing = activeBookings.putIfAbsent(booking.getId(), booking);
+        if (existing != null) {
+            throw new IllegalStateException("Booking ID " + booking.getBookingId() + " is already in use");
+        }
+    }
+
+    /**
+     * Removes a booking from the active bookings by ID. Only one caller can close a given booking. The vehicle
+     * and spot stay claimed by it until {@link #releaseClaims} is called.
+     * @return The closed booking, or null if no active booking has this ID.
+     */
+    public Booking closeBooking(long bookingId) {
+        return activeBookings.remove(bookingId);
+    }
+
+    /**
+     * Drops a booking from the registration and spot indices, after it was closed or failed to be activated.
+     */
+    public void releaseClaims(Booking booking) {
+        long registrationKey = booking.getVehicle().getRegistrationKey();
+        LongObjectHashMap<Booking> stripe = stripeOf(registrationKey);
+        synchronized (stripe) {
+            stripe.remove(registrationKey, booking);
+        }
+        activeBySpot.remove(booking.getSpot().getSpotId(), booking);
+    }
+
+    /**
+     * Records a closed booking, with its end time and payment set, in the history.
+     */
+    public void addCompletedBooking(Booking booking) {
+        if (archive != null) {
+            archive.append(booking);
+        } else {
+            completedBookings.put(booking.getId(), booking);
+        }
+    }
+
+    /**
+     * Puts a completed booking recovered from persisted state, or received from a primary, back in the history.
+     * With an archive it is appended there unless the archive already has it: the archive is forced less often
+     * than the journal, so a crash can lose the archived record of a release the journal kept.
+     */
+    public void restoreCompletedBooking(Booking booking) {
+        if (archive == null) {
+            completedBookings.put(booking.getId(), booking);
+        } else if (!archive.contains(booking)) {
+            archive.append(booking);
+        }
+    }
+
+    /**
+     * Forces the completed bookings archived so far to disk; without an archive there is nothing to force.
+     */
+    public void forceHistory() {
+        if (archive != null) {
+            archive.force();
+        }
+    }
+
+    /**
+     * Streams completed bookings that ended within [from, to] without materializing the whole history.
+     */
+    public void forEachCompletedBooking(LocalDateTime from, LocalDateTime to, Consumer<Booking> consumer) {
+        if (archive != null) {
+            archive.scan(from, to, consumer);
+            return;
+        }
+        for (Booking booking : completedBookings.values()) {
+            if (!booking.getEndTime().isBefore(from) && !booking.getEndTime().isAfter(to)) {
+                consumer.accept(booking);
+            }
+        }
+    }
+
+    /**
+     * Streams every completed booking, including archived ones.
+     */
+    public void forEachCompletedBooking(Consumer<Booking> consumer) {
+        if (archive != null) {
+            archive.scanAll(consumer);
+        } else {
+            completedBookings.values().forEach(consumer);
+        }
+    }
+
+    /**
+     * Returns a mark of how far the history has been written, for {@link #forEachCompletedBookingSince}. Without an
+     * archive the history is not kept across restarts, and the mark is empty.
+     */
+    public Map<LocalDate, Integer> getHistoryPositions() {
+        return archive != null ? archive.getAppendPositions() : Map.of();
+    }
+
+    /**
+     * Streams the completed bookings added to the history since the mark was taken; without an archive, every
+     * completed booking held in memory.
+     * @return false, without streaming anything, if the mark does not fit the archive.
+     */
+    public boolean forEachCompletedBookingSince(Map<LocalDate, Integer> positions, Consumer<Booking> consumer) {
+        if (archive != null) {
+            return archive.scanAppendedSince(positions, consumer);
+        }
+        completedBookings.values().forEach(consumer);
+        return true;
+    }
+
+    /**
+     * Returns the highest booking or payment ID among the most recently completed bookings, or 0 if there are none.
+     */
+    public long getHighestCompletedId() {
+        if (archive != null) {
+            return archive.getHighestId();
+        }
+        long highest = 0;
+        for (Booking booking : completedBookings.values()) {
+            highest = Math.max(highest, booking.getPayment() != null ? booking.getPayment().getId() : booking.getId());
+        }
+        return highest;
+    }
+
+    /**
+     * Looks up a booking by ID. Completed bookings that have been archived are not found here.
+     */
+    public Booking getBooking(long bookingId) {
+        Booking booking = activeBookings.get(bookingId);
+        return booking != null ? booking : completedBookings.get(bookingId);
+    }
+
+    public Booking getActiveBooking(long bookingId) {
+        return activeBookings.get(bookingId);
+    }
+
+    public Booking findActiveBookingByRegistration(String registrationNumber) {
+        return findActiveBookingByRegistration(RegistrationKeys.pack(registrationNumber));
+    }
+
+    /**
+     * Looks up the active booking of a vehicle by its packed registration number; -1 finds nothing.
+     */
+    public Booking findActiveBookingByRegistration(long registrationKey) {
+        if (registrationKey < 0) {
+            return null;
+        }
+        LongObjectHashMap<Booking> stripe = stripeOf(registrationKey);
+        synchronized (stripe) {
+            return stripe.get(registrationKey);
+        }
+    }
+
+    public Booking findActiveBookingBySpot(String spotId) {
+        return activeBySpot.get(spotId);
+    }
+
+    public boolean isVehicleParked(String registrationNumber) {
+        return findActiveBookingByRegistration(registrationNumber) != null;
+    }
+
+    public boolean isVehicleParked(long registrationKey) {
+        return findActiveBookingByRegistration(registrationKey) != null;
+    }
+
+    public int getActiveBookingCount() {
+        return activeBookings.size();
+    }
+
+    /**
+     * Returns the active bookings. Bookings that were being released while the list was taken are left out, so no
+     * two bookings in the list hold the same spot or vehicle even while spots are being reused.
+     */
+    public List<Booking> getActiveBookings() {
+        List<Booking> active = new ArrayList<>(activeBookings.values());
+        // A booking is closed before its end time is set and its spot freed, so any booking that took over its
+        // spot or vehicle was made, and is listed, only after that end time was already visible here
+        active.removeIf(booking -> booking.getEndTime() != null);
+        return active;
     }
 
-    public Booking getBooking(String bookingId) {
-        return bookingMap.get(bookingId);
+    /**
+     * Returns the completed bookings held in memory; archived bookings are only reachable through forEachCompletedBooking.
+     */
+    public List<Booking> getCompletedBookings() {
+        return new ArrayList<>(completedBookings.values());
     }
 
     public List<Booking> getAllBookings() {
-        return new ArrayList<>(bookingMap.values());
+        List<Booking> all = new ArrayList<>(activeBookings.values());
+        all.addAll(completedBookings.values());
+        return all;
     }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.accet.parkinglot.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.accet.parkinglot.model.ChargingSession;
+import com.accet.parkinglot.model.MeterReading;
+import com.accet.parkinglot.util.LongObjectHashMap;
+
+/**
+ * Stands in for the chargers' energy meters until real ones are wired in: at a fixed rate it integrates the
+ * power the {@link ChargingScheduler} has allocated to every charging session and submits one cumulative
+ * reading per session, as a batch, to the {@link ChargingMeter}.
+ */
+public class ChargerMeterSimulator implements AutoCloseable {
+    // Watt-milliseconds per milliwatt-hour
+    private static final long WATT_MILLIS_PER_MWH = 3600;
+
+    private final ChargingScheduler chargingScheduler;
+    private final ChargingMeter chargingMeter;
+    // Per booking: time of the last sample and energy delivered so far in watt-milliseconds
+    private LongObjectHashMap<long[]> meters = new LongObjectHashMap<>();
+    private ScheduledExecutorService sampler;
+
+    public ChargerMeterSimulator(ChargingScheduler chargingScheduler, ChargingMeter chargingMeter) {
+        this.chargingScheduler = chargingScheduler;
+        this.chargingMeter = chargingMeter;
+    }
+
+    /**
+     * Samples the chargers every interval on a background thread.
+     */
+    public synchronized void start(Duration interval) {
+        if (sampler != null) {
+            return;
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "charger-meter-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        sampler.scheduleAtFixedRate(() -> sample(LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli()),
+                millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes one reading of every charging session at the given time (local time as epoch millis in UTC).
+     */
+    public synchronized void sample(long nowMillis) {
+        List<ChargingSession> sessions = chargingScheduler.getActiveSessions();
+        List<MeterReading> readings = new ArrayList<>(sessions.size());
+        LongObjectHashMap<long[]> seen = new LongObjectHashMap<>(sessions.size());
+        for (ChargingSession session : sessions) {
+            long bookingId = session.getBooking().getId();
+            long[] meter = meters.get(bookingId);
+            if (meter == null) {
+                // First sample of the session: the meter starts from zero now
+                chargingMeter.startSession(session.getBooking());
+                meter = new long[] {nowMillis, 0};
+            } else {
+                meter[1] += session.getAllocatedWatts() * Math.max(0, nowMillis - meter[0]);
+                meter[0] = nowMillis;
+            }
+            seen.put(bookingId, meter);
+            readings.add(new MeterReading(bookingId, nowMillis, meter[1] / WATT_MILLIS_PER_MWH));
+        }
+        // Sessions that have finished are forgotten
+        meters = seen;
+        chargingMeter.submitAll(readings);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+}
\ No newline at end of file
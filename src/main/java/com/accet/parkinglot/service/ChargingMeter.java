@@ -0,0 +1,209 @@
+package com.accet.parkinglot.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.MeterReading;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.util.LongObjectHashMap;
+
+/**
+ * Turns a stream of charger meter readings into a running charge per charging session.
+ * <p>
+ * Chargers submit readings into a bounded queue without waiting; a background thread drains it in batches and
+ * folds each reading into its session's accumulator: the energy delivered since the previous reading, priced at
+ * the {@link ChargingService} rate for the hour the reading was taken. Energy and cost are kept in fixed point
+ * (mWh, and mWh x paise per kWh), so nothing is lost to rounding until the session is settled at exit, which
+ * only has to read the accumulator. If the queue is full, readings are dropped and counted; since readings are
+ * cumulative, a later reading of the same session still carries the energy a dropped one would have.
+ */
+public class ChargingMeter implements AutoCloseable {
+    private static final int BATCH_SIZE = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MILLIS_PER_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final ChargingService chargingService;
+    private final BlockingQueue<MeterReading> pending;
+    // Guarded by this
+    private final LongObjectHashMap<Accumulator> sessions = new LongObjectHashMap<>();
+    private final List<MeterReading> batch = new ArrayList<>(BATCH_SIZE);
+    private final LongAdder droppedReadings = new LongAdder();
+    private final LongAdder ignoredReadings = new LongAdder();
+    private final Thread ingester;
+    private volatile boolean running = true;
+
+    /**
+     * The metered state of one session.
+     */
+    private static final class Accumulator {
+        private final VehicleType type;
+        private long lastTimestampMillis = Long.MIN_VALUE;
+        private long milliwattHours;
+        // Sum of energy x rate, in mWh x paise per kWh
+        private long cost;
+
+        private Accumulator(VehicleType type) {
+            this.type = type;
+        }
+    }
+
+    /**
+     * @param capacity Readings that may wait to be applied before new ones are dropped.
+     */
+    public ChargingMeter(ChargingService chargingService, int capacity) {
+        this.chargingService = chargingService;
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.ingester = new Thread(this::ingest, "charging-meter");
+        this.ingester.setDaemon(true);
+        this.ingester.start();
+    }
+
+    /**
+     * Starts metering a booking's vehicle. Readings for bookings that were not started, or were already settled,
+     * are ignored. Starting a session twice, or after the booking has ended, has no effect.
+     */
+    public synchronized void startSession(Booking booking) {
+        if (booking.getEndTime() != null) {
+            return;
+        }
+        VehicleType type = booking.getVehicle().getType();
+        if (!chargingService.supportsCharging(type)) {
+            throw new IllegalArgumentException("Charging is only available for electric vehicles, not " + type);
+        }
+        sessions.putIfAbsent(booking.getId(), new Accumulator(type));
+    }
+
+    /**
+     * Queues a reading without blocking.
+     * @return false if the queue was full and the reading was dropped.
+     */
+    public boolean submit(MeterReading reading) {
+        if (pending.offer(reading)) {
+            return true;
+        }
+        droppedReadings.increment();
+        return false;
+    }
+
+    /**
+     * Queues a batch of readings without blocking.
+     * @return The number of readings accepted; the rest were dropped.
+     */
+    public int submitAll(List<MeterReading> readings) {
+        int accepted = 0;
+        for (MeterReading reading : readings) {
+            if (submit(reading)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Ends a session and returns its charge in whole rupees, rounded up, or 0 if the booking was never metered.
+     * Readings still queued are applied first, so the charge covers everything submitted before the call.
+     */
+    public synchronized int settle(long bookingId) {
+        applyPending();
+        Accumulator accumulator = sessions.remove(bookingId);
+        return accumulator == null ? 0 : ChargingService.toRupees(accumulator.cost);
+    }
+
+    /**
+     * Energy metered so far for an active session, in mWh, or 0 if it is not being metered.
+     * Readings still in the queue are not included.
+     */
+    public synchronized long getMilliwattHours(long bookingId) {
+        Accumulator accumulator = sessions.get(bookingId);
+        return accumulator == null ? 0 : accumulator.milliwattHours;
+    }
+
+    /**
+     * Charge accrued so far for an active session, in whole rupees rounded up.
+     * Readings still in the queue are not included.
+     */
+    public synchronized int getAccruedCharge(long bookingId) {
+        Accumulator accumulator = sessions.get(bookingId);
+        return accumulator == null ? 0 : ChargingService.toRupees(accumulator.cost);
+    }
+
+    public synchronized int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Readings dropped because the queue was full.
+     */
+    public long getDroppedReadings() {
+        return droppedReadings.sum();
+    }
+
+    /**
+     * Readings discarded because their session was not metered or they were older than one already applied.
+     */
+    public long getIgnoredReadings() {
+        return ignoredReadings.sum();
+    }
+
+    public int getPendingReadings() {
+        return pending.size();
+    }
+
+    private void ingest() {
+        while (running) {
+            int applied;
+            synchronized (this) {
+                applied = applyPending();
+            }
+            if (applied == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    // Drains and applies the queued readings in batches; callers hold the lock
+    private int applyPending() {
+        int applied = 0;
+        while (pending.drainTo(batch, BATCH_SIZE) > 0) {
+            for (MeterReading reading : batch) {
+                apply(reading);
+            }
+            applied += batch.size();
+            batch.clear();
+        }
+        return applied;
+    }
+
+    private void apply(MeterReading reading) {
+        Accumulator accumulator = sessions.get(reading.getBookingId());
+        if (accumulator == null || reading.getTimestampMillis() < accumulator.lastTimestampMillis
+                || reading.getMilliwattHours() < accumulator.milliwattHours) {
+            ignoredReadings.increment();
+            return;
+        }
+        long delta = reading.getMilliwattHours() - accumulator.milliwattHours;
+        int hourOfDay = (int) Math.floorMod(Math.floorDiv(reading.getTimestampMillis(), MILLIS_PER_HOUR), 24L);
+        accumulator.cost += delta * chargingService.getPaisePerKwh(accumulator.type, hourOfDay);
+        accumulator.milliwattHours = reading.getMilliwattHours();
+        accumulator.lastTimestampMillis = reading.getTimestampMillis();
+    }
+
+    /**
+     * Stops the ingesting thread. Readings still queued are applied when their session is settled.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            ingester.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,259 @@
+package com.accet.parkinglot.service;
+
+import com.accet.parkinglot.exception.UnsupportedVehicleTypeException;
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.ChargingSession;
+import com.accet.parkinglot.model.SubscriptionTier;
+import com.accet.parkinglot.model.VehicleType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admits EV charging sessions against both the charging slots of each vehicle type and a site-wide power budget.
+ * <p>
+ * A session starts only if a slot is free and the budget still covers the minimum charging power of every active
+ * session plus the new one; otherwise it waits. Waiting EVs are queued per vehicle type, first come first served,
+ * with Premium subscribers in a queue of their own that is served first, but never more than
+ * {@value #PREMIUM_BURST} times in a row while others are waiting, so nobody starves.
+ * <p>
+ * Whenever a session starts or ends, the budget is shared out again: every active session gets its minimum power,
+ * and what is left is divided in proportion to a weight (Premium counts double), without exceeding what each
+ * vehicle can draw. All state changes happen under the scheduler's monitor.
+ */
+public class ChargingScheduler implements ParkingLotListener {
+    private static final int PREMIUM_BURST = 3;
+    private static final int PREMIUM_WEIGHT = 2;
+    private static final int STANDARD_WEIGHT = 1;
+
+    // [vehicle type]: charging power range in watts, 0 for vehicles that cannot charge
+    private static final int[] MIN_WATTS = new int[VehicleType.values().length];
+    private static final int[] MAX_WATTS = new int[VehicleType.values().length];
+
+    static {
+        MIN_WATTS[VehicleType.ELECTRIC_BIKE.ordinal()] = 1_000;
+        MAX_WATTS[VehicleType.ELECTRIC_BIKE.ordinal()] = 3_300;
+        MIN_WATTS[VehicleType.ELECTRIC_CAR.ordinal()] = 3_700;
+        MAX_WATTS[VehicleType.ELECTRIC_CAR.ordinal()] = 22_000;
+    }
+
+    private final ChargingSlotManager slots;
+    private final int budgetWatts;
+    // Sessions by booking ID, waiting or charging
+    private final Map<Long, ChargingSession> sessions = new HashMap<>();
+    private final List<ChargingSession> active = new ArrayList<>();
+    // [vehicle type]: waiting sessions, Premium and everyone else
+    private final ArrayDeque<ChargingSession>[] premiumQueues;
+    private final ArrayDeque<ChargingSession>[] standardQueues;
+    // [vehicle type]: Premium sessions started in a row while others were waiting
+    private final int[] premiumStreaks;
+    private int minimumWattsInUse;
+    private int allocatedWatts;
+
+    public ChargingScheduler(ChargingSlotManager slots, int budgetWatts) {
+        if (budgetWatts <= 0) {
+            throw new IllegalArgumentException("Charging power budget must be positive");
+        }
+        this.slots = slots;
+        this.budgetWatts = budgetWatts;
+        int types = VehicleType.values().length;
+        this.premiumQueues = newQueues(types);
+        this.standardQueues = newQueues(types);
+        this.premiumStreaks = new int[types];
+        for (int i = 0; i < types; i++) {
+            premiumQueues[i] = new ArrayDeque<>();
+            standardQueues[i] = new ArrayDeque<>();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<ChargingSession>[] newQueues(int types) {
+        return (ArrayDeque<ChargingSession>[]) new ArrayDeque<?>[types];
+    }
+
+    /**
+     * Requests charging for a parked EV. The session starts right away if a slot and enough power are free,
+     * otherwise it waits in line. Asking again for the same booking returns the existing session.
+     * @throws UnsupportedVehicleTypeException if the vehicle cannot be charged.
+     */
+    public synchronized ChargingSession requestCharging(Booking booking, SubscriptionTier tier) {
+        VehicleType type = booking.getVehicle().getType();
+        if (MAX_WATTS[type.ordinal()] == 0) {
+            throw new UnsupportedVehicleTypeException("Charging is only available for electric vehicles, not " + type);
+        }
+        ChargingSession existing = sessions.get(booking.getId());
+        if (existing != null) {
+            return existing;
+        }
+        ChargingSession session = new ChargingSession(booking, tier, LocalDateTime.now());
+        sessions.put(booking.getId(), session);
+        queueOf(session).addLast(session);
+        if (admitWaiting()) {
+            rebalance();
+        }
+        return session;
+    }
+
+    /**
+     * Ends the charging session of a booking, whether it was charging or still waiting, and hands its slot and
+     * power to the next vehicles in line.
+     * @return The finished session, or null if the booking had none.
+     */
+    public synchronized ChargingSession finishCharging(long bookingId) {
+        ChargingSession session = sessions.remove(bookingId);
+        if (session == null) {
+            return null;
+        }
+        VehicleType type = session.getVehicleType();
+        if (session.getState() == ChargingSession.State.CHARGING) {
+            active.remove(session);
+            slots.releaseSlot(type);
+            minimumWattsInUse -= MIN_WATTS[type.ordinal()];
+        } else {
+            queueOf(session).remove(session);
+        }
+        session.setAllocatedWatts(0);
+        session.setState(ChargingSession.State.FINISHED);
+        session.setFinishedAt(LocalDateTime.now());
+        admitWaiting();
+        rebalance();
+        return session;
+    }
+
+    // Charging stops when the vehicle leaves the lot
+    @Override
+    public void onSpotReleased(Booking booking) {
+        finishCharging(booking.getId());
+    }
+
+    // Starts waiting sessions while slots and power allow; returns true if any started.
+    // Among the types with a free slot, the session next in line that has waited longest goes first, and if the
+    // budget cannot cover it, nobody behind it may start either, so small chargers cannot starve big ones.
+    private boolean admitWaiting() {
+        boolean started = false;
+        while (true) {
+            VehicleType type = null;
+            ChargingSession oldest = null;
+            for (VehicleType candidate : VehicleType.values()) {
+                ArrayDeque<ChargingSession> queue = nextQueue(candidate.ordinal());
+                if (queue != null && slots.hasAvailableSlot(candidate)
+                        && (oldest == null || queue.peekFirst().getRequestedAt().isBefore(oldest.getRequestedAt()))) {
+                    type = candidate;
+                    oldest = queue.peekFirst();
+                }
+            }
+            if (type == null || minimumWattsInUse + MIN_WATTS[type.ordinal()] > budgetWatts) {
+                return started;
+            }
+            start(pollNext(type.ordinal()));
+            started = true;
+        }
+    }
+
+    private void start(ChargingSession session) {
+        VehicleType type = session.getVehicleType();
+        slots.allocateSlot(type);
+        minimumWattsInUse += MIN_WATTS[type.ordinal()];
+        session.setState(ChargingSession.State.CHARGING);
+        session.setStartedAt(LocalDateTime.now());
+        active.add(session);
+    }
+
+    // The queue whose head starts next for a type, or null if none is waiting.
+    // Premium first, but a waiting standard session gets every (PREMIUM_BURST + 1)th start.
+    private ArrayDeque<ChargingSession> nextQueue(int type) {
+        ArrayDeque<ChargingSession> premium = premiumQueues[type];
+        ArrayDeque<ChargingSession> standard = standardQueues[type];
+        if (!premium.isEmpty() && (standard.isEmpty() || premiumStreaks[type] < PREMIUM_BURST)) {
+            return premium;
+        }
+        return standard.isEmpty() ? null : standard;
+    }
+
+    private ChargingSession pollNext(int type) {
+        ArrayDeque<ChargingSession> queue = nextQueue(type);
+        if (queue == premiumQueues[type]) {
+            premiumStreaks[type] = standardQueues[type].isEmpty() ? 0 : premiumStreaks[type] + 1;
+        } else {
+            premiumStreaks[type] = 0;
+        }
+        return queue.pollFirst();
+    }
+
+    // Gives every active session its minimum, then water-fills the rest of the budget by weight up to each maximum
+    private void rebalance() {
+        long remaining = budgetWatts - minimumWattsInUse;
+        int[] watts = new int[active.size()];
+        List<Integer> open = new ArrayList<>(active.size());
+        for (int i = 0; i < watts.length; i++) {
+            watts[i] = MIN_WATTS[active.get(i).getVehicleType().ordinal()];
+            open.add(i);
+        }
+        while (remaining > 0 && !open.isEmpty()) {
+            long totalWeight = 0;
+            for (int i : open) {
+                totalWeight += weightOf(active.get(i));
+            }
+            long handedOut = 0;
+            for (int k = open.size() - 1; k >= 0; k--) {
+                int i = open.get(k);
+                long headroom = MAX_WATTS[active.get(i).getVehicleType().ordinal()] - watts[i];
+                long grant = Math.min(headroom, remaining * weightOf(active.get(i)) / totalWeight);
+                watts[i] += (int) grant;
+                handedOut += grant;
+                if (grant == headroom) {
+                    open.remove(k);
+                }
+            }
+            if (handedOut == 0) {
+                break; // Only rounding crumbs are left
+            }
+            remaining -= handedOut;
+        }
+        allocatedWatts = 0;
+        for (int i = 0; i < watts.length; i++) {
+            active.get(i).setAllocatedWatts(watts[i]);
+            allocatedWatts += watts[i];
+        }
+    }
+
+    private static int weightOf(ChargingSession session) {
+        return session.getTier() == SubscriptionTier.PREMIUM ? PREMIUM_WEIGHT : STANDARD_WEIGHT;
+    }
+
+    private ArrayDeque<ChargingSession> queueOf(ChargingSession session) {
+        int type = session.getVehicleType().ordinal();
+        return session.getTier() == SubscriptionTier.PREMIUM ? premiumQueues[type] : standardQueues[type];
+    }
+
+    public synchronized ChargingSession getSession(long bookingId) {
+        return sessions.get(bookingId);
+    }
+
+    public synchronized List<ChargingSession> getActiveSessions() {
+        return new ArrayList<>(active);
+    }
+
+    /**
+     * Returns the number of sessions of a type waiting for a slot or power.
+     */
+    public synchronized int getWaitingCount(VehicleType type) {
+        return premiumQueues[type.ordinal()].size() + standardQueues[type.ordinal()].size();
+    }
+
+    public int getBudgetWatts() {
+        return budgetWatts;
+    }
+
+    public synchronized int getAllocatedWatts() {
+        return allocatedWatts;
+    }
+
+    public ChargingSlotManager getSlots() {
+        return slots;
+    }
+}
\ No newline at end of file
@@ -1,27 +1,165 @@
 package com.accet.parkinglot.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Properties;
+
+import com.accet.parkinglot.exception.UnsupportedVehicleTypeException;
 import com.accet.parkinglot.model.VehicleType;
 
+/**
+ * Energy prices for EV charging, compiled into a per-hour-of-day table so pricing a meter reading is one array read.
+ * See {@code tariffs/charging.properties} for the format.
+ * <p>
+ * Energy is counted in milliwatt-hours and rates in paise per kWh, so a charge accumulates exactly as
+ * mWh x paise/kWh and is rounded up to whole rupees once, when it is billed.
+ */
 public class ChargingService {
+    public static final String DEFAULT_RATES = "/tariffs/charging.properties";
+
+    private static final int HOURS_PER_DAY = 24;
+    // Internal units per rupee: 100 paise, 1,000,000 mWh per kWh
+    public static final long UNITS_PER_RUPEE = 100L * 1_000_000;
+    private static final long NOT_CHARGEABLE = -1;
 
-    // Define charging rates per kWh for different EV types
-    private static final int ELECTRIC_BIKE_RATE_PER_KWH = 5;  // Example: 5 rupees per kWh
-    private static final int ELECTRIC_CAR_RATE_PER_KWH = 10; // Example: 10 rupees per kWh
+    // [vehicle type][hour of day]: rate in paise per kWh, or NOT_CHARGEABLE
+    private final long[][] paisePerKwh;
 
+    /**
+     * Uses the bundled {@link #DEFAULT_RATES}.
+     */
     public ChargingService() {
-        // Constructor, no special initialization needed for now
+        this(readResource(DEFAULT_RATES), DEFAULT_RATES);
     }
 
-    public int calculateChargingCost(VehicleType vehicleType, double kwhConsumed) {
-        int rate;
-        switch (vehicleType) {
-            case ELECTRIC_BIKE -> rate = ELECTRIC_BIKE_RATE_PER_KWH;
-            case ELECTRIC_CAR -> rate = ELECTRIC_CAR_RATE_PER_KWH;
-            default -> {
-                System.out.println("Warning: Charging service called for non-electric vehicle type: " + vehicleType);
-                return 0; // Or throw an IllegalArgumentException
+    private ChargingService(Properties card, String source) {
+        paisePerKwh = new long[VehicleType.values().length][HOURS_PER_DAY];
+        try {
+            for (VehicleType type : VehicleType.values()) {
+                compileType(card, type);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid charging rates " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads charging rates bundled on the classpath, e.g. {@link #DEFAULT_RATES}.
+     */
+    public static ChargingService fromResource(String resource) {
+        return new ChargingService(readResource(resource), resource);
+    }
+
+    public static ChargingService load(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return new ChargingService(read(in), file.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read charging rates " + file, e);
+        }
+    }
+
+    /**
+     * Compiles charging rates given as properties, in the format of {@link #DEFAULT_RATES}.
+     */
+    public static ChargingService of(Properties card) {
+        return new ChargingService(card, "properties");
+    }
+
+    private static Properties readResource(String resource) {
+        try (InputStream in = ChargingService.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Charging rates resource not found: " + resource);
             }
+            return read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read charging rates " + resource, e);
+        }
+    }
+
+    private static Properties read(InputStream in) throws IOException {
+        Properties card = new Properties();
+        card.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return card;
+    }
+
+    private void compileType(Properties card, VehicleType type) {
+        long[] rates = paisePerKwh[type.ordinal()];
+        String rate = card.getProperty("energyRate." + type);
+        if (rate == null) {
+            Arrays.fill(rates, NOT_CHARGEABLE);
+            return;
         }
-        return (int) (rate * kwhConsumed);
+        Arrays.fill(rates, toPaise(rate));
+        // Bands override the rate for their hours
+        String bandPrefix = "energyBand." + type + ".";
+        for (String key : card.stringPropertyNames()) {
+            if (!key.startsWith(bandPrefix)) {
+                continue;
+            }
+            String[] hours = key.substring(bandPrefix.length()).split("-");
+            if (hours.length != 2) {
+                throw new IllegalArgumentException("Band hours must be <from>-<to>: " + key);
+            }
+            int from = Integer.parseInt(hours[0]);
+            int to = Integer.parseInt(hours[1]);
+            if (from < 0 || to > HOURS_PER_DAY || from >= to) {
+                throw new IllegalArgumentException("Band hours must be within 0-24: " + key);
+            }
+            long bandRate = toPaise(card.getProperty(key));
+            for (int hour = from; hour < to; hour++) {
+                rates[hour] = bandRate;
+            }
+        }
+    }
+
+    private static long toPaise(String rupees) {
+        long paise = new BigDecimal(rupees.trim()).movePointRight(2).longValueExact();
+        if (paise < 0) {
+            throw new IllegalArgumentException("Negative amount: " + rupees);
+        }
+        return paise;
+    }
+
+    public boolean supportsCharging(VehicleType vehicleType) {
+        return paisePerKwh[vehicleType.ordinal()][0] != NOT_CHARGEABLE;
+    }
+
+    /**
+     * Rate in paise per kWh for energy delivered to a vehicle type during an hour of the day, 0 to 23.
+     * @throws UnsupportedVehicleTypeException if the vehicle type cannot be charged.
+     */
+    public long getPaisePerKwh(VehicleType vehicleType, int hourOfDay) {
+        long rate = paisePerKwh[vehicleType.ordinal()][hourOfDay];
+        if (rate == NOT_CHARGEABLE) {
+            throw new UnsupportedVehicleTypeException("Charging is only available for electric vehicles, not " + vehicleType);
+        }
+        return rate;
+    }
+
+    /**
+     * Prices energy delivered at a given time in whole rupees, rounded up.
+     */
+    public int calculateChargingCost(VehicleType vehicleType, double kwhConsumed, LocalDateTime deliveredAt) {
+        long milliwattHours = Math.round(kwhConsumed * 1_000_000);
+        return toRupees(milliwattHours * getPaisePerKwh(vehicleType, deliveredAt.getHour()));
+    }
+
+    public int calculateChargingCost(VehicleType vehicleType, double kwhConsumed) {
+        return calculateChargingCost(vehicleType, kwhConsumed, LocalDateTime.now());
+    }
+
+    /**
+     * Rounds an amount in internal units (mWh x paise per kWh) up to whole rupees.
+     */
+    public static int toRupees(long units) {
+        return (int) ((units + UNITS_PER_RUPEE - 1) / UNITS_PER_RUPEE);
     }
 }
\ No newline at end of file
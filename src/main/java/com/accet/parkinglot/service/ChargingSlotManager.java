@@ -6,29 +6,35 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class ChargingSlotManager {
+    private final Map<VehicleType, Integer> totalSlots = new HashMap<>();
     private final Map<VehicleType, Integer> availableSlots = new HashMap<>();
 
     public ChargingSlotManager() {
-        availableSlots.put(VehicleType.ELECTRIC_BIKE, 100);
-        availableSlots.put(VehicleType.ELECTRIC_CAR, 50);
+        totalSlots.put(VehicleType.ELECTRIC_BIKE, 100);
+        totalSlots.put(VehicleType.ELECTRIC_CAR, 50);
+        availableSlots.putAll(totalSlots);
     }
 
-    public boolean hasAvailableSlot(VehicleType type) {
+    public synchronized boolean hasAvailableSlot(VehicleType type) {
         return availableSlots.getOrDefault(type, 0) > 0;
     }
 
-    public void allocateSlot(VehicleType type) {
+    public synchronized void allocateSlot(VehicleType type) {
         if (!hasAvailableSlot(type)) {
             throw new IllegalStateException("No charging slots available for " + type);
         }
         availableSlots.put(type, availableSlots.get(type) - 1);
     }
 
-    public void releaseSlot(VehicleType type) {
+    public synchronized void releaseSlot(VehicleType type) {
         availableSlots.put(type, availableSlots.getOrDefault(type, 0) + 1);
     }
 
-    public int getAvailableSlotsCount(VehicleType type) {
+    public synchronized int getAvailableSlotsCount(VehicleType type) {
         return availableSlots.getOrDefault(type, 0);
     }
+
+    public int getTotalSlotsCount(VehicleType type) {
+        return totalSlots.getOrDefault(type, 0);
+    }
 }
\ No newline at end of file
@@ -1,66 +1,151 @@
 package com.accet.parkinglot.service;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import com.accet.parkinglot.model.Gate;
 import com.accet.parkinglot.model.ParkingLotFloor;
-import com.accet.parkinglot.model.ParkingSpot;
 import com.accet.parkinglot.model.VehicleType;
 
+/**
+ * Builds the floors, spots and gates of a lot from a layout file.
+ * <p>
+ * Layout lines (blank lines and '#' comments are ignored):
+ * <pre>
+ * FLOOR &lt;code&gt; &lt;number&gt; &lt;name&gt;                   e.g. FLOOR F1 1 First Floor
+ * &lt;code&gt; &lt;VehicleType&gt; &lt;first&gt;..&lt;last&gt; [prefix]  e.g. F1 CAR 1..2000  (spots F1-CAR-1 .. F1-CAR-2000)
+ * GATE &lt;id&gt; &lt;floor number&gt; ENTRY|EXIT &lt;description&gt;
+ * </pre>
+ * Spot ranges are stored as ranges and spots are materialized on first use, so load time depends on the
+ * number of lines rather than the number of spots. Target: the 100k-spot campus layout
+ * ({@code layouts/campus-100k.layout}) loads in well under 50 ms on a warm JVM.
+ */
 public class ParkingLotInitializer {
 
+    public static final String DEFAULT_LAYOUT = "/layouts/default.layout";
+
     private final Map<Integer, ParkingLotFloor> parkingFloors;
     private final List<Gate> gates;
+    private final Map<String, ParkingLotFloor> floorsByCode;
+    private int spotCount;
 
     public ParkingLotInitializer() {
-        this.parkingFloors = new HashMap<>();
-        this.gates = new ArrayList<>();
-        initializeParkingFloors();
-        initializeGates();
+        this(openResource(DEFAULT_LAYOUT), DEFAULT_LAYOUT);
     }
 
-    private void initializeParkingFloors() {
-        // Ground Floor (Floor 0)
-        ParkingLotFloor gf = new ParkingLotFloor(0, "Ground Floor");
-        addSpots(gf, VehicleType.TWO_WHEELER, 10, "GF-BIKE-");
-        addSpots(gf, VehicleType.CAR, 15, "GF-CAR-");
-        addSpots(gf, VehicleType.ELECTRIC_CAR, 5, "GF-ECAR-");
-        parkingFloors.put(0, gf);
-
-        // First Floor (Floor 1)
-        ParkingLotFloor f1 = new ParkingLotFloor(1, "First Floor");
-        addSpots(f1, VehicleType.CAR, 20, "F1-CAR-");
-        addSpots(f1, VehicleType.ELECTRIC_BIKE, 8, "F1-EBIKE-");
-        parkingFloors.put(1, f1);
+    public ParkingLotInitializer(Path layoutFile) {
+        this(openFile(layoutFile), layoutFile.toString());
+    }
 
-        // Second Floor (Floor 2)
-        ParkingLotFloor f2 = new ParkingLotFloor(2, "Second Floor");
-        addSpots(f2, VehicleType.CAR, 25, "F2-CAR-");
-        addSpots(f2, VehicleType.TWO_WHEELER, 10, "F2-BIKE-");
-        parkingFloors.put(2, f2);
+    /**
+     * Loads a layout bundled on the classpath, e.g. {@code /layouts/campus-100k.layout}.
+     */
+    public static ParkingLotInitializer fromResource(String resource) {
+        return new ParkingLotInitializer(openResource(resource), resource);
+    }
 
-        System.out.println("Parking floors and spots initialized.");
+    private ParkingLotInitializer(InputStream layout, String source) {
+        this.parkingFloors = new HashMap<>();
+        this.gates = new ArrayList<>();
+        this.floorsByCode = new HashMap<>();
+        long started = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(layout, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    parseLine(line);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException(source + ":" + lineNumber + ": " + e.getMessage() + " in '" + line + "'", e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read layout " + source, e);
+        }
+        long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+        System.out.println("Parking layout loaded from " + source + ": " + parkingFloors.size() + " floors, " + spotCount + " spots, "
+                + gates.size() + " gates in " + (elapsedMicros / 1000.0) + " ms.");
     }
 
-    private void addSpots(ParkingLotFloor floor, VehicleType type, int count, String prefix) {
-        for (int i = 1; i <= count; i++) {
-            floor.addSpot(new ParkingSpot(prefix + i, type, floor.getFloorNumber()));
+    private void parseLine(String line) {
+        String[] tokens = line.split("\\s+", 5);
+        switch (tokens[0]) {
+            case "FLOOR" -> {
+                requireTokens(tokens, 4);
+                String code = tokens[1];
+                int number = Integer.parseInt(tokens[2]);
+                String name = line.split("\\s+", 4)[3];
+                if (parkingFloors.containsKey(number) || floorsByCode.containsKey(code)) {
+                    throw new IllegalArgumentException("Duplicate floor " + code + " / " + number);
+                }
+                ParkingLotFloor floor = new ParkingLotFloor(number, name);
+                parkingFloors.put(number, floor);
+                floorsByCode.put(code, floor);
+            }
+            case "GATE" -> {
+                requireTokens(tokens, 5);
+                int floorNumber = Integer.parseInt(tokens[2]);
+                if (!parkingFloors.containsKey(floorNumber)) {
+                    throw new IllegalArgumentException("Unknown floor number " + floorNumber);
+                }
+                gates.add(new Gate(tokens[1], floorNumber, Gate.GateType.valueOf(tokens[3]), tokens[4]));
+            }
+            default -> {
+                requireTokens(tokens, 3);
+                ParkingLotFloor floor = floorsByCode.get(tokens[0]);
+                if (floor == null) {
+                    throw new IllegalArgumentException("Unknown floor code " + tokens[0]);
+                }
+                VehicleType type = VehicleType.valueOf(tokens[1]);
+                int separator = tokens[2].indexOf("..");
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Expected a range like 1..20");
+                }
+                int first = Integer.parseInt(tokens[2].substring(0, separator));
+                int last = Integer.parseInt(tokens[2].substring(separator + 2));
+                String prefix = tokens.length > 3 ? tokens[3] : tokens[0] + "-" + type + "-";
+                floor.addSpotRange(type, prefix, first, last);
+                spotCount += last - first + 1;
+            }
         }
     }
 
-    private void initializeGates() {
-        // Entry Gates
-        gates.add(new Gate("E1", 0, Gate.GateType.ENTRY, "Main Entry - Ground Floor"));
-        gates.add(new Gate("E2", 1, Gate.GateType.ENTRY, "Entry - First Floor"));
+    private static void requireTokens(String[] tokens, int count) {
+        if (tokens.length < count) {
+            throw new IllegalArgumentException("Expected at least " + count + " fields");
+        }
+    }
 
-        // Exit Gates
-        gates.add(new Gate("X1", 0, Gate.GateType.EXIT, "Main Exit - Ground Floor"));
-        gates.add(new Gate("X2", 2, Gate.GateType.EXIT, "Exit - Second Floor"));
+    private static InputStream openResource(String resource) {
+        InputStream in = ParkingLotInitializer.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Layout resource not found: " + resource);
+        }
+        return in;
+    }
 
-        System.out.println("Parking gates initialized.");
+    private static InputStream openFile(Path layoutFile) {
+        try {
+            return Files.newInputStream(layoutFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open layout " + layoutFile, e);
+        }
     }
 
     public Map<Integer, ParkingLotFloor> getParkingFloors() {
@@ -0,0 +1,79 @@
+package com.accet.parkinglot.service;
+
+import java.util.List;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.Reservation;
+import com.accet.parkinglot.model.Subscription;
+
+/**
+ * Receives every state change of the lot after it has been applied.
+ * Callbacks run on the thread that made the change, so implementations must be thread-safe.
+ * <p>
+ * Gates book and release concurrently, so the after-the-fact callbacks of two gates may arrive in either order,
+ * even when one gate reuses the spot or vehicle the other just released. Listeners that record the changes to
+ * replay them later also implement {@link #onBookingApplied} and {@link #onReleaseApplied}, which arrive in the
+ * order the changes took effect.
+ */
+public interface ParkingLotListener {
+
+    /**
+     * Called while a booking is made, once its spot and vehicle are taken and before it can be released.
+     * For the same spot or vehicle, this and {@link #onReleaseApplied} are called in the order the changes took
+     * effect. The gate waits on it, so keep it short; a listener that throws here fails the booking.
+     */
+    default void onBookingApplied(Booking booking) {
+    }
+
+    /**
+     * Called while a booking is released, once its end time and payment are set and before its spot and vehicle
+     * can be booked again.
+     */
+    default void onReleaseApplied(Booking booking) {
+    }
+
+    default void onSpotBooked(Booking booking) {
+    }
+
+    /**
+     * Called once the booking has its end time and payment set.
+     */
+    default void onSpotReleased(Booking booking) {
+    }
+
+    /**
+     * Called once for a whole batch of bookings; override to handle the batch in one go.
+     */
+    default void onSpotsBooked(List<Booking> bookings) {
+        for (Booking booking : bookings) {
+            onSpotBooked(booking);
+        }
+    }
+
+    /**
+     * Called once for a whole batch of releases; override to handle the batch in one go.
+     */
+    default void onSpotsReleased(List<Booking> bookings) {
+        for (Booking booking : bookings) {
+            onSpotReleased(booking);
+        }
+    }
+
+    default void onSubscribed(Subscription subscription) {
+    }
+
+    /**
+     * Called once a subscription has ended and been removed.
+     */
+    default void onSubscriptionExpired(Subscription subscription) {
+    }
+
+    default void onReserved(Reservation reservation) {
+    }
+
+    /**
+     * Called once a reservation has been checked in (after its vehicle's booking) or cancelled.
+     */
+    default void onReservationClosed(Reservation reservation) {
+    }
+}
\ No newline at end of file
@@ -1,71 +1,254 @@
 package com.accet.parkinglot.service;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.UUID;
-import java.util.stream.Collectors;
-
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.accet.parkinglot.exception.InvalidBookingException;
+import com.accet.parkinglot.exception.ParkingSpotNotAvailableException;
+import com.accet.parkinglot.metrics.LotMetrics;
+import com.accet.parkinglot.metrics.LotMetrics.Operation;
 import com.accet.parkinglot.model.Booking;
 import com.accet.parkinglot.model.ParkingLotFloor;
 import com.accet.parkinglot.model.ParkingSpot;
 import com.accet.parkinglot.model.Payment;
 import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Reservation;
+import com.accet.parkinglot.model.SubscriptionTier;
 import com.accet.parkinglot.model.Vehicle;
 import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.util.CompactIds;
+import com.accet.parkinglot.util.IdGenerator;
+import com.accet.parkinglot.util.LongObjectHashMap;
+import com.accet.parkinglot.util.SnowflakeIdGenerator;
 
 public class ParkingLotService {
+    // How long before its start a reservation's spot is kept free from walk-ins
+    public static final Duration DEFAULT_RESERVATION_HOLD = Duration.ofMinutes(60);
+
     private final Map<Integer, ParkingLotFloor> parkingFloors;
     private final BookingRegistry bookingRegistry;
     private final FareCalculator fareCalculator;
     private final SubscriptionManager subscriptionManager;
+    private final IdGenerator idGenerator;
+    private final Clock clock;
+    // Free spots per VehicleType across all floors, indexed by ordinal, so "lot full" is answered in O(1)
+    private final AtomicIntegerArray availableSpotsByType;
+    // Floors to probe for each gate floor, nearest first; rebuilt whenever floors are added
+    private volatile Map<Integer, ParkingLotFloor[]> searchOrders;
+    private final List<ParkingLotListener> listeners;
+    // Held shared by each booking from its claim until it is active, and exclusively by whoever must see every booking
+    // the ordered hooks have seen among the active bookings
+    private final ReadWriteLock bookingLock;
+    private final LotMetrics metrics;
+    // Advance reservations not checked in yet; walk-ins leave free the spots they need
+    private final ReservationBook reservations;
+    private volatile int reservationHoldMinutes;
+    // Settles metered EV charging onto the exit payment; none if charging is not metered
+    private volatile ChargingMeter chargingMeter;
     private int totalSpotsInitialized = 0;
 
     public ParkingLotService(SubscriptionManager subscriptionManager) {
-        this.parkingFloors = new HashMap<>();
-        this.bookingRegistry = new BookingRegistry();
+        this(subscriptionManager, new BookingRegistry());
+    }
+
+    public ParkingLotService(SubscriptionManager subscriptionManager, BookingRegistry bookingRegistry) {
+        this(subscriptionManager, bookingRegistry, new SnowflakeIdGenerator(0), TariffTable.fromResource(TariffTable.DEFAULT_TARIFF));
+    }
+
+    /**
+     * @param idGenerator Issues booking and payment IDs; give every lot or process sharing a history its own node.
+     * @param tariffTable Rates charged at exit.
+     */
+    public ParkingLotService(SubscriptionManager subscriptionManager, BookingRegistry bookingRegistry, IdGenerator idGenerator, TariffTable tariffTable) {
+        this(subscriptionManager, bookingRegistry, idGenerator, tariffTable, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock Times bookings, exits and reservation holds; a simulation passes a virtual clock.
+     */
+    public ParkingLotService(SubscriptionManager subscriptionManager, BookingRegistry bookingRegistry, IdGenerator idGenerator, TariffTable tariffTable, Clock clock) {
+        this.clock = clock;
+        this.idGenerator = idGenerator;
+        this.parkingFloors = new ConcurrentHashMap<>();
+        this.availableSpotsByType = new AtomicIntegerArray(VehicleType.values().length);
+        this.searchOrders = Map.of();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.bookingLock = new ReentrantReadWriteLock();
+        this.metrics = new LotMetrics();
+        this.bookingRegistry = bookingRegistry;
         this.subscriptionManager = subscriptionManager;
-        this.fareCalculator = new FareCalculator(this.subscriptionManager);
+        this.fareCalculator = new FareCalculator(tariffTable);
+        this.reservations = new ReservationBook(LocalDateTime.now(clock));
+        this.reservationHoldMinutes = (int) DEFAULT_RESERVATION_HOLD.toMinutes();
+        // Never reissue an ID the history holds, even if the clock has stepped back since it was issued
+        idGenerator.advancePast(bookingRegistry.getHighestCompletedId());
     }
 
-    public void addParkingFloors(Map<Integer, ParkingLotFloor> floors) {
+    public synchronized void addParkingFloors(Map<Integer, ParkingLotFloor> floors) {
         this.parkingFloors.putAll(floors);
-        totalSpotsInitialized = floors.values().stream()
-                .flatMap(floor -> floor.getSpotsByVehicleType().values().stream())
-                .mapToInt(Queue::size)
+        for (ParkingLotFloor floor : floors.values()) {
+            for (VehicleType type : VehicleType.values()) {
+                availableSpotsByType.addAndGet(type.ordinal(), floor.getAvailableSpotCount(type));
+            }
+        }
+        totalSpotsInitialized = parkingFloors.values().stream()
+                .mapToInt(ParkingLotFloor::getTotalSpotCount)
                 .sum();
+
+        Map<Integer, ParkingLotFloor[]> orders = new HashMap<>();
+        for (int floorNumber : parkingFloors.keySet()) {
+            orders.put(floorNumber, buildSearchOrder(floorNumber));
+        }
+        searchOrders = orders;
+    }
+
+    public void addListener(ParkingLotListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ParkingLotListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets how long before its start a reservation's spot is kept free from walk-ins, which is also how early
+     * the reserved vehicle may check in.
+     */
+    public void setReservationHold(Duration hold) {
+        this.reservationHoldMinutes = (int) hold.toMinutes();
+    }
+
+    /**
+     * Bills the energy a meter recorded for a booking together with its parking fee at exit.
+     */
+    public void setChargingMeter(ChargingMeter chargingMeter) {
+        this.chargingMeter = chargingMeter;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Latency and rejection counts of this service's operations.
+     */
+    public LotMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the floors of the lot by floor number. The map is a read-only view.
+     */
+    public Map<Integer, ParkingLotFloor> getParkingFloors() {
+        return Collections.unmodifiableMap(parkingFloors);
     }
 
     public int getTotalSpotsInitialized() {
         return totalSpotsInitialized;
     }
 
+    /**
+     * Returns the number of free spots for a vehicle type across all floors.
+     */
+    public int getAvailableSpotCount(VehicleType vehicleType) {
+        return availableSpotsByType.get(vehicleType.ordinal());
+    }
+
+    /**
+     * Finds the nearest available spot without reserving it. Under concurrent gates the spot may be
+     * taken before bookSpot is called; use bookNearestSpot to search and allocate atomically.
+     */
     public ParkingSpot findNearestAvailableSpot(int requestedFloorNumber, VehicleType vehicleType) {
-        List<Integer> searchOrder = new ArrayList<>();
-        searchOrder.add(requestedFloorNumber);
+        long started = System.nanoTime();
+        ParkingSpot spot = searchNearestAvailableSpot(requestedFloorNumber, vehicleType);
+        metrics.record(Operation.FIND_NEAREST, started, spot != null);
+        return spot;
+    }
 
-        // Add floors above
-        for (int i = requestedFloorNumber + 1; i <= Collections.max(parkingFloors.keySet()); i++) {
-            if (parkingFloors.containsKey(i)) {
-                searchOrder.add(i);
+    private ParkingSpot searchNearestAvailableSpot(int requestedFloorNumber, VehicleType vehicleType) {
+        if (getAvailableSpotCount(vehicleType) == 0) {
+            return null; // Lot is full for this type
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (ParkingLotFloor floor : getSearchOrder(requestedFloorNumber)) {
+            if (floor.getAvailableSpotCount(vehicleType) > heldSpots(floor, vehicleType, now)) {
+                ParkingSpot spot = floor.getAvailableSpot(vehicleType);
+                if (spot != null) {
+                    return spot;
+                }
             }
         }
-        // Add floors below
-        for (int i = requestedFloorNumber - 1; i >= Collections.min(parkingFloors.keySet()); i--) {
-            if (parkingFloors.containsKey(i)) {
-                searchOrder.add(i);
+        return null;
+    }
+
+    /**
+     * Books the nearest available spot for the vehicle, searching from the requested floor upwards and then downwards.
+     * Search and allocation happen as one step per floor, so two gates can never be handed the same spot.
+     * Spots held for upcoming reservations are skipped, unless the vehicle is arriving for its own reservation,
+     * in which case the search starts on the reserved floor and the reservation is checked in.
+     * @return The new Booking, or null if no spot of the vehicle's type is free on any floor.
+     * @throws InvalidBookingException if the vehicle is already parked.
+     */
+    public Booking bookNearestSpot(Vehicle vehicle, int requestedFloorNumber) {
+        long started = System.nanoTime();
+        Booking booking = null;
+        try {
+            booking = allocateNearestSpot(vehicle, requestedFloorNumber);
+            return booking;
+        } finally {
+            metrics.record(Operation.BOOK, started, booking != null);
+        }
+    }
+
+    private Booking allocateNearestSpot(Vehicle vehicle, int requestedFloorNumber) {
+        ensureNotParked(vehicle);
+        VehicleType vehicleType = vehicle.getType();
+        if (getAvailableSpotCount(vehicleType) == 0) {
+            return null; // Lot is full for this type
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        Reservation reservation = reservations.claimDue(vehicle.getRegistrationKey(), vehicleType, now, reservationHoldMinutes);
+        Booking booking = null;
+        try {
+            ParkingSpot spot = takeNearestSpot(vehicleType, reservation != null ? reservation.getFloorNumber() : requestedFloorNumber, now);
+            if (spot != null) {
+                booking = createBooking(vehicle, parkingFloors.get(spot.getFloorNumber()), spot);
+            }
+            return booking;
+        } finally {
+            if (reservation != null) {
+                settleClaim(reservation, booking != null);
             }
         }
+    }
 
-        for (int floorNum : searchOrder) {
-            ParkingLotFloor floor = parkingFloors.get(floorNum);
-            if (floor != null) {
-                ParkingSpot spot = floor.getAvailableSpot(vehicleType);
+    // Takes the nearest spot of a type, from a floor outwards, that is not held for a reservation
+    private ParkingSpot takeNearestSpot(VehicleType vehicleType, int requestedFloorNumber, LocalDateTime now) {
+        for (ParkingLotFloor floor : getSearchOrder(requestedFloorNumber)) {
+            int held = heldSpots(floor, vehicleType, now);
+            if (floor.getAvailableSpotCount(vehicleType) > held) {
+                ParkingSpot spot = floor.allocateAvailableSpot(vehicleType, held);
                 if (spot != null) {
+                    availableSpotsByType.decrementAndGet(vehicleType.ordinal());
                     return spot;
                 }
             }
@@ -73,8 +256,54 @@ public class ParkingLotService {
         return null;
     }
 
+    // Free spots of a type on a floor that are held for reservations starting within the hold window
+    private int heldSpots(ParkingLotFloor floor, VehicleType vehicleType, LocalDateTime now) {
+        return reservations.held(floor.getFloorNumber(), vehicleType, now, reservationHoldMinutes);
+    }
+
+    // Reports a claimed reservation as checked in once its vehicle is parked, or puts it back if it could not be
+    private void settleClaim(Reservation reservation, boolean checkedIn) {
+        if (!checkedIn) {
+            reservations.add(reservation);
+            return;
+        }
+        for (ParkingLotListener listener : listeners) {
+            listener.onReservationClosed(reservation);
+        }
+    }
+
+    private ParkingLotFloor[] getSearchOrder(int requestedFloorNumber) {
+        ParkingLotFloor[] order = searchOrders.get(requestedFloorNumber);
+        // Gates on a floor without spots are rare; compute their order on demand
+        return order != null ? order : buildSearchOrder(requestedFloorNumber);
+    }
+
+    // Requested floor first, then the floors above it in ascending order, then the floors below it in descending order
+    private ParkingLotFloor[] buildSearchOrder(int requestedFloorNumber) {
+        TreeMap<Integer, ParkingLotFloor> floors = new TreeMap<>(parkingFloors);
+        List<ParkingLotFloor> searchOrder = new ArrayList<>();
+        ParkingLotFloor requested = floors.get(requestedFloorNumber);
+        if (requested != null) {
+            searchOrder.add(requested);
+        }
+        searchOrder.addAll(floors.tailMap(requestedFloorNumber, false).values());
+        searchOrder.addAll(floors.headMap(requestedFloorNumber, false).descendingMap().values());
+        return searchOrder.toArray(new ParkingLotFloor[0]);
+    }
+
 
     public Booking bookSpot(Vehicle vehicle, ParkingSpot desiredSpot) {
+        long started = System.nanoTime();
+        Booking booking = null;
+        try {
+            booking = allocateSpot(vehicle, desiredSpot);
+            return booking;
+        } finally {
+            metrics.record(Operation.BOOK, started, booking != null);
+        }
+    }
+
+    private Booking allocateSpot(Vehicle vehicle, ParkingSpot desiredSpot) {
         if (desiredSpot == null) {
             throw new RuntimeException("No suitable parking spot provided for booking.");
         }
@@ -83,61 +312,539 @@ public class ParkingLotService {
         if (floor == null) {
             throw new RuntimeException("Spot's floor does not exist: " + desiredSpot.getFloorNumber());
         }
+        ensureNotParked(vehicle);
+
+        LocalDateTime now = LocalDateTime.now(clock);
+        Reservation reservation = reservations.claimDue(vehicle.getRegistrationKey(), vehicle.getType(), now, reservationHoldMinutes);
+        Booking booking = null;
+        try {
+            if (!floor.allocateSpot(desiredSpot, heldSpots(floor, desiredSpot.getType(), now))) {
+                 throw new ParkingSpotNotAvailableException("Desired spot " + desiredSpot.getSpotId() + " is not available or already occupied.");
+            }
+            availableSpotsByType.decrementAndGet(desiredSpot.getType().ordinal());
+
+            booking = createBooking(vehicle, floor, desiredSpot);
+            return booking;
+        } finally {
+            if (reservation != null) {
+                settleClaim(reservation, booking != null);
+            }
+        }
+    }
+
+    /**
+     * Books spots for a batch of vehicles arriving at one gate, nearest first as in bookNearestSpot.
+     * Vehicles of the same type are placed together: each floor is searched and allocated from once per type,
+     * and listeners are notified once for the whole batch. A vehicle that cannot be booked is rejected
+     * without affecting the rest of the batch.
+     * @return One result per vehicle, in the order given.
+     */
+    public List<BatchItemResult> bookSpots(List<Vehicle> vehicles, int gateFloorNumber) {
+        long started = System.nanoTime();
+        List<BatchItemResult> results = allocateBatch(vehicles, gateFloorNumber);
+        metrics.record(Operation.BOOK_BATCH, started, true);
+        metrics.recordRejections(Operation.BOOK_BATCH, countRejected(results));
+        return results;
+    }
 
-        if (!floor.allocateSpot(desiredSpot)) {
-             throw new RuntimeException("Desired spot " + desiredSpot.getSpotId() + " is not available or already occupied.");
+    private static int countRejected(List<BatchItemResult> results) {
+        int rejected = 0;
+        for (BatchItemResult result : results) {
+            if (result.isRejected()) {
+                rejected++;
+            }
         }
+        return rejected;
+    }
 
-        String bookingId = UUID.randomUUID().toString().substring(0, 8);
-        Booking booking = new Booking(bookingId, vehicle, desiredSpot, LocalDateTime.now());
-        bookingRegistry.addBooking(booking);
+    private List<BatchItemResult> allocateBatch(List<Vehicle> vehicles, int gateFloorNumber) {
+        BatchItemResult[] results = new BatchItemResult[vehicles.size()];
+        Map<VehicleType, List<Integer>> pendingByType = new EnumMap<>(VehicleType.class);
+        LongObjectHashMap<Vehicle> inBatch = new LongObjectHashMap<>(vehicles.size());
+        List<Booking> booked = new ArrayList<>();
+        List<Reservation> checkedIn = new ArrayList<>();
+        LocalDateTime startTime = LocalDateTime.now(clock);
+        try {
+            for (int i = 0; i < vehicles.size(); i++) {
+                Vehicle vehicle = vehicles.get(i);
+                long registrationKey = vehicle.getRegistrationKey();
+                Booking existing = bookingRegistry.findActiveBookingByRegistration(registrationKey);
+                if (existing != null) {
+                    results[i] = BatchItemResult.rejected(vehicle.getRegistrationNumber(), "Already parked at " + existing.getSpot().getSpotId() + " (Booking ID: " + existing.getBookingId() + ")");
+                } else if (inBatch.putIfAbsent(registrationKey, vehicle) != null) {
+                    results[i] = BatchItemResult.rejected(vehicle.getRegistrationNumber(), "Listed more than once in the batch");
+                } else {
+                    // Vehicles arriving for their reservation are placed first, one by one, from the reserved floor
+                    Reservation reservation = reservations.claimDue(registrationKey, vehicle.getType(), startTime, reservationHoldMinutes);
+                    if (reservation != null) {
+                        results[i] = checkInReservation(vehicle, reservation, startTime, booked, checkedIn);
+                    } else {
+                        pendingByType.computeIfAbsent(vehicle.getType(), type -> new ArrayList<>()).add(i);
+                    }
+                }
+            }
 
+            for (Map.Entry<VehicleType, List<Integer>> entry : pendingByType.entrySet()) {
+                VehicleType vehicleType = entry.getKey();
+                List<Integer> pending = entry.getValue();
+                List<ParkingSpot> spots = allocateNearestSpots(vehicleType, pending.size(), gateFloorNumber, startTime);
+                int next = 0;
+                try {
+                    while (next < pending.size()) {
+                        int i = pending.get(next);
+                        Vehicle vehicle = vehicles.get(i);
+                        if (next >= spots.size()) {
+                            next++;
+                            results[i] = BatchItemResult.rejected(vehicle.getRegistrationNumber(), "No " + vehicleType + " spot available");
+                            continue;
+                        }
+                        ParkingSpot spot = spots.get(next++);
+                        try {
+                            // A failed booking hands its spot back itself
+                            Booking booking = registerBooking(vehicle, parkingFloors.get(spot.getFloorNumber()), spot, startTime);
+                            booked.add(booking);
+                            results[i] = BatchItemResult.booked(booking);
+                        } catch (RuntimeException e) {
+                            results[i] = BatchItemResult.rejected(vehicle.getRegistrationNumber(), describe(e));
+                        }
+                    }
+                } finally {
+                    // Spots taken for vehicles the batch never got to
+                    for (int k = next; k < spots.size(); k++) {
+                        ParkingSpot spot = spots.get(k);
+                        handBackSpot(parkingFloors.get(spot.getFloorNumber()), spot);
+                    }
+                }
+            }
+            return Arrays.asList(results);
+        } finally {
+            // Whatever was booked is announced and checked in, even if the batch was cut short
+            try {
+                if (!booked.isEmpty()) {
+                    for (ParkingLotListener listener : listeners) {
+                        listener.onSpotsBooked(booked);
+                    }
+                }
+            } finally {
+                for (Reservation reservation : checkedIn) {
+                    settleClaim(reservation, true);
+                }
+            }
+        }
+    }
+
+    // Books one vehicle of a batch that arrived for its reservation; the reservation is put back if it cannot be parked
+    private BatchItemResult checkInReservation(Vehicle vehicle, Reservation reservation, LocalDateTime startTime, List<Booking> booked, List<Reservation> checkedIn) {
+        ParkingSpot spot = takeNearestSpot(vehicle.getType(), reservation.getFloorNumber(), startTime);
+        if (spot == null) {
+            settleClaim(reservation, false);
+            return BatchItemResult.rejected(vehicle.getRegistrationNumber(), "No " + vehicle.getType() + " spot available");
+        }
+        try {
+            Booking booking = registerBooking(vehicle, parkingFloors.get(spot.getFloorNumber()), spot, startTime);
+            booked.add(booking);
+            checkedIn.add(reservation);
+            return BatchItemResult.booked(booking);
+        } catch (RuntimeException e) {
+            settleClaim(reservation, false);
+            return BatchItemResult.rejected(vehicle.getRegistrationNumber(), describe(e));
+        }
+    }
+
+    // Reason given for a batch item whose booking failed; a failure other than a rejection is not the vehicle's fault
+    private static String describe(RuntimeException e) {
+        return e instanceof InvalidBookingException ? e.getMessage() : "Could not be booked: " + e;
+    }
+
+    // Takes up to count spots of one type, nearest to the gate floor first, taking as many as possible per floor
+    private List<ParkingSpot> allocateNearestSpots(VehicleType vehicleType, int count, int requestedFloorNumber, LocalDateTime now) {
+        List<ParkingSpot> spots = new ArrayList<>(count);
+        if (getAvailableSpotCount(vehicleType) == 0) {
+            return spots; // Lot is full for this type
+        }
+        for (ParkingLotFloor floor : getSearchOrder(requestedFloorNumber)) {
+            if (spots.size() == count) {
+                break;
+            }
+            int held = heldSpots(floor, vehicleType, now);
+            if (floor.getAvailableSpotCount(vehicleType) > held) {
+                floor.allocateAvailableSpots(vehicleType, count - spots.size(), held, spots);
+            }
+        }
+        availableSpotsByType.addAndGet(vehicleType.ordinal(), -spots.size());
+        return spots;
+    }
+
+    private Booking createBooking(Vehicle vehicle, ParkingLotFloor floor, ParkingSpot desiredSpot) {
+        Booking booking = registerBooking(vehicle, floor, desiredSpot, LocalDateTime.now(clock));
+        for (ParkingLotListener listener : listeners) {
+            listener.onSpotBooked(booking);
+        }
         return booking;
     }
 
-    // Modified to accept PaymentMethod
-    public void releaseSpot(String bookingId, PaymentMethod paymentMethod) {
-        Booking booking = bookingRegistry.getBooking(bookingId);
+    // Registers a booking for an already allocated spot; hands the spot back if the vehicle turns out to be parked.
+    // The booking is announced to the ordered hooks between taking the vehicle and becoming releasable by ID.
+    private Booking registerBooking(Vehicle vehicle, ParkingLotFloor floor, ParkingSpot desiredSpot, LocalDateTime startTime) {
+        Booking booking = new Booking(idGenerator.nextId(), vehicle, desiredSpot, startTime);
+        Lock lock = bookingLock.readLock();
+        lock.lock();
+        try {
+            try {
+                bookingRegistry.claimBooking(booking);
+            } catch (InvalidBookingException e) {
+                // The same vehicle was booked concurrently at another gate; hand the spot back
+                handBackSpot(floor, desiredSpot);
+                throw e;
+            }
+            try {
+                for (ParkingLotListener listener : listeners) {
+                    listener.onBookingApplied(booking);
+                }
+            } catch (RuntimeException e) {
+                // Could not be recorded, so the booking is not made
+                bookingRegistry.releaseClaims(booking);
+                handBackSpot(floor, desiredSpot);
+                throw e;
+            }
+            bookingRegistry.activateBooking(booking);
+            return booking;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs an action while no booking is between the ordered hooks and becoming active, so every booking the hooks
+     * have announced so far is among the active bookings. Bookings wait meanwhile; keep the action short.
+     * Lets a reader pin the active bookings to a position in a log the hooks append to.
+     */
+    public <T> T whileBookingsSettled(Supplier<T> action) {
+        Lock lock = bookingLock.writeLock();
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void handBackSpot(ParkingLotFloor floor, ParkingSpot spot) {
+        if (floor.releaseSpot(spot)) {
+            availableSpotsByType.incrementAndGet(spot.getType().ordinal());
+        }
+    }
+
+    /**
+     * Re-applies a booking recovered from persisted state: occupies the same spot without notifying listeners.
+     * A booking that is already active is left as it is.
+     * @return false if the booking conflicts with the state, i.e. its spot no longer exists or is taken, or its
+     * vehicle is parked under another booking; it is skipped then.
+     */
+    public boolean restoreBooking(Booking booking) {
+        idGenerator.advancePast(booking.getId());
+        if (bookingRegistry.getActiveBooking(booking.getId()) != null) {
+            return true;
+        }
+        ParkingLotFloor floor = parkingFloors.get(booking.getSpot().getFloorNumber());
+        ParkingSpot spot = floor != null ? floor.findSpot(booking.getSpot().getType(), booking.getSpot().getSpotId()) : null;
+        if (spot == null || !floor.allocateSpot(spot)) {
+            return false;
+        }
+        availableSpotsByType.decrementAndGet(spot.getType().ordinal());
+        Booking restored = new Booking(booking.getId(), booking.getVehicle(), spot, booking.getStartTime());
+        try {
+            bookingRegistry.addBooking(restored);
+        } catch (InvalidBookingException e) {
+            handBackSpot(floor, spot);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Re-applies a release recovered from persisted state without charging again or notifying listeners.
+     * @return true if the booking was active and has been completed.
+     */
+    public boolean restoreRelease(long bookingId, LocalDateTime endTime, Payment payment) {
+        idGenerator.advancePast(payment.getId());
+        Booking booking = bookingRegistry.closeBooking(bookingId);
+        if (booking == null) {
+            return false;
+        }
+        bookingRegistry.releaseClaims(booking);
+        ParkingSpot spot = booking.getSpot();
+        ParkingLotFloor floor = parkingFloors.get(spot.getFloorNumber());
+        if (floor != null && floor.releaseSpot(spot)) {
+            availableSpotsByType.incrementAndGet(spot.getType().ordinal());
+        }
+        booking.setEndTime(endTime);
+        booking.setPayment(payment);
+        bookingRegistry.restoreCompletedBooking(booking);
+        return true;
+    }
+
+    /**
+     * Drops every active booking and pending reservation, freeing their spots, without completing them or notifying
+     * listeners. Only for a copy of another lot's state that is about to be rebuilt from a fresh snapshot.
+     */
+    public void discardState() {
+        for (Booking booking : bookingRegistry.getActiveBookings()) {
+            if (bookingRegistry.closeBooking(booking.getId()) == null) {
+                continue;
+            }
+            bookingRegistry.releaseClaims(booking);
+            ParkingLotFloor floor = parkingFloors.get(booking.getSpot().getFloorNumber());
+            if (floor != null) {
+                handBackSpot(floor, booking.getSpot());
+            }
+        }
+        for (Reservation reservation : reservations.getAll()) {
+            reservations.remove(reservation.getId());
+        }
+    }
+
+    /**
+     * Reserves a spot of the vehicle's type on a floor for [from, until). The spot is picked when the vehicle
+     * arrives at an entry gate, which it may do from the hold window before from until the reservation ends.
+     * @throws InvalidBookingException if the floor does not exist or the window is not valid.
+     * @throws ParkingSpotNotAvailableException if the floor has no spot of the type free for the whole window.
+     */
+    public Reservation reserve(Vehicle vehicle, int floorNumber, LocalDateTime from, LocalDateTime until) {
+        ParkingLotFloor floor = parkingFloors.get(floorNumber);
+        if (floor == null) {
+            throw new InvalidBookingException("Floor " + floorNumber + " does not exist.");
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        if (!until.isAfter(from) || !until.isAfter(now)) {
+            throw new InvalidBookingException("A reservation must end after it starts, and in the future.");
+        }
+        Reservation reservation;
+        synchronized (reservations) {
+            reservations.expire(now);
+            if (countReservableSpots(floor, vehicle.getType(), from, until, now) == 0) {
+                throw new ParkingSpotNotAvailableException("No " + vehicle.getType() + " spot is free on floor " + floorNumber + " from " + from + " to " + until + ".");
+            }
+            reservation = new Reservation(idGenerator.nextId(), vehicle, floorNumber, from, until);
+            reservations.add(reservation);
+        }
+        for (ParkingLotListener listener : listeners) {
+            listener.onReserved(reservation);
+        }
+        return reservation;
+    }
+
+    /**
+     * Returns how many more spots of a type on a floor could be reserved for [from, until).
+     * Answered from the floor's reservation index in logarithmic time.
+     */
+    public int getReservableSpotCount(int floorNumber, VehicleType vehicleType, LocalDateTime from, LocalDateTime until) {
+        ParkingLotFloor floor = parkingFloors.get(floorNumber);
+        return floor == null || !until.isAfter(from) ? 0 : countReservableSpots(floor, vehicleType, from, until, LocalDateTime.now(clock));
+    }
+
+    public boolean isSpotReservable(int floorNumber, VehicleType vehicleType, LocalDateTime from, LocalDateTime until) {
+        return getReservableSpotCount(floorNumber, vehicleType, from, until) > 0;
+    }
+
+    // A window must fit under the floor's capacity at its busiest minute. A window starting within the hold window
+    // also needs a spot that is free now, as vehicles parked now are not known to leave before it starts.
+    private int countReservableSpots(ParkingLotFloor floor, VehicleType vehicleType, LocalDateTime from, LocalDateTime until, LocalDateTime now) {
+        int floorNumber = floor.getFloorNumber();
+        int reservable = floor.getTotalSpotCount(vehicleType) - reservations.peak(floorNumber, vehicleType, from, until);
+        LocalDateTime holdEnd = now.plusMinutes(reservationHoldMinutes);
+        if (from.isBefore(holdEnd)) {
+            int peakFromNow = reservations.peak(floorNumber, vehicleType, now, until.isAfter(holdEnd) ? until : holdEnd);
+            reservable = Math.min(reservable, floor.getAvailableSpotCount(vehicleType) - peakFromNow);
+        }
+        return Math.max(0, reservable);
+    }
+
+    /**
+     * Cancels a reservation that has not been checked in.
+     * @return The cancelled reservation, or null if there is no such pending reservation.
+     */
+    public Reservation cancelReservation(String reservationId) {
+        long id = CompactIds.parse(reservationId);
+        Reservation reservation = id >= 0 ? reservations.remove(id) : null;
+        if (reservation != null) {
+            for (ParkingLotListener listener : listeners) {
+                listener.onReservationClosed(reservation);
+            }
+        }
+        return reservation;
+    }
+
+    /**
+     * Returns the reservations that have not been checked in, cancelled or run out.
+     */
+    public List<Reservation> getReservations() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Reservation> pending = reservations.getAll();
+        pending.removeIf(reservation -> !reservation.getUntil().isAfter(now));
+        return pending;
+    }
+
+    /**
+     * Re-applies a reservation recovered from persisted state without notifying listeners.
+     * @return false if it had already ended.
+     */
+    public boolean restoreReservation(Reservation reservation) {
+        idGenerator.advancePast(reservation.getId());
+        if (!reservation.getUntil().isAfter(LocalDateTime.now(clock))) {
+            return false;
+        }
+        reservations.add(reservation);
+        return true;
+    }
+
+    /**
+     * Re-applies a check-in or cancellation recovered from persisted state without notifying listeners.
+     */
+    public boolean restoreReservationClosed(long reservationId) {
+        return reservations.remove(reservationId) != null;
+    }
+
+    private void ensureNotParked(Vehicle vehicle) {
+        Booking existing = bookingRegistry.findActiveBookingByRegistration(vehicle.getRegistrationKey());
+        if (existing != null) {
+            throw new InvalidBookingException("Vehicle " + vehicle.getRegistrationNumber() + " is already parked at " + existing.getSpot().getSpotId() + " (Booking ID: " + existing.getBookingId() + ")");
+        }
+    }
+
+    /**
+     * Frees the booking's spot and charges the stay.
+     * @return The completed booking, with its end time and payment set.
+     * @throws InvalidBookingException if the booking does not exist or has already been completed.
+     */
+    public Booking releaseSpot(String bookingId, PaymentMethod paymentMethod) {
+        long started = System.nanoTime();
+        Booking booking = null;
+        try {
+            booking = completeBooking(bookingId, paymentMethod, LocalDateTime.now(clock));
+            for (ParkingLotListener listener : listeners) {
+                listener.onSpotReleased(booking);
+            }
+            return booking;
+        } finally {
+            metrics.record(Operation.RELEASE, started, booking != null);
+        }
+    }
+
+    /**
+     * Releases a batch of bookings leaving through one gate, all paid the same way and timed at the same instant.
+     * Listeners are notified once for the whole batch. An unknown or already completed booking is rejected
+     * without affecting the rest of the batch.
+     * @return One result per booking ID, in the order given.
+     */
+    public List<BatchItemResult> releaseSpots(List<String> bookingIds, PaymentMethod paymentMethod) {
+        long started = System.nanoTime();
+        List<BatchItemResult> results = completeBatch(bookingIds, paymentMethod);
+        metrics.record(Operation.RELEASE_BATCH, started, true);
+        metrics.recordRejections(Operation.RELEASE_BATCH, countRejected(results));
+        return results;
+    }
+
+    private List<BatchItemResult> completeBatch(List<String> bookingIds, PaymentMethod paymentMethod) {
+        List<BatchItemResult> results = new ArrayList<>(bookingIds.size());
+        List<Booking> released = new ArrayList<>(bookingIds.size());
+        LocalDateTime endTime = LocalDateTime.now(clock);
+        for (String bookingId : bookingIds) {
+            try {
+                Booking booking = completeBooking(bookingId, paymentMethod, endTime);
+                released.add(booking);
+                results.add(BatchItemResult.released(booking));
+            } catch (InvalidBookingException e) {
+                results.add(BatchItemResult.rejected(bookingId, e.getMessage()));
+            }
+        }
+
+        if (!released.isEmpty()) {
+            for (ParkingLotListener listener : listeners) {
+                listener.onSpotsReleased(released);
+            }
+        }
+        return results;
+    }
+
+    // Charges the stay, frees the spot and moves the booking to the history, without notifying listeners other than
+    // the ordered hooks, which see the release after it is charged and before the spot or vehicle can be reused
+    private Booking completeBooking(String bookingId, PaymentMethod paymentMethod, LocalDateTime endTime) {
+        long id = CompactIds.parse(bookingId);
+        Booking booking = id >= 0 ? bookingRegistry.closeBooking(id) : null;
         if (booking == null) {
-            throw new RuntimeException("Invalid booking ID: " + bookingId);
+            if (id >= 0 && bookingRegistry.getBooking(id) != null) {
+                throw new InvalidBookingException("Booking " + bookingId + " has already been completed.");
+            }
+            throw new InvalidBookingException("Invalid booking ID: " + bookingId);
         }
 
         ParkingSpot spot = booking.getSpot();
         ParkingLotFloor floor = parkingFloors.get(spot.getFloorNumber());
 
         if (floor == null) {
+            bookingRegistry.releaseClaims(booking);
             throw new RuntimeException("Error: Spot's floor " + spot.getFloorNumber() + " not found during release.");
         }
 
-        floor.releaseSpot(spot);
-
-        LocalDateTime endTime = LocalDateTime.now();
         booking.setEndTime(endTime);
 
-        int durationMinutes = (int) java.time.Duration.between(booking.getStartTime(), endTime).toMinutes();
-        int durationHours = (int) Math.max(1, Math.ceil(durationMinutes / 60.0)); // Round up to nearest hour, minimum 1 hour
-
-        String vehicleRegNumber = booking.getVehicle().getRegistrationNumber();
-        String subscriptionPlanId = subscriptionManager.isSubscribed(vehicleRegNumber) ? vehicleRegNumber : null;
+        SubscriptionTier tier = subscriptionManager.getTier(booking.getVehicle().getRegistrationKey(), endTime);
+        int fee = fareCalculator.calculateFee(booking.getVehicle().getType(), booking.getStartTime(), endTime, tier);
 
-        int fee = fareCalculator.calculateFee(booking.getVehicle().getType(), durationHours, subscriptionPlanId);
+        ChargingMeter meter = chargingMeter;
+        int chargingAmount = meter != null ? meter.settle(booking.getId()) : 0;
 
         // Use the passed paymentMethod
-        Payment payment = new Payment(UUID.randomUUID().toString(), fee, endTime, paymentMethod);
+        Payment payment = new Payment(idGenerator.nextId(), fee, chargingAmount, endTime, paymentMethod);
         booking.setPayment(payment);
+        // Archived before the release is journaled, so forcing the archive covers every release journaled so far
+        bookingRegistry.addCompletedBooking(booking);
+        try {
+            for (ParkingLotListener listener : listeners) {
+                listener.onReleaseApplied(booking);
+            }
+        } finally {
+            // The vehicle has left either way
+            bookingRegistry.releaseClaims(booking);
+            handBackSpot(floor, spot);
+        }
+        return booking;
+    }
 
-        System.out.println("Vehicle " + booking.getVehicle().getRegistrationNumber() + " released from " + spot.getSpotId());
-        System.out.println("Parking duration: " + durationHours + " hours. Total Fee: ₹" + fee + " (Paid by: " + paymentMethod + ")");
+    /**
+     * Forces the completed bookings archived so far to disk, e.g. before dropping the journal records of their
+     * releases.
+     */
+    public void forceHistory() {
+        bookingRegistry.forceHistory();
     }
 
     public List<Booking> getAllBookings() {
         return new ArrayList<>(bookingRegistry.getAllBookings());
     }
 
+    public List<Booking> getActiveBookings() {
+        return bookingRegistry.getActiveBookings();
+    }
+
+    /**
+     * Looks up a booking by its ID, active or completed, or returns null if the lot has none by that ID in memory.
+     */
+    public Booking findBooking(String bookingId) {
+        long id = CompactIds.parse(bookingId);
+        return id >= 0 ? bookingRegistry.getBooking(id) : null;
+    }
+
+    /**
+     * Returns the active booking of a parked vehicle, or null if the vehicle is not in the lot.
+     */
+    public Booking findParkedVehicle(String registrationNumber) {
+        return bookingRegistry.findActiveBookingByRegistration(registrationNumber);
+    }
+
     public void showAllParkedVehicles() {
-        List<Booking> activeBookings = bookingRegistry.getAllBookings().stream()
-                .filter(b -> b.getEndTime() == null) // Filter for active bookings (not yet released)
-                .collect(Collectors.toList());
+        List<Booking> activeBookings = bookingRegistry.getActiveBookings();
 
         System.out.println("\n--- Currently Parked Vehicles ---");
         if (activeBookings.isEmpty()) {
@@ -157,41 +864,103 @@ public class ParkingLotService {
         System.out.println("---------------------------------");
     }
 
-    public void showParkingHistory() {
-        List<Booking> completedBookings = bookingRegistry.getAllBookings().stream()
-                .filter(b -> b.getEndTime() != null) // Filter for completed bookings
-                .collect(Collectors.toList());
+    /**
+     * Streams every completed booking, including archived ones, without materializing the whole history.
+     */
+    public void forEachCompletedBooking(Consumer<Booking> consumer) {
+        bookingRegistry.forEachCompletedBooking(consumer);
+    }
+
+    /**
+     * Returns a mark of how far the history of completed bookings has been written.
+     */
+    public Map<LocalDate, Integer> getHistoryPositions() {
+        return bookingRegistry.getHistoryPositions();
+    }
+
+    /**
+     * Streams the completed bookings added to the history since {@link #getHistoryPositions} returned the mark.
+     * @return false, without streaming anything, if the history no longer fits the mark, e.g. it was replaced.
+     */
+    public boolean forEachCompletedBookingSince(Map<LocalDate, Integer> positions, Consumer<Booking> consumer) {
+        return bookingRegistry.forEachCompletedBookingSince(positions, consumer);
+    }
 
+    public void showParkingHistory() {
         System.out.println("\n--- Parking History ---");
-        if (completedBookings.isEmpty()) {
+        int[] shown = {0};
+        bookingRegistry.forEachCompletedBooking(booking -> {
+            printHistoryEntry(booking);
+            shown[0]++;
+        });
+        if (shown[0] == 0) {
             System.out.println("No parking history available.");
-            return;
         }
+        System.out.println("---------------------");
+    }
 
-        completedBookings.forEach(booking -> {
-            ParkingSpot spot = booking.getSpot();
-            Payment payment = booking.getPayment();
-            String feeDetails = (payment != null) ? "Fee: ₹" + payment.getAmount() + " (" + payment.getPaymentMethod() + ")" : "Fee: N/A";
-            System.out.println("  Booking ID: " + booking.getBookingId());
-            System.out.println("    Vehicle: " + booking.getVehicle().getRegistrationNumber() + " (" + booking.getVehicle().getType() + ")");
-            System.out.println("    Spot: " + spot.getSpotId() + " (Floor " + parkingFloors.get(spot.getFloorNumber()).getFloorName() + ")");
-            System.out.println("    Parked: " + booking.getStartTime() + " to " + booking.getEndTime());
-            System.out.println("    " + feeDetails);
-            System.out.println("    ---");
+    /**
+     * Shows the bookings that ended between the two dates, inclusive. Only the matching days of the archive are read.
+     */
+    public void showParkingHistory(LocalDate from, LocalDate to) {
+        System.out.println("\n--- Parking History (" + from + " to " + to + ") ---");
+        int[] shown = {0};
+        bookingRegistry.forEachCompletedBooking(from.atStartOfDay(), to.plusDays(1).atStartOfDay().minusNanos(1), booking -> {
+            printHistoryEntry(booking);
+            shown[0]++;
         });
+        if (shown[0] == 0) {
+            System.out.println("No parking history available for this period.");
+        }
         System.out.println("---------------------");
     }
 
+    private void printHistoryEntry(Booking booking) {
+        ParkingSpot spot = booking.getSpot();
+        Payment payment = booking.getPayment();
+        String feeDetails = "Fee: N/A";
+        if (payment != null) {
+            String charging = payment.getChargingAmount() > 0 ? " + Charging: ₹" + payment.getChargingAmount() : "";
+            feeDetails = "Fee: ₹" + payment.getAmount() + charging + " (" + payment.getPaymentMethod() + ")";
+        }
+        ParkingLotFloor floor = parkingFloors.get(spot.getFloorNumber());
+        System.out.println("  Booking ID: " + booking.getBookingId());
+        System.out.println("    Vehicle: " + booking.getVehicle().getRegistrationNumber() + " (" + booking.getVehicle().getType() + ")");
+        System.out.println("    Spot: " + spot.getSpotId() + " (Floor " + (floor != null ? floor.getFloorName() : spot.getFloorNumber()) + ")");
+        System.out.println("    Parked: " + booking.getStartTime() + " to " + booking.getEndTime());
+        System.out.println("    " + feeDetails);
+        System.out.println("    ---");
+    }
+
+    public void showReservations() {
+        List<Reservation> pending = getReservations();
+
+        System.out.println("\n--- Upcoming Reservations ---");
+        if (pending.isEmpty()) {
+            System.out.println("No upcoming reservations.");
+            return;
+        }
+        pending.sort(Comparator.comparing(Reservation::getFrom));
+        pending.forEach(reservation ->
+            System.out.println("  Reservation ID: " + reservation.getReservationId() +
+                               ", Reg No: " + reservation.getVehicle().getRegistrationNumber() +
+                               ", Type: " + reservation.getVehicleType() +
+                               ", Floor: " + reservation.getFloorNumber() +
+                               ", From: " + reservation.getFrom() + " to " + reservation.getUntil()));
+        System.out.println("-----------------------------");
+    }
+
     public void showAvailableSpots() {
         System.out.println("\n--- Available Parking Spots ---");
         boolean anyAvailable = false;
         for (ParkingLotFloor floor : parkingFloors.values()) {
             System.out.println("  " + floor.getFloorName() + ":");
-            Map<VehicleType, Queue<ParkingSpot>> spotsByVehicleType = floor.getSpotsByVehicleType();
             boolean floorHasAvailable = false;
-            for (Map.Entry<VehicleType, Queue<ParkingSpot>> entry : spotsByVehicleType.entrySet()) {
-                if (!entry.getValue().isEmpty()) {
-                    System.out.println("    " + entry.getKey() + ": " + entry.getValue().size() + " spots available (e.g., " + entry.getValue().peek().getSpotId() + ")");
+            for (VehicleType type : VehicleType.values()) {
+                int available = floor.getAvailableSpotCount(type);
+                ParkingSpot example = available > 0 ? floor.getAvailableSpot(type) : null;
+                if (example != null) {
+                    System.out.println("    " + type + ": " + available + " spots available (e.g., " + example.getSpotId() + ")");
                     floorHasAvailable = true;
                     anyAvailable = true;
                 }
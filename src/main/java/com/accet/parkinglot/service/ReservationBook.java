@@ -0,0 +1,174 @@
+package com.accet.parkinglot.service;
+
+import com.accet.parkinglot.model.Reservation;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.util.IntervalMaxTree;
+import com.accet.parkinglot.util.LongObjectHashMap;
+import com.accet.parkinglot.util.TimingWheel;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thread-safe store of the advance reservations that have not been checked in yet.
+ * <p>
+ * Every floor and vehicle type has an {@link IntervalMaxTree} over minutes holding its reservations, so the
+ * peak number of reservations during any window, and with it whether one more fits, is found in logarithmic
+ * time. Reservations are also indexed by ID and by packed registration number, and filed in a timing wheel
+ * under their end, so ones that were never used are dropped without scanning.
+ */
+class ReservationBook {
+    private static final int TYPES = VehicleType.values().length;
+
+    // (floor, type) -> reservations of that pool; all fields guarded by this
+    private final LongObjectHashMap<IntervalMaxTree> pools = new LongObjectHashMap<>();
+    private final LongObjectHashMap<Reservation> byId = new LongObjectHashMap<>();
+    private final LongObjectHashMap<List<Reservation>> byRegistration = new LongObjectHashMap<>();
+    private final TimingWheel<Reservation> expiryWheel;
+    private final long baseMinute;
+    // Read without the lock, so walk-ins skip the index entirely while nothing is reserved
+    private volatile int size;
+
+    ReservationBook(LocalDateTime now) {
+        this.baseMinute = minuteOf(now);
+        this.expiryWheel = new TimingWheel<>(baseMinute);
+    }
+
+    synchronized void add(Reservation reservation) {
+        if (byId.putIfAbsent(reservation.getId(), reservation) != null) {
+            return;
+        }
+        pool(reservation.getFloorNumber(), reservation.getVehicleType())
+                .add(minuteOf(reservation.getFrom()), endMinuteOf(reservation.getUntil()), 1);
+        List<Reservation> ofVehicle = byRegistration.get(reservation.getVehicle().getRegistrationKey());
+        if (ofVehicle == null) {
+            ofVehicle = new ArrayList<>(1);
+            byRegistration.put(reservation.getVehicle().getRegistrationKey(), ofVehicle);
+        }
+        ofVehicle.add(reservation);
+        expiryWheel.schedule(reservation, endMinuteOf(reservation.getUntil()));
+        size++;
+    }
+
+    /**
+     * Removes a reservation; its timer finds nothing to expire later.
+     * @return The removed reservation, or null if there is no pending reservation with this ID.
+     */
+    synchronized Reservation remove(long reservationId) {
+        Reservation reservation = byId.remove(reservationId);
+        if (reservation == null) {
+            return null;
+        }
+        pool(reservation.getFloorNumber(), reservation.getVehicleType())
+                .add(minuteOf(reservation.getFrom()), endMinuteOf(reservation.getUntil()), -1);
+        long registrationKey = reservation.getVehicle().getRegistrationKey();
+        List<Reservation> ofVehicle = byRegistration.get(registrationKey);
+        ofVehicle.remove(reservation);
+        if (ofVehicle.isEmpty()) {
+            byRegistration.remove(registrationKey);
+        }
+        size--;
+        return reservation;
+    }
+
+    /**
+     * Removes and returns the vehicle's reservation that can be checked in at this time, i.e. whose window,
+     * opened holdMinutes early, contains now. Picks the earliest if several do.
+     * @return The reservation, or null if the vehicle has none due.
+     */
+    synchronized Reservation claimDue(long registrationKey, VehicleType type, LocalDateTime now, int holdMinutes) {
+        if (size == 0) {
+            return null;
+        }
+        List<Reservation> ofVehicle = byRegistration.get(registrationKey);
+        if (ofVehicle == null) {
+            return null;
+        }
+        Reservation due = null;
+        for (Reservation reservation : ofVehicle) {
+            if (reservation.getVehicleType() == type && !now.isBefore(reservation.getFrom().minusMinutes(holdMinutes))
+                    && now.isBefore(reservation.getUntil()) && (due == null || reservation.getFrom().isBefore(due.getFrom()))) {
+                due = reservation;
+            }
+        }
+        return due != null ? remove(due.getId()) : null;
+    }
+
+    /**
+     * Returns the largest number of reservations of a pool that overlap at any minute of [from, until).
+     */
+    synchronized int peak(int floorNumber, VehicleType type, LocalDateTime from, LocalDateTime until) {
+        IntervalMaxTree pool = pools.get(poolKey(floorNumber, type));
+        return pool == null ? 0 : pool.max(minuteOf(from), endMinuteOf(until));
+    }
+
+    /**
+     * Returns the number of free spots of a pool that walk-ins must leave alone now: the peak number of its
+     * reservations over the next holdMinutes, including reservations already running whose vehicle has not arrived.
+     */
+    int held(int floorNumber, VehicleType type, LocalDateTime now, int holdMinutes) {
+        if (size == 0) {
+            return 0;
+        }
+        long minute = minuteOf(now);
+        synchronized (this) {
+            IntervalMaxTree pool = pools.get(poolKey(floorNumber, type));
+            return pool == null ? 0 : pool.max(minute, minute + Math.max(1, holdMinutes));
+        }
+    }
+
+    /**
+     * Drops every reservation that has ended without being checked in.
+     * @return The reservations dropped.
+     */
+    synchronized List<Reservation> expire(LocalDateTime now) {
+        List<Reservation> expired = new ArrayList<>();
+        expiryWheel.advance(minuteOf(now), reservation -> {
+            if (byId.get(reservation.getId()) == reservation) {
+                expired.add(remove(reservation.getId()));
+            }
+        });
+        return expired;
+    }
+
+    synchronized Reservation get(long reservationId) {
+        return byId.get(reservationId);
+    }
+
+    synchronized List<Reservation> getAll() {
+        List<Reservation> all = new ArrayList<>(size);
+        byId.forEach((id, reservation) -> all.add(reservation));
+        return all;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private IntervalMaxTree pool(int floorNumber, VehicleType type) {
+        long key = poolKey(floorNumber, type);
+        IntervalMaxTree pool = pools.get(key);
+        if (pool == null) {
+            pool = new IntervalMaxTree(baseMinute);
+            pools.put(key, pool);
+        }
+        return pool;
+    }
+
+    private static long poolKey(int floorNumber, VehicleType type) {
+        return (long) floorNumber * TYPES + type.ordinal();
+    }
+
+    // Minutes of the local time line
+    private static long minuteOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    // First minute at or after the end of a window
+    private static long endMinuteOf(LocalDateTime until) {
+        long minute = minuteOf(until);
+        return until.equals(LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC)) ? minute : minute + 1;
+    }
+}
\ No newline at end of file
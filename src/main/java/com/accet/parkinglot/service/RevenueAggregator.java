@@ -0,0 +1,373 @@
+package com.accet.parkinglot.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.ParkingLotFloor;
+import com.accet.parkinglot.model.Payment;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.VehicleType;
+
+/**
+ * Running revenue and utilization totals, updated as each booking is completed.
+ * <p>
+ * Every total lives in a fixed-size primitive array indexed by vehicle type, payment method, floor or hour of day,
+ * so recording a release is a handful of atomic adds and every report answers in constant time, no matter how much
+ * history the {@link BookingRegistry} holds. Totals cover the bookings completed since the aggregator was registered,
+ * plus the history it was seeded with by {@link #recordHistory} or {@link #restore}.
+ * <p>
+ * {@link #checkpoint} saves the totals together with how far the history had been written then, so a restart loads
+ * them and reads only the bookings archived after that point, instead of the whole history.
+ */
+public class RevenueAggregator implements ParkingLotListener {
+    private static final int CHECKPOINT_MAGIC = 0x504B5256; // "PKRV"
+    private static final short CHECKPOINT_VERSION = 1;
+    private static final int TYPES = VehicleType.values().length;
+    private static final int METHODS = PaymentMethod.values().length;
+    private static final int HOURS = 24;
+
+    // Sorted floor numbers; a floor's position here is its index into the per-floor arrays
+    private final int[] floorNumbers;
+    // Spots per floor and type, as [floor * TYPES + type]
+    private final int[] spotCounts;
+
+    private final AtomicLongArray revenueByType = new AtomicLongArray(TYPES);
+    private final AtomicLongArray revenueByMethod = new AtomicLongArray(METHODS);
+    private final AtomicLongArray revenueByHour = new AtomicLongArray(HOURS);
+    private final AtomicLongArray revenueByFloor;
+    // Part of the revenue billed for metered EV charging
+    private final AtomicLong chargingRevenue = new AtomicLong();
+    // Completed bookings and their summed dwell minutes, as [floor * TYPES + type]
+    private final AtomicLongArray releases;
+    private final AtomicLongArray dwellMinutes;
+
+    /**
+     * Sizes the totals for the floors the service has now; bookings on floors added later count only towards
+     * the lot-wide totals.
+     */
+    public RevenueAggregator(ParkingLotService parkingLotService) {
+        Map<Integer, ParkingLotFloor> floors = parkingLotService.getParkingFloors();
+        floorNumbers = floors.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        spotCounts = new int[floorNumbers.length * TYPES];
+        for (int f = 0; f < floorNumbers.length; f++) {
+            ParkingLotFloor floor = floors.get(floorNumbers[f]);
+            for (VehicleType type : VehicleType.values()) {
+                spotCounts[f * TYPES + type.ordinal()] = floor.getTotalSpotCount(type);
+            }
+        }
+        revenueByFloor = new AtomicLongArray(floorNumbers.length);
+        // One extra row collects bookings on unknown floors
+        releases = new AtomicLongArray((floorNumbers.length + 1) * TYPES);
+        dwellMinutes = new AtomicLongArray((floorNumbers.length + 1) * TYPES);
+    }
+
+    /**
+     * Adds every booking the lot completed before now, archived ones included, so the totals carry over restarts
+     * and standby promotion. Call it before registering the aggregator, while no gate is served; releases made in
+     * between would be counted twice or not at all.
+     */
+    public void recordHistory(ParkingLotService parkingLotService) {
+        parkingLotService.forEachCompletedBooking(this::record);
+    }
+
+    /**
+     * Loads the totals saved by {@link #checkpoint} and adds the bookings archived since, or, if there is no usable
+     * checkpoint, the whole history as {@link #recordHistory} does. The same rules apply: call it on an empty
+     * aggregator before registering it, while no gate is served.
+     * @return true if the checkpoint was used.
+     */
+    public boolean restore(Path file, ParkingLotService parkingLotService) {
+        Map<LocalDate, Integer> positions = Files.exists(file) ? readCheckpoint(file) : null;
+        if (positions != null && parkingLotService.forEachCompletedBookingSince(positions, this::record)) {
+            return true;
+        }
+        if (positions != null) {
+            System.err.println("Warning: Revenue checkpoint " + file + " does not match the booking history; recounting it.");
+            clear();
+        }
+        recordHistory(parkingLotService);
+        return false;
+    }
+
+    /**
+     * Saves the totals with a mark of how far the history has been written, for {@link #restore}. Only exact while
+     * no booking is being released, e.g. right after restoring or once the gates are closed; the history is forced
+     * to disk first, so the mark never runs ahead of what a crash leaves of it.
+     */
+    public void checkpoint(Path file, ParkingLotService parkingLotService) {
+        parkingLotService.forceHistory();
+        Map<LocalDate, Integer> positions = parkingLotService.getHistoryPositions();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeShort(CHECKPOINT_VERSION);
+                out.writeInt(floorNumbers.length);
+                for (int floorNumber : floorNumbers) {
+                    out.writeInt(floorNumber);
+                }
+                for (AtomicLongArray cells : cells()) {
+                    out.writeInt(cells.length());
+                    for (int i = 0; i < cells.length(); i++) {
+                        out.writeLong(cells.get(i));
+                    }
+                }
+                out.writeLong(chargingRevenue.get());
+                out.writeInt(positions.size());
+                for (Map.Entry<LocalDate, Integer> position : positions.entrySet()) {
+                    out.writeLong(position.getKey().toEpochDay());
+                    out.writeInt(position.getValue());
+                }
+                out.flush();
+                stream.getFD().sync();
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write revenue checkpoint " + file, e);
+        }
+    }
+
+    // Loads the saved totals and returns the history mark they were saved with, or null, loading nothing, if the
+    // checkpoint was taken with another floor layout or format
+    private Map<LocalDate, Integer> readCheckpoint(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readShort() != CHECKPOINT_VERSION) {
+                return null;
+            }
+            int floors = in.readInt();
+            int[] savedFloors = new int[floors];
+            for (int f = 0; f < floors; f++) {
+                savedFloors[f] = in.readInt();
+            }
+            if (!Arrays.equals(savedFloors, floorNumbers)) {
+                return null;
+            }
+            AtomicLongArray[] cells = cells();
+            long[][] saved = new long[cells.length][];
+            for (int c = 0; c < cells.length; c++) {
+                int length = in.readInt();
+                if (length != cells[c].length()) {
+                    return null; // Vehicle types or payment methods changed
+                }
+                saved[c] = new long[length];
+                for (int i = 0; i < length; i++) {
+                    saved[c][i] = in.readLong();
+                }
+            }
+            long savedChargingRevenue = in.readLong();
+            int days = in.readInt();
+            Map<LocalDate, Integer> positions = new HashMap<>(days * 2);
+            for (int d = 0; d < days; d++) {
+                positions.put(LocalDate.ofEpochDay(in.readLong()), in.readInt());
+            }
+            for (int c = 0; c < cells.length; c++) {
+                for (int i = 0; i < saved[c].length; i++) {
+                    cells[c].set(i, saved[c][i]);
+                }
+            }
+            chargingRevenue.set(savedChargingRevenue);
+            return positions;
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read revenue checkpoint " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Every total kept per cell, in checkpoint order
+    private AtomicLongArray[] cells() {
+        return new AtomicLongArray[] {revenueByType, revenueByMethod, revenueByHour, revenueByFloor, releases, dwellMinutes};
+    }
+
+    private void clear() {
+        for (AtomicLongArray cells : cells()) {
+            for (int i = 0; i < cells.length(); i++) {
+                cells.set(i, 0);
+            }
+        }
+        chargingRevenue.set(0);
+    }
+
+    @Override
+    public void onSpotReleased(Booking booking) {
+        record(booking);
+    }
+
+    /**
+     * Adds one completed booking to the totals.
+     */
+    public void record(Booking booking) {
+        Payment payment = booking.getPayment();
+        int type = booking.getVehicle().getType().ordinal();
+        int floor = floorIndex(booking.getSpot().getFloorNumber());
+        int cell = (floor < 0 ? floorNumbers.length : floor) * TYPES + type;
+        releases.incrementAndGet(cell);
+        dwellMinutes.addAndGet(cell, Math.max(0, Duration.between(booking.getStartTime(), booking.getEndTime()).toMinutes()));
+        if (payment == null) {
+            return;
+        }
+        int amount = payment.getTotalAmount();
+        if (payment.getChargingAmount() > 0) {
+            chargingRevenue.addAndGet(payment.getChargingAmount());
+        }
+        revenueByType.addAndGet(type, amount);
+        revenueByMethod.addAndGet(payment.getPaymentMethod().ordinal(), amount);
+        revenueByHour.addAndGet(payment.getTimestamp().getHour(), amount);
+        if (floor >= 0) {
+            revenueByFloor.addAndGet(floor, amount);
+        }
+    }
+
+    public long getTotalRevenue() {
+        long total = 0;
+        for (int i = 0; i < TYPES; i++) {
+            total += revenueByType.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Revenue from EV charging; included in every other revenue total.
+     */
+    public long getChargingRevenue() {
+        return chargingRevenue.get();
+    }
+
+    public long getRevenue(VehicleType type) {
+        return revenueByType.get(type.ordinal());
+    }
+
+    public long getRevenue(PaymentMethod method) {
+        return revenueByMethod.get(method.ordinal());
+    }
+
+    /**
+     * Revenue collected on a floor, or 0 for a floor the aggregator does not know.
+     */
+    public long getFloorRevenue(int floorNumber) {
+        int floor = floorIndex(floorNumber);
+        return floor < 0 ? 0 : revenueByFloor.get(floor);
+    }
+
+    /**
+     * Revenue of payments taken during an hour of the day, 0 to 23.
+     */
+    public long getHourlyRevenue(int hourOfDay) {
+        return revenueByHour.get(hourOfDay);
+    }
+
+    public long getCompletedBookings() {
+        return sum(releases, -1);
+    }
+
+    public long getCompletedBookings(VehicleType type) {
+        return sum(releases, type.ordinal());
+    }
+
+    /**
+     * Average minutes between entry and exit over all completed bookings, or 0 if there are none.
+     */
+    public double getAverageDwellMinutes() {
+        return average(sum(dwellMinutes, -1), sum(releases, -1));
+    }
+
+    public double getAverageDwellMinutes(VehicleType type) {
+        return average(sum(dwellMinutes, type.ordinal()), sum(releases, type.ordinal()));
+    }
+
+    /**
+     * Completed bookings per spot of a type on a floor, i.e. how many times each spot has turned over.
+     */
+    public double getTurnoverPerSpot(int floorNumber, VehicleType type) {
+        int floor = floorIndex(floorNumber);
+        if (floor < 0) {
+            return 0;
+        }
+        int cell = floor * TYPES + type.ordinal();
+        return average(releases.get(cell), spotCounts[cell]);
+    }
+
+    public double getTurnoverPerSpot() {
+        long releasesOnKnownFloors = 0;
+        long spots = 0;
+        for (int cell = 0; cell < spotCounts.length; cell++) {
+            releasesOnKnownFloors += releases.get(cell);
+            spots += spotCounts[cell];
+        }
+        return average(releasesOnKnownFloors, spots);
+    }
+
+    public void showRevenueReport() {
+        System.out.println("\n--- Revenue and Occupancy Report ---");
+        System.out.println("Completed bookings: " + getCompletedBookings() + ", Total revenue: ₹" + getTotalRevenue()
+                + " (of which EV charging: ₹" + getChargingRevenue() + ")");
+        System.out.printf("Average stay: %.1f minutes, Turnover: %.2f bookings per spot%n", getAverageDwellMinutes(), getTurnoverPerSpot());
+        System.out.println("By vehicle type:");
+        for (VehicleType type : VehicleType.values()) {
+            long completed = getCompletedBookings(type);
+            if (completed > 0) {
+                System.out.printf("  %-14s ₹%d from %d bookings, average stay %.1f minutes%n",
+                        type, getRevenue(type), completed, getAverageDwellMinutes(type));
+            }
+        }
+        System.out.println("By payment method:");
+        for (PaymentMethod method : PaymentMethod.values()) {
+            System.out.println("  " + method + ": ₹" + getRevenue(method));
+        }
+        System.out.println("By floor:");
+        for (int floorNumber : floorNumbers) {
+            System.out.print("  Floor " + floorNumber + ": ₹" + getFloorRevenue(floorNumber) + ", turnover");
+            for (VehicleType type : VehicleType.values()) {
+                if (spotCounts[floorIndex(floorNumber) * TYPES + type.ordinal()] > 0) {
+                    System.out.printf(" %s %.2f", type, getTurnoverPerSpot(floorNumber, type));
+                }
+            }
+            System.out.println();
+        }
+        System.out.println("By hour of day:");
+        for (int hour = 0; hour < HOURS; hour++) {
+            long revenue = getHourlyRevenue(hour);
+            if (revenue > 0) {
+                System.out.printf("  %02d:00-%02d:59 ₹%d%n", hour, hour, revenue);
+            }
+        }
+        System.out.println("------------------------------------");
+    }
+
+    private int floorIndex(int floorNumber) {
+        int index = Arrays.binarySearch(floorNumbers, floorNumber);
+        return index < 0 ? -1 : index;
+    }
+
+    // Sums a [floor * TYPES + type] array over every floor, for one type or for all types if type is -1
+    private static long sum(AtomicLongArray cells, int type) {
+        long total = 0;
+        for (int cell = 0; cell < cells.length(); cell++) {
+            if (type < 0 || cell % TYPES == type) {
+                total += cells.get(cell);
+            }
+        }
+        return total;
+    }
+
+    private static double average(long total, long count) {
+        return count == 0 ? 0 : (double) total / count;
+    }
+}
\ No newline at end of file
@@ -1,56 +1,325 @@
 package com.accet.parkinglot.service;
 
+import com.accet.parkinglot.model.Subscription;
+import com.accet.parkinglot.model.SubscriptionTier;
 import com.accet.parkinglot.model.VehicleType;
-import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.util.LongObjectHashMap;
+import com.accet.parkinglot.util.RegistrationKeys;
+import com.accet.parkinglot.util.TimingWheel;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Subscriptions by packed registration number. Every subscription is also filed in a timing wheel under its
+ * end time, one tick per minute, so expiry only ever touches the subscriptions that are due instead of scanning
+ * them all. Lookups check the validity window themselves, so a plan is never honoured past its end even
+ * between expiry runs.
+ * <p>
+ * A vehicle may hold a renewal next to its current plan: a window starting after the current one ends. It takes
+ * effect when the current plan ends, so a renewal bought early never cuts the current plan short.
+ */
 public class SubscriptionManager {
-    // Stores registration number -> VehicleType for subscribed vehicles
-    private final Map<String, VehicleType> subscribedVehicles;
+    private static final int PLAN_MONTHS = 1;
+
+    // Packed registration number -> current subscription, guarded by lock together with renewals and expiryWheel
+    private final LongObjectHashMap<Subscription> subscriptions;
+    // Packed registration number -> subscription starting after the current one ends
+    private final LongObjectHashMap<Subscription> renewals;
+    private final TimingWheel<Subscription> expiryWheel;
+    private final ReadWriteLock lock;
+    private final List<ParkingLotListener> listeners;
+    private ScheduledExecutorService expiryScheduler;
 
     public SubscriptionManager() {
-        this.subscribedVehicles = new HashMap<>();
+        this.subscriptions = new LongObjectHashMap<>();
+        this.renewals = new LongObjectHashMap<>();
+        this.expiryWheel = new TimingWheel<>(minuteOf(LocalDateTime.now()));
+        this.lock = new ReentrantReadWriteLock();
+        this.listeners = new CopyOnWriteArrayList<>();
         // Removed all dummy subscribers
     }
 
-    public void subscribe(String registrationNumber, VehicleType type) {
-        if (!Vehicle.isValidRegistrationNumber(registrationNumber)) {
-            System.out.println("Subscription failed: Invalid vehicle registration number format for " + registrationNumber);
-            return;
+    public void addListener(ParkingLotListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ParkingLotListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Subscribes a vehicle to a plan for one month starting now.
+     * @return true if the vehicle was subscribed, false if it already has an active subscription.
+     * @throws IllegalArgumentException if the registration number is not valid.
+     */
+    public boolean subscribe(String registrationNumber, VehicleType type, SubscriptionTier tier) {
+        LocalDateTime now = LocalDateTime.now();
+        return subscribe(registrationNumber, type, tier, now, now.plusMonths(PLAN_MONTHS));
+    }
+
+    /**
+     * Subscribes a vehicle to a plan for the given validity window. A window starting after the vehicle's current
+     * plan ends is kept as its renewal, and the current plan stays in force until then.
+     * @return true if the vehicle was subscribed, false if the window overlaps a plan the vehicle holds that has
+     * not ended yet, or the vehicle already holds a renewal.
+     * @throws IllegalArgumentException if the registration number or the window is not valid.
+     */
+    public boolean subscribe(String registrationNumber, VehicleType type, SubscriptionTier tier, LocalDateTime validFrom, LocalDateTime validUntil) {
+        long key = RegistrationKeys.pack(registrationNumber);
+        if (key < 0) {
+            throw new IllegalArgumentException("Invalid vehicle registration number format for " + registrationNumber);
+        }
+        Subscription subscription = new Subscription(key, type, tier, validFrom, validUntil);
+        lock.writeLock().lock();
+        try {
+            if (!add(subscription, LocalDateTime.now(), false)) {
+                return false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (ParkingLotListener listener : listeners) {
+            listener.onSubscribed(subscription);
+        }
+        return true;
+    }
+
+    /**
+     * Re-applies a subscription recovered from persisted state without notifying listeners. One the vehicle already
+     * holds is left as it is; one that overlaps a held plan replaces it, as it was made later.
+     * A subscription that has already ended is dropped on the next expiry run.
+     */
+    public void restoreSubscription(Subscription subscription) {
+        lock.writeLock().lock();
+        try {
+            add(subscription, LocalDateTime.now(), true);
+        } finally {
+            lock.writeLock().unlock();
         }
-        if (subscribedVehicles.containsKey(registrationNumber)) {
-            System.out.println("Vehicle " + registrationNumber + " is already subscribed.");
+    }
+
+    // Files a subscription as the vehicle's current plan or its renewal, whichever comes first, and replaces plans
+    // that have ended by now; their timers then find nothing to expire. A window overlapping a plan that has not
+    // ended, or a third plan, is refused unless replace is set, in which case it takes the place of those plans.
+    private boolean add(Subscription subscription, LocalDateTime now, boolean replace) {
+        long key = subscription.getRegistrationKey();
+        Subscription current = subscriptions.get(key);
+        Subscription renewal = renewals.get(key);
+        if (isSame(subscription, current) || isSame(subscription, renewal)) {
+            return true;
+        }
+        Subscription first = null;
+        Subscription second = null;
+        for (Subscription held : new Subscription[] {current, renewal}) {
+            if (held == null || !held.getValidUntil().isAfter(now)) {
+                continue; // Ended, even if not expired yet
+            }
+            if (overlaps(held, subscription) || first != null) {
+                if (!replace) {
+                    return false;
+                }
+                continue;
+            }
+            first = held;
+        }
+        if (first == null) {
+            first = subscription;
+        } else if (subscription.getValidFrom().isBefore(first.getValidFrom())) {
+            second = first;
+            first = subscription;
         } else {
-            subscribedVehicles.put(registrationNumber, type);
-            System.out.println("Vehicle " + registrationNumber + " (" + type + ") has been subscribed.");
+            second = subscription;
+        }
+        subscriptions.put(key, first);
+        if (second != null) {
+            renewals.put(key, second);
+        } else {
+            renewals.remove(key);
+        }
+        expiryWheel.schedule(subscription, expiryMinuteOf(subscription.getValidUntil()));
+        return true;
+    }
+
+    private static boolean overlaps(Subscription a, Subscription b) {
+        return a.getValidFrom().isBefore(b.getValidUntil()) && b.getValidFrom().isBefore(a.getValidUntil());
+    }
+
+    // Replay may apply a subscription that was already restored from the snapshot
+    private static boolean isSame(Subscription subscription, Subscription held) {
+        return held != null && held.getTier() == subscription.getTier() && held.getVehicleType() == subscription.getVehicleType()
+                && held.getValidFrom().equals(subscription.getValidFrom()) && held.getValidUntil().equals(subscription.getValidUntil());
+    }
+
+    /**
+     * Removes every subscription that has ended by now and notifies listeners of each one.
+     * @return The number of subscriptions that expired.
+     */
+    public int expireSubscriptions(LocalDateTime now) {
+        List<Subscription> expired = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            expiryWheel.advance(minuteOf(now), subscription -> {
+                long key = subscription.getRegistrationKey();
+                if (subscriptions.remove(key, subscription)) {
+                    expired.add(subscription);
+                    // The renewal, if any, is the vehicle's plan from here on
+                    Subscription renewal = renewals.remove(key);
+                    if (renewal != null) {
+                        subscriptions.put(key, renewal);
+                    }
+                } else if (renewals.remove(key, subscription)) {
+                    expired.add(subscription);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
         }
+        for (Subscription subscription : expired) {
+            for (ParkingLotListener listener : listeners) {
+                listener.onSubscriptionExpired(subscription);
+            }
+        }
+        return expired.size();
+    }
+
+    /**
+     * Runs the expiry on a background thread every interval.
+     */
+    public synchronized void scheduleExpiry(Duration interval) {
+        if (expiryScheduler != null) {
+            return;
+        }
+        expiryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "subscription-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        expiryScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                expireSubscriptions(LocalDateTime.now());
+            } catch (RuntimeException e) {
+                System.err.println("Warning: Subscription expiry failed: " + e.getMessage());
+            }
+        }, 0, millis, TimeUnit.MILLISECONDS);
     }
 
     public boolean isSubscribed(String registrationNumber) {
-        return subscribedVehicles.containsKey(registrationNumber);
+        return isSubscribed(RegistrationKeys.pack(registrationNumber));
+    }
+
+    public boolean isSubscribed(long registrationKey) {
+        return getActiveSubscription(registrationKey, LocalDateTime.now()) != null;
+    }
+
+    /**
+     * Returns the plan a vehicle is billed under at a given time, or NONE if it has no active subscription then.
+     */
+    public SubscriptionTier getTier(long registrationKey, LocalDateTime time) {
+        Subscription subscription = getActiveSubscription(registrationKey, time);
+        return subscription != null ? subscription.getTier() : SubscriptionTier.NONE;
+    }
+
+    public SubscriptionTier getTier(String registrationNumber) {
+        return getTier(RegistrationKeys.pack(registrationNumber), LocalDateTime.now());
+    }
+
+    /**
+     * Returns the vehicle's subscription if it is active at the given time, otherwise null.
+     */
+    public Subscription getActiveSubscription(long registrationKey, LocalDateTime time) {
+        if (registrationKey < 0) {
+            return null;
+        }
+        Subscription subscription;
+        Subscription renewal;
+        lock.readLock().lock();
+        try {
+            subscription = subscriptions.get(registrationKey);
+            renewal = renewals.get(registrationKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (subscription != null && subscription.isActiveAt(time)) {
+            return subscription;
+        }
+        return renewal != null && renewal.isActiveAt(time) ? renewal : null;
+    }
+
+    public Subscription getActiveSubscription(String registrationNumber) {
+        return getActiveSubscription(RegistrationKeys.pack(registrationNumber), LocalDateTime.now());
     }
 
     public VehicleType getVehicleTypeForSubscriber(String registrationNumber) {
-        return subscribedVehicles.get(registrationNumber);
+        Subscription subscription = getActiveSubscription(registrationNumber);
+        return subscription != null ? subscription.getVehicleType() : null;
     }
 
-    public Map<String, VehicleType> getAllSubscribedVehicles() {
-        return new HashMap<>(subscribedVehicles);
+    /**
+     * Returns the number of subscribed vehicles, including any whose plan has ended since the last expiry run.
+     */
+    public int getSubscriberCount() {
+        lock.readLock().lock();
+        try {
+            return subscriptions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns every subscription held, renewals included, including any that have ended since the last expiry run.
+     */
+    public List<Subscription> getAllSubscriptions() {
+        List<Subscription> all = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            subscriptions.forEach((key, subscription) -> all.add(subscription));
+            renewals.forEach((key, subscription) -> all.add(subscription));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return all;
     }
 
     public void showSubscriptionDetails() {
         System.out.println("\n--- Subscription Plans ---");
-        System.out.println("Basic Plan: ₹100/month");
-        System.out.println("Premium Plan: ₹250/month (priority parking, EV charging included, 20% discount on parking fees)");
+        System.out.println("Basic Plan: ₹" + SubscriptionTier.BASIC.getMonthlyPrice() + "/month (10% discount on parking fees)");
+        System.out.println("Premium Plan: ₹" + SubscriptionTier.PREMIUM.getMonthlyPrice() + "/month (priority parking, EV charging included, 20% discount on parking fees)");
         System.out.println("\n--- Currently Subscribed Vehicles ---");
-        if (subscribedVehicles.isEmpty()) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Subscription> active = getAllSubscriptions();
+        active.removeIf(subscription -> !subscription.isActiveAt(now));
+        if (active.isEmpty()) {
             System.out.println("No vehicles currently subscribed.");
         } else {
-            subscribedVehicles.forEach((regNum, type) ->
-                System.out.println("  Reg No: " + regNum + ", Type: " + type));
+            active.sort(Comparator.comparing(Subscription::getValidUntil));
+            active.forEach(subscription ->
+                System.out.println("  Reg No: " + subscription.getRegistrationNumber() + ", Type: " + subscription.getVehicleType()
+                        + ", Plan: " + subscription.getTier() + ", Valid until: " + subscription.getValidUntil()));
         }
         System.out.println("------------------------------------");
     }
+
+    // Wheel ticks are minutes of the local time line
+    private static long minuteOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    // First minute tick at or after the end of a subscription
+    private static long expiryMinuteOf(LocalDateTime validUntil) {
+        long minute = minuteOf(validUntil);
+        return validUntil.equals(LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC)) ? minute : minute + 1;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,215 @@
+package com.accet.parkinglot.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Properties;
+
+import com.accet.parkinglot.model.SubscriptionTier;
+import com.accet.parkinglot.model.VehicleType;
+
+/**
+ * A rate card compiled into per-hour-of-week lookup tables, so a fee costs a fixed number of array reads
+ * however many bands, weekend rates and caps the card has. See {@code tariffs/default.properties} for the format.
+ * <p>
+ * For every vehicle type the card becomes the hourly rate of each of the 168 hours of the week, plus running
+ * totals at every hour boundary. The cost of any interval is then the difference of two running totals
+ * (whole weeks are counted by multiplication), and a daily cap needs at most seven such differences, because
+ * the 24-hour periods of a stay repeat with the week. Amounts are kept in paise-minutes-per-hour internally
+ * and rounded up to whole rupees once, at the end.
+ */
+public class TariffTable {
+    public static final String DEFAULT_TARIFF = "/tariffs/default.properties";
+
+    private static final int HOURS_PER_WEEK = 7 * 24;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    // 1970-01-01 was a Thursday; shifts epoch minutes so that minute 0 of the week is Monday 00:00
+    private static final long EPOCH_WEEK_OFFSET = 3L * MINUTES_PER_DAY;
+    // Internal units per rupee: 100 paise, rates per hour applied per minute
+    private static final long UNITS_PER_RUPEE = 100L * 60;
+    private static final long NO_CAP = Long.MAX_VALUE;
+
+    // [vehicle type][hour of week]: rate in paise per hour
+    private final long[][] hourlyRates;
+    // [vehicle type][hour of week]: cost of the week up to the start of that hour; index 168 is the whole week
+    private final long[][] weekPrefix;
+    // [vehicle type]: cap per 24 hours in internal units, or NO_CAP
+    private final long[] dailyCaps;
+    // [subscription tier]: percentage of the fee still charged
+    private final int[] tierPayablePercent;
+    private final int graceMinutes;
+    private final int billingUnitMinutes;
+
+    private TariffTable(Properties card, String source) {
+        int types = VehicleType.values().length;
+        hourlyRates = new long[types][HOURS_PER_WEEK];
+        weekPrefix = new long[types][HOURS_PER_WEEK + 1];
+        dailyCaps = new long[types];
+        tierPayablePercent = new int[SubscriptionTier.values().length];
+        try {
+            graceMinutes = Integer.parseInt(card.getProperty("graceMinutes", "0").trim());
+            billingUnitMinutes = Integer.parseInt(card.getProperty("billingUnitMinutes", "60").trim());
+            if (graceMinutes < 0 || billingUnitMinutes <= 0) {
+                throw new IllegalArgumentException("graceMinutes must be >= 0 and billingUnitMinutes > 0");
+            }
+            for (VehicleType type : VehicleType.values()) {
+                compileType(card, type);
+            }
+            for (SubscriptionTier tier : SubscriptionTier.values()) {
+                int discount = Integer.parseInt(card.getProperty("tierDiscountPercent." + tier, "0").trim());
+                if (discount < 0 || discount > 100) {
+                    throw new IllegalArgumentException("Discount for " + tier + " must be between 0 and 100");
+                }
+                tierPayablePercent[tier.ordinal()] = 100 - discount;
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid tariff " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads a tariff bundled on the classpath, e.g. {@link #DEFAULT_TARIFF}.
+     */
+    public static TariffTable fromResource(String resource) {
+        try (InputStream in = TariffTable.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Tariff resource not found: " + resource);
+            }
+            return new TariffTable(read(in), resource);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read tariff " + resource, e);
+        }
+    }
+
+    public static TariffTable load(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return new TariffTable(read(in), file.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read tariff " + file, e);
+        }
+    }
+
+    /**
+     * Compiles a rate card given as properties, in the format of {@link #DEFAULT_TARIFF}.
+     */
+    public static TariffTable of(Properties card) {
+        return new TariffTable(card, "properties");
+    }
+
+    private static Properties read(InputStream in) throws IOException {
+        Properties card = new Properties();
+        card.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return card;
+    }
+
+    private void compileType(Properties card, VehicleType type) {
+        String rate = card.getProperty("rate." + type);
+        if (rate == null) {
+            throw new IllegalArgumentException("Missing rate." + type);
+        }
+        long weekdayRate = toPaise(rate);
+        long weekendRate = toPaise(card.getProperty("weekendRate." + type, rate));
+        long[] rates = hourlyRates[type.ordinal()];
+        for (int hour = 0; hour < HOURS_PER_WEEK; hour++) {
+            rates[hour] = hour >= 5 * 24 ? weekendRate : weekdayRate;
+        }
+        // Bands override the day's rate for their hours
+        for (String key : card.stringPropertyNames()) {
+            boolean weekday = key.startsWith("band." + type + ".");
+            boolean weekend = key.startsWith("weekendBand." + type + ".");
+            if (!weekday && !weekend) {
+                continue;
+            }
+            String[] hours = key.substring(key.lastIndexOf('.') + 1).split("-");
+            if (hours.length != 2) {
+                throw new IllegalArgumentException("Band hours must be <from>-<to>: " + key);
+            }
+            int from = Integer.parseInt(hours[0]);
+            int to = Integer.parseInt(hours[1]);
+            if (from < 0 || to > 24 || from >= to) {
+                throw new IllegalArgumentException("Band hours must be within 0-24: " + key);
+            }
+            long bandRate = toPaise(card.getProperty(key));
+            for (int day = weekday ? 0 : 5; day < (weekday ? 5 : 7); day++) {
+                for (int hour = from; hour < to; hour++) {
+                    rates[day * 24 + hour] = bandRate;
+                }
+            }
+        }
+        long[] prefix = weekPrefix[type.ordinal()];
+        for (int hour = 0; hour < HOURS_PER_WEEK; hour++) {
+            prefix[hour + 1] = prefix[hour] + rates[hour] * 60;
+        }
+        String cap = card.getProperty("dailyCap." + type);
+        dailyCaps[type.ordinal()] = cap != null ? toPaise(cap) * 60 : NO_CAP;
+    }
+
+    private static long toPaise(String rupees) {
+        long paise = new BigDecimal(rupees.trim()).movePointRight(2).longValueExact();
+        if (paise < 0) {
+            throw new IllegalArgumentException("Negative amount: " + rupees);
+        }
+        return paise;
+    }
+
+    /**
+     * Computes the parking fee in whole rupees for a stay. Allocation-free and constant time.
+     */
+    public int fee(VehicleType type, LocalDateTime startTime, LocalDateTime endTime, SubscriptionTier tier) {
+        long start = startTime.toEpochSecond(ZoneOffset.UTC) / 60;
+        long minutes = endTime.toEpochSecond(ZoneOffset.UTC) / 60 - start;
+        if (graceMinutes > 0 && minutes <= graceMinutes) {
+            return 0;
+        }
+        long billedMinutes = Math.max(1, (minutes + billingUnitMinutes - 1) / billingUnitMinutes) * billingUnitMinutes;
+        int typeIndex = type.ordinal();
+        long cost = cappedCost(typeIndex, start + EPOCH_WEEK_OFFSET, billedMinutes);
+        long rupees = (cost + UNITS_PER_RUPEE - 1) / UNITS_PER_RUPEE;
+        return (int) (rupees * tierPayablePercent[tier.ordinal()] / 100);
+    }
+
+    private long cappedCost(int typeIndex, long start, long minutes) {
+        long cap = dailyCaps[typeIndex];
+        if (cap == NO_CAP) {
+            return cost(typeIndex, start, start + minutes);
+        }
+        long fullDays = minutes / MINUTES_PER_DAY;
+        long remainder = Math.min(cap, cost(typeIndex, start + fullDays * MINUTES_PER_DAY, start + minutes));
+        if (fullDays == 0) {
+            return remainder;
+        }
+        // Day k of the stay costs the same as day k + 7, so capped days are summed one week of days at a time
+        long total = remainder;
+        long week = 0;
+        for (int day = 0; day < 7 && day < fullDays; day++) {
+            long dayStart = start + (long) day * MINUTES_PER_DAY;
+            long dayCost = Math.min(cap, cost(typeIndex, dayStart, dayStart + MINUTES_PER_DAY));
+            week += dayCost;
+            if (day < fullDays % 7) {
+                total += dayCost;
+            }
+        }
+        return total + (fullDays / 7) * week;
+    }
+
+    // Uncapped cost of [from, to) in minutes since a Monday 00:00
+    private long cost(int typeIndex, long from, long to) {
+        return costUntil(typeIndex, to) - costUntil(typeIndex, from);
+    }
+
+    private long costUntil(int typeIndex, long minute) {
+        long[] prefix = weekPrefix[typeIndex];
+        long weeks = Math.floorDiv(minute, MINUTES_PER_WEEK);
+        int minuteOfWeek = Math.floorMod(minute, MINUTES_PER_WEEK);
+        int hour = minuteOfWeek / 60;
+        return weeks * prefix[HOURS_PER_WEEK] + prefix[hour] + hourlyRates[typeIndex][hour] * (minuteOfWeek % 60);
+    }
+}
\ No newline at end of file
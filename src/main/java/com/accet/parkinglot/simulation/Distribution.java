@@ -0,0 +1,50 @@
+package com.accet.parkinglot.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * A distribution of non-negative values, such as the minutes a vehicle stays. Samples are drawn from the
+ * random generator passed in, so a seeded generator reproduces the same sequence.
+ */
+@FunctionalInterface
+public interface Distribution {
+
+    double sample(SplittableRandom random);
+
+    static Distribution constant(double value) {
+        return random -> value;
+    }
+
+    static Distribution uniform(double min, double max) {
+        if (max < min) {
+            throw new IllegalArgumentException("max must not be below min");
+        }
+        return random -> min + (max - min) * random.nextDouble();
+    }
+
+    static Distribution exponential(double mean) {
+        if (mean <= 0) {
+            throw new IllegalArgumentException("mean must be positive");
+        }
+        // 1 - u lies in (0, 1], so the logarithm is finite
+        return random -> -mean * Math.log(1 - random.nextDouble());
+    }
+
+    /**
+     * Log-normal with the given median and shape; a common fit for parking stays, with a long tail of all-day parkers.
+     */
+    static Distribution logNormal(double median, double sigma) {
+        if (median <= 0 || sigma < 0) {
+            throw new IllegalArgumentException("median must be positive and sigma non-negative");
+        }
+        double mu = Math.log(median);
+        return random -> Math.exp(mu + sigma * gaussian(random));
+    }
+
+    // Box-Muller; uses two uniforms per sample so the stream of draws does not depend on earlier calls
+    private static double gaussian(SplittableRandom random) {
+        double u = 1 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+}
\ No newline at end of file
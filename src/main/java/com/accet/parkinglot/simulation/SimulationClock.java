@@ -0,0 +1,52 @@
+package com.accet.parkinglot.simulation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * A clock that only moves when the simulator moves it, so a day of traffic runs as fast as the lot can serve it.
+ * <p>
+ * Not thread-safe; the simulator drives the service from a single thread.
+ */
+public class SimulationClock extends Clock {
+    private final ZoneId zone;
+    private long millis;
+
+    public SimulationClock(Instant start, ZoneId zone) {
+        this.zone = zone;
+        this.millis = start.toEpochMilli();
+    }
+
+    /**
+     * Moves the clock to the given epoch millis. The clock never goes back.
+     */
+    public void advanceTo(long epochMillis) {
+        if (epochMillis > millis) {
+            millis = epochMillis;
+        }
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Returns a clock in another zone that starts at this clock's time but is advanced separately.
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new SimulationClock(instant(), zone);
+    }
+}
\ No newline at end of file
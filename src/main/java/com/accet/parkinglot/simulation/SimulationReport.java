@@ -0,0 +1,204 @@
+package com.accet.parkinglot.simulation;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.accet.parkinglot.model.VehicleType;
+
+/**
+ * What one simulation run produced: arrivals, rejections, departures and revenue per vehicle type, traffic per
+ * gate, and the lot's occupancy sampled at fixed intervals of simulated time. Filled in by the
+ * {@link TrafficSimulator}.
+ */
+public class SimulationReport {
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    private final long seed;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final String[] gateIds;
+    final long[] arrivals = new long[TYPES.length];
+    final long[] rejected = new long[TYPES.length];
+    final long[] departures = new long[TYPES.length];
+    final long[] revenue = new long[TYPES.length];
+    final long[] stayMinutes = new long[TYPES.length];
+    final int[] capacity = new int[TYPES.length];
+    final int[] peakOccupied = new int[TYPES.length];
+    final long[] gateEntries;
+    final long[] gateRejections;
+    final long[] gateExits;
+    final List<OccupancySample> occupancy = new ArrayList<>();
+    long events;
+    long wallNanos;
+
+    /**
+     * Occupied spots per vehicle type at one instant of simulated time.
+     */
+    public static final class OccupancySample {
+        private final LocalDateTime time;
+        private final int[] occupied;
+
+        OccupancySample(LocalDateTime time, int[] occupied) {
+            this.time = time;
+            this.occupied = occupied;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public int getOccupied(VehicleType type) {
+            return occupied[type.ordinal()];
+        }
+
+        public int getOccupied() {
+            int total = 0;
+            for (int count : occupied) {
+                total += count;
+            }
+            return total;
+        }
+    }
+
+    SimulationReport(long seed, LocalDateTime start, LocalDateTime end, String[] gateIds) {
+        this.seed = seed;
+        this.start = start;
+        this.end = end;
+        this.gateIds = gateIds;
+        this.gateEntries = new long[gateIds.length];
+        this.gateRejections = new long[gateIds.length];
+        this.gateExits = new long[gateIds.length];
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Duration getSimulatedDuration() {
+        return Duration.between(start, end);
+    }
+
+    /**
+     * Returns how long the run took on the wall clock.
+     */
+    public Duration getWallTime() {
+        return Duration.ofNanos(wallNanos);
+    }
+
+    /**
+     * Returns the number of arrivals, departures and samples processed.
+     */
+    public long getEventCount() {
+        return events;
+    }
+
+    public long getArrivals(VehicleType type) {
+        return arrivals[type.ordinal()];
+    }
+
+    public long getArrivals() {
+        return sum(arrivals);
+    }
+
+    /**
+     * Returns the number of arrivals turned away because no spot of their type was free.
+     */
+    public long getRejected(VehicleType type) {
+        return rejected[type.ordinal()];
+    }
+
+    public long getRejected() {
+        return sum(rejected);
+    }
+
+    public double getRejectionRate(VehicleType type) {
+        return ratio(rejected[type.ordinal()], arrivals[type.ordinal()]);
+    }
+
+    public double getRejectionRate() {
+        return ratio(getRejected(), getArrivals());
+    }
+
+    public long getDepartures(VehicleType type) {
+        return departures[type.ordinal()];
+    }
+
+    public long getDepartures() {
+        return sum(departures);
+    }
+
+    /**
+     * Returns the parking fees charged at exit, in rupees. Vehicles still parked when the run ends are not charged.
+     */
+    public long getRevenue(VehicleType type) {
+        return revenue[type.ordinal()];
+    }
+
+    public long getRevenue() {
+        return sum(revenue);
+    }
+
+    public int getCapacity(VehicleType type) {
+        return capacity[type.ordinal()];
+    }
+
+    public int getPeakOccupied(VehicleType type) {
+        return peakOccupied[type.ordinal()];
+    }
+
+    public List<OccupancySample> getOccupancy() {
+        return Collections.unmodifiableList(occupancy);
+    }
+
+    public void print(PrintStream out) {
+        Duration simulated = getSimulatedDuration();
+        double wallSeconds = wallNanos / 1e9;
+        out.printf("Simulated %s from %s (seed %d) in %.2f s: %,d events, %,.0f events/s, %,.0f arrivals/s.%n",
+                simulated, start, seed, wallSeconds, events, events / wallSeconds, getArrivals() / wallSeconds);
+
+        out.printf("%n%-14s %10s %10s %8s %10s %12s %10s %10s %9s%n",
+                "Type", "Arrivals", "Rejected", "Rate", "Departed", "Revenue", "Mean stay", "Peak", "Capacity");
+        for (VehicleType type : TYPES) {
+            int t = type.ordinal();
+            if (arrivals[t] == 0 && capacity[t] == 0) {
+                continue;
+            }
+            out.printf("%-14s %,10d %,10d %7.2f%% %,10d %,12d %8.0f m %,10d %,9d%n", type, arrivals[t], rejected[t],
+                    100 * getRejectionRate(type), departures[t], revenue[t], ratio(stayMinutes[t], departures[t]),
+                    peakOccupied[t], capacity[t]);
+        }
+        out.printf("%-14s %,10d %,10d %7.2f%% %,10d %,12d%n", "Total", getArrivals(), getRejected(),
+                100 * getRejectionRate(), getDepartures(), getRevenue());
+
+        out.printf("%n%-8s %10s %10s %10s%n", "Gate", "Entries", "Rejected", "Exits");
+        for (int g = 0; g < gateIds.length; g++) {
+            out.printf("%-8s %,10d %,10d %,10d%n", gateIds[g], gateEntries[g], gateRejections[g], gateExits[g]);
+        }
+
+        int totalCapacity = 0;
+        for (int count : capacity) {
+            totalCapacity += count;
+        }
+        out.printf("%n%-17s %10s %7s%n", "Time", "Occupied", "Full");
+        for (OccupancySample sample : occupancy) {
+            int occupied = sample.getOccupied();
+            out.printf("%-17s %,10d %6.1f%%%n", sample.getTime(), occupied, 100 * ratio(occupied, totalCapacity));
+        }
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 0 : (double) part / whole;
+    }
+}
\ No newline at end of file
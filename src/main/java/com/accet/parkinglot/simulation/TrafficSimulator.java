@@ -0,0 +1,335 @@
+package com.accet.parkinglot.simulation;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.Gate;
+import com.accet.parkinglot.model.ParkingLotFloor;
+import com.accet.parkinglot.model.Payment;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.BookingRegistry;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+import com.accet.parkinglot.service.TariffTable;
+
+/**
+ * Discrete-event simulation of gate traffic for capacity planning: "what happens at a million vehicles a day".
+ * <p>
+ * Every {@link TrafficStream} generates arrivals at its entry gate as a Poisson process whose rate follows the
+ * hourly profile, and every admitted vehicle leaves through a random exit gate after a stay drawn from the stream's
+ * distribution. A real {@link ParkingLotService} serves the arrivals and departures on a {@link SimulationClock},
+ * so allocation, tariffs and fees are exactly those of the lot, and a day passes as fast as the service can go.
+ * <p>
+ * Runs are deterministic: each stream draws from its own generator, split in order from the seed, and events at
+ * the same millisecond are processed in the order they were scheduled. The same seed, layout, tariff and streams
+ * give the same report, so two allocation or pricing variants can be compared on identical traffic.
+ * <p>
+ * The lot starts empty. A simulator runs once, as the run leaves its vehicles parked on the floors.
+ */
+public class TrafficSimulator {
+    public static final Duration DEFAULT_SAMPLE_INTERVAL = Duration.ofMinutes(15);
+    private static final VehicleType[] TYPES = VehicleType.values();
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+    private static final int ARRIVAL = 0;
+    private static final int DEPARTURE = 1;
+    private static final int SAMPLE = 2;
+
+    private final Map<Integer, ParkingLotFloor> floors;
+    private final List<Gate> gates;
+    private final TariffTable tariffTable;
+    private final long seed;
+    private final List<TrafficStream> streams = new ArrayList<>();
+    // Relative traffic per hour of the day, scaled to average 1
+    private double[] hourlyProfile;
+    private Duration sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+    private PaymentMethod paymentMethod = PaymentMethod.UPI;
+    private boolean ran;
+
+    /**
+     * @param floors Floors of a freshly loaded layout; the run parks vehicles on them.
+     * @param gates The gates of the layout; streams arrive at its entry gates and vehicles leave through its exit gates.
+     */
+    public TrafficSimulator(Map<Integer, ParkingLotFloor> floors, List<Gate> gates, TariffTable tariffTable, long seed) {
+        this.floors = floors;
+        this.gates = gates;
+        this.tariffTable = tariffTable;
+        this.seed = seed;
+        this.hourlyProfile = new double[24];
+        Arrays.fill(hourlyProfile, 1);
+    }
+
+    /**
+     * Adds a stream of arrivals.
+     * @throws IllegalArgumentException if the stream's gate is not an entry gate of the layout.
+     */
+    public void addTraffic(TrafficStream stream) {
+        Gate gate = findGate(stream.getGateId());
+        if (gate == null || gate.getType() != Gate.GateType.ENTRY) {
+            throw new IllegalArgumentException("No entry gate " + stream.getGateId() + " in the layout");
+        }
+        streams.add(stream);
+    }
+
+    /**
+     * Shapes every stream over the day: weights for hours 0 to 23, scaled so that they average 1 and a stream
+     * still brings its average rate over a whole day. The default is flat.
+     */
+    public void setHourlyProfile(double... weights) {
+        if (weights.length != 24) {
+            throw new IllegalArgumentException("Expected 24 hourly weights, got " + weights.length);
+        }
+        double sum = 0;
+        for (double weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Hourly weights must not be negative");
+            }
+            sum += weight;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("At least one hourly weight must be positive");
+        }
+        double[] profile = new double[24];
+        for (int hour = 0; hour < 24; hour++) {
+            profile[hour] = weights[hour] * 24 / sum;
+        }
+        this.hourlyProfile = profile;
+    }
+
+    /**
+     * Sets how often, in simulated time, the occupancy curve is sampled.
+     */
+    public void setSampleInterval(Duration sampleInterval) {
+        if (sampleInterval.toMillis() <= 0) {
+            throw new IllegalArgumentException("Sample interval must be at least a millisecond");
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Sets how departing vehicles pay. It does not change the fee.
+     */
+    public void setPaymentMethod(PaymentMethod paymentMethod) {
+        this.paymentMethod = paymentMethod;
+    }
+
+    /**
+     * Simulates the traffic from start for the given duration. Vehicles whose stay runs past the end are still
+     * parked when the run ends and are not charged.
+     * @throws IllegalStateException if this simulator has already run.
+     */
+    public SimulationReport run(LocalDateTime start, Duration duration) {
+        if (ran) {
+            throw new IllegalStateException("A simulator runs once; load the layout again for another run");
+        }
+        ran = true;
+        return new Run(start, duration).execute();
+    }
+
+    private Gate findGate(String gateId) {
+        for (Gate gate : gates) {
+            if (gate.getGateId().equals(gateId)) {
+                return gate;
+            }
+        }
+        return null;
+    }
+
+    // Keeps completed bookings out of memory; the simulator tallies them itself, and a million a day would fill the heap
+    private static final class TallyingRegistry extends BookingRegistry {
+        @Override
+        public void addCompletedBooking(Booking booking) {
+        }
+    }
+
+    // The arrival process of one stream
+    private static final class Source {
+        final TrafficStream stream;
+        final int gateIndex;
+        final int gateFloor;
+        final SplittableRandom random;
+        final double perMilli;
+        final double peakPerMilli;
+        double time;
+
+        Source(TrafficStream stream, int gateIndex, int gateFloor, SplittableRandom random, double peakWeight, double startMillis) {
+            this.stream = stream;
+            this.gateIndex = gateIndex;
+            this.gateFloor = gateFloor;
+            this.random = random;
+            this.perMilli = stream.getVehiclesPerHour() / MILLIS_PER_HOUR;
+            this.peakPerMilli = perMilli * peakWeight;
+            this.time = startMillis;
+        }
+    }
+
+    // Ordered by time, then by when it was scheduled
+    private record Event(long time, long sequence, int kind, Source source, Booking booking, int gateIndex) implements Comparable<Event> {
+        @Override
+        public int compareTo(Event other) {
+            return time != other.time ? Long.compare(time, other.time) : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final class Run {
+        final LocalDateTime start;
+        final long startMillis;
+        final long endMillis;
+        final SimulationClock clock;
+        final ParkingLotService service;
+        final SimulationReport report;
+        final PriorityQueue<Event> events = new PriorityQueue<>();
+        final int[] exitGates;
+        long sequence;
+        long vehicles;
+
+        Run(LocalDateTime start, Duration duration) {
+            this.start = start;
+            this.startMillis = start.toInstant(ZoneOffset.UTC).toEpochMilli();
+            this.endMillis = startMillis + duration.toMillis();
+            // UTC, so that simulated days have 24 hours whatever the zone of the machine
+            this.clock = new SimulationClock(start.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+            AtomicLong lastId = new AtomicLong();
+            this.service = new ParkingLotService(new SubscriptionManager(), new TallyingRegistry(), lastId::incrementAndGet, tariffTable, clock);
+            service.addParkingFloors(floors);
+            String[] gateIds = new String[gates.size()];
+            List<Integer> exits = new ArrayList<>();
+            for (int g = 0; g < gates.size(); g++) {
+                gateIds[g] = gates.get(g).getGateId();
+                if (gates.get(g).getType() == Gate.GateType.EXIT) {
+                    exits.add(g);
+                }
+            }
+            this.exitGates = exits.stream().mapToInt(Integer::intValue).toArray();
+            this.report = new SimulationReport(seed, start, start.plus(duration), gateIds);
+            for (ParkingLotFloor floor : floors.values()) {
+                for (VehicleType type : TYPES) {
+                    report.capacity[type.ordinal()] += floor.getTotalSpotCount(type);
+                }
+            }
+        }
+
+        SimulationReport execute() {
+            long started = System.nanoTime();
+            double peakWeight = Arrays.stream(hourlyProfile).max().orElse(1);
+            SplittableRandom seeds = new SplittableRandom(seed);
+            for (TrafficStream stream : streams) {
+                Gate gate = findGate(stream.getGateId());
+                Source source = new Source(stream, gates.indexOf(gate), gate.getFloorNumber(), seeds.split(), peakWeight, startMillis);
+                scheduleArrival(source);
+            }
+            for (long time = startMillis; time <= endMillis; time += sampleInterval.toMillis()) {
+                schedule(time, SAMPLE, null, null, -1);
+            }
+
+            Event event;
+            while ((event = events.poll()) != null) {
+                clock.advanceTo(event.time());
+                switch (event.kind()) {
+                    case ARRIVAL -> arrive(event.source());
+                    case DEPARTURE -> depart(event.booking(), event.gateIndex());
+                    default -> sample();
+                }
+                report.events++;
+            }
+            report.wallNanos = System.nanoTime() - started;
+            return report;
+        }
+
+        // Draws the stream's next arrival by thinning a Poisson process at the peak rate, or none if it falls past the end
+        void scheduleArrival(Source source) {
+            if (source.peakPerMilli == 0) {
+                return;
+            }
+            double time = source.time;
+            do {
+                time += -Math.log(1 - source.random.nextDouble()) / source.peakPerMilli;
+                if (time >= endMillis) {
+                    return;
+                }
+            } while (source.random.nextDouble() * source.peakPerMilli >= source.perMilli * hourlyProfile[hourOf(time)]);
+            source.time = time;
+            schedule((long) time, ARRIVAL, source, null, source.gateIndex);
+        }
+
+        void arrive(Source source) {
+            VehicleType type = source.stream.getVehicleType();
+            int t = type.ordinal();
+            report.arrivals[t]++;
+            Booking booking = service.bookNearestSpot(new Vehicle(registration(vehicles++), type), source.gateFloor);
+            if (booking == null) {
+                report.rejected[t]++;
+                report.gateRejections[source.gateIndex]++;
+            } else {
+                report.gateEntries[source.gateIndex]++;
+                report.peakOccupied[t] = Math.max(report.peakOccupied[t], report.capacity[t] - service.getAvailableSpotCount(type));
+                long leaves = clock.millis() + Math.round(Math.max(0, source.stream.getStayMinutes().sample(source.random)) * 60_000);
+                if (leaves <= endMillis && exitGates.length > 0) {
+                    schedule(leaves, DEPARTURE, null, booking, exitGates[source.random.nextInt(exitGates.length)]);
+                }
+            }
+            scheduleArrival(source);
+        }
+
+        void depart(Booking booking, int gateIndex) {
+            Booking completed = service.releaseSpot(booking.getBookingId(), paymentMethod);
+            int t = completed.getVehicle().getType().ordinal();
+            Payment payment = completed.getPayment();
+            report.departures[t]++;
+            report.revenue[t] += payment.getAmount();
+            report.stayMinutes[t] += Duration.between(completed.getStartTime(), completed.getEndTime()).toMinutes();
+            report.gateExits[gateIndex]++;
+        }
+
+        void sample() {
+            int[] occupied = new int[TYPES.length];
+            for (VehicleType type : TYPES) {
+                occupied[type.ordinal()] = report.capacity[type.ordinal()] - service.getAvailableSpotCount(type);
+            }
+            report.occupancy.add(new SimulationReport.OccupancySample(LocalDateTime.now(clock), occupied));
+        }
+
+        void schedule(long time, int kind, Source source, Booking booking, int gateIndex) {
+            events.add(new Event(time, sequence++, kind, source, booking, gateIndex));
+        }
+
+        int hourOf(double millis) {
+            return (int) Math.floorMod((long) millis / MILLIS_PER_HOUR, 24L);
+        }
+    }
+
+    // A distinct, valid registration number for every vehicle of a run: "AA 00 AA 0000", "AA 00 AA 0001", ...
+    private static String registration(long number) {
+        char[] text = new char[13];
+        long rest = number;
+        for (int i = 12; i >= 9; i--) {
+            text[i] = (char) ('0' + rest % 10);
+            rest /= 10;
+        }
+        text[8] = ' ';
+        text[7] = (char) ('A' + rest % 26);
+        rest /= 26;
+        text[6] = (char) ('A' + rest % 26);
+        rest /= 26;
+        text[5] = ' ';
+        text[4] = (char) ('0' + rest % 10);
+        rest /= 10;
+        text[3] = (char) ('0' + rest % 10);
+        rest /= 10;
+        text[2] = ' ';
+        text[1] = (char) ('A' + rest % 26);
+        rest /= 26;
+        text[0] = (char) ('A' + rest % 26);
+        return new String(text);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.accet.parkinglot.simulation;
+
+import com.accet.parkinglot.model.VehicleType;
+
+/**
+ * Vehicles of one type arriving at one entry gate: a Poisson stream at the given average rate, shaped over the
+ * day by the simulator's hourly profile, each staying for a time drawn from stayMinutes.
+ */
+public class TrafficStream {
+    private final String gateId;
+    private final VehicleType vehicleType;
+    private final double vehiclesPerHour;
+    private final Distribution stayMinutes;
+
+    public TrafficStream(String gateId, VehicleType vehicleType, double vehiclesPerHour, Distribution stayMinutes) {
+        if (vehiclesPerHour < 0) {
+            throw new IllegalArgumentException("vehiclesPerHour must not be negative");
+        }
+        this.gateId = gateId;
+        this.vehicleType = vehicleType;
+        this.vehiclesPerHour = vehiclesPerHour;
+        this.stayMinutes = stayMinutes;
+    }
+
+    public String getGateId() {
+        return gateId;
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    /**
+     * Arrivals per hour averaged over a day.
+     */
+    public double getVehiclesPerHour() {
+        return vehiclesPerHour;
+    }
+
+    public Distribution getStayMinutes() {
+        return stayMinutes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.accet.parkinglot.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Direct byte buffers of one size, handed out and taken back so that connections coming and going do not allocate
+ * native memory each time. At most maxPooled idle buffers are kept; the rest are left to the garbage collector.
+ * <p>
+ * Not thread-safe; callers use it from a single thread or guard it with their own lock.
+ */
+public class BufferPool {
+    private final int bufferBytes;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> idle = new ArrayDeque<>();
+    private long allocated;
+
+    public BufferPool(int bufferBytes, int maxPooled) {
+        this.bufferBytes = bufferBytes;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Returns a cleared buffer, reusing an idle one if there is one.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = idle.pollFirst();
+        if (buffer == null) {
+            allocated++;
+            return ByteBuffer.allocateDirect(bufferBytes);
+        }
+        return buffer.clear();
+    }
+
+    /**
+     * Takes a buffer back. The caller must not touch it afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferBytes && idle.size() < maxPooled) {
+            // Most recently used first; it is the likeliest to still be in cache
+            idle.addFirst(buffer);
+        }
+    }
+
+    public int getBufferBytes() {
+        return bufferBytes;
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Returns the number of buffers this pool has allocated so far.
+     */
+    public long getAllocatedCount() {
+        return allocated;
+    }
+}
\ No newline at end of file
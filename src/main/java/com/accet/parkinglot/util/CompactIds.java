@@ -0,0 +1,53 @@
+package com.accet.parkinglot.util;
+
+import java.util.Arrays;
+
+/**
+ * Text form of numeric IDs: 13 characters of Crockford base32 (no I, L, O or U), fixed width so that the text
+ * sorts like the number. Parsing is case-insensitive.
+ */
+public final class CompactIds {
+    private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LENGTH = 13;
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+            VALUES[Character.toLowerCase(DIGITS[i])] = (byte) i;
+        }
+    }
+
+    private CompactIds() {
+    }
+
+    public static String format(long id) {
+        char[] text = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            text[i] = DIGITS[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(text);
+    }
+
+    /**
+     * @return The ID, or -1 if the text is not a valid ID.
+     */
+    public static long parse(CharSequence text) {
+        if (text == null || text.length() != LENGTH) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            char c = text.charAt(i);
+            int value = c < VALUES.length ? VALUES[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            id = (id << 5) | value;
+        }
+        // The first character carries only the top 3 bits of a positive long
+        return text.charAt(0) <= '7' ? id : -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.accet.parkinglot.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps keys to nodes by consistent hashing: every node is placed on a 64-bit ring at a number of virtual points,
+ * and a key belongs to the first point at or after its own hash. Adding or removing a node only moves the keys
+ * of the arcs that node gains or loses, about 1/n of them, and virtual points keep the arcs even.
+ * <p>
+ * Lookups are a binary search over the points. Not thread-safe; callers guard it with their own lock.
+ */
+public class ConsistentHashRing<N> {
+    private final int virtualNodes;
+    private final TreeMap<Long, N> points = new TreeMap<>();
+    private final Map<String, N> nodes = new TreeMap<>();
+
+    /**
+     * @param virtualNodes Points placed on the ring for every node.
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Places a node on the ring under a name that is unique among its nodes.
+     */
+    public void add(String name, N node) {
+        if (nodes.putIfAbsent(name, node) != null) {
+            throw new IllegalArgumentException("Node already on the ring: " + name);
+        }
+        for (int i = 0; i < virtualNodes; i++) {
+            // Two nodes whose points collide share the arc; the one placed first keeps it
+            points.putIfAbsent(hash(name + '#' + i), node);
+        }
+    }
+
+    /**
+     * Takes a node off the ring.
+     * @return The node, or null if there was none with that name.
+     */
+    public N remove(String name) {
+        N node = nodes.remove(name);
+        if (node != null) {
+            points.values().removeIf(owner -> owner == node);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the node a key belongs to, or null if the ring is empty.
+     */
+    public N get(String key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, N> owner = points.ceilingEntry(hash(key));
+        return owner != null ? owner.getValue() : points.firstEntry().getValue();
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes, finished with the MurmurHash3 mixer so that similar keys spread over the ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.accet.parkinglot.util;
+
+/**
+ * Source of unique IDs for bookings and payments. Implementations must be safe to call from many gates at once.
+ */
+public interface IdGenerator {
+
+    /**
+     * Returns a new positive ID, never handed out before by this generator.
+     */
+    long nextId();
+
+    /**
+     * Makes sure IDs handed out from now on differ from an ID issued earlier, e.g. one recovered from persisted
+     * state after a restart. Generators whose IDs cannot repeat across restarts need not do anything.
+     */
+    default void advancePast(long id) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.accet.parkinglot.util;
+
+import java.util.Arrays;
+
+/**
+ * Counts overlapping intervals on an integer time line: adds or removes an interval [from, to), and answers
+ * the largest number of intervals that overlap at any tick of a range. Both take O(log span) time, however
+ * many intervals are held.
+ * <p>
+ * It is a segment tree over {@value #SPAN_BITS} bits of ticks from a base tick, whose nodes are only created
+ * where an interval has ended up, so memory follows the intervals rather than the span. Each node stores the
+ * count added to its whole range and the maximum within it; adds stop at the nodes covering the interval and
+ * are never pushed down. Ticks outside the span are clamped to its ends. Nodes are not reclaimed when their
+ * counts drop back to zero.
+ * <p>
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public class IntervalMaxTree {
+    private static final int SPAN_BITS = 24;
+    private static final long SPAN = 1L << SPAN_BITS;
+    private static final int ROOT = 1;
+
+    private final long baseTick;
+    // Node 0 stands for every missing child, whose count is 0
+    private int[] left = new int[64];
+    private int[] right = new int[64];
+    // Count added to the node's whole range
+    private int[] added = new int[64];
+    // Largest count within the node's range, including added
+    private int[] max = new int[64];
+    private int nodeCount = ROOT + 1;
+
+    /**
+     * @param baseTick The first tick of the time line; earlier ticks count as this one.
+     */
+    public IntervalMaxTree(long baseTick) {
+        this.baseTick = baseTick;
+    }
+
+    /**
+     * Adds delta to the count of every tick in [from, to). Use a negative delta to remove an interval.
+     */
+    public void add(long from, long to, int delta) {
+        long start = clamp(from);
+        long end = clamp(to);
+        if (start < end) {
+            add(ROOT, 0, SPAN, start, end, delta);
+        }
+    }
+
+    /**
+     * Returns the largest count of any tick in [from, to), or 0 for an empty range.
+     */
+    public int max(long from, long to) {
+        long start = clamp(from);
+        long end = clamp(to);
+        return start < end ? max(ROOT, 0, SPAN, start, end) : 0;
+    }
+
+    /**
+     * Returns the count at one tick.
+     */
+    public int countAt(long tick) {
+        return max(tick, tick + 1);
+    }
+
+    private void add(int node, long low, long high, long from, long to, int delta) {
+        if (from <= low && high <= to) {
+            added[node] += delta;
+            max[node] += delta;
+            return;
+        }
+        long mid = (low + high) >>> 1;
+        if (from < mid) {
+            if (left[node] == 0) {
+                int child = newNode();
+                left[node] = child;
+            }
+            add(left[node], low, mid, from, to, delta);
+        }
+        if (to > mid) {
+            if (right[node] == 0) {
+                int child = newNode();
+                right[node] = child;
+            }
+            add(right[node], mid, high, from, to, delta);
+        }
+        max[node] = added[node] + Math.max(max[left[node]], max[right[node]]);
+    }
+
+    private int max(int node, long low, long high, long from, long to) {
+        if (node == 0) {
+            return 0;
+        }
+        if (from <= low && high <= to) {
+            return max[node];
+        }
+        long mid = (low + high) >>> 1;
+        int best = 0;
+        if (from < mid) {
+            best = max(left[node], low, mid, from, to);
+        }
+        if (to > mid) {
+            best = Math.max(best, max(right[node], mid, high, from, to));
+        }
+        return added[node] + best;
+    }
+
+    private int newNode() {
+        if (nodeCount == left.length) {
+            int capacity = nodeCount * 2;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            added = Arrays.copyOf(added, capacity);
+            max = Arrays.copyOf(max, capacity);
+        }
+        return nodeCount++;
+    }
+
+    private long clamp(long tick) {
+        if (tick <= baseTick) {
+            return 0;
+        }
+        long offset = tick - baseTick;
+        // Only wraps negative for ticks far past the span
+        return offset < 0 || offset > SPAN ? SPAN : offset;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.accet.parkinglot.util;
+
+/**
+ * Packs a registration number of the form "TN 01 AA 0001" (state, district, series, number) into a single
+ * non-negative long, so plates can be compared and hashed as primitives.
+ * <p>
+ * Bits, from high to low: state letters 5 + 5, district 7, series letters 5 + 5, number 14; 41 bits in all.
+ * Parsing is a single pass over the characters and allocates nothing. It accepts exactly what the old
+ * {@code ^[A-Z]{2}\s\d{2}\s[A-Z]{2}\s\d{4}$} pattern did; whitespace separators are not part of the key.
+ */
+public final class RegistrationKeys {
+    private static final int LENGTH = 13;
+
+    private RegistrationKeys() {
+    }
+
+    /**
+     * @return The packed key, or -1 if the text is not a valid registration number.
+     */
+    public static long pack(CharSequence text) {
+        if (text == null || text.length() != LENGTH) {
+            return -1;
+        }
+        int state1 = letter(text.charAt(0));
+        int state2 = letter(text.charAt(1));
+        int district1 = digit(text.charAt(3));
+        int district2 = digit(text.charAt(4));
+        int series1 = letter(text.charAt(6));
+        int series2 = letter(text.charAt(7));
+        int number = 0;
+        int invalid = state1 | state2 | district1 | district2 | series1 | series2;
+        for (int i = 9; i < LENGTH; i++) {
+            int value = digit(text.charAt(i));
+            invalid |= value;
+            number = number * 10 + value;
+        }
+        if (invalid < 0
+                || !separator(text.charAt(2)) || !separator(text.charAt(5)) || !separator(text.charAt(8))) {
+            return -1;
+        }
+        return (long) state1 << 36 | (long) state2 << 31 | (long) (district1 * 10 + district2) << 24
+                | (long) series1 << 19 | (long) series2 << 14 | number;
+    }
+
+    /**
+     * Formats a packed key back into its canonical text, with single spaces as separators.
+     */
+    public static String format(long key) {
+        char[] text = new char[LENGTH];
+        int district = (int) (key >>> 24) & 127;
+        int number = (int) key & 16383;
+        text[0] = (char) ('A' + ((key >>> 36) & 31));
+        text[1] = (char) ('A' + ((key >>> 31) & 31));
+        text[2] = ' ';
+        text[3] = (char) ('0' + district / 10);
+        text[4] = (char) ('0' + district % 10);
+        text[5] = ' ';
+        text[6] = (char) ('A' + ((key >>> 19) & 31));
+        text[7] = (char) ('A' + ((key >>> 14) & 31));
+        text[8] = ' ';
+        for (int i = LENGTH - 1; i >= 9; i--) {
+            text[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return new String(text);
+    }
+
+    private static int letter(char c) {
+        return c >= 'A' && c <= 'Z' ? c - 'A' : -1;
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+
+    // The characters matched by \s
+    private static boolean separator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.accet.parkinglot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered 63-bit IDs: milliseconds since 2024-01-01 UTC (41 bits), node (10 bits), sequence (12 bits).
+ * <p>
+ * IDs are unique across nodes as long as every node (lot, process) uses its own node number, and increase
+ * within a node, so they also sort by creation time. Generation is a single CAS with no locks or randomness.
+ * More than 4096 IDs in one millisecond borrow from the next millisecond instead of waiting, and a clock that
+ * steps backwards is ignored until it catches up again, so IDs never repeat. That only holds within one process:
+ * after a restart, {@link #advancePast(long)} the recovered IDs before issuing new ones.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+    public static final int NODE_BITS = 10;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+
+    private final long nodeBits;
+    // Last issued (timestamp << SEQUENCE_BITS | sequence)
+    private final AtomicLong lastTick = new AtomicLong();
+
+    public SnowflakeIdGenerator(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        this.nodeBits = (long) node << SEQUENCE_BITS;
+    }
+
+    @Override
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long last;
+        long next;
+        do {
+            last = lastTick.get();
+            next = Math.max(now, last + 1);
+        } while (!lastTick.compareAndSet(last, next));
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | sequence;
+    }
+
+    /**
+     * Issues later IDs after the given one, which may come from any node, as if it had been issued here.
+     */
+    @Override
+    public void advancePast(long id) {
+        long tick = (id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS | (id & ((1L << SEQUENCE_BITS) - 1));
+        lastTick.accumulateAndGet(tick, Math::max);
+    }
+
+    /**
+     * Returns the node that generated an ID.
+     */
+    public static int nodeOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+package com.accet.parkinglot.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: schedules payloads to fire at an integer tick, in the style of the classic kernel
+ * timer wheel. Four levels of 64 slots each cover 64, 64^2, 64^3 and 64^4 ticks ahead; a timer sits in the
+ * coarsest level that fits and is moved down a level each time the level below it wraps around.
+ * <p>
+ * Scheduling and cancelling are O(1). Advancing by one tick touches one slot, plus one slot per level that
+ * cascades, so the cost of advancing depends on the number of timers that fire, not on how many are pending.
+ * Deadlines beyond the range of the top level are parked in it and re-filed as they come within range.
+ * <p>
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public class TimingWheel<T> {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELTA = (1L << (LEVELS * SLOT_BITS)) - 1;
+
+    /**
+     * A scheduled payload. Cancel it through {@link TimingWheel#cancel}.
+     */
+    public static final class Timer<T> {
+        private final T payload;
+        private final long deadline;
+        private Timer<T> previous;
+        private Timer<T> next;
+
+        private Timer(T payload, long deadline) {
+            this.payload = payload;
+            this.deadline = deadline;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isPending() {
+            return previous != null;
+        }
+    }
+
+    // [level][slot]: sentinel heads of circular doubly linked lists, created on first use
+    private final Timer<T>[][] slots;
+    // Timers scheduled for a tick that has already been processed
+    private final Timer<T> overdue;
+    // The next tick to process
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long startTick) {
+        @SuppressWarnings("unchecked")
+        Timer<T>[][] levels = (Timer<T>[][]) new Timer<?>[LEVELS][SLOTS];
+        this.slots = levels;
+        this.currentTick = startTick;
+        this.overdue = newList();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules a payload to fire once the wheel has advanced to deadlineTick. A deadline the wheel has already
+     * passed fires on the next call to advance.
+     */
+    public Timer<T> schedule(T payload, long deadlineTick) {
+        Timer<T> timer = new Timer<>(payload, deadlineTick);
+        if (deadlineTick < currentTick) {
+            link(overdue, timer);
+        } else {
+            file(timer);
+        }
+        size++;
+        return timer;
+    }
+
+    /**
+     * @return true if the timer was pending and will no longer fire.
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (!timer.isPending()) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Processes every tick up to and including nowTick, handing each timer whose deadline has been reached to
+     * expired, in deadline order across ticks.
+     * @return The number of timers that fired.
+     */
+    public int advance(long nowTick, Consumer<? super T> expired) {
+        int fired = fire(overdue, expired);
+        while (currentTick <= nowTick) {
+            if (size == 0) {
+                currentTick = nowTick + 1;
+                break;
+            }
+            int index = (int) currentTick & SLOT_MASK;
+            // Level 0 has wrapped: pull the timers of the next slot of each higher level down
+            for (int level = 1; index == 0 && level < LEVELS; level++) {
+                index = (int) (currentTick >>> (level * SLOT_BITS)) & SLOT_MASK;
+                cascade(level, index);
+            }
+            Timer<T> head = slots[0][(int) currentTick & SLOT_MASK];
+            if (head != null) {
+                fired += fire(head, expired);
+            }
+            currentTick++;
+        }
+        return fired;
+    }
+
+    private int fire(Timer<T> head, Consumer<? super T> expired) {
+        int fired = 0;
+        while (head.next != head) {
+            Timer<T> timer = head.next;
+            unlink(timer);
+            size--;
+            fired++;
+            expired.accept(timer.payload);
+        }
+        return fired;
+    }
+
+    private void cascade(int level, int index) {
+        Timer<T> head = slots[level][index];
+        if (head == null) {
+            return;
+        }
+        while (head.next != head) {
+            Timer<T> timer = head.next;
+            unlink(timer);
+            file(timer);
+        }
+    }
+
+    // Links a timer into the slot that holds its deadline at the coarsest level that can still tell it apart
+    private void file(Timer<T> timer) {
+        long delta = timer.deadline - currentTick;
+        long tick = timer.deadline;
+        if (delta > MAX_DELTA) {
+            tick = currentTick + MAX_DELTA;
+            delta = MAX_DELTA;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << ((level + 1) * SLOT_BITS)) {
+            level++;
+        }
+        int index = (int) (tick >>> (level * SLOT_BITS)) & SLOT_MASK;
+        Timer<T> head = slots[level][index];
+        if (head == null) {
+            head = newList();
+            slots[level][index] = head;
+        }
+        link(head, timer);
+    }
+
+    private static <T> Timer<T> newList() {
+        Timer<T> head = new Timer<>(null, 0);
+        head.previous = head;
+        head.next = head;
+        return head;
+    }
+
+    private static <T> void link(Timer<T> head, Timer<T> timer) {
+        timer.previous = head.previous;
+        timer.next = head;
+        head.previous.next = timer;
+        head.previous = timer;
+    }
+
+    private static <T> void unlink(Timer<T> timer) {
+        timer.previous.next = timer.next;
+        timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.accet.parkinglot.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.accet.parkinglot.model.Subscription;
+import com.accet.parkinglot.model.SubscriptionTier;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.util.RegistrationKeys;
+
+class EventLogTest {
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 20_000;
+
+    // Events logged while the log is closing are either written or counted as dropped, never lost silently
+    @Test
+    void everyEventLoggedAroundCloseIsWrittenOrDropped() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        Subscription subscription = new Subscription(RegistrationKeys.pack("TN 01 AA 0001"), VehicleType.CAR,
+                SubscriptionTier.BASIC, now, now.plusMonths(1));
+        for (int round = 0; round < 20; round++) {
+            EventLog eventLog = new EventLog(64);
+            AtomicLong written = new AtomicLong();
+            eventLog.addConsumer(event -> written.incrementAndGet());
+            CountDownLatch started = new CountDownLatch(PRODUCERS);
+            List<Thread> producers = new ArrayList<>();
+            for (int i = 0; i < PRODUCERS; i++) {
+                Thread producer = new Thread(() -> {
+                    started.countDown();
+                    for (int n = 0; n < EVENTS_PER_PRODUCER; n++) {
+                        eventLog.onSubscribed(subscription);
+                    }
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            started.await();
+            eventLog.close();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            assertEquals((long) PRODUCERS * EVENTS_PER_PRODUCER, written.get() + eventLog.getDroppedEvents());
+        }
+    }
+}
\ No newline at end of file
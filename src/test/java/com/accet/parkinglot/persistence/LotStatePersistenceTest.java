@@ -0,0 +1,122 @@
+package com.accet.parkinglot.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.ParkingLotFloor;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.service.ParkingLotListener;
+import com.accet.parkinglot.service.ParkingLotService;
+import com.accet.parkinglot.service.SubscriptionManager;
+
+class LotStatePersistenceTest {
+
+    @TempDir
+    Path directory;
+
+    // One gate releases the lot's only car spot and another books it while the first is still finishing the release
+    @Test
+    void replaysReleaseBeforeRebookOfTheSameSpot() throws Exception {
+        SubscriptionManager subscriptionManager = new SubscriptionManager();
+        ParkingLotService service = newService(subscriptionManager);
+        CountDownLatch rebooked = new CountDownLatch(1);
+        // Registered ahead of the persistence listener, so its release callback runs only after the spot is taken again
+        service.addListener(new ParkingLotListener() {
+            @Override
+            public void onSpotReleased(Booking booking) {
+                try {
+                    rebooked.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        LotStatePersistence persistence = LotStatePersistence.open(directory, service, subscriptionManager);
+        Booking first = service.bookNearestSpot(new Vehicle("TN 01 AA 0001", VehicleType.CAR), 0);
+        assertNotNull(first);
+
+        Thread exitGate = new Thread(() -> service.releaseSpot(first.getBookingId(), PaymentMethod.CASH), "exit-gate");
+        AtomicReference<Booking> second = new AtomicReference<>();
+        Thread entryGate = new Thread(() -> {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (second.get() == null && System.nanoTime() < deadline) {
+                second.set(service.bookNearestSpot(new Vehicle("TN 01 AA 0002", VehicleType.CAR), 0));
+            }
+            rebooked.countDown();
+        }, "entry-gate");
+        exitGate.start();
+        entryGate.start();
+        exitGate.join();
+        entryGate.join();
+        assertNotNull(second.get());
+        assertEquals(first.getSpot().getSpotId(), second.get().getSpot().getSpotId());
+        persistence.close();
+
+        SubscriptionManager recoveredSubscriptions = new SubscriptionManager();
+        ParkingLotService recovered = newService(recoveredSubscriptions);
+        LotStatePersistence.open(directory, recovered, recoveredSubscriptions).close();
+        Booking parked = recovered.findParkedVehicle("TN 01 AA 0002");
+        assertNotNull(parked);
+        assertEquals(second.get().getId(), parked.getId());
+        assertEquals(first.getSpot().getSpotId(), parked.getSpot().getSpotId());
+        assertNull(recovered.findParkedVehicle("TN 01 AA 0001"));
+        assertEquals(1, recovered.getActiveBookings().size());
+        assertEquals(0, recovered.getAvailableSpotCount(VehicleType.CAR));
+    }
+
+    // A snapshot taken after a booking was journaled but before it became active must still hold it, as the journal
+    // segment holding its record is dropped
+    @Test
+    void snapshotKeepsBookingJournaledBeforeIt() throws Exception {
+        SubscriptionManager subscriptionManager = new SubscriptionManager();
+        ParkingLotService service = newService(subscriptionManager);
+        LotStatePersistence persistence = LotStatePersistence.open(directory, service, subscriptionManager);
+        Thread[] snapshotter = new Thread[1];
+        // Registered after the persistence listener, so it runs once the booking is journaled
+        service.addListener(new ParkingLotListener() {
+            @Override
+            public void onBookingApplied(Booking booking) {
+                snapshotter[0] = new Thread(persistence::snapshot, "snapshot");
+                snapshotter[0].start();
+                try {
+                    // Give the snapshot every chance to run before the booking is active
+                    snapshotter[0].join(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Booking booking = service.bookNearestSpot(new Vehicle("TN 01 AA 0001", VehicleType.CAR), 0);
+        assertNotNull(booking);
+        snapshotter[0].join();
+        persistence.close();
+
+        SubscriptionManager recoveredSubscriptions = new SubscriptionManager();
+        ParkingLotService recovered = newService(recoveredSubscriptions);
+        LotStatePersistence.open(directory, recovered, recoveredSubscriptions).close();
+        Booking parked = recovered.findParkedVehicle("TN 01 AA 0001");
+        assertNotNull(parked);
+        assertEquals(booking.getId(), parked.getId());
+    }
+
+    private static ParkingLotService newService(SubscriptionManager subscriptionManager) {
+        ParkingLotFloor floor = new ParkingLotFloor(0, "Ground");
+        floor.addSpotRange(VehicleType.CAR, "G-C", 1, 1);
+        ParkingLotService service = new ParkingLotService(subscriptionManager);
+        service.addParkingFloors(Map.of(0, floor));
+        return service;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.accet.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.ParkingLotFloor;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+
+class ParkingLotServiceTest {
+
+    // The journal fails to record the second vehicle of a batch; the rest of the batch must still go through
+    @Test
+    void batchSurvivesAFailedBookingHook() {
+        ParkingLotService service = newService(3);
+        AtomicInteger applied = new AtomicInteger();
+        List<Booking> announced = new ArrayList<>();
+        service.addListener(new ParkingLotListener() {
+            @Override
+            public void onBookingApplied(Booking booking) {
+                if (applied.incrementAndGet() == 2) {
+                    throw new UncheckedIOException(new IOException("Disk full"));
+                }
+            }
+
+            @Override
+            public void onSpotsBooked(List<Booking> bookings) {
+                announced.addAll(bookings);
+            }
+        });
+
+        List<BatchItemResult> results = service.bookSpots(List.of(
+                new Vehicle("TN 01 AA 0001", VehicleType.CAR),
+                new Vehicle("TN 01 AA 0002", VehicleType.CAR),
+                new Vehicle("TN 01 AA 0003", VehicleType.CAR)), 0);
+
+        assertEquals(3, results.size());
+        assertEquals(BatchItemResult.Status.BOOKED, results.get(0).getStatus());
+        assertTrue(results.get(1).isRejected());
+        assertEquals(BatchItemResult.Status.BOOKED, results.get(2).getStatus());
+        assertEquals(2, announced.size());
+        assertNull(service.findParkedVehicle("TN 01 AA 0002"));
+        assertNotNull(service.findParkedVehicle("TN 01 AA 0003"));
+        assertEquals(2, service.getActiveBookings().size());
+        assertEquals(1, service.getAvailableSpotCount(VehicleType.CAR));
+        assertEquals(1, service.getParkingFloors().get(0).getAvailableSpotCount(VehicleType.CAR));
+    }
+
+    // A batch larger than the lot books every free spot and rejects the vehicles left over
+    @Test
+    void batchRejectsVehiclesBeyondCapacity() {
+        ParkingLotService service = newService(2);
+
+        List<BatchItemResult> results = service.bookSpots(List.of(
+                new Vehicle("TN 01 AA 0001", VehicleType.CAR),
+                new Vehicle("TN 01 AA 0002", VehicleType.CAR),
+                new Vehicle("TN 01 AA 0003", VehicleType.CAR)), 0);
+
+        assertEquals(BatchItemResult.Status.BOOKED, results.get(0).getStatus());
+        assertEquals(BatchItemResult.Status.BOOKED, results.get(1).getStatus());
+        assertTrue(results.get(2).isRejected());
+        assertEquals(0, service.getAvailableSpotCount(VehicleType.CAR));
+    }
+
+    private static ParkingLotService newService(int carSpots) {
+        ParkingLotFloor floor = new ParkingLotFloor(0, "Ground");
+        floor.addSpotRange(VehicleType.CAR, "G-C", 1, carSpots);
+        ParkingLotService service = new ParkingLotService(new SubscriptionManager());
+        service.addParkingFloors(Map.of(0, floor));
+        return service;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.accet.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.accet.parkinglot.model.Booking;
+import com.accet.parkinglot.model.ParkingLotFloor;
+import com.accet.parkinglot.model.PaymentMethod;
+import com.accet.parkinglot.model.Vehicle;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.persistence.BookingArchive;
+
+class RevenueAggregatorTest {
+
+    @TempDir
+    Path directory;
+
+    // Exits after the last checkpoint, e.g. before a crash, are read from the archive; earlier ones come from the checkpoint
+    @Test
+    void restoresCheckpointAndCountsBookingsArchivedSince() {
+        Path checkpoint = directory.resolve("revenue.bin");
+        BookingArchive archive = BookingArchive.open(directory.resolve("archive"));
+        ParkingLotService service = newService(archive);
+        RevenueAggregator aggregator = new RevenueAggregator(service);
+        assertFalse(aggregator.restore(checkpoint, service));
+        service.addListener(aggregator);
+        parkAndLeave(service, 0, 3);
+        aggregator.checkpoint(checkpoint, service);
+        service.removeListener(aggregator);
+        parkAndLeave(service, 3, 2);
+        archive.close();
+
+        BookingArchive reopened = BookingArchive.open(directory.resolve("archive"));
+        ParkingLotService restarted = newService(reopened);
+        RevenueAggregator restored = new RevenueAggregator(restarted);
+        assertTrue(restored.restore(checkpoint, restarted));
+        RevenueAggregator recounted = new RevenueAggregator(restarted);
+        recounted.recordHistory(restarted);
+        reopened.close();
+
+        assertEquals(5, restored.getCompletedBookings());
+        assertEquals(recounted.getTotalRevenue(), restored.getTotalRevenue());
+        assertEquals(recounted.getRevenue(PaymentMethod.CASH), restored.getRevenue(PaymentMethod.CASH));
+        assertEquals(recounted.getFloorRevenue(0), restored.getFloorRevenue(0));
+        assertEquals(recounted.getAverageDwellMinutes(), restored.getAverageDwellMinutes());
+    }
+
+    // A checkpoint ahead of the archive it was taken with no longer describes it, so the whole history is recounted
+    @Test
+    void recountsHistoryWhenTheArchiveNoLongerFitsTheCheckpoint() throws Exception {
+        Path checkpoint = directory.resolve("revenue.bin");
+        BookingArchive archive = BookingArchive.open(directory.resolve("archive"));
+        ParkingLotService service = newService(archive);
+        RevenueAggregator aggregator = new RevenueAggregator(service);
+        service.addListener(aggregator);
+        parkAndLeave(service, 0, 3);
+        aggregator.checkpoint(checkpoint, service);
+        archive.close();
+        try (var files = Files.list(directory.resolve("archive"))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+
+        BookingArchive replaced = BookingArchive.open(directory.resolve("archive"));
+        ParkingLotService restarted = newService(replaced);
+        parkAndLeave(restarted, 10, 1);
+        RevenueAggregator restored = new RevenueAggregator(restarted);
+        assertFalse(restored.restore(checkpoint, restarted));
+        replaced.close();
+
+        assertEquals(1, restored.getCompletedBookings());
+    }
+
+    private static void parkAndLeave(ParkingLotService service, int first, int count) {
+        for (int i = first; i < first + count; i++) {
+            Booking booking = service.bookNearestSpot(new Vehicle(String.format("TN 01 AA %04d", i + 1), VehicleType.CAR), 0);
+            service.releaseSpot(booking.getBookingId(), PaymentMethod.CASH);
+        }
+    }
+
+    private static ParkingLotService newService(BookingArchive archive) {
+        ParkingLotFloor floor = new ParkingLotFloor(0, "Ground");
+        floor.addSpotRange(VehicleType.CAR, "G-C", 1, 4);
+        ParkingLotService service = new ParkingLotService(new SubscriptionManager(), new BookingRegistry(archive));
+        service.addParkingFloors(Map.of(0, floor));
+        return service;
+    }
+}
\ No newline at end of file
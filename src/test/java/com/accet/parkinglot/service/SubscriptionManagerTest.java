@@ -0,0 +1,96 @@
+package com.accet.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.accet.parkinglot.model.Subscription;
+import com.accet.parkinglot.model.SubscriptionTier;
+import com.accet.parkinglot.model.VehicleType;
+import com.accet.parkinglot.util.RegistrationKeys;
+
+class SubscriptionManagerTest {
+    private static final String REGISTRATION = "TN 01 AA 0001";
+    private static final long KEY = RegistrationKeys.pack(REGISTRATION);
+
+    // Buying next month's plan early must not cut this month's plan short
+    @Test
+    void renewalKeepsTheCurrentPlanUntilItEnds() {
+        SubscriptionManager manager = new SubscriptionManager();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime currentEnd = now.plusDays(10);
+        assertTrue(manager.subscribe(REGISTRATION, VehicleType.CAR, SubscriptionTier.BASIC, now.minusDays(20), currentEnd));
+        assertTrue(manager.subscribe(REGISTRATION, VehicleType.CAR, SubscriptionTier.PREMIUM, currentEnd, currentEnd.plusDays(30)));
+
+        assertEquals(SubscriptionTier.BASIC, manager.getTier(KEY, now));
+        assertEquals(SubscriptionTier.BASIC, manager.getTier(KEY, currentEnd.minusMinutes(1)));
+        assertEquals(SubscriptionTier.PREMIUM, manager.getTier(KEY, currentEnd));
+        assertEquals(SubscriptionTier.NONE, manager.getTier(KEY, currentEnd.plusDays(30)));
+        assertEquals(1, manager.getSubscriberCount());
+        assertEquals(2, manager.getAllSubscriptions().size());
+    }
+
+    @Test
+    void expiryHandsOverToTheRenewal() {
+        SubscriptionManager manager = new SubscriptionManager();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime currentEnd = now.plusMinutes(5);
+        manager.subscribe(REGISTRATION, VehicleType.CAR, SubscriptionTier.BASIC, now.minusDays(1), currentEnd);
+        manager.subscribe(REGISTRATION, VehicleType.CAR, SubscriptionTier.PREMIUM, currentEnd.plusMinutes(10), currentEnd.plusDays(30));
+
+        assertEquals(1, manager.expireSubscriptions(currentEnd));
+        assertEquals(1, manager.getSubscriberCount());
+        assertEquals(1, manager.getAllSubscriptions().size());
+        assertEquals(SubscriptionTier.NONE, manager.getTier(KEY, currentEnd.plusMinutes(5)));
+        assertEquals(SubscriptionTier.PREMIUM, manager.getTier(KEY, currentEnd.plusMinutes(10)));
+        assertEquals(1, manager.expireSubscriptions(currentEnd.plusDays(30)));
+        assertEquals(0, manager.getSubscriberCount());
+    }
+
+    @Test
+    void rejectsOverlappingWindowsAndASecondRenewal() {
+        SubscriptionManager manager = new SubscriptionManager();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime currentEnd = now.plusDays(10);
+        assertTrue(manager.subscribe(REGISTRATION, VehicleType.CAR, SubscriptionTier.BASIC, now, currentEnd));
+        assertFalse(manager.subscribe(REGISTRATION, VehicleType.CAR, SubscriptionTier.PREMIUM, now.plusDays(5), now.plusDays(40)));
+        assertTrue(manager.subscribe(REGISTRATION, VehicleType.CAR, SubscriptionTier.PREMIUM, currentEnd, currentEnd.plusDays(30)));
+        assertFalse(manager.subscribe(REGISTRATION, VehicleType.CAR, SubscriptionTier.PREMIUM, currentEnd.plusDays(30), currentEnd.plusDays(60)));
+        assertEquals(SubscriptionTier.BASIC, manager.getTier(KEY, now));
+    }
+
+    // A plan that has ended, even if not expired yet, no longer blocks a new one
+    @Test
+    void endedPlanIsReplaced() {
+        SubscriptionManager manager = new SubscriptionManager();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        assertTrue(manager.subscribe(REGISTRATION, VehicleType.CAR, SubscriptionTier.BASIC, now.minusDays(40), now.minusDays(10)));
+        assertTrue(manager.subscribe(REGISTRATION, VehicleType.CAR, SubscriptionTier.PREMIUM, now, now.plusDays(30)));
+        assertEquals(1, manager.getAllSubscriptions().size());
+        assertEquals(SubscriptionTier.PREMIUM, manager.getTier(KEY, now));
+    }
+
+    // Replay may apply subscriptions the snapshot already restored
+    @Test
+    void restoreIsIdempotent() {
+        SubscriptionManager manager = new SubscriptionManager();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        Subscription current = new Subscription(KEY, VehicleType.CAR, SubscriptionTier.BASIC, now.minusDays(1), now.plusDays(1));
+        Subscription renewal = new Subscription(KEY, VehicleType.CAR, SubscriptionTier.PREMIUM, now.plusDays(1), now.plusDays(31));
+        manager.restoreSubscription(current);
+        manager.restoreSubscription(renewal);
+        manager.restoreSubscription(new Subscription(KEY, VehicleType.CAR, SubscriptionTier.BASIC, now.minusDays(1), now.plusDays(1)));
+        manager.restoreSubscription(renewal);
+
+        assertEquals(2, manager.getAllSubscriptions().size());
+        assertEquals(SubscriptionTier.BASIC, manager.getTier(KEY, now));
+        assertEquals(SubscriptionTier.PREMIUM, manager.getTier(KEY, now.plusDays(2)));
+        assertNull(manager.getActiveSubscription(KEY, now.plusDays(31)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,153 @@
+package com.accet.parkinglot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import com.accet.parkinglot.model.SubscriptionTier;
+import com.accet.parkinglot.model.VehicleType;
+
+class TariffTableTest {
+    // 2024-01-01 was a Monday
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime SATURDAY = MONDAY.plusDays(5);
+
+    // Hourly rates of the switch the default card replaced
+    private static final Map<VehicleType, Integer> OLD_RATES = Map.of(
+            VehicleType.BICYCLE, 10, VehicleType.TWO_WHEELER, 15, VehicleType.THREE_WHEELER, 20,
+            VehicleType.CAR, 30, VehicleType.VAN, 35, VehicleType.MINI_TRUCK, 35,
+            VehicleType.ELECTRIC_BIKE, 15, VehicleType.ELECTRIC_CAR, 30);
+
+    // The default card charges what the old switch did: the rate per started hour, at least one hour, with
+    // premium subscribers paying 80%
+    @Test
+    void defaultCardMatchesTheOldSwitch() {
+        TariffTable table = TariffTable.fromResource(TariffTable.DEFAULT_TARIFF);
+        LocalDateTime[] starts = {MONDAY, MONDAY.plusHours(23).plusMinutes(30), SATURDAY.plusHours(9), SATURDAY.plusDays(1).plusHours(22)};
+        int[] stays = {0, 1, 59, 60, 61, 119, 180, 24 * 60 + 1, 9 * 24 * 60};
+        for (VehicleType type : VehicleType.values()) {
+            for (LocalDateTime start : starts) {
+                for (int minutes : stays) {
+                    int baseFee = OLD_RATES.get(type) * (int) Math.max(1, (minutes + 59) / 60);
+                    LocalDateTime end = start.plusMinutes(minutes);
+                    assertEquals(baseFee, table.fee(type, start, end, SubscriptionTier.NONE), type + " for " + minutes + " minutes");
+                    assertEquals((int) (baseFee * 0.8), table.fee(type, start, end, SubscriptionTier.PREMIUM), type + " for " + minutes + " minutes");
+                }
+            }
+        }
+    }
+
+    @Test
+    void bandsOverrideTheRateForTheirHours() {
+        Properties card = card();
+        card.setProperty("band.CAR.18-24", "20");
+        card.setProperty("weekendRate.CAR", "40");
+        card.setProperty("weekendBand.CAR.0-6", "12.50");
+        TariffTable table = TariffTable.of(card);
+
+        assertEquals(30, fee(table, MONDAY.plusHours(17), 60));
+        assertEquals(50, fee(table, MONDAY.plusHours(17), 120));
+        assertEquals(20, fee(table, MONDAY.plusHours(23), 60));
+        // Friday 23:00 to Saturday 01:00 crosses from the weekday band into the weekend one
+        assertEquals(33, fee(table, SATURDAY.minusHours(1), 120));
+        assertEquals(40, fee(table, SATURDAY.plusHours(6), 60));
+        assertEquals(40, fee(table, SATURDAY.plusDays(1).plusHours(23), 60));
+        // Sunday 23:00 to Monday 01:00 wraps around the week
+        assertEquals(70, fee(table, MONDAY.plusDays(6).plusHours(23), 120));
+    }
+
+    @Test
+    void dailyCapLimitsEvery24HoursFromArrival() {
+        Properties card = card();
+        card.setProperty("dailyCap.CAR", "200");
+        TariffTable table = TariffTable.of(card);
+
+        assertEquals(180, fee(table, MONDAY.plusHours(9), 6 * 60));
+        assertEquals(200, fee(table, MONDAY.plusHours(9), 7 * 60));
+        assertEquals(200, fee(table, MONDAY.plusHours(9), 24 * 60));
+        assertEquals(230, fee(table, MONDAY.plusHours(9), 25 * 60));
+        // Whole weeks are summed a week of days at a time
+        assertEquals(8 * 200 + 60, fee(table, MONDAY.plusHours(9), 8 * 24 * 60 + 120));
+        assertEquals(15 * 200, fee(table, SATURDAY, 15 * 24 * 60));
+        // Other vehicle types stay uncapped
+        assertEquals(24 * 35, table.fee(VehicleType.VAN, MONDAY, MONDAY.plusDays(1), SubscriptionTier.NONE));
+    }
+
+    @Test
+    void capFollowsTheBandsOfEachDay() {
+        Properties card = card();
+        card.setProperty("weekendRate.CAR", "10");
+        card.setProperty("dailyCap.CAR", "500");
+        TariffTable table = TariffTable.of(card);
+
+        // Friday noon to Sunday noon: 12 weekday hours and 12 weekend hours, then 24 weekend hours, none capped
+        assertEquals(12 * 30 + 12 * 10 + 24 * 10, fee(table, SATURDAY.minusHours(12), 48 * 60));
+        // Thursday noon to Saturday noon: the first day is capped, the second is not
+        assertEquals(500 + 12 * 30 + 12 * 10, fee(table, SATURDAY.minusHours(36), 48 * 60));
+    }
+
+    @Test
+    void graceMinutesAndBillingUnits() {
+        Properties card = card();
+        card.setProperty("graceMinutes", "15");
+        card.setProperty("billingUnitMinutes", "30");
+        TariffTable table = TariffTable.of(card);
+
+        assertEquals(0, fee(table, MONDAY, 0));
+        assertEquals(0, fee(table, MONDAY, 15));
+        assertEquals(15, fee(table, MONDAY, 16));
+        assertEquals(15, fee(table, MONDAY, 30));
+        assertEquals(30, fee(table, MONDAY, 31));
+    }
+
+    @Test
+    void discountAndFractionalRatesRoundUpToWholeRupees() {
+        Properties card = card();
+        card.setProperty("rate.CAR", "12.50");
+        card.setProperty("tierDiscountPercent.BASIC", "10");
+        TariffTable table = TariffTable.of(card);
+
+        assertEquals(13, fee(table, MONDAY, 60));
+        assertEquals(25, fee(table, MONDAY, 120));
+        assertEquals(22, table.fee(VehicleType.CAR, MONDAY, MONDAY.plusHours(2), SubscriptionTier.BASIC));
+    }
+
+    @Test
+    void rejectsInvalidCards() {
+        Properties missingRate = card();
+        missingRate.remove("rate.VAN");
+        assertThrows(IllegalArgumentException.class, () -> TariffTable.of(missingRate));
+
+        Properties badBand = card();
+        badBand.setProperty("band.CAR.20-18", "10");
+        assertThrows(IllegalArgumentException.class, () -> TariffTable.of(badBand));
+
+        Properties negativeRate = card();
+        negativeRate.setProperty("rate.CAR", "-1");
+        assertThrows(IllegalArgumentException.class, () -> TariffTable.of(negativeRate));
+
+        Properties badDiscount = card();
+        badDiscount.setProperty("tierDiscountPercent.PREMIUM", "120");
+        assertThrows(IllegalArgumentException.class, () -> TariffTable.of(badDiscount));
+
+        Properties badUnit = card();
+        badUnit.setProperty("billingUnitMinutes", "0");
+        assertThrows(IllegalArgumentException.class, () -> TariffTable.of(badUnit));
+    }
+
+    // A flat card: the old rates, no bands, caps, grace or discounts
+    private static Properties card() {
+        Properties card = new Properties();
+        OLD_RATES.forEach((type, rate) -> card.setProperty("rate." + type, String.valueOf(rate)));
+        return card;
+    }
+
+    private static int fee(TariffTable table, LocalDateTime start, int minutes) {
+        return table.fee(VehicleType.CAR, start, start.plusMinutes(minutes), SubscriptionTier.NONE);
+    }
+}
\ No newline at end of file
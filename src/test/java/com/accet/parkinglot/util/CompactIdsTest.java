@@ -0,0 +1,57 @@
+package com.accet.parkinglot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class CompactIdsTest {
+
+    @Test
+    void formatAndParseRoundTrip() {
+        Random random = new Random(11);
+        long[] ids = new long[1_000];
+        ids[0] = 0;
+        ids[1] = 1;
+        ids[2] = Long.MAX_VALUE;
+        ids[3] = new SnowflakeIdGenerator(5).nextId();
+        for (int i = 4; i < ids.length; i++) {
+            ids[i] = random.nextLong() >>> 1 >>> random.nextInt(63);
+        }
+        for (long id : ids) {
+            String text = CompactIds.format(id);
+            assertEquals(13, text.length());
+            assertEquals(id, CompactIds.parse(text), text);
+            assertEquals(id, CompactIds.parse(text.toLowerCase()), text);
+        }
+        assertEquals("0000000000000", CompactIds.format(0));
+        assertEquals("7ZZZZZZZZZZZZ", CompactIds.format(Long.MAX_VALUE));
+    }
+
+    // Fixed width keeps the text in the same order as the numbers
+    @Test
+    void textSortsLikeTheIds() {
+        Random random = new Random(12);
+        for (int i = 0; i < 1_000; i++) {
+            long a = random.nextLong() >>> 1 >>> random.nextInt(63);
+            long b = random.nextLong() >>> 1 >>> random.nextInt(63);
+            assertEquals(Long.signum(Long.compare(a, b)), Integer.signum(CompactIds.format(a).compareTo(CompactIds.format(b))));
+        }
+    }
+
+    @Test
+    void rejectsMalformedText() {
+        String[] invalid = {
+                "", "000000000000", "00000000000000", "000000000000I", "000000000000L", "000000000000O",
+                "000000000000U", "000000000000-", "00000000 0000", "8000000000000", "Z000000000000",
+                "000000000000\u00E9"
+        };
+        assertEquals(-1, CompactIds.parse(null));
+        for (String text : invalid) {
+            assertEquals(-1, CompactIds.parse(text), text);
+        }
+        assertTrue(CompactIds.parse("7zzzzzzzzzzzz") > 0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.accet.parkinglot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IntervalMaxTreeTest {
+    private static final long BASE = 28_000_000;
+    private static final long SPAN = 1L << 24;
+
+    // Intervals are half-open: one ending where the next starts does not overlap it
+    @Test
+    void peaksRespectHalfOpenEdges() {
+        IntervalMaxTree tree = new IntervalMaxTree(BASE);
+        tree.add(BASE + 10, BASE + 20, 1);
+        tree.add(BASE + 20, BASE + 30, 1);
+        tree.add(BASE + 15, BASE + 25, 1);
+
+        assertEquals(0, tree.countAt(BASE + 9));
+        assertEquals(1, tree.countAt(BASE + 10));
+        assertEquals(2, tree.countAt(BASE + 19));
+        assertEquals(2, tree.countAt(BASE + 20));
+        assertEquals(1, tree.countAt(BASE + 29));
+        assertEquals(0, tree.countAt(BASE + 30));
+        assertEquals(1, tree.max(BASE, BASE + 15));
+        assertEquals(2, tree.max(BASE, BASE + 16));
+        assertEquals(2, tree.max(BASE + 24, BASE + 40));
+        assertEquals(1, tree.max(BASE + 25, BASE + 40));
+        assertEquals(0, tree.max(BASE + 30, BASE + 1_000));
+        assertEquals(0, tree.max(BASE + 20, BASE + 20));
+        assertEquals(0, tree.max(BASE + 25, BASE + 15));
+    }
+
+    @Test
+    void removingAnIntervalLowersThePeak() {
+        IntervalMaxTree tree = new IntervalMaxTree(BASE);
+        tree.add(BASE + 100, BASE + 200, 1);
+        tree.add(BASE + 150, BASE + 300, 1);
+        assertEquals(2, tree.max(BASE, BASE + SPAN));
+        tree.add(BASE + 150, BASE + 300, -1);
+        assertEquals(1, tree.max(BASE, BASE + SPAN));
+        assertEquals(0, tree.max(BASE + 200, BASE + SPAN));
+        tree.add(BASE + 100, BASE + 200, -1);
+        assertEquals(0, tree.max(BASE, BASE + SPAN));
+    }
+
+    // Ticks before the base count as the base, and ticks past the span as its last tick
+    @Test
+    void ticksOutsideTheSpanAreClampedToItsEnds() {
+        IntervalMaxTree tree = new IntervalMaxTree(BASE);
+        tree.add(BASE - 500, BASE + 1, 1);
+        tree.add(BASE + SPAN - 1, BASE + SPAN + 500, 1);
+        tree.add(0, Long.MAX_VALUE, 1);
+
+        assertEquals(2, tree.countAt(BASE));
+        assertEquals(1, tree.countAt(BASE + 1));
+        assertEquals(2, tree.countAt(BASE + SPAN - 1));
+        assertEquals(2, tree.max(Long.MIN_VALUE, BASE + 1));
+        assertEquals(1, tree.max(BASE + 1, BASE + SPAN - 1));
+        assertEquals(2, tree.max(BASE + 1, Long.MAX_VALUE));
+        // Wholly outside the span, so clamped to an empty range
+        assertEquals(0, tree.max(BASE - 10, BASE - 5));
+        assertEquals(0, tree.countAt(BASE + SPAN));
+        tree.add(BASE - 10, BASE - 5, 1);
+        assertEquals(2, tree.countAt(BASE));
+    }
+
+    // Random adds, and removes of intervals added earlier, near both ends of the span and in the middle, checked
+    // against a plain count per tick
+    @Test
+    void matchesABruteForceCount() {
+        Random random = new Random(20);
+        long[] offsets = {0, SPAN / 2 - 256, SPAN - 512};
+        for (long offset : offsets) {
+            IntervalMaxTree tree = new IntervalMaxTree(BASE);
+            int[] counts = new int[512];
+            List<int[]> added = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                int from;
+                int to;
+                int delta;
+                if (!added.isEmpty() && random.nextInt(3) == 0) {
+                    int[] interval = added.remove(random.nextInt(added.size()));
+                    from = interval[0];
+                    to = interval[1];
+                    delta = -1;
+                } else {
+                    from = random.nextInt(counts.length);
+                    to = from + random.nextInt(counts.length - from + 1);
+                    delta = 1;
+                    added.add(new int[] {from, to});
+                }
+                tree.add(BASE + offset + from, BASE + offset + to, delta);
+                for (int tick = from; tick < to; tick++) {
+                    counts[tick] += delta;
+                }
+                int queryFrom = random.nextInt(counts.length);
+                int queryTo = queryFrom + 1 + random.nextInt(counts.length - queryFrom);
+                int expected = 0;
+                for (int tick = queryFrom; tick < queryTo; tick++) {
+                    expected = Math.max(expected, counts[tick]);
+                }
+                assertEquals(expected, tree.max(BASE + offset + queryFrom, BASE + offset + queryTo), "at offset " + offset);
+            }
+        }
+    }
+}
\ No newline at end of file
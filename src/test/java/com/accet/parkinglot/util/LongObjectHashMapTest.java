@@ -0,0 +1,114 @@
+package com.accet.parkinglot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LongObjectHashMapTest {
+    // Slots of a map created with the default size
+    private static final int DEFAULT_SLOTS = 32;
+
+    // Removing any entry of a probe run that wraps around the end of the table leaves every other entry findable
+    @Test
+    void backwardShiftDeleteKeepsCollidingKeysReachable() {
+        List<Long> run = new ArrayList<>();
+        run.addAll(keysWithHome(DEFAULT_SLOTS - 2, 4));
+        run.addAll(keysWithHome(DEFAULT_SLOTS - 1, 2));
+        run.addAll(keysWithHome(0, 2));
+        run.addAll(keysWithHome(3, 1));
+        for (Long removed : run) {
+            LongObjectHashMap<String> map = new LongObjectHashMap<>();
+            for (Long key : run) {
+                map.put(key, "v" + key);
+            }
+            assertEquals("v" + removed, map.remove(removed));
+            assertEquals(run.size() - 1, map.size());
+            assertNull(map.get(removed));
+            assertFalse(map.containsKey(removed));
+            for (Long key : run) {
+                if (!key.equals(removed)) {
+                    assertEquals("v" + key, map.get(key), "after removing " + removed);
+                }
+            }
+            // The freed slot is reused rather than leaving a tombstone behind
+            assertNull(map.put(removed, "again"));
+            assertEquals(run.size(), map.size());
+            assertEquals("again", map.get(removed));
+        }
+    }
+
+    @Test
+    void emptiesCompletelyUnderCollisions() {
+        List<Long> run = keysWithHome(5, 8);
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        run.forEach(key -> map.put(key, key));
+        for (int i = run.size() - 1; i >= 0; i -= 2) {
+            assertEquals(run.get(i), map.remove(run.get(i)));
+        }
+        for (int i = run.size() - 2; i >= 0; i -= 2) {
+            assertTrue(map.remove(run.get(i), run.get(i)));
+        }
+        assertTrue(map.isEmpty());
+        map.forEach((key, value) -> {
+            throw new AssertionError("Left behind: " + key);
+        });
+    }
+
+    @Test
+    void conditionalRemoveAndZeroKey() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        String value = new String("zero");
+        assertNull(map.putIfAbsent(0, value));
+        assertEquals(value, map.putIfAbsent(0, "other"));
+        assertTrue(map.containsKey(0));
+        assertEquals(1, map.size());
+        assertFalse(map.remove(0, new String("zero")));
+        assertTrue(map.remove(0, value));
+        assertFalse(map.containsKey(0));
+
+        map.put(42, value);
+        assertFalse(map.remove(42, "other"));
+        assertTrue(map.remove(42, value));
+        assertTrue(map.isEmpty());
+    }
+
+    // Random puts and removes over a small key range, checked against a HashMap, through several resizes
+    @Test
+    void matchesHashMapUnderRandomChurn() {
+        Random random = new Random(16);
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(4);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(512) * (1L << 14);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+        map.forEach((key, value) -> assertEquals(expected.get(key), value));
+    }
+
+    // Finds positive keys whose home slot in a map of DEFAULT_SLOTS slots is home; mirrors the map's hash
+    private static List<Long> keysWithHome(int home, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            if (((int) (hash ^ (hash >>> 32)) & (DEFAULT_SLOTS - 1)) == home) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.accet.parkinglot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RegistrationKeysTest {
+
+    @Test
+    void packAndFormatRoundTrip() {
+        String[] plates = {"AA 00 AA 0000", "TN 01 AA 0001", "KA 51 MX 4821", "ZZ 99 ZZ 9999"};
+        for (String plate : plates) {
+            long key = RegistrationKeys.pack(plate);
+            assertTrue(key >= 0, plate);
+            assertTrue(key < 1L << 41, plate);
+            assertEquals(plate, RegistrationKeys.format(key));
+        }
+    }
+
+    // Any whitespace the old pattern matched separates the parts; formatting always uses single spaces
+    @Test
+    void separatorsAreNotPartOfTheKey() {
+        long key = RegistrationKeys.pack("TN 01 AA 0001");
+        assertEquals(key, RegistrationKeys.pack("TN\t01\nAA\r0001"));
+        assertEquals("TN 01 AA 0001", RegistrationKeys.format(RegistrationKeys.pack("TN\f01\u000BAA 0001")));
+    }
+
+    // Keys sort like the canonical text, part by part
+    @Test
+    void keysSortLikeTheirText() {
+        String[] sorted = {"AA 00 AA 0000", "AA 00 AA 0001", "AA 00 AB 0000", "AA 01 AA 0000", "AB 00 AA 0000", "ZZ 99 ZZ 9999"};
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(RegistrationKeys.pack(sorted[i - 1]) < RegistrationKeys.pack(sorted[i]), sorted[i]);
+        }
+    }
+
+    @Test
+    void rejectsMalformedNumbers() {
+        String[] invalid = {
+                "", "TN 01 AA 001", "TN 01 AA 00011", "TN01AA0001", "tn 01 aa 0001", "TN 01 aA 0001",
+                "T1 01 AA 0001", "TN 0A AA 0001", "TN 01 A1 0001", "TN 01 AA 000A", "TN-01-AA-0001",
+                "TN 01 AA\u00A00001", "\u00C4N 01 AA 0001", "TN 01 AA \u0660\u0660\u0660\u0661"
+        };
+        assertEquals(-1, RegistrationKeys.pack(null));
+        for (String text : invalid) {
+            assertEquals(-1, RegistrationKeys.pack(text), text);
+        }
+    }
+}
\ No newline at end of file
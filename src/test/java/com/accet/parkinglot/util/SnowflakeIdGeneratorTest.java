@@ -0,0 +1,98 @@
+package com.accet.parkinglot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class SnowflakeIdGeneratorTest {
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    private static final int TIMESTAMP_SHIFT = SnowflakeIdGenerator.NODE_BITS + 12;
+
+    // IDs keep increasing while the clock ticks over, and carry the time they were made
+    @Test
+    void idsIncreaseAcrossClockTicks() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        long previous = 0;
+        int ticks = 0;
+        long lastMillis = System.currentTimeMillis();
+        while (ticks < 5) {
+            long before = System.currentTimeMillis();
+            long id = generator.nextId();
+            assertTrue(id > previous, "not increasing after " + previous);
+            assertTrue((id >>> TIMESTAMP_SHIFT) >= before - EPOCH_MILLIS, "stamped before it was made");
+            assertEquals(7, SnowflakeIdGenerator.nodeOf(id));
+            previous = id;
+            if (before != lastMillis) {
+                lastMillis = before;
+                ticks++;
+            }
+        }
+    }
+
+    // More than a millisecond's worth of sequence numbers borrows from the next millisecond rather than repeating
+    @Test
+    void burstsBeyondTheSequenceStayUniqueAndOrdered() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE);
+        long previous = generator.nextId();
+        for (int i = 0; i < 3 * 4096; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(SnowflakeIdGenerator.MAX_NODE, SnowflakeIdGenerator.nodeOf(id));
+            previous = id;
+        }
+    }
+
+    // An ID recovered from another node and stamped in the future still comes before every new ID
+    @Test
+    void advancePastSkipsRecoveredIds() {
+        long future = (System.currentTimeMillis() - EPOCH_MILLIS + 60_000) << TIMESTAMP_SHIFT | 3L << 12 | 4095;
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        generator.advancePast(future);
+        generator.advancePast(future - (1L << TIMESTAMP_SHIFT));
+        long id = generator.nextId();
+        assertTrue(id > future);
+        assertEquals(1, SnowflakeIdGenerator.nodeOf(id));
+        assertEquals((future >>> TIMESTAMP_SHIFT) + 1, id >>> TIMESTAMP_SHIFT);
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws InterruptedException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(2);
+        List<long[]> batches = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long[] batch = new long[20_000];
+            batches.add(batch);
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < batch.length; i++) {
+                    batch[i] = generator.nextId();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Set<Long> seen = new HashSet<>();
+        for (long[] batch : batches) {
+            for (int i = 0; i < batch.length; i++) {
+                assertTrue(seen.add(batch[i]), "repeated " + batch[i]);
+                assertTrue(i == 0 || batch[i] > batch[i - 1]);
+            }
+        }
+    }
+
+    @Test
+    void rejectsNodesOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE + 1));
+    }
+}
\ No newline at end of file
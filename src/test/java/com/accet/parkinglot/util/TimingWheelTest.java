@@ -0,0 +1,110 @@
+package com.accet.parkinglot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+    // Ticks covered by each level: 64, 64^2, 64^3, 64^4
+    private static final long LEVEL_1 = 64;
+    private static final long LEVEL_2 = LEVEL_1 * 64;
+    private static final long LEVEL_3 = LEVEL_2 * 64;
+    private static final long LEVEL_4 = LEVEL_3 * 64;
+
+    // Timers filed in every level, and beyond the top one, cascade down and fire exactly at their deadline
+    @Test
+    void timersCascadeAcrossLevelsAndFireOnTime() {
+        long start = 1_000_003;
+        long[] deltas = {
+                0, 1, LEVEL_1 - 1, LEVEL_1, LEVEL_1 + 1, LEVEL_2 - 1, LEVEL_2, LEVEL_2 + 1, LEVEL_3 - 1, LEVEL_3,
+                LEVEL_3 + 1, LEVEL_4 - 1, LEVEL_4, LEVEL_4 + 1, 2 * LEVEL_4 + 7
+        };
+        TimingWheel<Long> wheel = new TimingWheel<>(start);
+        for (int i = deltas.length - 1; i >= 0; i--) {
+            wheel.schedule(start + deltas[i], start + deltas[i]);
+        }
+        assertEquals(deltas.length, wheel.size());
+        for (long delta : deltas) {
+            long deadline = start + delta;
+            List<Long> fired = new ArrayList<>();
+            assertEquals(0, wheel.advance(deadline - 1, fired::add), "early at " + delta);
+            assertEquals(1, wheel.advance(deadline, fired::add), "missed at " + delta);
+            assertEquals(List.of(deadline), fired);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    // Timers scheduled from a tick just before a level wraps must not fire a whole rotation late
+    @Test
+    void timersScheduledJustBeforeAWrapFireOnTime() {
+        for (long start : new long[] {LEVEL_1 - 1, LEVEL_2 - 1, LEVEL_3 - 1, 5 * LEVEL_1 + 63}) {
+            TimingWheel<Long> wheel = new TimingWheel<>(start);
+            long[] deadlines = {start + 1, start + LEVEL_1, start + LEVEL_2 - 1, start + LEVEL_2 + LEVEL_1};
+            for (long deadline : deadlines) {
+                wheel.schedule(deadline, deadline);
+            }
+            for (long deadline : deadlines) {
+                List<Long> fired = new ArrayList<>();
+                wheel.advance(deadline - 1, fired::add);
+                assertTrue(fired.isEmpty(), "early from " + start);
+                wheel.advance(deadline, fired::add);
+                assertEquals(List.of(deadline), fired, "from " + start);
+            }
+        }
+    }
+
+    // Random deadlines, advanced in random jumps: each run fires exactly the deadlines it passed, in order
+    @Test
+    void firesInDeadlineOrderAcrossRandomJumps() {
+        Random random = new Random(17);
+        long start = 123_456;
+        TimingWheel<Long> wheel = new TimingWheel<>(start);
+        List<Long> pending = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            long deadline = start + (long) Math.pow(random.nextDouble(), 3) * 300_000;
+            wheel.schedule(deadline, deadline);
+            pending.add(deadline);
+        }
+        pending.sort(null);
+        long now = start - 1;
+        int next = 0;
+        while (next < pending.size()) {
+            now += 1 + random.nextInt(2_000);
+            List<Long> fired = new ArrayList<>();
+            wheel.advance(now, fired::add);
+            int from = next;
+            while (next < pending.size() && pending.get(next) <= now) {
+                next++;
+            }
+            assertEquals(pending.subList(from, next), fired, "up to " + now);
+            assertEquals(pending.size() - next, wheel.size());
+        }
+    }
+
+    @Test
+    void cancelledAndOverdueTimers() {
+        TimingWheel<String> wheel = new TimingWheel<>(100);
+        TimingWheel.Timer<String> cancelled = wheel.schedule("cancelled", 5_000);
+        wheel.schedule("kept", 5_000);
+        assertTrue(cancelled.isPending());
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(cancelled.isPending());
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(1, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(4_000, fired::add);
+        wheel.schedule("overdue", 50);
+        wheel.advance(4_000, fired::add);
+        assertEquals(List.of("overdue"), fired);
+        wheel.advance(10_000, fired::add);
+        assertEquals(List.of("overdue", "kept"), fired);
+        assertEquals(0, wheel.size());
+    }
+}
\ No newline at end of file